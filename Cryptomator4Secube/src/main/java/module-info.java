@@ -11,6 +11,7 @@ module org.cryptomator.desktop {
 	requires org.cryptomator.integrations.api;
 	requires java.desktop;
 	requires java.net.http;
+	requires jdk.jfr;
 	requires javafx.base;
 	requires javafx.graphics;
 	requires javafx.controls;
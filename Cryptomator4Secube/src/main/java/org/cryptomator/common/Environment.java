@@ -11,6 +11,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.function.Predicate;
@@ -24,6 +25,9 @@ public class Environment {
 	private static final Path RELATIVE_HOME_DIR = Paths.get("~");
 	private static final char PATH_LIST_SEP = ':';
 	private static final int DEFAULT_MIN_PW_LENGTH = 8;
+	private static final String DEFAULT_SECUBE_TRANSPORT = "process";
+	private static final int DEFAULT_SECUBE_DAEMON_PORT = 47801;
+	private static final int DEFAULT_AUTO_UNLOCK_PARALLELISM = 4;
 
 	@Inject
 	public Environment() {
@@ -42,6 +46,12 @@ public class Environment {
 		LOG.debug("cryptomator.appVersion: {}", System.getProperty("cryptomator.appVersion"));
 		LOG.debug("cryptomator.buildNumber: {}", System.getProperty("cryptomator.buildNumber"));
 		LOG.debug("cryptomator.showTrayIcon: {}", System.getProperty("cryptomator.showTrayIcon"));
+		LOG.debug("cryptomator.autoUnlockParallelism: {}", System.getProperty("cryptomator.autoUnlockParallelism"));
+		LOG.debug("cryptomator.watchVaultConfigs: {}", Boolean.getBoolean("cryptomator.watchVaultConfigs"));
+		LOG.debug("cryptomator.metricsPort: {}", System.getProperty("cryptomator.metricsPort"));
+		LOG.debug("cryptomator.metricsSocketPath: {}", System.getProperty("cryptomator.metricsSocketPath"));
+		LOG.debug("cryptomator.secubeTransport: {}", System.getProperty("cryptomator.secubeTransport"));
+		LOG.debug("cryptomator.secubeDaemonPort: {}", System.getProperty("cryptomator.secubeDaemonPort"));
 		LOG.debug("fuse.experimental: {}", Boolean.getBoolean("fuse.experimental"));
 	}
 
@@ -89,6 +99,43 @@ public class Environment {
 		return Boolean.getBoolean("cryptomator.showTrayIcon");
 	}
 
+	public boolean watchVaultConfigs() {
+		return Boolean.getBoolean("cryptomator.watchVaultConfigs");
+	}
+
+	/**
+	 * @return The loopback port to serve vault metrics on, if enabled
+	 */
+	public OptionalInt getMetricsPort() {
+		int port = getInt("cryptomator.metricsPort", 0);
+		return port > 0 ? OptionalInt.of(port) : OptionalInt.empty();
+	}
+
+	/**
+	 * @return The Unix domain socket to serve vault metrics on, if enabled
+	 */
+	public Optional<Path> getMetricsSocketPath() {
+		return getPath("cryptomator.metricsSocketPath").map(this::replaceHomeDir);
+	}
+
+	/**
+	 * @return How many vaults may be unlocked at the same time on startup without user interaction
+	 */
+	public int getAutoUnlockParallelism() {
+		return Math.max(1, getInt("cryptomator.autoUnlockParallelism", DEFAULT_AUTO_UNLOCK_PARALLELISM));
+	}
+
+	/**
+	 * @return How to reach the SEcube middleware: <code>process</code> or <code>socket</code>
+	 */
+	public String getSecubeTransport() {
+		return System.getProperty("cryptomator.secubeTransport", DEFAULT_SECUBE_TRANSPORT);
+	}
+
+	public int getSecubeDaemonPort() {
+		return getInt("cryptomator.secubeDaemonPort", DEFAULT_SECUBE_DAEMON_PORT);
+	}
+
 	private int getInt(String propertyName, int defaultValue) {
 		String value = System.getProperty(propertyName);
 		try {
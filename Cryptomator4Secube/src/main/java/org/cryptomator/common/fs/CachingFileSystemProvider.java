@@ -0,0 +1,450 @@
+package org.cryptomator.common.fs;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Caches file attributes, including the absence of files, and directory listings of the decorated file system for a short time.
+ * <p>
+ * Every change made through this provider invalidates the affected entries right away, so only changes made to the vault from
+ * elsewhere, e.g. by a sync client, can stay unnoticed until the entries expire.
+ * Attributes are bounded by the number of paths, listings by their estimated memory footprint.
+ * <p>
+ * A load racing with a change must not cache what it read before the change. So changes bump a generation, striped by path, which a
+ * load checks before and after storing its result. Changes to other paths rarely share a stripe, so they don't keep loads from caching.
+ */
+public class CachingFileSystemProvider extends DecoratingFileSystemProvider {
+
+	static final int MAX_ATTRIBUTE_ENTRIES = 20_000;
+	static final long MAX_LISTING_BYTES = 16 * 1024 * 1024;
+	static final int MAX_LISTING_SIZE = 10_000; // larger directories are listed every time
+	private static final int GENERATION_STRIPES = 64;
+	private static final List<Path> TOO_LARGE = Collections.unmodifiableList(new ArrayList<>()); // compared by identity
+	private static final DirectoryStream.Filter<Path> ACCEPT_ALL = path -> true;
+	private static final Set<? extends OpenOption> WRITE_OPTIONS = Set.of(StandardOpenOption.WRITE, StandardOpenOption.APPEND, StandardOpenOption.CREATE, StandardOpenOption.CREATE_NEW, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE);
+
+	private final MetadataCacheStats stats;
+	private final Cache<Path, CachedAttributes> attributes;
+	private final Cache<Path, List<Path>> listings;
+	private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+	public CachingFileSystemProvider(FileSystem delegate, Duration timeToLive, MetadataCacheStats stats) {
+		super(delegate);
+		this.stats = stats;
+		this.attributes = CacheBuilder.newBuilder() //
+				.expireAfterWrite(timeToLive) //
+				.maximumSize(MAX_ATTRIBUTE_ENTRIES) //
+				.build();
+		this.listings = CacheBuilder.newBuilder() //
+				.expireAfterWrite(timeToLive) //
+				.maximumWeight(MAX_LISTING_BYTES) //
+				.weigher(CachingFileSystemProvider::estimateListingBytes) //
+				.build();
+	}
+
+	private static int estimateListingBytes(Path dir, List<Path> children) {
+		int bytes = 64;
+		for (var child : children) {
+			bytes += 64 + 2 * child.toString().length();
+		}
+		return bytes;
+	}
+
+	/* Cached reads */
+
+	@Override
+	public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options) throws IOException {
+		var key = unwrap(path);
+		var typeKey = new TypeKey(type, options.length > 0);
+		var cached = attributes.getIfPresent(key);
+		var entry = cached == null ? null : cached.byType.get(typeKey);
+		if (entry != null) {
+			stats.attributeHit();
+			return type.cast(entry.orElseThrow(() -> new NoSuchFileException(path.toString())));
+		}
+		stats.attributeMiss();
+		long generation = generation(key);
+		try {
+			A attrs = super.readAttributes(path, type, options);
+			remember(key, typeKey, Optional.of(attrs), generation);
+			return attrs;
+		} catch (NoSuchFileException e) {
+			remember(key, typeKey, Optional.empty(), generation);
+			throw e;
+		}
+	}
+
+	private void remember(Path key, TypeKey typeKey, Optional<BasicFileAttributes> attrs, long generation) {
+		if (generation(key) != generation) {
+			return;
+		}
+		attributes.asMap().computeIfAbsent(key, k -> new CachedAttributes()).byType.put(typeKey, attrs);
+		if (generation(key) != generation) { // a change slipped in after the first check
+			attributes.invalidate(key);
+		}
+	}
+
+	@Override
+	public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter) throws IOException {
+		var key = unwrap(dir);
+		var cached = listings.getIfPresent(key);
+		if (cached != null && cached != TOO_LARGE) {
+			stats.listingHit();
+			return new ListDirectoryStream(cached, filter);
+		}
+		stats.listingMiss();
+		if (cached == TOO_LARGE) {
+			return super.newDirectoryStream(dir, filter);
+		}
+		long generation = generation(key);
+		var children = new ArrayList<Path>();
+		try (var ds = super.newDirectoryStream(dir, ACCEPT_ALL)) {
+			for (var child : ds) {
+				if (children.size() == MAX_LISTING_SIZE) {
+					remember(key, TOO_LARGE, generation);
+					return super.newDirectoryStream(dir, filter); // streamed instead of held in memory
+				}
+				children.add(child);
+			}
+		} catch (DirectoryIteratorException e) {
+			throw e.getCause();
+		}
+		var listing = List.copyOf(children);
+		remember(key, listing, generation);
+		return new ListDirectoryStream(listing, filter);
+	}
+
+	private void remember(Path key, List<Path> listing, long generation) {
+		if (generation(key) != generation) {
+			return;
+		}
+		listings.put(key, listing);
+		if (generation(key) != generation) {
+			listings.invalidate(key);
+		}
+	}
+
+	/* Write-through invalidation */
+
+	@Override
+	public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs) throws IOException {
+		if (!isWriting(options)) {
+			return super.newByteChannel(path, options, attrs);
+		}
+		try {
+			var ch = super.newByteChannel(path, options, attrs);
+			return ch instanceof FileChannel fc ? new InvalidatingFileChannel(fc, unwrap(path), options.contains(StandardOpenOption.DELETE_ON_CLOSE)) : ch;
+		} finally {
+			invalidate(path);
+		}
+	}
+
+	@Override
+	public FileChannel newFileChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs) throws IOException {
+		if (!isWriting(options)) {
+			return super.newFileChannel(path, options, attrs);
+		}
+		try {
+			return new InvalidatingFileChannel(super.newFileChannel(path, options, attrs), unwrap(path), options.contains(StandardOpenOption.DELETE_ON_CLOSE));
+		} finally {
+			invalidate(path);
+		}
+	}
+
+	private static boolean isWriting(Set<? extends OpenOption> options) {
+		return options.stream().anyMatch(WRITE_OPTIONS::contains);
+	}
+
+	@Override
+	public void createDirectory(Path dir, FileAttribute<?>... attrs) throws IOException {
+		try {
+			super.createDirectory(dir, attrs);
+		} finally {
+			invalidate(dir);
+		}
+	}
+
+	@Override
+	public void createSymbolicLink(Path link, Path target, FileAttribute<?>... attrs) throws IOException {
+		try {
+			super.createSymbolicLink(link, target, attrs);
+		} finally {
+			invalidate(link);
+		}
+	}
+
+	@Override
+	public void createLink(Path link, Path existing) throws IOException {
+		try {
+			super.createLink(link, existing);
+		} finally {
+			invalidate(link);
+			invalidateAttributes(unwrap(existing)); // link count changed
+		}
+	}
+
+	@Override
+	public void delete(Path path) throws IOException {
+		try {
+			super.delete(path);
+		} finally {
+			invalidateTree(unwrap(path));
+		}
+	}
+
+	@Override
+	public boolean deleteIfExists(Path path) throws IOException {
+		try {
+			return super.deleteIfExists(path);
+		} finally {
+			invalidateTree(unwrap(path));
+		}
+	}
+
+	@Override
+	public void copy(Path source, Path target, CopyOption... options) throws IOException {
+		try {
+			super.copy(source, target, options);
+		} finally {
+			invalidateTree(unwrap(target));
+		}
+	}
+
+	@Override
+	public void move(Path source, Path target, CopyOption... options) throws IOException {
+		try {
+			super.move(source, target, options);
+		} finally {
+			invalidateTree(unwrap(source));
+			invalidateTree(unwrap(target));
+		}
+	}
+
+	@Override
+	public void setAttribute(Path path, String attribute, Object value, LinkOption... options) throws IOException {
+		try {
+			super.setAttribute(path, attribute, value, options);
+		} finally {
+			invalidateAttributes(unwrap(path));
+		}
+	}
+
+	/**
+	 * Views can change attributes, e.g. to set file times, so any call other than reading invalidates the cached attributes.
+	 */
+	@Override
+	public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options) {
+		V view = super.getFileAttributeView(path, type, options);
+		if (view == null || !type.isInterface()) {
+			return view;
+		}
+		var key = unwrap(path);
+		return type.cast(Proxy.newProxyInstance(CachingFileSystemProvider.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+			try {
+				return method.invoke(view, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			} finally {
+				if (!"readAttributes".equals(method.getName()) && !"name".equals(method.getName())) {
+					invalidateAttributes(key);
+				}
+			}
+		}));
+	}
+
+	private long generation(Path key) {
+		return generations.get(stripe(key));
+	}
+
+	private static int stripe(Path key) {
+		return Math.floorMod(key.hashCode(), GENERATION_STRIPES);
+	}
+
+	// a path and its parent directory
+	private void invalidate(Path path) {
+		var key = unwrap(path);
+		generations.incrementAndGet(stripe(key));
+		attributes.invalidate(key);
+		listings.invalidate(key);
+		invalidateParent(key);
+	}
+
+	// a path, its parent directory and, if it is a directory, everything within
+	private void invalidateTree(Path key) {
+		for (int i = 0; i < GENERATION_STRIPES; i++) { // the paths within can be in any stripe
+			generations.incrementAndGet(i);
+		}
+		attributes.asMap().keySet().removeIf(p -> p.startsWith(key));
+		listings.asMap().keySet().removeIf(p -> p.startsWith(key));
+		invalidateParent(key);
+	}
+
+	private void invalidateParent(Path key) {
+		var parent = key.getParent();
+		if (parent != null) {
+			generations.incrementAndGet(stripe(parent));
+			attributes.invalidate(parent);
+			listings.invalidate(parent);
+		}
+	}
+
+	private void invalidateAttributes(Path key) {
+		generations.incrementAndGet(stripe(key));
+		attributes.invalidate(key);
+	}
+
+	/**
+	 * @param type The requested attribute type
+	 * @param noFollowLinks Whether links are not followed, as {@link LinkOption#NOFOLLOW_LINKS} is the only link option
+	 */
+	private record TypeKey(Class<?> type, boolean noFollowLinks) {}
+
+	private static class CachedAttributes {
+
+		final Map<TypeKey, Optional<BasicFileAttributes>> byType = new ConcurrentHashMap<>(2);
+
+	}
+
+	/**
+	 * Keeps the cached size and times from going stale while the file is being written, and forgets the file once deleted on close.
+	 */
+	private class InvalidatingFileChannel extends DecoratingFileChannel {
+
+		private final Path key;
+		private final boolean deleteOnClose;
+
+		InvalidatingFileChannel(FileChannel delegate, Path key, boolean deleteOnClose) {
+			super(delegate);
+			this.key = key;
+			this.deleteOnClose = deleteOnClose;
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			try {
+				return super.write(src);
+			} finally {
+				invalidateAttributes(key);
+			}
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+			try {
+				return super.write(srcs, offset, length);
+			} finally {
+				invalidateAttributes(key);
+			}
+		}
+
+		@Override
+		public int write(ByteBuffer src, long position) throws IOException {
+			try {
+				return super.write(src, position);
+			} finally {
+				invalidateAttributes(key);
+			}
+		}
+
+		@Override
+		public FileChannel truncate(long size) throws IOException {
+			try {
+				return super.truncate(size);
+			} finally {
+				invalidateAttributes(key);
+			}
+		}
+
+		@Override
+		public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+			try {
+				return super.transferFrom(src, position, count);
+			} finally {
+				invalidateAttributes(key);
+			}
+		}
+
+		@Override
+		protected void implCloseChannel() throws IOException {
+			try {
+				super.implCloseChannel();
+			} finally {
+				if (deleteOnClose) {
+					invalidateTree(key);
+				} else {
+					invalidateAttributes(key);
+				}
+			}
+		}
+	}
+
+	private static class ListDirectoryStream implements DirectoryStream<Path> {
+
+		private final List<Path> children;
+		private final DirectoryStream.Filter<? super Path> filter;
+		private boolean iterated;
+
+		ListDirectoryStream(List<Path> children, DirectoryStream.Filter<? super Path> filter) {
+			this.children = children;
+			this.filter = filter;
+		}
+
+		@Override
+		public synchronized Iterator<Path> iterator() {
+			if (iterated) {
+				throw new IllegalStateException("Iterator already obtained");
+			}
+			iterated = true;
+			if (filter == ACCEPT_ALL) {
+				return children.iterator();
+			}
+			var accepted = new ArrayList<Path>(children.size());
+			for (var child : children) {
+				try {
+					if (filter.accept(child)) {
+						accepted.add(child);
+					}
+				} catch (IOException e) {
+					throw new DirectoryIteratorException(e);
+				}
+			}
+			return accepted.iterator();
+		}
+
+		@Override
+		public void close() {
+			// nothing to release
+		}
+	}
+
+}
@@ -0,0 +1,222 @@
+package org.cryptomator.common.fs;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Base class for layers between a mounted volume and the vault's file system.
+ * <p>
+ * Every operation is forwarded to the decorated file system. Subclasses override the operations they are interested in and call
+ * <code>super</code> to carry them out. Streams are not forwarded, so they are built on {@link #newByteChannel(Path, Set, FileAttribute[]) byte channels}.
+ */
+public abstract class DecoratingFileSystemProvider extends FileSystemProvider {
+
+	private final FileSystem delegateFileSystem;
+	private final FileSystemProvider delegate;
+	private final DecoratingFileSystem fileSystem;
+
+	protected DecoratingFileSystemProvider(FileSystem delegateFileSystem) {
+		this.delegateFileSystem = delegateFileSystem;
+		this.delegate = delegateFileSystem.provider();
+		this.fileSystem = new DecoratingFileSystem(this, delegateFileSystem);
+	}
+
+	/**
+	 * @param path A path of the decorated file system
+	 * @return The corresponding path of this provider's file system
+	 */
+	public Path decorate(Path path) {
+		if (path.getFileSystem() != delegateFileSystem) {
+			throw new ProviderMismatchException();
+		}
+		return fileSystem.wrap(path);
+	}
+
+	/**
+	 * @param path A path of this provider's file system
+	 * @return The corresponding path of the decorated file system
+	 */
+	protected Path unwrap(Path path) {
+		if (path instanceof DecoratingPath p && p.getFileSystem() == fileSystem) {
+			return p.getDelegate();
+		} else {
+			throw new ProviderMismatchException();
+		}
+	}
+
+	@Override
+	public String getScheme() {
+		return delegate.getScheme();
+	}
+
+	@Override
+	public FileSystem newFileSystem(URI uri, Map<String, ?> env) {
+		throw new UnsupportedOperationException("Decorates an existing file system only.");
+	}
+
+	@Override
+	public FileSystem getFileSystem(URI uri) {
+		throw new UnsupportedOperationException("Decorates an existing file system only.");
+	}
+
+	@Override
+	public Path getPath(URI uri) {
+		var path = delegate.getPath(uri);
+		if (path.getFileSystem() != delegateFileSystem) {
+			throw new FileSystemNotFoundException(uri.toString());
+		}
+		return fileSystem.wrap(path);
+	}
+
+	@Override
+	public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs) throws IOException {
+		return delegate.newByteChannel(unwrap(path), options, attrs);
+	}
+
+	@Override
+	public FileChannel newFileChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs) throws IOException {
+		return delegate.newFileChannel(unwrap(path), options, attrs);
+	}
+
+	@Override
+	public AsynchronousFileChannel newAsynchronousFileChannel(Path path, Set<? extends OpenOption> options, ExecutorService executor, FileAttribute<?>... attrs) throws IOException {
+		return delegate.newAsynchronousFileChannel(unwrap(path), options, executor, attrs);
+	}
+
+	@Override
+	public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter) throws IOException {
+		return new DecoratingDirectoryStream(delegate.newDirectoryStream(unwrap(dir), p -> filter.accept(fileSystem.wrap(p))));
+	}
+
+	@Override
+	public void createDirectory(Path dir, FileAttribute<?>... attrs) throws IOException {
+		delegate.createDirectory(unwrap(dir), attrs);
+	}
+
+	@Override
+	public void createSymbolicLink(Path link, Path target, FileAttribute<?>... attrs) throws IOException {
+		delegate.createSymbolicLink(unwrap(link), unwrap(target), attrs);
+	}
+
+	@Override
+	public void createLink(Path link, Path existing) throws IOException {
+		delegate.createLink(unwrap(link), unwrap(existing));
+	}
+
+	@Override
+	public void delete(Path path) throws IOException {
+		delegate.delete(unwrap(path));
+	}
+
+	@Override
+	public boolean deleteIfExists(Path path) throws IOException {
+		return delegate.deleteIfExists(unwrap(path));
+	}
+
+	@Override
+	public Path readSymbolicLink(Path link) throws IOException {
+		return fileSystem.wrap(delegate.readSymbolicLink(unwrap(link)));
+	}
+
+	@Override
+	public void copy(Path source, Path target, CopyOption... options) throws IOException {
+		delegate.copy(unwrap(source), unwrap(target), options);
+	}
+
+	@Override
+	public void move(Path source, Path target, CopyOption... options) throws IOException {
+		delegate.move(unwrap(source), unwrap(target), options);
+	}
+
+	@Override
+	public boolean isSameFile(Path path, Path path2) throws IOException {
+		return delegate.isSameFile(unwrap(path), unwrap(path2));
+	}
+
+	@Override
+	public boolean isHidden(Path path) throws IOException {
+		return delegate.isHidden(unwrap(path));
+	}
+
+	@Override
+	public FileStore getFileStore(Path path) throws IOException {
+		return delegate.getFileStore(unwrap(path));
+	}
+
+	@Override
+	public void checkAccess(Path path, AccessMode... modes) throws IOException {
+		delegate.checkAccess(unwrap(path), modes);
+	}
+
+	@Override
+	public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options) {
+		return delegate.getFileAttributeView(unwrap(path), type, options);
+	}
+
+	@Override
+	public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options) throws IOException {
+		return delegate.readAttributes(unwrap(path), type, options);
+	}
+
+	@Override
+	public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options) throws IOException {
+		return delegate.readAttributes(unwrap(path), attributes, options);
+	}
+
+	@Override
+	public void setAttribute(Path path, String attribute, Object value, LinkOption... options) throws IOException {
+		delegate.setAttribute(unwrap(path), attribute, value, options);
+	}
+
+	private class DecoratingDirectoryStream implements DirectoryStream<Path> {
+
+		private final DirectoryStream<Path> delegate;
+
+		DecoratingDirectoryStream(DirectoryStream<Path> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Iterator<Path> iterator() {
+			var iterator = delegate.iterator();
+			return new Iterator<>() {
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public Path next() {
+					return fileSystem.wrap(iterator.next());
+				}
+			};
+		}
+
+		@Override
+		public void close() throws IOException {
+			delegate.close();
+		}
+	}
+
+}
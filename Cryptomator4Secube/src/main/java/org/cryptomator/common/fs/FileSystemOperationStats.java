@@ -0,0 +1,115 @@
+package org.cryptomator.common.fs;
+
+import com.google.common.base.Preconditions;
+import org.cryptomator.common.vaults.LatencyHistogram;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Operations on a mounted vault, as seen by an {@link InstrumentedFileSystemProvider}. Can be read from any thread.
+ * <p>
+ * Every operation is counted, but only the given share of them is timed and attributed to its path.
+ */
+public class FileSystemOperationStats {
+
+	public enum Operation {
+		READ_ATTRIBUTES,
+		WRITE_ATTRIBUTES,
+		CHECK_ACCESS,
+		READ_DIRECTORY,
+		OPEN,
+		READ,
+		WRITE,
+		FORCE,
+		CLOSE,
+		CREATE_DIRECTORY,
+		CREATE_LINK,
+		READ_LINK,
+		MOVE,
+		COPY,
+		DELETE,
+		GET_FILE_STORE
+	}
+
+	static final long NOT_SAMPLED = Long.MIN_VALUE;
+	private static final int HOT_PATHS_CAPACITY = 128;
+
+	private final int samplingPercent;
+	private final LongAdder[] counts = new LongAdder[Operation.values().length];
+	private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+	private final HotPaths hotPaths = new HotPaths(HOT_PATHS_CAPACITY);
+
+	/**
+	 * @param samplingPercent How many operations out of a hundred to time, between 1 and 100
+	 */
+	public FileSystemOperationStats(int samplingPercent) {
+		Preconditions.checkArgument(samplingPercent > 0 && samplingPercent <= 100, "samplingPercent must be between 1 and 100");
+		this.samplingPercent = samplingPercent;
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = new LongAdder();
+			latencies[i] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * Counts an operation and decides whether to sample it.
+	 *
+	 * @return The start time to pass to {@link #end(Operation, Path, long)}, or {@link #NOT_SAMPLED}
+	 */
+	long begin(Operation operation) {
+		counts[operation.ordinal()].increment();
+		if (samplingPercent < 100 && ThreadLocalRandom.current().nextInt(100) >= samplingPercent) {
+			return NOT_SAMPLED;
+		}
+		return System.nanoTime();
+	}
+
+	void end(Operation operation, Path path, long start) {
+		if (start != NOT_SAMPLED) {
+			record(operation, path, System.nanoTime() - start);
+		}
+	}
+
+	void record(Operation operation, Path path, long nanos) {
+		latencies[operation.ordinal()].recordNanos(nanos);
+		if (path != null) {
+			hotPaths.record(path.toString());
+		}
+	}
+
+	public int getSamplingPercent() {
+		return samplingPercent;
+	}
+
+	/**
+	 * @return How often the operation has been invoked, including failed invocations
+	 */
+	public long getCount(Operation operation) {
+		return counts[operation.ordinal()].sum();
+	}
+
+	/**
+	 * @return The latencies of the sampled invocations of the operation
+	 */
+	public LatencyHistogram getLatencies(Operation operation) {
+		return latencies[operation.ordinal()];
+	}
+
+	/**
+	 * @param n How many paths to return at most
+	 * @return The paths of most sampled operations, most frequent first
+	 */
+	public List<PathCount> getHottestPaths(int n) {
+		return hotPaths.top(n);
+	}
+
+	/**
+	 * @param path The cleartext path within the vault
+	 * @param count How many sampled operations were on this path, possibly overestimated
+	 */
+	public record PathCount(String path, long count) {}
+
+}
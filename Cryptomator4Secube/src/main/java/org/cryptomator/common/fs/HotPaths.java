@@ -0,0 +1,48 @@
+package org.cryptomator.common.fs;
+
+import org.cryptomator.common.fs.FileSystemOperationStats.PathCount;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the most frequently accessed paths in bounded memory, using the Space-Saving algorithm by Metwally et al.
+ * <p>
+ * Once full, a new path replaces the least frequent one and inherits its count. Counts are therefore overestimated by at most
+ * the count of the path they replaced, while paths accessed more often than that are guaranteed to be kept.
+ */
+final class HotPaths {
+
+	private final int capacity;
+	private final Map<String, long[]> counts; // boxed counts get updated in place
+
+	HotPaths(int capacity) {
+		this.capacity = capacity;
+		this.counts = new HashMap<>(capacity * 4 / 3 + 1);
+	}
+
+	synchronized void record(String path) {
+		var count = counts.get(path);
+		if (count != null) {
+			count[0]++;
+		} else if (counts.size() < capacity) {
+			counts.put(path, new long[]{1});
+		} else {
+			var leastFrequent = counts.entrySet().stream().min(Comparator.comparingLong(e -> e.getValue()[0])).orElseThrow();
+			counts.remove(leastFrequent.getKey());
+			leastFrequent.getValue()[0]++;
+			counts.put(path, leastFrequent.getValue());
+		}
+	}
+
+	synchronized List<PathCount> top(int n) {
+		return counts.entrySet().stream() //
+				.map(e -> new PathCount(e.getKey(), e.getValue()[0])) //
+				.sorted(Comparator.comparingLong(PathCount::count).reversed()) //
+				.limit(n) //
+				.toList();
+	}
+
+}
@@ -0,0 +1,360 @@
+package org.cryptomator.common.fs;
+
+import org.cryptomator.common.fs.FileSystemOperationStats.Operation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records each operation of a mounted volume in {@link FileSystemOperationStats}.
+ * <p>
+ * Directory listings are timed while being iterated, as that is where file names get decrypted.
+ */
+public class InstrumentedFileSystemProvider extends DecoratingFileSystemProvider {
+
+	private final FileSystemOperationStats stats;
+
+	public InstrumentedFileSystemProvider(FileSystem delegate, FileSystemOperationStats stats) {
+		super(delegate);
+		this.stats = stats;
+	}
+
+	@Override
+	public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs) throws IOException {
+		long start = stats.begin(Operation.OPEN);
+		try {
+			var ch = super.newByteChannel(path, options, attrs);
+			return ch instanceof FileChannel fc ? new InstrumentedFileChannel(fc, path) : ch;
+		} finally {
+			stats.end(Operation.OPEN, path, start);
+		}
+	}
+
+	@Override
+	public FileChannel newFileChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs) throws IOException {
+		long start = stats.begin(Operation.OPEN);
+		try {
+			return new InstrumentedFileChannel(super.newFileChannel(path, options, attrs), path);
+		} finally {
+			stats.end(Operation.OPEN, path, start);
+		}
+	}
+
+	@Override
+	public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter) throws IOException {
+		long start = stats.begin(Operation.READ_DIRECTORY);
+		var success = false;
+		try {
+			var ds = super.newDirectoryStream(dir, filter);
+			success = true;
+			return start == FileSystemOperationStats.NOT_SAMPLED ? ds : new InstrumentedDirectoryStream(ds, dir, System.nanoTime() - start);
+		} finally {
+			if (!success) {
+				stats.end(Operation.READ_DIRECTORY, dir, start);
+			}
+		}
+	}
+
+	@Override
+	public void createDirectory(Path dir, FileAttribute<?>... attrs) throws IOException {
+		long start = stats.begin(Operation.CREATE_DIRECTORY);
+		try {
+			super.createDirectory(dir, attrs);
+		} finally {
+			stats.end(Operation.CREATE_DIRECTORY, dir, start);
+		}
+	}
+
+	@Override
+	public void createSymbolicLink(Path link, Path target, FileAttribute<?>... attrs) throws IOException {
+		long start = stats.begin(Operation.CREATE_LINK);
+		try {
+			super.createSymbolicLink(link, target, attrs);
+		} finally {
+			stats.end(Operation.CREATE_LINK, link, start);
+		}
+	}
+
+	@Override
+	public void createLink(Path link, Path existing) throws IOException {
+		long start = stats.begin(Operation.CREATE_LINK);
+		try {
+			super.createLink(link, existing);
+		} finally {
+			stats.end(Operation.CREATE_LINK, link, start);
+		}
+	}
+
+	@Override
+	public void delete(Path path) throws IOException {
+		long start = stats.begin(Operation.DELETE);
+		try {
+			super.delete(path);
+		} finally {
+			stats.end(Operation.DELETE, path, start);
+		}
+	}
+
+	@Override
+	public boolean deleteIfExists(Path path) throws IOException {
+		long start = stats.begin(Operation.DELETE);
+		try {
+			return super.deleteIfExists(path);
+		} finally {
+			stats.end(Operation.DELETE, path, start);
+		}
+	}
+
+	@Override
+	public Path readSymbolicLink(Path link) throws IOException {
+		long start = stats.begin(Operation.READ_LINK);
+		try {
+			return super.readSymbolicLink(link);
+		} finally {
+			stats.end(Operation.READ_LINK, link, start);
+		}
+	}
+
+	@Override
+	public void copy(Path source, Path target, CopyOption... options) throws IOException {
+		long start = stats.begin(Operation.COPY);
+		try {
+			super.copy(source, target, options);
+		} finally {
+			stats.end(Operation.COPY, source, start);
+		}
+	}
+
+	@Override
+	public void move(Path source, Path target, CopyOption... options) throws IOException {
+		long start = stats.begin(Operation.MOVE);
+		try {
+			super.move(source, target, options);
+		} finally {
+			stats.end(Operation.MOVE, source, start);
+		}
+	}
+
+	@Override
+	public FileStore getFileStore(Path path) throws IOException {
+		long start = stats.begin(Operation.GET_FILE_STORE);
+		try {
+			return super.getFileStore(path);
+		} finally {
+			stats.end(Operation.GET_FILE_STORE, null, start); // always the same store, so the path is of no interest
+		}
+	}
+
+	@Override
+	public void checkAccess(Path path, AccessMode... modes) throws IOException {
+		long start = stats.begin(Operation.CHECK_ACCESS);
+		try {
+			super.checkAccess(path, modes);
+		} finally {
+			stats.end(Operation.CHECK_ACCESS, path, start);
+		}
+	}
+
+	@Override
+	public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options) throws IOException {
+		long start = stats.begin(Operation.READ_ATTRIBUTES);
+		try {
+			return super.readAttributes(path, type, options);
+		} finally {
+			stats.end(Operation.READ_ATTRIBUTES, path, start);
+		}
+	}
+
+	@Override
+	public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options) throws IOException {
+		long start = stats.begin(Operation.READ_ATTRIBUTES);
+		try {
+			return super.readAttributes(path, attributes, options);
+		} finally {
+			stats.end(Operation.READ_ATTRIBUTES, path, start);
+		}
+	}
+
+	@Override
+	public void setAttribute(Path path, String attribute, Object value, LinkOption... options) throws IOException {
+		long start = stats.begin(Operation.WRITE_ATTRIBUTES);
+		try {
+			super.setAttribute(path, attribute, value, options);
+		} finally {
+			stats.end(Operation.WRITE_ATTRIBUTES, path, start);
+		}
+	}
+
+	private class InstrumentedFileChannel extends DecoratingFileChannel {
+
+		private final Path path;
+
+		InstrumentedFileChannel(FileChannel delegate, Path path) {
+			super(delegate);
+			this.path = path;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			long start = stats.begin(Operation.READ);
+			try {
+				return super.read(dst);
+			} finally {
+				stats.end(Operation.READ, path, start);
+			}
+		}
+
+		@Override
+		public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+			long start = stats.begin(Operation.READ);
+			try {
+				return super.read(dsts, offset, length);
+			} finally {
+				stats.end(Operation.READ, path, start);
+			}
+		}
+
+		@Override
+		public int read(ByteBuffer dst, long position) throws IOException {
+			long start = stats.begin(Operation.READ);
+			try {
+				return super.read(dst, position);
+			} finally {
+				stats.end(Operation.READ, path, start);
+			}
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			long start = stats.begin(Operation.WRITE);
+			try {
+				return super.write(src);
+			} finally {
+				stats.end(Operation.WRITE, path, start);
+			}
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+			long start = stats.begin(Operation.WRITE);
+			try {
+				return super.write(srcs, offset, length);
+			} finally {
+				stats.end(Operation.WRITE, path, start);
+			}
+		}
+
+		@Override
+		public int write(ByteBuffer src, long position) throws IOException {
+			long start = stats.begin(Operation.WRITE);
+			try {
+				return super.write(src, position);
+			} finally {
+				stats.end(Operation.WRITE, path, start);
+			}
+		}
+
+		@Override
+		public FileChannel truncate(long size) throws IOException {
+			long start = stats.begin(Operation.WRITE);
+			try {
+				return super.truncate(size);
+			} finally {
+				stats.end(Operation.WRITE, path, start);
+			}
+		}
+
+		@Override
+		public void force(boolean metaData) throws IOException {
+			long start = stats.begin(Operation.FORCE);
+			try {
+				super.force(metaData);
+			} finally {
+				stats.end(Operation.FORCE, path, start);
+			}
+		}
+
+		@Override
+		protected void implCloseChannel() throws IOException {
+			long start = stats.begin(Operation.CLOSE);
+			try {
+				super.implCloseChannel();
+			} finally {
+				stats.end(Operation.CLOSE, path, start);
+			}
+		}
+	}
+
+	/**
+	 * Only used for sampled listings. Adds up the time spent opening and iterating the listing and records it when closed.
+	 */
+	private class InstrumentedDirectoryStream implements DirectoryStream<Path> {
+
+		private final DirectoryStream<Path> delegate;
+		private final Path dir;
+		private long nanos;
+		private boolean closed;
+
+		InstrumentedDirectoryStream(DirectoryStream<Path> delegate, Path dir, long openingNanos) {
+			this.delegate = delegate;
+			this.dir = dir;
+			this.nanos = openingNanos;
+		}
+
+		@Override
+		public Iterator<Path> iterator() {
+			var iterator = delegate.iterator();
+			return new Iterator<>() {
+				@Override
+				public boolean hasNext() {
+					long start = System.nanoTime();
+					try {
+						return iterator.hasNext();
+					} finally {
+						nanos += System.nanoTime() - start;
+					}
+				}
+
+				@Override
+				public Path next() {
+					long start = System.nanoTime();
+					try {
+						return iterator.next();
+					} finally {
+						nanos += System.nanoTime() - start;
+					}
+				}
+			};
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			long start = System.nanoTime();
+			try {
+				delegate.close();
+			} finally {
+				stats.record(Operation.READ_DIRECTORY, dir, nanos + System.nanoTime() - start);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,66 @@
+package org.cryptomator.common.fs;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hits and misses of a {@link CachingFileSystemProvider}. Can be read from any thread.
+ */
+public class MetadataCacheStats {
+
+	private final LongAdder attributeHits = new LongAdder();
+	private final LongAdder attributeMisses = new LongAdder();
+	private final LongAdder listingHits = new LongAdder();
+	private final LongAdder listingMisses = new LongAdder();
+
+	void attributeHit() {
+		attributeHits.increment();
+	}
+
+	void attributeMiss() {
+		attributeMisses.increment();
+	}
+
+	void listingHit() {
+		listingHits.increment();
+	}
+
+	void listingMiss() {
+		listingMisses.increment();
+	}
+
+	public long getAttributeHits() {
+		return attributeHits.sum();
+	}
+
+	public long getAttributeMisses() {
+		return attributeMisses.sum();
+	}
+
+	public long getListingHits() {
+		return listingHits.sum();
+	}
+
+	public long getListingMisses() {
+		return listingMisses.sum();
+	}
+
+	/**
+	 * @return The share of attribute reads served from the cache, between 0 and 1
+	 */
+	public double getAttributeHitRate() {
+		return hitRate(getAttributeHits(), getAttributeMisses());
+	}
+
+	/**
+	 * @return The share of directory listings served from the cache, between 0 and 1
+	 */
+	public double getListingHitRate() {
+		return hitRate(getListingHits(), getListingMisses());
+	}
+
+	private static double hitRate(long hits, long misses) {
+		long total = hits + misses;
+		return total == 0 ? 0.0 : hits / (double) total;
+	}
+
+}
@@ -0,0 +1,24 @@
+package org.cryptomator.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.cryptomator.HealthCheck")
+@Label("Health Check")
+@Description("Running a single health check on a vault")
+@Category({"Cryptomator", "Vaults", "Health"})
+public class HealthCheckEvent extends Event {
+
+	@Label("Vault ID")
+	public String vaultId;
+
+	@Label("Check")
+	public String check;
+
+	@Label("Highest Severity")
+	public String highestSeverity;
+
+}
@@ -0,0 +1,25 @@
+package org.cryptomator.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.cryptomator.KeyLoading")
+@Label("Key Loading")
+@Description("Loading a vault's masterkey, including user interaction")
+@Category({"Cryptomator", "Vaults", "Key Loading"})
+public class KeyLoadingEvent extends Event {
+
+	@Label("Vault ID")
+	public String vaultId;
+
+	@Label("Key Scheme")
+	@Description("The scheme of the key ID, i.e. the key loading strategy")
+	public String keyScheme;
+
+	@Label("Success")
+	public boolean success;
+
+}
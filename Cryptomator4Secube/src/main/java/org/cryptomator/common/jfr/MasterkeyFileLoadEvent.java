@@ -0,0 +1,22 @@
+package org.cryptomator.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.cryptomator.MasterkeyFileLoad")
+@Label("Masterkey File Load")
+@Description("Deriving the key from the passphrase and unwrapping the masterkey file")
+@Category({"Cryptomator", "Vaults", "Key Loading"})
+public class MasterkeyFileLoadEvent extends Event {
+
+	@Label("Vault ID")
+	public String vaultId;
+
+	@Label("Success")
+	@Description("False if the passphrase was wrong or the file unreadable")
+	public boolean success;
+
+}
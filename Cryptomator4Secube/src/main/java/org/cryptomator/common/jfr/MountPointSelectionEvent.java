@@ -0,0 +1,22 @@
+package org.cryptomator.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.cryptomator.MountPointSelection")
+@Label("Mount Point Selection")
+@Description("Choosing and preparing a volume's mount point")
+@Category({"Cryptomator", "Vaults"})
+public class MountPointSelectionEvent extends Event {
+
+	@Label("Volume Type")
+	public String volumeType;
+
+	@Label("Chooser")
+	@Description("The mount point chooser that succeeded, if any")
+	public String chooser;
+
+}
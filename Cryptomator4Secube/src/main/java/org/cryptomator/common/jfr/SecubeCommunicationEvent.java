@@ -0,0 +1,26 @@
+package org.cryptomator.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.cryptomator.SecubeCommunication")
+@Label("SEcube Communication")
+@Description("A phase of retrieving a vault key from the SEcube middleware")
+@Category({"Cryptomator", "SEcube"})
+public class SecubeCommunicationEvent extends Event {
+
+	@Label("Phase")
+	@Description("Spawn, handshake, key agreement, verify or decrypt")
+	public String phase;
+
+	@Label("Mode")
+	@Description("The kind of request, e.g. retrieve-key")
+	public String mode;
+
+	@Label("SEcube Vault ID")
+	public String secubeVaultId;
+
+}
@@ -0,0 +1,25 @@
+package org.cryptomator.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.cryptomator.UnlockWorkflow")
+@Label("Unlock Workflow")
+@Description("The entire unlock of a vault, including user interaction")
+@Category({"Cryptomator", "Vaults"})
+public class UnlockWorkflowEvent extends Event {
+
+	@Label("Vault ID")
+	public String vaultId;
+
+	@Label("Volume Type")
+	public String volumeType;
+
+	@Label("Outcome")
+	@Description("Succeeded, failed or cancelled")
+	public String outcome;
+
+}
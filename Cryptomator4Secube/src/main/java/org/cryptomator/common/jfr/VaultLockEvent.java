@@ -0,0 +1,27 @@
+package org.cryptomator.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.cryptomator.VaultLock")
+@Label("Vault Lock")
+@Description("Unmounting the volume until the vault is locked")
+@Category({"Cryptomator", "Vaults"})
+public class VaultLockEvent extends Event {
+
+	@Label("Vault ID")
+	public String vaultId;
+
+	@Label("Volume Type")
+	public String volumeType;
+
+	@Label("Forced")
+	public boolean forced;
+
+	@Label("Success")
+	public boolean success;
+
+}
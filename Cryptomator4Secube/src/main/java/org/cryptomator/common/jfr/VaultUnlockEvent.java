@@ -0,0 +1,24 @@
+package org.cryptomator.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.cryptomator.VaultUnlock")
+@Label("Vault Unlock")
+@Description("Creating the crypto file system and mounting the volume")
+@Category({"Cryptomator", "Vaults"})
+public class VaultUnlockEvent extends Event {
+
+	@Label("Vault ID")
+	public String vaultId;
+
+	@Label("Volume Type")
+	public String volumeType;
+
+	@Label("Success")
+	public boolean success;
+
+}
@@ -0,0 +1,252 @@
+package org.cryptomator.common.metrics;
+
+import org.cryptomator.common.Environment;
+import org.cryptomator.common.ShutdownHook;
+import org.cryptomator.common.vaults.Vault;
+import org.cryptomator.common.vaults.VaultState;
+import org.cryptomator.common.vaults.VaultStateEvent;
+import org.cryptomator.common.vaults.VaultStateEventBus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.InterruptedByTimeoutException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves the metrics of all vaults in OpenMetrics text format on <code>GET /metrics</code>.
+ * <p>
+ * Opt-in via the <code>cryptomator.metricsPort</code> system property, which binds to the loopback interface only, or the
+ * <code>cryptomator.metricsSocketPath</code> system property, which binds to a Unix domain socket.
+ * Each scrape takes a fresh snapshot from thread-safe sources and never touches the FX Application Thread.
+ * <p>
+ * Connections are served one at a time by the accepting thread, and each gets {@link #REQUEST_TIMEOUT} to send its request and read the
+ * response. So a client connecting without sending anything neither ties up further threads nor blocks the endpoint for long.
+ */
+@Singleton
+public class MetricsEndpoint {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MetricsEndpoint.class);
+	private static final Set<VaultState.Value> LOCKED_STATES = Set.of(VaultState.Value.LOCKED, VaultState.Value.SECUBE);
+	private static final int MAX_REQUEST_HEAD_BYTES = 8 * 1024;
+	static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+
+	private final Environment env;
+	private final ObservableList<Vault> vaultList;
+	private final VaultStateEventBus eventBus;
+	private final ExecutorService executor;
+	private final ShutdownHook shutdownHook;
+	private final Collection<Vault> vaults = new CopyOnWriteArrayList<>(); // mirrors the vault list, readable from any thread
+	private final Map<String, LongAdder> unlocks = new ConcurrentHashMap<>();
+	private final Map<String, LongAdder> locks = new ConcurrentHashMap<>();
+	private final Set<String> unlockedVaults = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean observing = new AtomicBoolean();
+
+	@Inject
+	public MetricsEndpoint(Environment env, ObservableList<Vault> vaultList, VaultStateEventBus eventBus, ExecutorService executor, ShutdownHook shutdownHook) {
+		this.env = env;
+		this.vaultList = vaultList;
+		this.eventBus = eventBus;
+		this.executor = executor;
+		this.shutdownHook = shutdownHook;
+	}
+
+	public void init() {
+		var port = env.getMetricsPort();
+		var socketPath = env.getMetricsSocketPath();
+		port.ifPresent(p -> start(new InetSocketAddress(InetAddress.getLoopbackAddress(), p), null));
+		socketPath.ifPresent(path -> start(UnixDomainSocketAddress.of(path), path));
+	}
+
+	private void observeVaults() {
+		if (observing.compareAndSet(false, true)) {
+			vaults.addAll(vaultList);
+			vaultList.addListener(this::vaultListChanged);
+			eventBus.consume(this::vaultStateChanged, executor);
+		}
+	}
+
+	private void vaultListChanged(ListChangeListener.Change<? extends Vault> c) {
+		while (c.next()) {
+			vaults.removeAll(c.getRemoved());
+			vaults.addAll(c.getAddedSubList());
+		}
+	}
+
+	private void vaultStateChanged(VaultStateEvent event) {
+		if (event.to() == VaultState.Value.UNLOCKED && unlockedVaults.add(event.vaultId())) {
+			unlocks.computeIfAbsent(event.vaultId(), id -> new LongAdder()).increment();
+		} else if (LOCKED_STATES.contains(event.to()) && unlockedVaults.remove(event.vaultId())) { // not after a failed unlock
+			locks.computeIfAbsent(event.vaultId(), id -> new LongAdder()).increment();
+		}
+	}
+
+	// visible for testing
+	SocketAddress start(SocketAddress address, Path socketFile) {
+		observeVaults();
+		try {
+			if (socketFile != null && !isSocketOrMissing(socketFile)) {
+				LOG.error("Not serving vault metrics on {}, which exists and is not a socket.", socketFile);
+				return null;
+			}
+			var channel = socketFile == null ? ServerSocketChannel.open() : ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			if (socketFile != null) {
+				Files.createDirectories(socketFile.toAbsolutePath().getParent());
+				Files.deleteIfExists(socketFile); // a stale socket of a previous run
+			}
+			channel.bind(address);
+			var boundAddress = channel.getLocalAddress();
+			LOG.info("Serving vault metrics on {}", boundAddress);
+			shutdownHook.runOnShutdown(() -> stop(channel, socketFile));
+			executor.execute(() -> acceptConnections(channel));
+			return boundAddress;
+		} catch (IOException e) {
+			LOG.error("Failed to serve vault metrics on {}", address, e);
+			return null;
+		}
+	}
+
+	private static boolean isSocketOrMissing(Path path) throws IOException {
+		try {
+			return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther();
+		} catch (NoSuchFileException e) {
+			return true;
+		}
+	}
+
+	private void stop(ServerSocketChannel channel, Path socketFile) {
+		try {
+			channel.close();
+			if (socketFile != null) {
+				Files.deleteIfExists(socketFile);
+			}
+		} catch (IOException e) {
+			LOG.warn("Failed to stop serving vault metrics.", e);
+		}
+	}
+
+	private void acceptConnections(ServerSocketChannel serverChannel) {
+		while (serverChannel.isOpen()) {
+			try {
+				respond(serverChannel.accept());
+			} catch (AsynchronousCloseException e) {
+				return; // closed during shutdown
+			} catch (IOException e) {
+				LOG.warn("Failed to accept metrics scrape.", e);
+			}
+		}
+	}
+
+	private void respond(SocketChannel ch) {
+		long deadline = System.nanoTime() + REQUEST_TIMEOUT.toNanos();
+		try (ch; var selector = Selector.open()) {
+			ch.configureBlocking(false);
+			var key = ch.register(selector, SelectionKey.OP_READ);
+			String requestLine = readRequestLine(key, deadline);
+			if (requestLine.startsWith("GET /metrics ")) {
+				writeResponse(key, deadline, "200 OK", OpenMetricsFormat.CONTENT_TYPE, OpenMetricsFormat.format(snapshot()));
+			} else if (requestLine.startsWith("GET ")) {
+				writeResponse(key, deadline, "404 Not Found", "text/plain; charset=utf-8", "Not Found\n");
+			} else {
+				writeResponse(key, deadline, "405 Method Not Allowed", "text/plain; charset=utf-8", "Method Not Allowed\n");
+			}
+		} catch (InterruptedByTimeoutException e) {
+			LOG.debug("Metrics scrape timed out.");
+		} catch (IOException e) {
+			LOG.debug("Failed to respond to metrics scrape.", e);
+		}
+	}
+
+	// visible for testing
+	List<VaultMetrics> snapshot() {
+		return vaults.stream().map(vault -> VaultMetrics.of(vault, count(unlocks, vault), count(locks, vault))).toList();
+	}
+
+	private static long count(Map<String, LongAdder> counts, Vault vault) {
+		var count = counts.get(vault.getId());
+		return count == null ? 0L : count.sum();
+	}
+
+	// reads the request head up to the blank line and returns its first line
+	private static String readRequestLine(SelectionKey key, long deadline) throws IOException {
+		var ch = (SocketChannel) key.channel();
+		var buf = ByteBuffer.allocate(MAX_REQUEST_HEAD_BYTES);
+		while (buf.hasRemaining()) {
+			int read = ch.read(buf);
+			if (read == -1) {
+				break;
+			} else if (read == 0) {
+				awaitReady(key, SelectionKey.OP_READ, deadline);
+				continue;
+			}
+			var head = new String(buf.array(), 0, buf.position(), StandardCharsets.ISO_8859_1);
+			if (head.contains("\r\n\r\n") || head.contains("\n\n")) {
+				break;
+			}
+		}
+		var head = new String(buf.array(), 0, buf.position(), StandardCharsets.ISO_8859_1);
+		int endOfLine = head.indexOf('\n');
+		return endOfLine == -1 ? head : head.substring(0, endOfLine).strip();
+	}
+
+	private static void writeResponse(SelectionKey key, long deadline, String status, String contentType, String body) throws IOException {
+		var ch = (SocketChannel) key.channel();
+		byte[] content = body.getBytes(StandardCharsets.UTF_8);
+		var header = "HTTP/1.1 " + status + "\r\n" //
+				+ "Content-Type: " + contentType + "\r\n" //
+				+ "Content-Length: " + content.length + "\r\n" //
+				+ "Connection: close\r\n\r\n";
+		var response = ByteBuffer.allocate(header.length() + content.length);
+		response.put(header.getBytes(StandardCharsets.ISO_8859_1)).put(content).flip();
+		while (response.hasRemaining()) {
+			if (ch.write(response) == 0) {
+				awaitReady(key, SelectionKey.OP_WRITE, deadline);
+			}
+		}
+	}
+
+	private static void awaitReady(SelectionKey key, int ops, long deadline) throws IOException {
+		key.interestOps(ops);
+		while (true) {
+			long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (remainingMillis <= 0) {
+				throw new InterruptedByTimeoutException();
+			} else if (key.selector().select(remainingMillis) > 0) {
+				key.selector().selectedKeys().clear();
+				return;
+			}
+		}
+	}
+
+}
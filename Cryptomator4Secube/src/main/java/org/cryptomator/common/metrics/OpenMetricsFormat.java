@@ -0,0 +1,89 @@
+package org.cryptomator.common.metrics;
+
+import org.cryptomator.common.vaults.StatsTimeSeries.Counter;
+import org.cryptomator.common.vaults.VaultState;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Writes vault metrics in the <a href="https://github.com/OpenObservability/OpenMetrics/blob/main/specification/OpenMetrics.md">OpenMetrics text format</a>.
+ */
+public final class OpenMetricsFormat {
+
+	public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+	private static final String PREFIX = "cryptomator_vault_";
+	private static final List<Family> FAMILIES = List.of( //
+			counter("read_bytes", "Cleartext bytes read since unlocked", m -> m.total(Counter.BYTES_READ)), //
+			counter("written_bytes", "Cleartext bytes written since unlocked", m -> m.total(Counter.BYTES_WRITTEN)), //
+			counter("decrypted_bytes", "Bytes decrypted since unlocked", m -> m.total(Counter.BYTES_DECRYPTED)), //
+			counter("encrypted_bytes", "Bytes encrypted since unlocked", m -> m.total(Counter.BYTES_ENCRYPTED)), //
+			counter("chunk_cache_accesses", "Chunk cache accesses since unlocked", m -> m.total(Counter.CHUNK_CACHE_ACCESSES)), //
+			counter("chunk_cache_hits", "Chunk cache hits since unlocked", m -> m.total(Counter.CHUNK_CACHE_HITS)), //
+			counter("file_reads", "Files opened for reading since unlocked", m -> m.total(Counter.FILES_READ)), //
+			counter("file_writes", "Files opened for writing since unlocked", m -> m.total(Counter.FILES_WRITTEN)), //
+			counter("unlocks", "Unlocks since the app started", VaultMetrics::unlocks), //
+			counter("locks", "Locks since the app started", VaultMetrics::locks), //
+			gauge("read_bytes_per_second", "Cleartext bytes read in the last second", m -> m.perSecond(Counter.BYTES_READ)), //
+			gauge("written_bytes_per_second", "Cleartext bytes written in the last second", m -> m.perSecond(Counter.BYTES_WRITTEN)), //
+			gauge("decrypted_bytes_per_second", "Bytes decrypted in the last second", m -> m.perSecond(Counter.BYTES_DECRYPTED)), //
+			gauge("encrypted_bytes_per_second", "Bytes encrypted in the last second", m -> m.perSecond(Counter.BYTES_ENCRYPTED)), //
+			gauge("chunk_cache_hit_ratio", "Ratio of chunk cache hits in the last second", VaultMetrics::cacheHitRatio), //
+			gauge("last_activity_timestamp_seconds", "When the vault was last unlocked or accessed", m -> m.lastActivity() == null ? Double.NaN : m.lastActivity().toEpochMilli() / 1000.0) //
+	);
+
+	private OpenMetricsFormat() {}
+
+	public static String format(Collection<VaultMetrics> vaults) {
+		var out = new StringBuilder();
+		for (var family : FAMILIES) {
+			String name = PREFIX + family.name;
+			out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+			out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+			String sampleName = "counter".equals(family.type) ? name + "_total" : name;
+			for (var vault : vaults) {
+				out.append(sampleName).append("{vault_id=\"").append(escape(vault.vaultId())).append("\"} ");
+				appendValue(out, family.value.applyAsDouble(vault));
+				out.append('\n');
+			}
+		}
+		String state = PREFIX + "state";
+		out.append("# TYPE ").append(state).append(" stateset\n");
+		out.append("# HELP ").append(state).append(" State of the vault\n");
+		for (var vault : vaults) {
+			for (var value : VaultState.Value.values()) {
+				out.append(state).append("{vault_id=\"").append(escape(vault.vaultId())).append("\",").append(state).append("=\"").append(value).append("\"} ");
+				out.append(vault.state() == value ? '1' : '0').append('\n');
+			}
+		}
+		out.append("# EOF\n");
+		return out.toString();
+	}
+
+	private static void appendValue(StringBuilder out, double value) {
+		if (Double.isNaN(value)) {
+			out.append("NaN");
+		} else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			out.append((long) value);
+		} else {
+			out.append(value);
+		}
+	}
+
+	private static String escape(String labelValue) {
+		return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static Family counter(String name, String help, ToDoubleFunction<VaultMetrics> value) {
+		return new Family(name, "counter", help, value);
+	}
+
+	private static Family gauge(String name, String help, ToDoubleFunction<VaultMetrics> value) {
+		return new Family(name, "gauge", help, value);
+	}
+
+	private record Family(String name, String type, String help, ToDoubleFunction<VaultMetrics> value) {}
+
+}
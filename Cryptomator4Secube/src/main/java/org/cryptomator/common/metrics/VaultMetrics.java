@@ -0,0 +1,48 @@
+package org.cryptomator.common.metrics;
+
+import org.cryptomator.common.vaults.StatsTimeSeries.Counter;
+import org.cryptomator.common.vaults.Vault;
+import org.cryptomator.common.vaults.VaultState;
+
+import java.time.Instant;
+
+/**
+ * A snapshot of a single vault's metrics, taken without touching any FX properties.
+ *
+ * @param vaultId The vault's id
+ * @param state The vault's state
+ * @param totals The total of each {@link Counter} since the vault has been unlocked, indexed by its ordinal
+ * @param perSecond The value of each {@link Counter} in the most recent second, indexed by its ordinal
+ * @param lastActivity When the vault was last unlocked or accessed, or <code>null</code> if never
+ * @param unlocks How often the vault has been unlocked since the app started
+ * @param locks How often the vault has been locked since the app started
+ */
+public record VaultMetrics(String vaultId, VaultState.Value state, long[] totals, long[] perSecond, Instant lastActivity, long unlocks, long locks) {
+
+	public static VaultMetrics of(Vault vault, long unlocks, long locks) {
+		var stats = vault.getStats();
+		var state = vault.getState();
+		var timeSeries = stats.getTimeSeries().filter(ts -> state == VaultState.Value.UNLOCKED);
+		var totals = new long[Counter.values().length];
+		var perSecond = new long[Counter.values().length];
+		for (var counter : Counter.values()) {
+			totals[counter.ordinal()] = stats.getTotal(counter);
+			perSecond[counter.ordinal()] = timeSeries.map(ts -> ts.latest(counter)).orElse(0L);
+		}
+		return new VaultMetrics(vault.getId(), state, totals, perSecond, stats.getLastActivitySample(), unlocks, locks);
+	}
+
+	public long total(Counter counter) {
+		return totals[counter.ordinal()];
+	}
+
+	public long perSecond(Counter counter) {
+		return perSecond[counter.ordinal()];
+	}
+
+	public double cacheHitRatio() {
+		long accesses = perSecond(Counter.CHUNK_CACHE_ACCESSES);
+		return accesses == 0 ? 0.0 : perSecond(Counter.CHUNK_CACHE_HITS) / (double) accesses;
+	}
+
+}
@@ -44,6 +44,7 @@ public class Settings {
 	public static final String DEFAULT_LICENSE_KEY = "";
 	public static final boolean DEFAULT_SHOW_MINIMIZE_BUTTON = false;
 	public static final String DEFAULT_DISPLAY_CONFIGURATION = "";
+	public static final boolean DEFAULT_SECUBE_QUERY_ALL_DEVICES = false;
 
 
 	private final ObservableList<VaultSettings> directories = FXCollections.observableArrayList(VaultSettings::observables);
@@ -66,6 +67,7 @@ public class Settings {
 	private final IntegerProperty windowWidth = new SimpleIntegerProperty();
 	private final IntegerProperty windowHeight = new SimpleIntegerProperty();
 	private final ObjectProperty<String> displayConfiguration = new SimpleObjectProperty<>(DEFAULT_DISPLAY_CONFIGURATION);
+	private final BooleanProperty secubeQueryAllDevices = new SimpleBooleanProperty(DEFAULT_SECUBE_QUERY_ALL_DEVICES);
 
 
 	private Consumer<Settings> saveCmd;
@@ -96,6 +98,7 @@ public class Settings {
 		windowWidth.addListener(this::somethingChanged);
 		windowHeight.addListener(this::somethingChanged);
 		displayConfiguration.addListener(this::somethingChanged);
+		secubeQueryAllDevices.addListener(this::somethingChanged);
 	}
 
 	void setSaveCmd(Consumer<Settings> saveCmd) {
@@ -172,6 +175,10 @@ public class Settings {
 		return showTrayIcon;
 	}
 
+	public BooleanProperty secubeQueryAllDevices() {
+		return secubeQueryAllDevices;
+	}
+
 	public IntegerProperty windowXPositionProperty() {
 		return windowXPosition;
 	}
@@ -39,6 +39,9 @@ public class VaultSettings {
 	public static final WhenUnlocked DEFAULT_ACTION_AFTER_UNLOCK = WhenUnlocked.ASK;
 	public static final boolean DEFAULT_AUTOLOCK_WHEN_IDLE = false;
 	public static final int DEFAULT_AUTOLOCK_IDLE_SECONDS = 30 * 60;
+	public static final int DEFAULT_QUICK_UNLOCK_SECONDS = 0;
+	public static final int DEFAULT_OPERATION_SAMPLING_PERCENT = 0;
+	public static final int DEFAULT_METADATA_CACHE_SECONDS = 0;
 
 	private static final Random RNG = new Random();
 
@@ -62,6 +65,9 @@ public class VaultSettings {
 	private final ObjectProperty<WhenUnlocked> actionAfterUnlock = new SimpleObjectProperty<>(DEFAULT_ACTION_AFTER_UNLOCK);
 	private final BooleanProperty autoLockWhenIdle = new SimpleBooleanProperty(DEFAULT_AUTOLOCK_WHEN_IDLE);
 	private final IntegerProperty autoLockIdleSeconds = new SimpleIntegerProperty(DEFAULT_AUTOLOCK_IDLE_SECONDS);
+	private final IntegerProperty quickUnlockSeconds = new SimpleIntegerProperty(DEFAULT_QUICK_UNLOCK_SECONDS);
+	private final IntegerProperty operationSamplingPercent = new SimpleIntegerProperty(DEFAULT_OPERATION_SAMPLING_PERCENT);
+	private final IntegerProperty metadataCacheSeconds = new SimpleIntegerProperty(DEFAULT_METADATA_CACHE_SECONDS);
 	private final StringBinding mountName;
 
 	public VaultSettings(String id) {
@@ -70,7 +76,7 @@ public class VaultSettings {
 	}
 
 	Observable[] observables() {
-		return new Observable[]{path, displayName, winDriveLetter, unlockAfterStartup, revealAfterMount, useCustomMountPath, customMountPath, usesReadOnlyMode, mountFlags, maxCleartextFilenameLength, actionAfterUnlock, autoLockWhenIdle, autoLockIdleSeconds};
+		return new Observable[]{path, displayName, winDriveLetter, unlockAfterStartup, revealAfterMount, useCustomMountPath, customMountPath, usesReadOnlyMode, mountFlags, maxCleartextFilenameLength, actionAfterUnlock, autoLockWhenIdle, autoLockIdleSeconds, quickUnlockSeconds, operationSamplingPercent, metadataCacheSeconds};
 	}
 	
 	/* GETTER and SETTER of the boolean vaultsecube variable. */
@@ -193,6 +199,27 @@ public class VaultSettings {
 		return autoLockIdleSeconds;
 	}
 
+	/**
+	 * @return For how long after locking the vault can be unlocked again without loading its key, <code>0</code> to disable quick re-unlock
+	 */
+	public IntegerProperty quickUnlockSeconds() {
+		return quickUnlockSeconds;
+	}
+
+	/**
+	 * @return How many file system operations out of a hundred to time while mounted, <code>0</code> to not record them at all
+	 */
+	public IntegerProperty operationSamplingPercent() {
+		return operationSamplingPercent;
+	}
+
+	/**
+	 * @return For how long file attributes and directory listings of the mounted vault are cached, <code>0</code> to disable caching
+	 */
+	public IntegerProperty metadataCacheSeconds() {
+		return metadataCacheSeconds;
+	}
+
 	/* Hashcode/Equals */
 
 	@Override
@@ -38,6 +38,9 @@ class VaultSettingsJsonAdapter {
 		out.name("actionAfterUnlock").value(value.actionAfterUnlock().get().name());
 		out.name("autoLockWhenIdle").value(value.autoLockWhenIdle().get());
 		out.name("autoLockIdleSeconds").value(value.autoLockIdleSeconds().get());
+		out.name("quickUnlockSeconds").value(value.quickUnlockSeconds().get());
+		out.name("operationSamplingPercent").value(value.operationSamplingPercent().get());
+		out.name("metadataCacheSeconds").value(value.metadataCacheSeconds().get());
 		out.endObject();
 	}
 
@@ -58,6 +61,9 @@ class VaultSettingsJsonAdapter {
 		WhenUnlocked actionAfterUnlock = VaultSettings.DEFAULT_ACTION_AFTER_UNLOCK;
 		boolean autoLockWhenIdle = VaultSettings.DEFAULT_AUTOLOCK_WHEN_IDLE;
 		int autoLockIdleSeconds = VaultSettings.DEFAULT_AUTOLOCK_IDLE_SECONDS;
+		int quickUnlockSeconds = VaultSettings.DEFAULT_QUICK_UNLOCK_SECONDS;
+		int operationSamplingPercent = VaultSettings.DEFAULT_OPERATION_SAMPLING_PERCENT;
+		int metadataCacheSeconds = VaultSettings.DEFAULT_METADATA_CACHE_SECONDS;
 
 		in.beginObject();
 		while (in.hasNext()) {
@@ -79,6 +85,9 @@ class VaultSettingsJsonAdapter {
 				case "actionAfterUnlock" -> actionAfterUnlock = parseActionAfterUnlock(in.nextString());
 				case "autoLockWhenIdle" -> autoLockWhenIdle = in.nextBoolean();
 				case "autoLockIdleSeconds" -> autoLockIdleSeconds = in.nextInt();
+				case "quickUnlockSeconds" -> quickUnlockSeconds = in.nextInt();
+				case "operationSamplingPercent" -> operationSamplingPercent = in.nextInt();
+				case "metadataCacheSeconds" -> metadataCacheSeconds = in.nextInt();
 				default -> {
 					LOG.warn("Unsupported vault setting found in JSON: " + name);
 					in.skipValue();
@@ -108,6 +117,9 @@ class VaultSettingsJsonAdapter {
 		vaultSettings.actionAfterUnlock().set(actionAfterUnlock);
 		vaultSettings.autoLockWhenIdle().set(autoLockWhenIdle);
 		vaultSettings.autoLockIdleSeconds().set(autoLockIdleSeconds);
+		vaultSettings.quickUnlockSeconds().set(quickUnlockSeconds);
+		vaultSettings.operationSamplingPercent().set(operationSamplingPercent);
+		vaultSettings.metadataCacheSeconds().set(metadataCacheSeconds);
 		return vaultSettings;
 	}
 
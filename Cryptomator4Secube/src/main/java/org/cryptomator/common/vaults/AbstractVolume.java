@@ -1,10 +1,12 @@
 package org.cryptomator.common.vaults;
 
 import com.google.common.collect.Iterables;
+import org.cryptomator.common.jfr.MountPointSelectionEvent;
 import org.cryptomator.common.mountpoint.InvalidMountPointException;
 import org.cryptomator.common.mountpoint.MountPointChooser;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Optional;
 
 public abstract class AbstractVolume implements Volume {
@@ -14,12 +16,31 @@ public abstract class AbstractVolume implements Volume {
 	protected Path mountPoint;
 	private boolean cleanupRequired;
 	private MountPointChooser usedChooser;
+	private Duration mountPointSelectionTime;
 
 	public AbstractVolume(Iterable<MountPointChooser> choosers) {
 		this.choosers = choosers;
 	}
 
 	protected Path determineMountPoint() throws InvalidMountPointException {
+		var event = new MountPointSelectionEvent();
+		event.begin();
+		long start = System.nanoTime();
+		Path chosen = null;
+		try {
+			chosen = chooseMountPoint();
+			return chosen;
+		} finally {
+			this.mountPointSelectionTime = Duration.ofNanos(System.nanoTime() - start);
+			if (event.shouldCommit()) {
+				event.volumeType = getImplementationType().name();
+				event.chooser = chosen == null ? null : usedChooser.getClass().getSimpleName();
+				event.commit();
+			}
+		}
+	}
+
+	private Path chooseMountPoint() throws InvalidMountPointException {
 		var applicableChoosers = Iterables.filter(choosers, c -> c.isApplicable(this));
 		for (var chooser : applicableChoosers) {
 			Optional<Path> chosenPath = chooser.chooseMountPoint(this);
@@ -43,4 +64,9 @@ public abstract class AbstractVolume implements Volume {
 	public Optional<Path> getMountPoint() {
 		return Optional.ofNullable(mountPoint);
 	}
+
+	@Override
+	public Optional<Duration> getMountPointSelectionTime() {
+		return Optional.ofNullable(mountPointSelectionTime);
+	}
 }
@@ -5,56 +5,163 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Locks unlocked vaults after they have been idle for the time configured in their settings.
+ * <p>
+ * Each vault with auto-lock enabled gets a timer for its idle deadline. The deadline is updated by listeners whenever the last activity,
+ * the settings or the state of the vault change, so the timer itself never touches any FX properties. A timer firing before a postponed
+ * deadline just waits for the remaining time.
+ * <p>
+ * Timers run on the shared scheduler, but locking blocks until the volume is unmounted, so the lock itself runs on the executor.
+ */
 @Singleton
 public class AutoLocker {
 
 	private static final Logger LOG = LoggerFactory.getLogger(AutoLocker.class);
+	private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
 
 	private final ScheduledExecutorService scheduler;
+	private final ExecutorService executor;
 	private final ObservableList<Vault> vaultList;
+	private final Map<Vault, IdleTimer> timers = new ConcurrentHashMap<>();
 
 	@Inject
-	public AutoLocker(ScheduledExecutorService scheduler, ObservableList<Vault> vaultList) {
+	public AutoLocker(ScheduledExecutorService scheduler, ExecutorService executor, ObservableList<Vault> vaultList) {
 		this.scheduler = scheduler;
+		this.executor = executor;
 		this.vaultList = vaultList;
 	}
 
 	public void init() {
-		scheduler.scheduleAtFixedRate(this::tick, 0, 1, TimeUnit.MINUTES);
+		vaultList.forEach(this::watch);
+		vaultList.addListener(this::vaultListChanged);
 	}
 
-	private void tick() {
-		vaultList.stream() // all vaults
-				.filter(Vault::isUnlocked) // unlocked vaults
-				.filter(this::exceedsIdleTime) // idle vaults
-				.forEach(this::autolock);
+	private void vaultListChanged(ListChangeListener.Change<? extends Vault> c) {
+		while (c.next()) {
+			c.getRemoved().forEach(this::unwatch);
+			c.getAddedSubList().forEach(this::watch);
+		}
+	}
+
+	private void watch(Vault vault) {
+		timers.computeIfAbsent(vault, IdleTimer::new).observe();
 	}
 
-	private void autolock(Vault vault) {
+	private void unwatch(Vault vault) {
+		var timer = timers.remove(vault);
+		if (timer != null) {
+			timer.stopObserving();
+		}
+	}
+
+	private boolean autolock(Vault vault) {
 		try {
 			vault.lock(false);
 			LOG.info("Autolocked {} after idle timeout", vault.getDisplayName());
+			return true;
 		} catch (Volume.VolumeException | LockNotCompletedException e) {
 			LOG.error("Autolocking failed.", e);
+			return false;
 		}
 	}
 
-	private boolean exceedsIdleTime(Vault vault) {
-		assert vault.isUnlocked();
-		// TODO: shouldn't we read these properties from within FX Application Thread?
-		if (vault.getVaultSettings().autoLockWhenIdle().get()) {
-			int maxIdleSeconds = vault.getVaultSettings().autoLockIdleSeconds().get();
-			var deadline = vault.getStats().getLastActivity().plusSeconds(maxIdleSeconds);
-			return deadline.isBefore(Instant.now());
-		} else {
-			return false;
+	private class IdleTimer {
+
+		private final Vault vault;
+		private final InvalidationListener listener = this::updateDeadline;
+		private volatile Instant deadline; // null while the vault is not to be autolocked
+		private ScheduledFuture<?> scheduledTask;
+		private Instant scheduledFor;
+
+		IdleTimer(Vault vault) {
+			this.vault = vault;
+		}
+
+		void observe() {
+			vault.stateProperty().addListener(listener);
+			vault.getStats().lastActivityProperty().addListener(listener);
+			vault.getVaultSettings().autoLockWhenIdle().addListener(listener);
+			vault.getVaultSettings().autoLockIdleSeconds().addListener(listener);
+			updateDeadline(null);
 		}
-	}
 
+		void stopObserving() {
+			vault.stateProperty().removeListener(listener);
+			vault.getStats().lastActivityProperty().removeListener(listener);
+			vault.getVaultSettings().autoLockWhenIdle().removeListener(listener);
+			vault.getVaultSettings().autoLockIdleSeconds().removeListener(listener);
+			deadline = null;
+			cancel();
+		}
+
+		/* invoked by the observed properties, i.e. usually on the FX Application Thread */
+		private synchronized void updateDeadline(@SuppressWarnings("unused") Observable observable) {
+			var lastActivity = vault.getStats().getLastActivity();
+			if (vault.isUnlocked() && vault.getVaultSettings().autoLockWhenIdle().get() && lastActivity != null) {
+				deadline = lastActivity.plusSeconds(vault.getVaultSettings().autoLockIdleSeconds().get());
+				schedule(deadline);
+			} else {
+				deadline = null;
+				cancel();
+			}
+		}
+
+		private synchronized void schedule(Instant newDeadline) {
+			if (scheduledTask != null && !scheduledFor.isAfter(newDeadline)) {
+				return; // fires early enough to check the new deadline
+			}
+			cancel();
+			long delayMillis = Math.max(0, Duration.between(Instant.now(), newDeadline).toMillis());
+			scheduledFor = newDeadline;
+			scheduledTask = scheduler.schedule(this::deadlineReached, delayMillis, TimeUnit.MILLISECONDS);
+		}
+
+		private synchronized void cancel() {
+			if (scheduledTask != null) {
+				scheduledTask.cancel(false);
+				scheduledTask = null;
+			}
+		}
+
+		private void deadlineReached() {
+			Instant currentDeadline;
+			synchronized (this) {
+				scheduledTask = null;
+				currentDeadline = deadline;
+				if (currentDeadline != null && currentDeadline.isAfter(Instant.now())) {
+					schedule(currentDeadline); // postponed by recent activity
+					return;
+				}
+			}
+			if (currentDeadline != null) {
+				try {
+					executor.execute(this::lock);
+				} catch (RejectedExecutionException e) {
+					LOG.debug("Not autolocking {}, executor rejected task.", vault.getDisplayName());
+				}
+			}
+		}
+
+		private void lock() {
+			if (!autolock(vault)) {
+				schedule(Instant.now().plus(RETRY_DELAY));
+			}
+		}
+	}
 
 }
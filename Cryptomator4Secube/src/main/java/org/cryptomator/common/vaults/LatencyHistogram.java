@@ -0,0 +1,83 @@
+package org.cryptomator.common.vaults;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies with buckets growing in powers of two, starting at one microsecond.
+ * <p>
+ * Percentiles are therefore approximated by the upper bound of the bucket they fall into, which is never more than twice the actual value.
+ */
+public class LatencyHistogram {
+
+	private static final int BUCKETS = 40; // the last bucket starts at about six days
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sumMicros = new LongAdder();
+	private final AtomicLong maxMicros = new AtomicLong();
+
+	public void record(Duration latency) {
+		recordNanos(latency.toNanos());
+	}
+
+	public void recordNanos(long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+		buckets.incrementAndGet(bucketOf(micros));
+		count.increment();
+		sumMicros.add(micros);
+		maxMicros.accumulateAndGet(micros, Math::max);
+	}
+
+	// bucket i holds latencies below 2^i µs
+	private static int bucketOf(long micros) {
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public Duration getMean() {
+		long n = count.sum();
+		return n == 0 ? Duration.ZERO : Duration.ofNanos(sumMicros.sum() * 1000 / n);
+	}
+
+	public Duration getMax() {
+		return Duration.ofNanos(maxMicros.get() * 1000);
+	}
+
+	/**
+	 * @param percentile A value between 0 and 100
+	 * @return The upper bound of the bucket containing the given percentile, but no more than the maximum recorded latency
+	 */
+	public Duration getPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Not a percentile: " + percentile);
+		}
+		long n = 0;
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = buckets.get(i);
+			n += snapshot[i];
+		}
+		long rank = (long) Math.ceil(percentile / 100 * n);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank && seen > 0) {
+				long upperBoundMicros = (1L << i) - 1;
+				return Duration.ofNanos(Math.min(upperBoundMicros, maxMicros.get()) * 1000);
+			}
+		}
+		return Duration.ZERO;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("n=%d mean=%dms p50=%dms p95=%dms max=%dms", getCount(), getMean().toMillis(), getPercentile(50).toMillis(), getPercentile(95).toMillis(), getMax().toMillis());
+	}
+
+}
@@ -0,0 +1,119 @@
+package org.cryptomator.common.vaults;
+
+import org.cryptomator.common.settings.VolumeImpl;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Latency histograms of the phases of unlocking and locking a vault, per volume type.
+ */
+public class PhaseLatencies {
+
+	public enum Phase {
+		/**
+		 * Loading the masterkey, including any user interaction
+		 */
+		KEY_LOADING,
+		/**
+		 * Probing the file name length limits of the vault's storage location
+		 */
+		CAPABILITY_CHECK,
+		/**
+		 * Initializing the crypto file system, excluding key loading
+		 */
+		FILESYSTEM_INIT,
+		/**
+		 * Choosing and preparing the mount point
+		 */
+		MOUNT_POINT,
+		/**
+		 * Mounting the volume, excluding the mount point selection
+		 */
+		MOUNT,
+		/**
+		 * The entire unlock workflow
+		 */
+		UNLOCK,
+		/**
+		 * Requesting the volume to unmount
+		 */
+		UNMOUNT,
+		/**
+		 * Locking the vault, from requesting the unmount until the vault is locked
+		 */
+		LOCK
+	}
+
+	private final Map<VolumeImpl, Map<Phase, LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+
+	public void record(VolumeImpl volumeType, Phase phase, Duration latency) {
+		histograms.computeIfAbsent(volumeType, t -> new ConcurrentHashMap<>()).computeIfAbsent(phase, p -> new LatencyHistogram()).record(latency);
+	}
+
+	public Optional<LatencyHistogram> get(VolumeImpl volumeType, Phase phase) {
+		return Optional.ofNullable(histograms.getOrDefault(volumeType, Map.of()).get(phase));
+	}
+
+	@Override
+	public String toString() {
+		return histograms.entrySet().stream() //
+				.flatMap(perType -> perType.getValue().entrySet().stream().map(perPhase -> perType.getKey() + " " + perPhase.getKey() + ": " + perPhase.getValue())) //
+				.sorted() //
+				.collect(Collectors.joining(System.lineSeparator()));
+	}
+
+	/**
+	 * Records the phases of a single unlock or lock, until the volume type is known.
+	 *
+	 * @return A new recording
+	 */
+	public Recording startRecording() {
+		return new Recording();
+	}
+
+	public class Recording {
+
+		private final Map<Phase, Duration> phases = new EnumMap<>(Phase.class);
+
+		private Recording() {}
+
+		/**
+		 * Adds the time passed since the given timestamp to the given phase.
+		 *
+		 * @param phase The phase
+		 * @param startNanos The {@link System#nanoTime()} when the phase started
+		 * @return The latency of the phase
+		 */
+		public Duration since(Phase phase, long startNanos) {
+			return add(phase, Duration.ofNanos(System.nanoTime() - startNanos));
+		}
+
+		public Duration add(Phase phase, Duration latency) {
+			return phases.merge(phase, latency, Duration::plus);
+		}
+
+		public Duration get(Phase phase) {
+			return phases.getOrDefault(phase, Duration.ZERO);
+		}
+
+		/**
+		 * Records the collected phases in the histograms of the given volume type.
+		 *
+		 * @param volumeType The type of the volume that got (un)mounted
+		 */
+		public void commit(VolumeImpl volumeType) {
+			phases.forEach((phase, latency) -> record(volumeType, phase, latency));
+		}
+
+		@Override
+		public String toString() {
+			return phases.entrySet().stream().map(e -> e.getKey() + "=" + e.getValue().toMillis() + "ms").collect(Collectors.joining(", "));
+		}
+	}
+
+}
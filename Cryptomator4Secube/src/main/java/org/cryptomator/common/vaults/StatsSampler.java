@@ -0,0 +1,42 @@
+package org.cryptomator.common.vaults;
+
+import org.cryptomator.common.ShutdownHook;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the periodic stats sampling of all vaults on a dedicated thread.
+ * <p>
+ * Sampling only polls counters, so one thread serves any number of vaults. Keeping it off the shared scheduler means the history
+ * gets no gaps while a slow task, e.g. a device listing, occupies the scheduler's threads.
+ */
+@Singleton
+public class StatsSampler {
+
+	private final ScheduledExecutorService executor;
+
+	@Inject
+	public StatsSampler(ShutdownHook shutdownHook) {
+		this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "Vault Stats Sampler");
+			t.setDaemon(true);
+			return t;
+		});
+		shutdownHook.runOnShutdown(executor::shutdown);
+	}
+
+	/**
+	 * @param sampler Takes one sample. Must not block.
+	 * @param periodMillis The sampling period
+	 * @return A future to cancel sampling with
+	 */
+	ScheduledFuture<?> sampleAtFixedRate(Runnable sampler, long periodMillis) {
+		return executor.scheduleAtFixedRate(sampler, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+}
@@ -0,0 +1,176 @@
+package org.cryptomator.common.vaults;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ring buffers of the counters polled from a vault's file system, in rollups of one second, one minute and one hour.
+ * <p>
+ * Samples are {@link #record(long, long[]) recorded} by a single writer without allocating memory. Any number of threads can
+ * {@link #read(Resolution, Counter, long[], long[]) read} concurrently without locking: Readers copy the values and afterwards discard those
+ * the writer might have overwritten in the meantime.
+ */
+public class StatsTimeSeries {
+
+	public enum Counter {
+		BYTES_READ,
+		BYTES_WRITTEN,
+		BYTES_ENCRYPTED,
+		BYTES_DECRYPTED,
+		CHUNK_CACHE_ACCESSES,
+		CHUNK_CACHE_HITS,
+		FILES_READ,
+		FILES_WRITTEN
+	}
+
+	public enum Resolution {
+		SECOND(1, 600), // 10 minutes
+		MINUTE(60, 360), // 6 hours
+		HOUR(3600, 168); // 7 days
+
+		private final long seconds;
+		private final int capacity;
+
+		Resolution(long seconds, int capacity) {
+			this.seconds = seconds;
+			this.capacity = capacity;
+		}
+
+		public long getSeconds() {
+			return seconds;
+		}
+
+		public int getCapacity() {
+			return capacity;
+		}
+	}
+
+	private static final int COUNTERS = Counter.values().length;
+
+	private final Ring[] rings = new Ring[Resolution.values().length];
+
+	public StatsTimeSeries() {
+		for (var resolution : Resolution.values()) {
+			rings[resolution.ordinal()] = new Ring(resolution);
+		}
+	}
+
+	/**
+	 * Records the counters of one second and rolls them up into the coarser resolutions.
+	 * Rollups become readable once their minute or hour is over. Must not be invoked concurrently.
+	 *
+	 * @param epochSecond The second the sample was taken
+	 * @param sample The value of each {@link Counter}, indexed by its ordinal
+	 */
+	public void record(long epochSecond, long[] sample) {
+		assert sample.length == COUNTERS;
+		for (var ring : rings) {
+			ring.accumulate(epochSecond, sample);
+		}
+	}
+
+	/**
+	 * @param counter The counter
+	 * @return The value of the given counter in the most recent second, or <code>0</code> if nothing has been recorded yet
+	 */
+	public long latest(Counter counter) {
+		return rings[Resolution.SECOND.ordinal()].latest(counter);
+	}
+
+	/**
+	 * Copies the most recent values of the given counter into the given arrays, oldest first.
+	 *
+	 * @param resolution The rollup to read
+	 * @param counter The counter to read
+	 * @param timestamps Receives the epoch second each value's interval started at
+	 * @param values Receives the values
+	 * @return The number of values copied, at most the length of the arrays
+	 */
+	public int read(Resolution resolution, Counter counter, long[] timestamps, long[] values) {
+		return rings[resolution.ordinal()].read(counter, timestamps, values);
+	}
+
+	private static class Ring {
+
+		private final long seconds;
+		private final int capacity;
+		private final AtomicLongArray timestamps;
+		private final AtomicLongArray values;
+		private final long[] pending = new long[COUNTERS];
+		private long pendingStart = -1;
+		private volatile long claimed; // number of slots the writer started to write
+		private volatile long written; // number of slots the writer finished writing
+
+		Ring(Resolution resolution) {
+			this.seconds = resolution.seconds;
+			this.capacity = resolution.capacity;
+			this.timestamps = new AtomicLongArray(capacity);
+			this.values = new AtomicLongArray(capacity * COUNTERS);
+		}
+
+		void accumulate(long epochSecond, long[] sample) {
+			if (seconds == 1) {
+				append(epochSecond, sample);
+				return;
+			}
+			long start = epochSecond - Math.floorMod(epochSecond, seconds);
+			if (start != pendingStart) {
+				if (pendingStart != -1) {
+					append(pendingStart, pending);
+				}
+				Arrays.fill(pending, 0L);
+				pendingStart = start;
+			}
+			for (int i = 0; i < COUNTERS; i++) {
+				pending[i] += sample[i];
+			}
+		}
+
+		private void append(long timestamp, long[] sample) {
+			long seq = written;
+			int slot = (int) (seq % capacity);
+			claimed = seq + 1;
+			// release stores can't be observed before the claim above
+			timestamps.setRelease(slot, timestamp);
+			for (int i = 0; i < COUNTERS; i++) {
+				values.setRelease(slot * COUNTERS + i, sample[i]);
+			}
+			written = seq + 1;
+		}
+
+		long latest(Counter counter) {
+			while (true) {
+				long end = written;
+				if (end == 0) {
+					return 0L;
+				}
+				int slot = (int) ((end - 1) % capacity);
+				long value = values.getAcquire(slot * COUNTERS + counter.ordinal());
+				if (claimed - capacity < end) {
+					return value;
+				} // else: overwritten meanwhile, read the newer one
+			}
+		}
+
+		int read(Counter counter, long[] timestampsOut, long[] valuesOut) {
+			long end = written;
+			int n = (int) Math.min(Math.min(end, capacity), Math.min(timestampsOut.length, valuesOut.length));
+			long start = end - n;
+			for (int i = 0; i < n; i++) {
+				int slot = (int) ((start + i) % capacity);
+				timestampsOut[i] = timestamps.getAcquire(slot);
+				valuesOut[i] = values.getAcquire(slot * COUNTERS + counter.ordinal());
+			}
+			// slots the writer claimed meanwhile may be torn:
+			long overwritten = claimed - capacity - start;
+			if (overwritten <= 0) {
+				return n;
+			}
+			int valid = (int) Math.max(0, n - overwritten);
+			System.arraycopy(timestampsOut, n - valid, timestampsOut, 0, valid);
+			System.arraycopy(valuesOut, n - valid, valuesOut, 0, valid);
+			return valid;
+		}
+	}
+
+}
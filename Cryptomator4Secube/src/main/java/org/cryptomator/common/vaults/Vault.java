@@ -9,9 +9,18 @@
 package org.cryptomator.common.vaults;
 
 import com.google.common.base.Strings;
+import dagger.Lazy;
 import org.apache.commons.lang3.SystemUtils;
+import org.cryptomator.common.fs.CachingFileSystemProvider;
+import org.cryptomator.common.fs.FileSystemOperationStats;
+import org.cryptomator.common.fs.InstrumentedFileSystemProvider;
+import org.cryptomator.common.fs.MetadataCacheStats;
+import org.cryptomator.common.jfr.KeyLoadingEvent;
+import org.cryptomator.common.jfr.VaultLockEvent;
+import org.cryptomator.common.jfr.VaultUnlockEvent;
 import org.cryptomator.common.mountpoint.InvalidMountPointException;
 import org.cryptomator.common.settings.VaultSettings;
+import org.cryptomator.common.vaults.PhaseLatencies.Phase;
 import org.cryptomator.common.vaults.Volume.VolumeException;
 import org.cryptomator.cryptofs.CryptoFileSystem;
 import org.cryptomator.cryptofs.CryptoFileSystemProperties;
@@ -39,6 +48,7 @@ import javafx.fxml.FXML;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.EnumSet;
 import java.util.Objects;
 import java.util.Optional;
@@ -52,37 +62,43 @@ public class Vault {
 	private static final Logger LOG = LoggerFactory.getLogger(Vault.class);
 	private static final Path HOME_DIR = Paths.get(SystemUtils.USER_HOME);
 	private static final int UNLIMITED_FILENAME_LENGTH = Integer.MAX_VALUE;
+	static final Set<VaultState.Value> LOCKED_STATES = EnumSet.of(VaultState.Value.LOCKED, VaultState.Value.SECUBE);
 
 	private final VaultSettings vaultSettings;
 	private final Provider<Volume> volumeProvider;
-	private final StringBinding defaultMountFlags;
+	private final Lazy<StringBinding> defaultMountFlags;
 	private final AtomicReference<CryptoFileSystem> cryptoFileSystem;
 	private final VaultState state;
 	private final ObjectProperty<Exception> lastKnownException;
 	private final VaultConfigCache configCache;
 	private final VaultStats stats;
-	private final StringBinding displayName;
-	private final StringBinding displayablePath;
-	private final BooleanBinding locked;
+	private boolean vaultsecube;
+
+	/*
+	 * Observables are only created once they are accessed, i.e. for vaults shown or watched by the UI, as thousands of vaults may be
+	 * registered. Like all bindings, they are accessed from the FX Application Thread only.
+	 */
+	private StringBinding displayName;
+	private StringBinding displayablePath;
+	private BooleanBinding locked;
 	/*
 	 * Added the BooleanBinding secube that assume the value true or false depending on the value of the state.
 	 * */
-	private final BooleanBinding secube;
-	private boolean vaultsecube;
+	private BooleanBinding secube;
 	/////////////////////
-	private final BooleanBinding processing;
-	private final BooleanBinding unlocked;
-	private final BooleanBinding missing;
-	private final BooleanBinding needsMigration;
-	private final BooleanBinding unknownError;
-	private final StringBinding accessPoint;
-	private final BooleanBinding accessPointPresent;
-	private final BooleanProperty showingStats;
+	private BooleanBinding processing;
+	private BooleanBinding unlocked;
+	private BooleanBinding missing;
+	private BooleanBinding needsMigration;
+	private BooleanBinding unknownError;
+	private StringBinding accessPoint;
+	private BooleanBinding accessPointPresent;
+	private BooleanProperty showingStats;
 
 	private volatile Volume volume;
 
 	@Inject
-	Vault(VaultSettings vaultSettings, VaultConfigCache configCache, Provider<Volume> volumeProvider, @DefaultMountFlags StringBinding defaultMountFlags, AtomicReference<CryptoFileSystem> cryptoFileSystem, VaultState state, @Named("lastKnownException") ObjectProperty<Exception> lastKnownException, VaultStats stats) {
+	Vault(VaultSettings vaultSettings, VaultConfigCache configCache, Provider<Volume> volumeProvider, @DefaultMountFlags Lazy<StringBinding> defaultMountFlags, AtomicReference<CryptoFileSystem> cryptoFileSystem, VaultState state, @Named("lastKnownException") ObjectProperty<Exception> lastKnownException, VaultStats stats) {
 		this.vaultSettings = vaultSettings;
 		this.configCache = configCache;
 		this.volumeProvider = volumeProvider;
@@ -91,19 +107,7 @@ public class Vault {
 		this.state = state;
 		this.lastKnownException = lastKnownException;
 		this.stats = stats;
-		this.displayName = Bindings.createStringBinding(this::getDisplayName, vaultSettings.displayName());
-		this.displayablePath = Bindings.createStringBinding(this::getDisplayablePath, vaultSettings.path());
-		this.locked = Bindings.createBooleanBinding(this::isLocked, state);
-		this.secube = Bindings.createBooleanBinding(this::isSecube, state);
 		this.vaultsecube = false;
-		this.processing = Bindings.createBooleanBinding(this::isProcessing, state);
-		this.unlocked = Bindings.createBooleanBinding(this::isUnlocked, state);
-		this.missing = Bindings.createBooleanBinding(this::isMissing, state);
-		this.needsMigration = Bindings.createBooleanBinding(this::isNeedsMigration, state);
-		this.unknownError = Bindings.createBooleanBinding(this::isUnknownError, state);
-		this.accessPoint = Bindings.createStringBinding(this::getAccessPoint, state);
-		this.accessPointPresent = this.accessPoint.isNotEmpty();
-		this.showingStats = new SimpleBooleanProperty(false);
 	}
 
 	// ******************************************************************************
@@ -119,20 +123,21 @@ public class Vault {
 	
 	/* GET of the value of the BooleanBinding secube */
 	public BooleanBinding getlockedSecube() {
-		return this.secube;
+		return lockedsecubeProperty();
 	}
 	
 	public BooleanBinding getlocked() {
-		return this.locked;
+		return lockedProperty();
 	}
 	
 	
-	private CryptoFileSystem createCryptoFileSystem(MasterkeyLoader keyLoader) throws IOException, MasterkeyLoadingFailedException {
+	private CryptoFileSystem createCryptoFileSystem(MasterkeyLoader keyLoader, PhaseLatencies.Recording phases) throws IOException, MasterkeyLoadingFailedException {
 		Set<FileSystemFlags> flags = EnumSet.noneOf(FileSystemFlags.class);
 		if (vaultSettings.usesReadOnlyMode().get()) {
 			flags.add(FileSystemFlags.READONLY);
 		} else if (vaultSettings.maxCleartextFilenameLength().get() == -1) {
 			LOG.debug("Determining cleartext filename length limitations...");
+			long checkStart = System.nanoTime();
 			var checker = new FileSystemCapabilityChecker();
 			int shorteningThreshold = configCache.get().allegedShorteningThreshold();
 			int ciphertextLimit = checker.determineSupportedCiphertextFileNameLength(getPath());
@@ -142,18 +147,41 @@ public class Vault {
 			} else {
 				vaultSettings.maxCleartextFilenameLength().setValue(UNLIMITED_FILENAME_LENGTH);
 			}
+			phases.since(Phase.CAPABILITY_CHECK, checkStart);
 		}
 
 		if (vaultSettings.maxCleartextFilenameLength().get() < UNLIMITED_FILENAME_LENGTH) {
 			LOG.warn("Limiting cleartext filename length on this device to {}.", vaultSettings.maxCleartextFilenameLength().get());
 		}
 
+		MasterkeyLoader timedKeyLoader = keyId -> {
+			var event = new KeyLoadingEvent();
+			event.begin();
+			long loadStart = System.nanoTime();
+			try {
+				var masterkey = keyLoader.loadKey(keyId);
+				event.success = true;
+				return masterkey;
+			} finally {
+				phases.since(Phase.KEY_LOADING, loadStart);
+				if (event.shouldCommit()) {
+					event.vaultId = getId();
+					event.keyScheme = keyId.getScheme();
+					event.commit();
+				}
+			}
+		};
 		CryptoFileSystemProperties fsProps = CryptoFileSystemProperties.cryptoFileSystemProperties() //
-				.withKeyLoader(keyLoader) //
+				.withKeyLoader(timedKeyLoader) //
 				.withFlags(flags) //
 				.withMaxCleartextNameLength(vaultSettings.maxCleartextFilenameLength().get()) //
 				.build();
-		return CryptoFileSystemProvider.newFileSystem(getPath(), fsProps);
+		long initStart = System.nanoTime();
+		try {
+			return CryptoFileSystemProvider.newFileSystem(getPath(), fsProps);
+		} finally {
+			phases.add(Phase.FILESYSTEM_INIT, Duration.ofNanos(System.nanoTime() - initStart).minus(phases.get(Phase.KEY_LOADING)));
+		}
 	}
 
 	private void destroyCryptoFileSystem() {
@@ -172,20 +200,64 @@ public class Vault {
 		if (cryptoFileSystem.get() != null) {
 			throw new IllegalStateException("Already unlocked.");
 		}
-		CryptoFileSystem fs = createCryptoFileSystem(keyLoader);
+		var event = new VaultUnlockEvent();
+		event.begin();
+		var phases = stats.getPhaseLatencies().startRecording();
 		boolean success = false;
 		try {
-			cryptoFileSystem.set(fs);
-			volume = volumeProvider.get();
-			volume.mount(fs, getEffectiveMountFlags(), this::lockOnVolumeExit);
-			success = true;
+			CryptoFileSystem fs = createCryptoFileSystem(keyLoader, phases);
+			try {
+				cryptoFileSystem.set(fs);
+				volume = volumeProvider.get();
+				event.volumeType = volume.getImplementationType().name();
+				long mountStart = System.nanoTime();
+				try {
+					volume.mount(rootOf(fs), getEffectiveMountFlags(), this::lockOnVolumeExit);
+				} finally {
+					var mountPointSelectionTime = volume.getMountPointSelectionTime().orElse(Duration.ZERO);
+					phases.add(Phase.MOUNT_POINT, mountPointSelectionTime);
+					phases.add(Phase.MOUNT, Duration.ofNanos(System.nanoTime() - mountStart).minus(mountPointSelectionTime));
+					// failed mounts are recorded as well, as slow failures are just as interesting
+					phases.commit(volume.getImplementationType());
+					LOG.debug("Unlock phases of {} using {}: {}", getDisplayName(), volume.getImplementationType(), phases);
+				}
+				success = true;
+			} finally {
+				if (!success) {
+					destroyCryptoFileSystem();
+				}
+			}
 		} finally {
-			if (!success) {
-				destroyCryptoFileSystem();
+			if (event.shouldCommit()) {
+				event.vaultId = getId();
+				event.success = success;
+				event.commit();
 			}
 		}
 	}
 
+	// the root directory to mount, cached and instrumented if enabled for this vault
+	private Path rootOf(CryptoFileSystem fs) {
+		Path root = fs.getPath("/");
+		int cacheSeconds = vaultSettings.metadataCacheSeconds().get();
+		if (cacheSeconds > 0) {
+			var cacheStats = new MetadataCacheStats();
+			stats.setMetadataCacheStats(cacheStats);
+			root = new CachingFileSystemProvider(fs, Duration.ofSeconds(cacheSeconds), cacheStats).decorate(root);
+		} else {
+			stats.setMetadataCacheStats(null);
+		}
+		int samplingPercent = vaultSettings.operationSamplingPercent().get();
+		if (samplingPercent > 0) { // on top of the cache, to see what the volume sees
+			var operationStats = new FileSystemOperationStats(Math.min(samplingPercent, 100));
+			stats.setOperationStats(operationStats);
+			root = new InstrumentedFileSystemProvider(root.getFileSystem(), operationStats).decorate(root);
+		} else {
+			stats.setOperationStats(null);
+		}
+		return root;
+	}
+
 	/*
 	 * When Vaults should be closed and locked, the function will lock and set the state depending on the Vault type.
 	 * */
@@ -205,23 +277,38 @@ public class Vault {
 	}
 
 	public synchronized void lock(boolean forced) throws VolumeException, LockNotCompletedException {
-		//initiate unmount
-		if (forced && volume.supportsForcedUnmount()) {
-			volume.unmountForced();
-		} else {
-			volume.unmount();
-		}
-
-		//wait for lockOnVolumeExit to be executed
+		var event = new VaultLockEvent();
+		event.begin();
+		var phases = stats.getPhaseLatencies().startRecording();
+		long lockStart = System.nanoTime();
 		try {
-			boolean locked = state.awaitState(VaultState.Value.LOCKED, 3000, TimeUnit.MILLISECONDS);
-			boolean secube = state.awaitState(VaultState.Value.SECUBE, 3000, TimeUnit.MILLISECONDS);
-			if (!locked && !secube) {
+			//initiate unmount
+			if (forced && volume.supportsForcedUnmount()) {
+				volume.unmountForced();
+			} else {
+				volume.unmount();
+			}
+			phases.since(Phase.UNMOUNT, lockStart);
+
+			//wait for lockOnVolumeExit to be executed, which sets either of the locked states
+			boolean locked = state.awaitState(LOCKED_STATES, 3000, TimeUnit.MILLISECONDS);
+			if (!locked) {
 				throw new LockNotCompletedException("Locking of vault " + this.getDisplayName() + " still in progress.");
 			}
+			phases.since(Phase.LOCK, lockStart);
+			phases.commit(volume.getImplementationType());
+			LOG.debug("Lock phases of {} using {}: {}", getDisplayName(), volume.getImplementationType(), phases);
+			event.success = true;
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
 			throw new LockNotCompletedException(e);
+		} finally {
+			if (event.shouldCommit()) {
+				event.vaultId = getId();
+				event.volumeType = volume.getImplementationType().name();
+				event.forced = forced;
+				event.commit();
+			}
 		}
 	}
 
@@ -254,6 +341,9 @@ public class Vault {
 	}
 
 	public BooleanBinding lockedProperty() {		
+		if (locked == null) {
+			locked = Bindings.createBooleanBinding(this::isLocked, state);
+		}
 		return locked;
 	}
 
@@ -270,6 +360,9 @@ public class Vault {
 	 * */
 	
 	public BooleanBinding lockedsecubeProperty() {
+		if (secube == null) {
+			secube = Bindings.createBooleanBinding(this::isSecube, state);
+		}
 		return secube;
 	}
 	
@@ -284,7 +377,9 @@ public class Vault {
 
 
 	public BooleanBinding processingProperty() {
-
+		if (processing == null) {
+			processing = Bindings.createBooleanBinding(this::isProcessing, state);
+		}
 		return processing;
 	}
 
@@ -294,6 +389,9 @@ public class Vault {
 	}
 
 	public BooleanBinding unlockedProperty() {
+		if (unlocked == null) {
+			unlocked = Bindings.createBooleanBinding(this::isUnlocked, state);
+		}
 		return unlocked;
 	}
 
@@ -303,7 +401,9 @@ public class Vault {
 	}
 
 	public BooleanBinding missingProperty() {
-
+		if (missing == null) {
+			missing = Bindings.createBooleanBinding(this::isMissing, state);
+		}
 		return missing;
 	}
 
@@ -313,6 +413,9 @@ public class Vault {
 	}
 
 	public BooleanBinding needsMigrationProperty() {
+		if (needsMigration == null) {
+			needsMigration = Bindings.createBooleanBinding(this::isNeedsMigration, state);
+		}
 		return needsMigration;
 	}
 
@@ -321,6 +424,9 @@ public class Vault {
 	}
 
 	public BooleanBinding unknownErrorProperty() {
+		if (unknownError == null) {
+			unknownError = Bindings.createBooleanBinding(this::isUnknownError, state);
+		}
 		return unknownError;
 	}
 
@@ -329,6 +435,9 @@ public class Vault {
 	}
 
 	public StringBinding displayNameProperty() {
+		if (displayName == null) {
+			displayName = Bindings.createStringBinding(this::getDisplayName, vaultSettings.displayName());
+		}
 		return displayName;
 	}
 
@@ -337,6 +446,9 @@ public class Vault {
 	}
 
 	public StringBinding accessPointProperty() {
+		if (accessPoint == null) {
+			accessPoint = Bindings.createStringBinding(this::getAccessPoint, state);
+		}
 		return accessPoint;
 	}
 
@@ -350,14 +462,20 @@ public class Vault {
 	}
 
 	public BooleanBinding accessPointPresentProperty() {
+		if (accessPointPresent == null) {
+			accessPointPresent = accessPointProperty().isNotEmpty();
+		}
 		return accessPointPresent;
 	}
 
 	public boolean isAccessPointPresent() {
-		return accessPointPresent.get();
+		return !getAccessPoint().isEmpty();
 	}
 
 	public StringBinding displayablePathProperty() {
+		if (displayablePath == null) {
+			displayablePath = Bindings.createStringBinding(this::getDisplayablePath, vaultSettings.path());
+		}
 		return displayablePath;
 	}
 
@@ -373,11 +491,14 @@ public class Vault {
 	}
 
 	public BooleanProperty showingStatsProperty() {
+		if (showingStats == null) {
+			showingStats = new SimpleBooleanProperty(false);
+		}
 		return showingStats;
 	}
 
 	public boolean isShowingStats() {
-		return accessPointPresent.get();
+		return isAccessPointPresent();
 	}
 
 
@@ -407,11 +528,11 @@ public class Vault {
 	}
 
 	public StringBinding defaultMountFlagsProperty() {
-		return defaultMountFlags;
+		return defaultMountFlags.get();
 	}
 
 	public String getDefaultMountFlags() {
-		return defaultMountFlags.get();
+		return defaultMountFlags.get().get();
 	}
 
 	public String getEffectiveMountFlags() {
@@ -460,4 +581,14 @@ public class Vault {
 	public boolean supportsForcedUnmount() {
 		return volume.supportsForcedUnmount();
 	}
+
+	/**
+	 * Forcibly unmounts the volume without waiting for a {@link #lock(boolean) lock} in progress, e.g. because a regular unmount hangs.
+	 * The vault gets locked as soon as the volume exited.
+	 *
+	 * @throws VolumeException if the volume doesn't support forced unmounting or unmounting failed
+	 */
+	public void unmountForced() throws VolumeException {
+		volume.unmountForced();
+	}
 }
\ No newline at end of file
@@ -10,32 +10,68 @@ import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Wrapper for lazy loading and on-demand reloading of the vault configuration.
+ * <p>
+ * If the {@link VaultConfigWatcher} watches the vault directory, the config is only reloaded after the file changed.
  */
 public class VaultConfigCache {
 
+	private static final long NOT_WATCHED = -1;
+
 	private final VaultSettings settings;
+	private final VaultConfigWatcher watcher;
 	private final AtomicReference<VaultConfig.UnverifiedVaultConfig> config;
+	private final AtomicLong changes = new AtomicLong();
+	private volatile long changesWhenLoaded = NOT_WATCHED;
 
-	VaultConfigCache(VaultSettings settings) {
+	VaultConfigCache(VaultSettings settings, VaultConfigWatcher watcher) {
 		this.settings = settings;
+		this.watcher = watcher;
 		this.config = new AtomicReference<>(null);
+		settings.path().addListener(observable -> invalidate());
 	}
 
 	void reloadConfig() throws IOException {
+		long changesBeforeLoading = changes.get();
+		Path vaultPath = this.settings.path().get();
+		boolean watched = watcher.watch(vaultPath, this);
 		try {
-			config.set(readConfigFromStorage(this.settings.path().get()));
+			config.set(readConfigFromStorage(vaultPath));
+			changesWhenLoaded = watched ? changesBeforeLoading : NOT_WATCHED;
 		} catch (IOException e) {
 			config.set(null);
+			changesWhenLoaded = NOT_WATCHED;
 			throw e;
 		}
 	}
 
+	/**
+	 * Reloads the config, unless the file is watched and did not change since it was loaded.
+	 */
+	void refreshConfig() throws IOException {
+		if (config.get() == null || changesWhenLoaded != changes.get()) {
+			reloadConfig();
+		}
+	}
+
+	/**
+	 * Marks the loaded config as outdated, so it gets reloaded on next access.
+	 */
+	void invalidate() {
+		changes.incrementAndGet();
+	}
+
+	void stopWatching() {
+		watcher.unwatch(this);
+	}
+
 	public VaultConfig.UnverifiedVaultConfig get() throws IOException {
-		if (config.get() == null) {
+		long loaded = changesWhenLoaded;
+		if (config.get() == null || (loaded != NOT_WATCHED && loaded != changes.get())) {
 			reloadConfig();
 		}
 		return config.get();
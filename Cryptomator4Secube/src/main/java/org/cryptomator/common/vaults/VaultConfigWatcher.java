@@ -0,0 +1,157 @@
+package org.cryptomator.common.vaults;
+
+import org.cryptomator.common.Environment;
+import org.cryptomator.common.ShutdownHook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static org.cryptomator.common.Constants.VAULTCONFIG_FILENAME;
+
+/**
+ * Watches the vault directories for changes of the vault config file and {@link VaultConfigCache#invalidate() invalidates} the affected caches.
+ * <p>
+ * Caches of watched vaults only reload the config after it changed. Enabled with <code>-Dcryptomator.watchVaultConfigs=true</code>,
+ * otherwise the config is reloaded on every state check.
+ */
+@Singleton
+public class VaultConfigWatcher {
+
+	private static final Logger LOG = LoggerFactory.getLogger(VaultConfigWatcher.class);
+
+	private final boolean enabled;
+	private final ExecutorService executor;
+	private final ShutdownHook shutdownHook;
+	private final Map<Path, WatchKey> watchKeys = new HashMap<>();
+	private final Map<Path, Set<VaultConfigCache>> caches = new HashMap<>();
+	private WatchService watchService;
+
+	@Inject
+	public VaultConfigWatcher(Environment environment, ExecutorService executor, ShutdownHook shutdownHook) {
+		this.enabled = environment.watchVaultConfigs();
+		this.executor = executor;
+		this.shutdownHook = shutdownHook;
+	}
+
+	/**
+	 * Starts watching the config file of the given vault. Call this before reading the config, so no change gets lost.
+	 *
+	 * @param vaultPath The vault directory
+	 * @param cache The cache to invalidate when the config file changes
+	 * @return <code>true</code> if the cache will be invalidated on changes, <code>false</code> if the directory can't be watched
+	 */
+	synchronized boolean watch(Path vaultPath, VaultConfigCache cache) {
+		if (!enabled) {
+			return false;
+		}
+		Path dir = vaultPath.toAbsolutePath().normalize();
+		if (caches.getOrDefault(dir, Set.of()).contains(cache)) {
+			return true;
+		}
+		unwatch(cache); // the vault may have been moved
+		try {
+			if (!watchKeys.containsKey(dir)) {
+				watchKeys.put(dir, dir.register(getWatchService(), ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+			}
+			caches.computeIfAbsent(dir, d -> new HashSet<>()).add(cache);
+			return true;
+		} catch (IOException | ClosedWatchServiceException e) {
+			LOG.debug("Not watching {} for config changes: {}", dir, e.toString());
+			return false;
+		}
+	}
+
+	/**
+	 * Stops watching on behalf of the given cache, e.g. because its vault got removed.
+	 *
+	 * @param cache The cache not to invalidate any longer
+	 */
+	synchronized void unwatch(VaultConfigCache cache) {
+		var iterator = caches.entrySet().iterator();
+		while (iterator.hasNext()) {
+			var entry = iterator.next();
+			if (entry.getValue().remove(cache) && entry.getValue().isEmpty()) {
+				iterator.remove();
+				var key = watchKeys.remove(entry.getKey());
+				if (key != null) {
+					key.cancel();
+				}
+			}
+		}
+	}
+
+	private WatchService getWatchService() throws IOException {
+		if (watchService == null) {
+			var service = FileSystems.getDefault().newWatchService();
+			executor.submit(() -> processEvents(service));
+			shutdownHook.runOnShutdown(() -> closeQuietly(service));
+			watchService = service;
+		}
+		return watchService;
+	}
+
+	private void processEvents(WatchService service) {
+		try {
+			while (true) {
+				WatchKey key = service.take();
+				boolean configChanged = key.pollEvents().stream().anyMatch(this::concernsConfig);
+				boolean stillWatched = key.reset();
+				if (configChanged || !stillWatched) {
+					invalidate(key, stillWatched);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			LOG.debug("Stopped watching vault configs.");
+		}
+	}
+
+	private boolean concernsConfig(WatchEvent<?> event) {
+		// on overflow, events got lost, so any config may have changed
+		return event.kind() == OVERFLOW || event.context() instanceof Path p && VAULTCONFIG_FILENAME.equals(p.toString());
+	}
+
+	private synchronized void invalidate(WatchKey key, boolean stillWatched) {
+		Path dir = (Path) key.watchable();
+		if (watchKeys.get(dir) != key) {
+			return; // unwatched in the meantime
+		}
+		LOG.debug("Vault config in {} changed.", dir);
+		var affected = stillWatched ? caches.get(dir) : caches.remove(dir);
+		if (!stillWatched) {
+			// e.g. the directory got deleted. Caches register again on their next reload.
+			watchKeys.remove(dir);
+		}
+		if (affected != null) {
+			affected.forEach(VaultConfigCache::invalidate);
+		}
+	}
+
+	private static void closeQuietly(WatchService service) {
+		try {
+			service.close();
+		} catch (IOException e) {
+			LOG.debug("Failed to close watch service.", e);
+		}
+	}
+
+}
@@ -8,6 +8,7 @@
  *******************************************************************************/
 package org.cryptomator.common.vaults;
 
+import org.cryptomator.common.metrics.MetricsEndpoint;
 import org.cryptomator.common.settings.Settings;
 import org.cryptomator.common.settings.VaultSettings;
 import org.cryptomator.common.vaults.VaultState.Value;
@@ -19,40 +20,68 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.cryptomator.common.Constants.MASTERKEY_FILENAME;
 import static org.cryptomator.common.Constants.VAULTCONFIG_FILENAME;
 import static org.cryptomator.common.vaults.VaultState.Value.ERROR;
 import static org.cryptomator.common.vaults.VaultState.Value.LOCKED;
+import static org.cryptomator.common.vaults.VaultState.Value.MISSING;
+import static org.cryptomator.common.vaults.VaultState.Value.PROCESSING;
 
 @Singleton
 public class VaultListManager {
 
 	private static final Logger LOG = LoggerFactory.getLogger(VaultListManager.class);
+	private static final long STATE_PROBE_TIMEOUT_SECONDS = 10;
 
 	private final AutoLocker autoLocker;
 	private final VaultComponent.Builder vaultComponentBuilder;
 	private final ObservableList<Vault> vaultList;
 	private final String defaultVaultName;
+	private final ExecutorService executor;
+	private final VaultConfigWatcher configWatcher;
+	private final Map<Vault, CompletableFuture<VaultState.Value>> runningProbes = new ConcurrentHashMap<>();
 
 	@Inject
-	public VaultListManager(ObservableList<Vault> vaultList, AutoLocker autoLocker, VaultComponent.Builder vaultComponentBuilder, ResourceBundle resourceBundle, Settings settings) {
+	public VaultListManager(ObservableList<Vault> vaultList, AutoLocker autoLocker, MetricsEndpoint metricsEndpoint, VaultComponent.Builder vaultComponentBuilder, ResourceBundle resourceBundle, Settings settings, ExecutorService executor, VaultConfigWatcher configWatcher) {
 		this.vaultList = vaultList;
 		this.autoLocker = autoLocker;
 		this.vaultComponentBuilder = vaultComponentBuilder;
+		this.executor = executor;
+		this.configWatcher = configWatcher;
 		this.defaultVaultName = resourceBundle.getString("defaults.vault.vaultName");
 
 		addAll(settings.getDirectories());
 		vaultList.addListener(new VaultListChangeListener(settings.getDirectories()));
+		vaultList.addListener(this::stopWatchingRemovedVaults);
 		autoLocker.init();
+		metricsEndpoint.init();
+	}
+
+	private void stopWatchingRemovedVaults(ListChangeListener.Change<? extends Vault> c) {
+		while (c.next()) {
+			if (c.wasRemoved()) {
+				c.getRemoved().forEach(vault -> vault.getVaultConfigCache().stopWatching());
+			}
+		}
 	}
 
 	public Vault add(Path pathToVault) throws IOException {
@@ -116,9 +145,14 @@ public class VaultListManager {
 		return vaultSettings;
 	}
 
+	/**
+	 * Adds the vaults in the {@link VaultState.Value#PROCESSING PROCESSING} state right away and determines their actual state in the background,
+	 * so unreachable vault locations don't delay the startup.
+	 */
 	private void addAll(Collection<VaultSettings> vaultSettings) {
-		Collection<Vault> vaults = vaultSettings.stream().map(this::create).toList();
+		Collection<Vault> vaults = vaultSettings.stream().map(this::createUnchecked).toList();
 		vaultList.addAll(vaults);
+		vaults.forEach(vault -> determineVaultStateAsync(vault, PROCESSING));
 	}
 
 	private Optional<Vault> get(Path vaultPath) {
@@ -129,6 +163,13 @@ public class VaultListManager {
 				.findAny();
 	}
 
+	private Vault createUnchecked(VaultSettings vaultSettings) {
+		return vaultComponentBuilder.vaultSettings(vaultSettings) //
+				.vaultConfigCache(new VaultConfigCache(vaultSettings, configWatcher)) //
+				.initialVaultState(PROCESSING) //
+				.build().vault();
+	}
+
 	private Vault create(VaultSettings vaultSettings) {
 		VaultComponent.Builder compBuilder = vaultComponentBuilder.vaultSettings(vaultSettings);
 		try {
@@ -142,7 +183,7 @@ public class VaultListManager {
 			} else {
 				 vaultState = determineVaultState(vaultSettings.path().get());
 			}
-			VaultConfigCache wrapper = new VaultConfigCache(vaultSettings);
+			VaultConfigCache wrapper = new VaultConfigCache(vaultSettings, configWatcher);
 			compBuilder.vaultConfigCache(wrapper); //first set the wrapper in the builder, THEN try to load config
 			if (vaultState == LOCKED || vaultState == Value.SECUBE) { //for legacy reasons: pre v8 vault do not have a config, but they are in the NEEDS_MIGRATION state
 				wrapper.reloadConfig();
@@ -163,7 +204,7 @@ public class VaultListManager {
 		VaultComponent.Builder compBuilder = vaultComponentBuilder.vaultSettings(vaultSettings);
 		try {
 			VaultState.Value vaultState = determineVaultStateSEcube(vaultSettings.path().get());
-			VaultConfigCache wrapper = new VaultConfigCache(vaultSettings);
+			VaultConfigCache wrapper = new VaultConfigCache(vaultSettings, configWatcher);
 			compBuilder.vaultConfigCache(wrapper); //first set the wrapper in the builder, THEN try to load config
 			if (vaultState == Value.SECUBE) { //for legacy reasons: pre v8 vault do not have a config, but they are in the NEEDS_MIGRATION state
 				vaultSettings.setVaultsecube();
@@ -179,48 +220,87 @@ public class VaultListManager {
 	}
 
 	
-	/* This function is called when the state should be redetermined. 
-	 * The case SECUBE state has been added.*/
-	public static VaultState.Value redetermineVaultState(Vault vault) {
-		
-		VaultState state = vault.stateProperty();
-		VaultState.Value previousState = state.getValue();
+	/**
+	 * Checks the states of all vaults concurrently in the background.
+	 *
+	 * @see #redetermineVaultState(Vault)
+	 */
+	public void redetermineVaultStates() {
+		List.copyOf(vaultList).forEach(this::redetermineVaultState);
+	}
+
+	/**
+	 * Checks in the background whether the vault is still present and in which state it is, unless it is in use.
+	 * Concurrent calls for the same vault share the same check.
+	 *
+	 * @param vault The vault to check
+	 * @return The state of the vault once the check is done
+	 */
+	public CompletableFuture<VaultState.Value> redetermineVaultState(Vault vault) {
+		VaultState.Value previousState = vault.stateProperty().getValue();
 		return switch (previousState) {
-			case LOCKED, NEEDS_MIGRATION, MISSING -> {
-				try {
-					var determinedState = determineVaultState(vault.getPath());
-					if (determinedState == LOCKED) {
-						vault.getVaultConfigCache().reloadConfig();
+			case LOCKED, NEEDS_MIGRATION, MISSING, SECUBE -> determineVaultStateAsync(vault, previousState);
+			case ERROR, UNLOCKED, PROCESSING -> CompletableFuture.completedFuture(previousState);
+		};
+	}
+
+	/*
+	 * The determined state is only applied if the vault is still in the expected state, i.e. nobody started to use it in the meantime.
+	 * Vaults taking longer than STATE_PROBE_TIMEOUT_SECONDS to answer are considered missing, so they get checked again on the next occasion.
+	 */
+	private CompletableFuture<VaultState.Value> determineVaultStateAsync(Vault vault, VaultState.Value expectedState) {
+		var probe = new CompletableFuture<VaultState.Value>();
+		var runningProbe = runningProbes.putIfAbsent(vault, probe);
+		if (runningProbe != null) {
+			return runningProbe;
+		}
+		CompletableFuture.supplyAsync(() -> probeVaultState(vault), executor) //
+				.orTimeout(STATE_PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS) //
+				.handle((determinedState, e) -> applyVaultState(vault, expectedState, determinedState, e)) //
+				.whenComplete((settledState, e) -> {
+					runningProbes.remove(vault, probe);
+					if (e != null) {
+						probe.completeExceptionally(e);
+					} else {
+						probe.complete(settledState);
 					}
-					state.set(determinedState);
-					yield determinedState;
-				} catch (IOException e) {
-					LOG.warn("Failed to determine vault state for " + vault.getPath(), e);
-					state.set(ERROR);
-					vault.setLastKnownException(e);
-					yield ERROR;
-				}
+				});
+		return probe;
+	}
+
+	private static VaultState.Value probeVaultState(Vault vault) {
+		try {
+			var determinedState = vault.getVaultSettings().getVaultsecube() ? determineVaultStateSEcube(vault.getPath()) : determineVaultState(vault.getPath());
+			if (determinedState == LOCKED || determinedState == Value.SECUBE) {
+				vault.getVaultConfigCache().refreshConfig();
 			}
-			case ERROR, UNLOCKED, PROCESSING -> previousState;
-			
-			case SECUBE -> {
-				try {
-					var determinedState = determineVaultStateSEcube(vault.getPath());
-					if (determinedState == Value.SECUBE) {
-						vault.getVaultConfigCache().reloadConfig();
-					}
-					state.set(determinedState);
-					yield determinedState;
-				} catch (IOException e) {
-					LOG.warn("Failed to determine vault state for " + vault.getPath(), e);
-					state.set(ERROR);
-					vault.setLastKnownException(e);
-					yield ERROR;
-				}
+			return determinedState;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
 
+	private static VaultState.Value applyVaultState(Vault vault, VaultState.Value expectedState, VaultState.Value determinedState, Throwable exception) {
+		VaultState.Value newState = determinedState;
+		Throwable cause = exception instanceof CompletionException ? exception.getCause() : exception;
+		if (cause instanceof TimeoutException) {
+			LOG.warn("Timed out determining vault state for {}", vault.getPath());
+			newState = MISSING;
+		} else if (cause != null) {
+			LOG.warn("Failed to determine vault state for " + vault.getPath(), cause);
+			if (cause instanceof UncheckedIOException e) {
+				vault.setLastKnownException(e.getCause());
+			} else {
+				vault.setLastKnownException(new IllegalStateException("Failed to determine vault state", cause));
 			}
-		default -> throw new IllegalArgumentException("Unexpected value: " + previousState);
-		};
+			newState = ERROR;
+		}
+		VaultState state = vault.stateProperty();
+		if (newState == expectedState || state.transition(expectedState, newState)) {
+			return newState;
+		} else {
+			return state.getValue();
+		}
 	}
 
 	/* This function will assign the state SECUBE to the Vault*/
@@ -0,0 +1,143 @@
+package org.cryptomator.common.vaults;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Locks multiple vaults concurrently, e.g. when quitting the application.
+ * <p>
+ * Each vault gets a regular lock first. If this fails or the vault is still unlocked after a soft timeout, its volume gets unmounted
+ * forcibly, given it {@link Vault#supportsForcedUnmount() supports this}. Waiting ends after a global timeout, so a single hanging
+ * volume can't hold up quitting.
+ */
+@Singleton
+public class VaultLockCoordinator {
+
+	private static final Logger LOG = LoggerFactory.getLogger(VaultLockCoordinator.class);
+	private static final Duration SOFT_TIMEOUT = Duration.ofSeconds(5);
+	private static final Duration GLOBAL_TIMEOUT = Duration.ofSeconds(15);
+
+	private final ExecutorService executor;
+	private final Duration softTimeout;
+	private final Duration globalTimeout;
+
+	@Inject
+	public VaultLockCoordinator(ExecutorService executor) {
+		this(executor, SOFT_TIMEOUT, GLOBAL_TIMEOUT);
+	}
+
+	VaultLockCoordinator(ExecutorService executor, Duration softTimeout, Duration globalTimeout) {
+		this.executor = executor;
+		this.softTimeout = softTimeout;
+		this.globalTimeout = globalTimeout;
+	}
+
+	/**
+	 * Locks the given vaults concurrently and waits until all of them are locked or the global timeout elapsed.
+	 *
+	 * @param vaults The vaults to lock
+	 * @param forced Whether to attempt a forced lock right away instead of after the soft timeout
+	 * @return The locked vaults
+	 * @throws LockNotCompletedException if any vault is still unlocked after the global timeout
+	 * @throws InterruptedException if the current thread is interrupted while waiting
+	 */
+	public Collection<Vault> lockAll(Collection<Vault> vaults, boolean forced) throws LockNotCompletedException, InterruptedException {
+		long startNanos = System.nanoTime();
+		List<VaultLock> locks = vaults.stream().map(vault -> new VaultLock(vault, forced, startNanos)).toList();
+		locks.forEach(VaultLock::start);
+		try {
+			CompletableFuture.allOf(locks.stream().map(lock -> lock.locked).toArray(CompletableFuture[]::new)).get(globalTimeout.toMillis(), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			// vaults still unlocked are reported below
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("State futures never complete exceptionally", e);
+		} finally {
+			locks.forEach(VaultLock::stopWaiting);
+		}
+
+		List<Vault> locked = locks.stream().filter(VaultLock::isLocked).map(lock -> lock.vault).toList();
+		LOG.info("Locked {} of {} vaults in {} ms.", locked.size(), locks.size(), elapsedMillis(startNanos));
+		if (locked.size() < locks.size()) {
+			String pending = locks.stream().filter(lock -> !lock.isLocked()).map(lock -> lock.vault.getDisplayName()).collect(Collectors.joining(", "));
+			throw new LockNotCompletedException("Locking of vaults " + pending + " still in progress after " + globalTimeout.toSeconds() + "s.");
+		}
+		return locked;
+	}
+
+	private static long elapsedMillis(long startNanos) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+	}
+
+	private class VaultLock {
+
+		private final Vault vault;
+		private final boolean forced;
+		private final long startNanos;
+		private final CompletableFuture<VaultState.Value> locked;
+		private final AtomicBoolean escalated = new AtomicBoolean();
+
+		VaultLock(Vault vault, boolean forced, long startNanos) {
+			this.vault = vault;
+			this.forced = forced;
+			this.startNanos = startNanos;
+			this.locked = vault.stateProperty().stateReached(Vault.LOCKED_STATES);
+		}
+
+		void start() {
+			locked.thenRun(() -> LOG.info("Locked {} after {} ms{}.", vault.getDisplayName(), elapsedMillis(startNanos), escalated.get() ? " (forced)" : ""));
+			executor.execute(this::lock);
+			if (!forced) {
+				CompletableFuture.delayedExecutor(softTimeout.toMillis(), TimeUnit.MILLISECONDS, executor).execute(this::escalate);
+			}
+		}
+
+		void stopWaiting() {
+			locked.cancel(false);
+		}
+
+		boolean isLocked() {
+			return locked.isDone() && !locked.isCancelled();
+		}
+
+		private void lock() {
+			try {
+				vault.lock(forced);
+			} catch (Volume.VolumeException | LockNotCompletedException e) {
+				LOG.warn("Failed to lock {} after {} ms.", vault.getDisplayName(), elapsedMillis(startNanos), e);
+				if (!forced) {
+					escalate();
+				}
+			}
+		}
+
+		private void escalate() {
+			if (locked.isDone() || !escalated.compareAndSet(false, true)) {
+				return;
+			}
+			if (!vault.supportsForcedUnmount()) {
+				LOG.warn("Can't force {} to unmount.", vault.getDisplayName());
+				return;
+			}
+			LOG.info("Forcing {} to unmount after {} ms.", vault.getDisplayName(), elapsedMillis(startNanos));
+			try {
+				vault.unmountForced();
+			} catch (Volume.VolumeException e) {
+				LOG.error("Failed to force unmounting " + vault.getDisplayName(), e);
+			}
+		}
+	}
+
+}
@@ -1,6 +1,7 @@
 package org.cryptomator.common.vaults;
 
 import com.google.common.base.Preconditions;
+import org.cryptomator.common.settings.VaultSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -8,11 +9,16 @@ import javax.inject.Inject;
 import javafx.application.Platform;
 import javafx.beans.value.ObservableObjectValue;
 import javafx.beans.value.ObservableValueBase;
+import java.time.Instant;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 @PerVault
 public class VaultState extends ObservableValueBase<VaultState.Value> implements ObservableObjectValue<VaultState.Value> {
@@ -60,12 +66,27 @@ public class VaultState extends ObservableValueBase<VaultState.Value> implements
 	}
 
 	private final AtomicReference<Value> value;
-	private final Lock lock = new ReentrantLock();
-	private final Condition valueChanged = lock.newCondition();
+	private final Object publishLock = new Object(); // keeps events in the order of the changes
+	private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+	private final String vaultId;
+	private final VaultStateEventBus eventBus;
 
 	@Inject
+	public VaultState(VaultState.Value initialValue, VaultSettings vaultSettings, VaultStateEventBus eventBus) {
+		this.value = new AtomicReference<>(initialValue);
+		this.vaultId = vaultSettings.getId();
+		this.eventBus = eventBus;
+	}
+
+	/**
+	 * Creates a state not publishing any {@link VaultStateEvent}s.
+	 *
+	 * @param initialValue The initial state
+	 */
 	public VaultState(VaultState.Value initialValue) {
 		this.value = new AtomicReference<>(initialValue);
+		this.vaultId = null;
+		this.eventBus = null;
 	}
 
 	@Override
@@ -87,7 +108,13 @@ public class VaultState extends ObservableValueBase<VaultState.Value> implements
 	 */
 	public boolean transition(Value fromState, Value toState) {
 		Preconditions.checkArgument(fromState != toState, "fromState must be different than toState");
-		boolean success = value.compareAndSet(fromState, toState);
+		boolean success;
+		synchronized (publishLock) {
+			success = value.compareAndSet(fromState, toState);
+			if (success) {
+				publish(fromState, toState);
+			}
+		}
 		if (success) {
 			fireValueChangedEvent();
 		} else {
@@ -97,12 +124,25 @@ public class VaultState extends ObservableValueBase<VaultState.Value> implements
 	}
 
 	public void set(Value newState) {
-		var oldState = value.getAndSet(newState);
+		Value oldState;
+		synchronized (publishLock) {
+			oldState = value.getAndSet(newState);
+			if (oldState != newState) {
+				publish(oldState, newState);
+			}
+		}
 		if (oldState != newState) {
 			fireValueChangedEvent();
 		}
 	}
 
+	/* called while holding the publishLock, so events are published in the same order as the changes they describe */
+	private void publish(Value fromState, Value toState) {
+		if (eventBus != null) {
+			eventBus.publish(new VaultStateEvent(vaultId, fromState, toState, Instant.now()));
+		}
+	}
+
 	/**
 	 * Waits for the specified time, until the desired state is reached.
 	 *
@@ -113,37 +153,84 @@ public class VaultState extends ObservableValueBase<VaultState.Value> implements
 	 * @throws InterruptedException if the current thread is interrupted
 	 */
 	public boolean awaitState(Value desiredState, long time, TimeUnit unit) throws InterruptedException {
-		lock.lock();
+		return awaitState(Set.of(desiredState), time, unit);
+	}
+
+	/**
+	 * Waits for the specified time, until any of the desired states is reached.
+	 *
+	 * @param desiredStates what states to wait for
+	 * @param time the maximum time to wait
+	 * @param unit the time unit of the {@code time} argument
+	 * @return {@code false} if the waiting time detectably elapsed before reaching any of the {@code desiredStates}
+	 * @throws InterruptedException if the current thread is interrupted
+	 */
+	public boolean awaitState(Set<Value> desiredStates, long time, TimeUnit unit) throws InterruptedException {
+		var reached = stateReached(desiredStates::contains);
 		try {
-			long remaining = TimeUnit.NANOSECONDS.convert(time, unit);
-			while (value.get() != desiredState) {
-				if (remaining <= 0L) {
-					return false;
-				}
-				remaining = valueChanged.awaitNanos(remaining);
-			}
+			reached.get(time, unit);
 			return true;
+		} catch (TimeoutException e) {
+			return false;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("State future never completes exceptionally", e);
 		} finally {
-			lock.unlock();
+			reached.cancel(false);
 		}
 	}
 
-	private void signal() {
-		lock.lock();
-		try {
-			valueChanged.signalAll();
-		} finally {
-			lock.unlock();
-		}
+	/**
+	 * @param desiredStates what states to wait for
+	 * @return A future completing with the current state as soon as it is one of the {@code desiredStates}
+	 * @see #stateReached(Predicate)
+	 */
+	public CompletableFuture<Value> stateReached(Set<Value> desiredStates) {
+		return stateReached(desiredStates::contains);
+	}
+
+	/**
+	 * Completes without delay once a matching state is set, on the thread setting it. Cancelling the returned future stops waiting.
+	 *
+	 * @param condition what states to wait for
+	 * @return A future completing with the current state as soon as it matches the {@code condition}
+	 */
+	public CompletableFuture<Value> stateReached(Predicate<Value> condition) {
+		var waiter = new Waiter(condition);
+		waiters.add(waiter);
+		waiter.future.whenComplete((v, e) -> waiters.remove(waiter));
+		// a state set before the waiter got added would not notify it anymore
+		waiter.test(value.get());
+		return waiter.future;
+	}
+
+	private void notifyWaiters() {
+		var current = value.get();
+		waiters.forEach(waiter -> waiter.test(current));
 	}
 
 	@Override
 	protected void fireValueChangedEvent() {
-		signal();
+		notifyWaiters();
 		if (Platform.isFxApplicationThread()) {
 			super.fireValueChangedEvent();
 		} else {
 			Platform.runLater(super::fireValueChangedEvent);
 		}
 	}
+
+	private static class Waiter {
+
+		private final Predicate<Value> condition;
+		private final CompletableFuture<Value> future = new CompletableFuture<>();
+
+		Waiter(Predicate<Value> condition) {
+			this.condition = condition;
+		}
+
+		void test(Value state) {
+			if (condition.test(state)) {
+				future.complete(state);
+			}
+		}
+	}
 }
@@ -0,0 +1,15 @@
+package org.cryptomator.common.vaults;
+
+import java.time.Instant;
+
+/**
+ * A change of a vault's {@link VaultState}, as published by the {@link VaultStateEventBus}.
+ *
+ * @param vaultId The {@link Vault#getId() id} of the vault
+ * @param from The previous state
+ * @param to The new state
+ * @param timestamp When the state changed
+ */
+public record VaultStateEvent(String vaultId, VaultState.Value from, VaultState.Value to, Instant timestamp) {
+
+}
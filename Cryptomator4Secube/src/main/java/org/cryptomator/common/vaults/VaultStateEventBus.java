@@ -0,0 +1,81 @@
+package org.cryptomator.common.vaults;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Consumer;
+
+/**
+ * Publishes the state changes of all vaults, independently of JavaFX.
+ * <p>
+ * Each subscriber receives the events in the order the states changed, on its own executor. Publishing never blocks the thread changing a vault's state:
+ * Events are buffered per subscriber, and a subscriber not keeping up misses events once its buffer is full.
+ */
+@Singleton
+public class VaultStateEventBus {
+
+	private static final Logger LOG = LoggerFactory.getLogger(VaultStateEventBus.class);
+
+	private final Collection<SubmissionPublisher<VaultStateEvent>> publishers = new CopyOnWriteArrayList<>();
+
+	@Inject
+	public VaultStateEventBus() {}
+
+	/**
+	 * Subscribes with the {@link Flow#defaultBufferSize() default buffer size}.
+	 *
+	 * @param subscriber The subscriber to receive future events
+	 * @param executor The executor to deliver events on
+	 * @see #subscribe(Flow.Subscriber, Executor, int)
+	 */
+	public void subscribe(Flow.Subscriber<? super VaultStateEvent> subscriber, Executor executor) {
+		subscribe(subscriber, executor, Flow.defaultBufferSize());
+	}
+
+	/**
+	 * Subscribes to the state changes of all vaults. Cancelling the {@link Flow.Subscription subscription} unsubscribes.
+	 *
+	 * @param subscriber The subscriber to receive future events
+	 * @param executor The executor to deliver events on
+	 * @param bufferCapacity How many events to buffer until the subscriber requested them
+	 */
+	public void subscribe(Flow.Subscriber<? super VaultStateEvent> subscriber, Executor executor, int bufferCapacity) {
+		var publisher = new SubmissionPublisher<VaultStateEvent>(executor, bufferCapacity);
+		publisher.subscribe(subscriber);
+		publishers.add(publisher);
+	}
+
+	/**
+	 * Passes each future event to the given consumer, buffering up to {@link Flow#defaultBufferSize()} events.
+	 *
+	 * @param consumer The consumer to receive future events
+	 * @param executor The executor to invoke the consumer on
+	 */
+	public void consume(Consumer<? super VaultStateEvent> consumer, Executor executor) {
+		var publisher = new SubmissionPublisher<VaultStateEvent>(executor, Flow.defaultBufferSize());
+		publisher.consume(consumer);
+		publishers.add(publisher);
+	}
+
+	void publish(VaultStateEvent event) {
+		for (var publisher : publishers) {
+			if (!publisher.hasSubscribers()) {
+				publishers.remove(publisher); // cancelled or failed
+				publisher.close();
+				continue;
+			}
+			publisher.offer(event, (subscriber, dropped) -> {
+				LOG.debug("Dropped {} for a subscriber not keeping up.", dropped);
+				return false;
+			});
+		}
+	}
+
+}
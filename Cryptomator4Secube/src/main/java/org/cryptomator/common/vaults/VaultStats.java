@@ -1,7 +1,9 @@
 package org.cryptomator.common.vaults;
 
+import org.cryptomator.common.fs.FileSystemOperationStats;
+import org.cryptomator.common.fs.MetadataCacheStats;
+import org.cryptomator.common.vaults.StatsTimeSeries.Counter;
 import org.cryptomator.cryptofs.CryptoFileSystem;
-import org.cryptomator.cryptofs.CryptoFileSystemStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,22 +16,30 @@ import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleLongProperty;
 import javafx.beans.property.SimpleObjectProperty;
-import javafx.concurrent.ScheduledService;
-import javafx.concurrent.Task;
-import javafx.util.Duration;
 import java.time.Instant;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicReference;
 
 @PerVault
 public class VaultStats {
 
 	private static final Logger LOG = LoggerFactory.getLogger(VaultStats.class);
+	private static final long SAMPLING_PERIOD_MILLIS = 1000;
 
 	private final AtomicReference<CryptoFileSystem> fs;
 	private final VaultState state;
-	private final ScheduledService<Optional<CryptoFileSystemStats>> updateService;
+	private final StatsSampler sampler;
+	private final Runnable publishLatestSample = this::publishLatestSample; // allocated once, posted each second
+	private final AtomicBoolean publishPending = new AtomicBoolean();
+	private final long[] sample = new long[Counter.values().length]; // only accessed by the sampler
+	private final AtomicLongArray totals = new AtomicLongArray(Counter.values().length);
+	private volatile Instant lastActivitySample;
+	private volatile boolean activitySincePublished;
+	private volatile StatsTimeSeries timeSeries; // created when first unlocked
+	private ScheduledFuture<?> sampling;
 	private final LongProperty bytesPerSecondRead = new SimpleLongProperty();
 	private final LongProperty bytesPerSecondWritten = new SimpleLongProperty();
 	private final LongProperty bytesPerSecondEncrypted = new SimpleLongProperty();
@@ -42,14 +52,15 @@ public class VaultStats {
 	private final LongProperty filesRead = new SimpleLongProperty();
 	private final LongProperty filesWritten = new SimpleLongProperty();
 	private final ObjectProperty<Instant> lastActivity = new SimpleObjectProperty<>();
+	private final PhaseLatencies phaseLatencies = new PhaseLatencies();
+	private volatile FileSystemOperationStats operationStats;
+	private volatile MetadataCacheStats metadataCacheStats;
 
 	@Inject
-	VaultStats(AtomicReference<CryptoFileSystem> fs, VaultState state, ExecutorService executor) {
+	VaultStats(AtomicReference<CryptoFileSystem> fs, VaultState state, StatsSampler sampler) {
 		this.fs = fs;
 		this.state = state;
-		this.updateService = new UpdateStatsService();
-		updateService.setExecutor(executor);
-		updateService.setPeriod(Duration.seconds(1));
+		this.sampler = sampler;
 
 		state.addListener(this::vaultStateChanged);
 	}
@@ -58,70 +69,117 @@ public class VaultStats {
 		if (VaultState.Value.UNLOCKED == state.get()) {
 			assert fs.get() != null;
 			LOG.debug("start recording stats");
-			Platform.runLater(() -> {
-				lastActivity.set(Instant.now());
-				updateService.restart();
-			});
+			var unlocked = Instant.now();
+			lastActivitySample = unlocked;
+			Platform.runLater(() -> lastActivity.set(unlocked));
+			startSampling();
 		} else {
 			LOG.debug("stop recording stats");
-			Platform.runLater(() -> updateService.cancel());
+			stopSampling();
 		}
 	}
 
-	private void updateStats(Optional<CryptoFileSystemStats> stats) {
-		assert Platform.isFxApplicationThread();
-		bytesPerSecondRead.set(stats.map(CryptoFileSystemStats::pollBytesRead).orElse(0L));
-		bytesPerSecondWritten.set(stats.map(CryptoFileSystemStats::pollBytesWritten).orElse(0L));
-		cacheHitRate.set(stats.map(this::getCacheHitRate).orElse(0.0));
-		bytesPerSecondDecrypted.set(stats.map(CryptoFileSystemStats::pollBytesDecrypted).orElse(0L));
-		bytesPerSecondEncrypted.set(stats.map(CryptoFileSystemStats::pollBytesEncrypted).orElse(0L));
-		totalBytesRead.set(stats.map(CryptoFileSystemStats::pollTotalBytesRead).orElse(0L));
-		totalBytesWritten.set(stats.map(CryptoFileSystemStats::pollTotalBytesWritten).orElse(0L));
-		totalBytesEncrypted.set(stats.map(CryptoFileSystemStats::pollTotalBytesEncrypted).orElse(0L));
-		totalBytesDecrypted.set(stats.map(CryptoFileSystemStats::pollTotalBytesDecrypted).orElse(0L));
-		var oldAccessCount = filesRead.get() + filesWritten.get();
-		filesRead.set(stats.map(CryptoFileSystemStats::pollAmountOfAccessesRead).orElse(0L));
-		filesWritten.set(stats.map(CryptoFileSystemStats::pollAmountOfAccessesWritten).orElse(0L));
-		var newAccessCount = filesRead.get() + filesWritten.get();
+	private synchronized void startSampling() {
+		if (sampling != null) {
+			return;
+		}
+		if (timeSeries == null) {
+			timeSeries = new StatsTimeSeries();
+		}
+		for (int i = 0; i < totals.length(); i++) {
+			totals.set(i, 0L); // the new file system counts from zero
+		}
+		sampling = sampler.sampleAtFixedRate(this::sample, SAMPLING_PERIOD_MILLIS);
+	}
 
-		// check for any I/O activity
-		if (newAccessCount > oldAccessCount) {
-			lastActivity.set(Instant.now());
+	private synchronized void stopSampling() {
+		if (sampling != null) {
+			sampling.cancel(false);
+			sampling = null;
 		}
 	}
 
-	private double getCacheHitRate(CryptoFileSystemStats stats) {
-		long accesses = stats.pollChunkCacheAccesses();
-		long hits = stats.pollChunkCacheHits();
-		if (accesses == 0) {
-			return 0.0;
-		} else {
-			return hits / (double) accesses;
+	// runs on the sampler thread, one sample at a time
+	private void sample() {
+		try {
+			var cryptoFs = fs.get();
+			if (cryptoFs == null) {
+				return;
+			}
+			var stats = cryptoFs.getStats();
+			sample[Counter.BYTES_READ.ordinal()] = stats.pollBytesRead();
+			sample[Counter.BYTES_WRITTEN.ordinal()] = stats.pollBytesWritten();
+			sample[Counter.BYTES_ENCRYPTED.ordinal()] = stats.pollBytesEncrypted();
+			sample[Counter.BYTES_DECRYPTED.ordinal()] = stats.pollBytesDecrypted();
+			sample[Counter.CHUNK_CACHE_ACCESSES.ordinal()] = stats.pollChunkCacheAccesses();
+			sample[Counter.CHUNK_CACHE_HITS.ordinal()] = stats.pollChunkCacheHits();
+			// file accesses are counted in total, all other counters since the last poll:
+			sample[Counter.FILES_READ.ordinal()] = stats.pollAmountOfAccessesRead() - totals.get(Counter.FILES_READ.ordinal());
+			sample[Counter.FILES_WRITTEN.ordinal()] = stats.pollAmountOfAccessesWritten() - totals.get(Counter.FILES_WRITTEN.ordinal());
+			timeSeries.record(System.currentTimeMillis() / 1000, sample);
+			for (var counter : Counter.values()) {
+				totals.addAndGet(counter.ordinal(), sample[counter.ordinal()]);
+			}
+			if (sample[Counter.FILES_READ.ordinal()] > 0 || sample[Counter.FILES_WRITTEN.ordinal()] > 0) {
+				lastActivitySample = Instant.now();
+				activitySincePublished = true;
+			}
+			if (publishPending.compareAndSet(false, true)) { // don't flood the FX thread, if it's busy
+				Platform.runLater(publishLatestSample);
+			}
+		} catch (RuntimeException e) {
+			LOG.error("Error sampling stats.", e);
 		}
 	}
 
-	private class UpdateStatsService extends ScheduledService<Optional<CryptoFileSystemStats>> {
+	private void publishLatestSample() {
+		assert Platform.isFxApplicationThread();
+		publishPending.set(false);
+		var series = timeSeries;
+		bytesPerSecondRead.set(series.latest(Counter.BYTES_READ));
+		bytesPerSecondWritten.set(series.latest(Counter.BYTES_WRITTEN));
+		bytesPerSecondEncrypted.set(series.latest(Counter.BYTES_ENCRYPTED));
+		bytesPerSecondDecrypted.set(series.latest(Counter.BYTES_DECRYPTED));
+		long cacheAccesses = series.latest(Counter.CHUNK_CACHE_ACCESSES);
+		cacheHitRate.set(cacheAccesses == 0 ? 0.0 : series.latest(Counter.CHUNK_CACHE_HITS) / (double) cacheAccesses);
+		totalBytesRead.set(totals.get(Counter.BYTES_READ.ordinal()));
+		totalBytesWritten.set(totals.get(Counter.BYTES_WRITTEN.ordinal()));
+		totalBytesEncrypted.set(totals.get(Counter.BYTES_ENCRYPTED.ordinal()));
+		totalBytesDecrypted.set(totals.get(Counter.BYTES_DECRYPTED.ordinal()));
+		filesRead.set(totals.get(Counter.FILES_READ.ordinal()));
+		filesWritten.set(totals.get(Counter.FILES_WRITTEN.ordinal()));
 
-		private UpdateStatsService() {
-			setOnFailed(event -> LOG.error("Error in UpdateStateService.", getException()));
+		// check for any I/O activity
+		if (activitySincePublished) {
+			activitySincePublished = false;
+			lastActivity.set(lastActivitySample);
 		}
+	}
 
-		@Override
-		protected Task<Optional<CryptoFileSystemStats>> createTask() {
-			return new Task<>() {
-				@Override
-				protected Optional<CryptoFileSystemStats> call() {
-					return Optional.ofNullable(fs.get()).map(CryptoFileSystem::getStats);
-				}
-			};
-		}
+	/**
+	 * Can be invoked from any thread.
+	 *
+	 * @param counter The counter
+	 * @return The counter's total since the vault has been unlocked
+	 */
+	public long getTotal(Counter counter) {
+		return totals.get(counter.ordinal());
+	}
 
-		@Override
-		protected void succeeded() {
-			assert getValue() != null;
-			updateStats(getValue());
-			super.succeeded();
-		}
+	/**
+	 * Can be invoked from any thread, unlike {@link #getLastActivity()}.
+	 *
+	 * @return When the vault was last unlocked or accessed, or <code>null</code> if it hasn't been unlocked yet
+	 */
+	public Instant getLastActivitySample() {
+		return lastActivitySample;
+	}
+
+	/**
+	 * @return The history of this vault's counters, if it has been unlocked before
+	 */
+	public Optional<StatsTimeSeries> getTimeSeries() {
+		return Optional.ofNullable(timeSeries);
 	}
 
 	/* Observables */
@@ -195,4 +253,34 @@ public class VaultStats {
 	public Instant getLastActivity() {
 		return lastActivity.get();
 	}
+
+	public PhaseLatencies getPhaseLatencies() {
+		return phaseLatencies;
+	}
+
+	/**
+	 * Can be invoked from any thread.
+	 *
+	 * @return The operations of the most recently mounted volume, if they have been recorded
+	 */
+	public Optional<FileSystemOperationStats> getOperationStats() {
+		return Optional.ofNullable(operationStats);
+	}
+
+	void setOperationStats(FileSystemOperationStats operationStats) {
+		this.operationStats = operationStats;
+	}
+
+	/**
+	 * Can be invoked from any thread.
+	 *
+	 * @return Hits and misses of the most recently mounted volume's metadata cache, if it has been cached
+	 */
+	public Optional<MetadataCacheStats> getMetadataCacheStats() {
+		return Optional.ofNullable(metadataCacheStats);
+	}
+
+	void setMetadataCacheStats(MetadataCacheStats metadataCacheStats) {
+		this.metadataCacheStats = metadataCacheStats;
+	}
 }
@@ -2,10 +2,10 @@ package org.cryptomator.common.vaults;
 
 import org.cryptomator.common.mountpoint.InvalidMountPointException;
 import org.cryptomator.common.settings.VolumeImpl;
-import org.cryptomator.cryptofs.CryptoFileSystem;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Optional;
 import java.util.concurrent.CompletionStage;
 import java.util.function.Consumer;
@@ -31,10 +31,10 @@ public interface Volume {
 	VolumeImpl getImplementationType();
 
 	/**
-	 * @param fs
+	 * @param root The root directory of the unlocked vault, possibly {@link org.cryptomator.common.fs.DecoratingFileSystemProvider decorated}
 	 * @throws IOException
 	 */
-	void mount(CryptoFileSystem fs, String mountFlags, Consumer<Throwable> onExitAction) throws IOException, VolumeException, InvalidMountPointException;
+	void mount(Path root, String mountFlags, Consumer<Throwable> onExitAction) throws IOException, VolumeException, InvalidMountPointException;
 
 	/**
 	 * Reveals the mounted volume.
@@ -52,6 +52,13 @@ public interface Volume {
 
 	MountPointRequirement getMountPointRequirement();
 
+	/**
+	 * @return How long choosing and preparing the mount point took during the last {@link #mount mount}, if this volume did so itself
+	 */
+	default Optional<Duration> getMountPointSelectionTime() {
+		return Optional.empty();
+	}
+
 	// optional forced unmounting:
 
 	default boolean supportsForcedUnmount() {
@@ -5,7 +5,6 @@ import com.google.common.base.CharMatcher;
 import org.cryptomator.common.settings.Settings;
 import org.cryptomator.common.settings.VaultSettings;
 import org.cryptomator.common.settings.VolumeImpl;
-import org.cryptomator.cryptofs.CryptoFileSystem;
 import org.cryptomator.frontend.webdav.WebDavServer;
 import org.cryptomator.frontend.webdav.mount.MountParams;
 import org.cryptomator.frontend.webdav.mount.Mounter;
@@ -43,13 +42,13 @@ public class WebDavVolume implements Volume {
 	}
 
 	@Override
-	public void mount(CryptoFileSystem fs, String mountFlags, Consumer<Throwable> onExitAction) throws VolumeException {
-		startServlet(fs);
+	public void mount(Path root, String mountFlags, Consumer<Throwable> onExitAction) throws VolumeException {
+		startServlet(root);
 		mountServlet();
 		this.onExitAction = onExitAction;
 	}
 
-	private void startServlet(CryptoFileSystem fs) {
+	private void startServlet(Path root) {
 		if (server == null) {
 			server = serverProvider.get();
 		}
@@ -58,7 +57,7 @@ public class WebDavVolume implements Volume {
 		}
 		CharMatcher acceptable = CharMatcher.inRange('0', '9').or(CharMatcher.inRange('A', 'Z')).or(CharMatcher.inRange('a', 'z'));
 		String urlConformMountName = acceptable.negate().collapseFrom(vaultSettings.mountName().get(), '_');
-		servlet = server.createWebDavServlet(fs.getPath("/"), vaultSettings.getId() + "/" + urlConformMountName);
+		servlet = server.createWebDavServlet(root, vaultSettings.getId() + "/" + urlConformMountName);
 		servlet.start();
 	}
 
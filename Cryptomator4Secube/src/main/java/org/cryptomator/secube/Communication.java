@@ -1,49 +1,243 @@
 package org.cryptomator.secube;
 
-import java.math.BigInteger;
-import java.security.SecureRandom;
+import java.io.IOException;
+import java.net.ProtocolException;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.bouncycastle.util.encoders.Hex;
+import org.cryptomator.common.jfr.SecubeCommunicationEvent;
 
 public class Communication {
 	
 	private static final boolean debug = false;
 	
-	// Constants for Diffie-Hellman
-	private static final BigInteger G = new BigInteger("2");
-    private static final BigInteger P = new BigInteger("008b3413e6cde53095290320e1bc37c198bb9ef023308c5ff5ef98b4afb0f429224ceee1ed42f32b290fe49f8f68a81f2e4b0d28998d5842f363da73c2858932148da345aec40b5122142404146e397861b92c597ea134729311673f18fa3e965d9476635173f3479d5438883a3a95dbe31dd2954ec7ee8d0da418effd683063e07", 16);
+	private static final String pubHex = "0404e02e7c3a6c2013f67a2cc98be3d0b7824afff7d4f1b4deda3c111550f47d7184cbf869d5430ecc772b2cbb91ee185972138ad08c1ea4adc1518c8ccb6d6ac1";
+	static final SignatureVerifier MIDDLEWARE_VERIFIER = new SignatureVerifier(Hex.decode(pubHex));
 
-	public static String main(String mode, String serialNumber, String PIN, String IDVault) throws Exception {
+	private static final String PHASE_SPAWN = "spawn";
+	private static final String PHASE_HANDSHAKE = "handshake";
+	private static final String PHASE_KEY_AGREEMENT = "key agreement";
+	private static final String PHASE_VERIFY = "verify";
+	private static final String PHASE_DECRYPT = "decrypt";
+	private static final String BATCH_MODE = "retrieve-keys";
 
-		String pubHex = "0404e02e7c3a6c2013f67a2cc98be3d0b7824afff7d4f1b4deda3c111550f47d7184cbf869d5430ecc772b2cbb91ee185972138ad08c1ea4adc1518c8ccb6d6ac1";
-		byte[] pubByte = Hex.decode(pubHex);
-	
-		// Generate random A
-		SecureRandom random = new SecureRandom();
-        BigInteger A = new BigInteger(2048, random);
-        if(debug) {
-	        System.out.println("\nA: " + A);
-        }
-        
-        System.out.println("\nID: " + IDVault);
-        
-        // Compute K_cryptomator
-        BigInteger K_cryptomator = G.modPow(A, P);
+	/**
+	 * Runs one key request through a dedicated middleware connection, which opens the device and logs in with the given PIN.
+	 * Prefer {@link MiddlewareSessionManager#request(String, String, CharSequence, String)}, which reuses an authenticated session.
+	 * <p>
+	 * Single-request connections do not negotiate, so this always uses classic Diffie-Hellman.
+	 *
+	 * @param transport The transport to reach the middleware
+	 * @param keyAgreement A fresh Diffie-Hellman key agreement, which is destroyed afterwards
+	 */
+	static String main(MiddlewareTransport transport, String mode, String serialNumber, CharSequence PIN, String IDVault, HandshakeKeyAgreement keyAgreement) throws Exception {
+		try {
+			return main0(transport, mode, serialNumber, PIN, IDVault, keyAgreement);
+		} finally {
+			keyAgreement.destroy();
+		}
+	}
+
+	private static String main0(MiddlewareTransport transport, String mode, String serialNumber, CharSequence PIN, String IDVault, HandshakeKeyAgreement keyAgreement) throws Exception {
+        String K_cryptomator = keyAgreement.publicKeyHex();
         if(debug) {
+	        System.out.println("\nID: " + IDVault);
 	        System.out.println("\nK_cryptomator: " + K_cryptomator);
         }
         
         // Starting communication
-        String cmd = "../dist/win/CommMIddleware.exe " + mode + " " + serialNumber + " " +  PIN;
-		Process process = Runtime.getRuntime().exec(cmd);
-		
-		// Send [ K_cryptomator, ID_Vault ]
-		ProcessUtils.writeOnProcess(process, List.of(K_cryptomator.toString(16), IDVault));
-        
+		try (var connection = open(transport, mode, serialNumber, PIN, IDVault)) {
+			var handshake = beginPhase(PHASE_HANDSHAKE);
+			String reply;
+			try {
+				// Send [ K_cryptomator, ID_Vault ]
+				ProcessUtils.writeTo(connection.getOutputStream(), List.of(K_cryptomator, IDVault));
+				reply = ProcessUtils.readFrom(connection.getInputStream());
+			} finally {
+				endPhase(handshake, mode, IDVault);
+			}
+			return processReply(reply, keyAgreement, transport.signatureVerifier());
+		}
+	}
+
+	/**
+	 * Runs one key request through an already authenticated middleware session.
+	 * Uses the binary protocol if the middleware supports it, otherwise the line-based text protocol.
+	 *
+	 * @param session The session of the device to ask
+	 * @param mode Either <code>retrieve-key</code> or <code>create-key</code>
+	 * @param IDVault The SEcube vault ID
+	 * @param keyAgreement A fresh key agreement in the {@link MiddlewareSession#keyAgreementMode() negotiated mode}, which is destroyed afterwards
+	 * @return The vault key as hex string, or an error message starting with <code>Error:</code>
+	 * @throws IOException If the session broke down during the exchange
+	 */
+	static String run(MiddlewareSession session, String mode, String IDVault, HandshakeKeyAgreement keyAgreement) throws Exception {
+		try {
+			var handshake = beginPhase(PHASE_HANDSHAKE);
+			if (session.isFramed()) {
+				var request = MiddlewareFrame.keyRequest(session.nextRequestId(), mode, keyAgreement.publicKey(), IDVault);
+				MiddlewareFrame reply;
+				try {
+					reply = session.exchange(List.of(request)).get(0);
+				} finally {
+					endPhase(handshake, mode, IDVault);
+				}
+				return processReply(reply, keyAgreement, session.signatureVerifier());
+			}
+			String reply;
+			try {
+				reply = session.exchange(mode, List.of(keyAgreement.publicKeyHex(), IDVault));
+			} finally {
+				endPhase(handshake, mode, IDVault);
+			}
+			return processReply(reply, keyAgreement, session.signatureVerifier());
+		} finally {
+			keyAgreement.destroy();
+		}
+	}
+
+	/**
+	 * Retrieves the keys of several vaults with a single handshake through a session using the binary protocol.
+	 * The middleware signs the shared secret once and encrypts every vault key with the derived key.
+	 *
+	 * @param session The framed session of the device to ask
+	 * @param IDVaults The SEcube vault IDs
+	 * @param keyAgreement A fresh key agreement in the negotiated mode, which is destroyed afterwards
+	 * @return The vault keys as hex strings, or error messages starting with <code>Error:</code>, by SEcube vault ID
+	 * @throws IOException If the session broke down during the exchange
+	 */
+	static Map<String, String> runBatch(MiddlewareSession session, List<String> IDVaults, HandshakeKeyAgreement keyAgreement) throws Exception {
+		try {
+			var request = MiddlewareFrame.keysRequest(session.nextRequestId(), keyAgreement.publicKey(), IDVaults);
+			var handshake = beginPhase(PHASE_HANDSHAKE);
+			MiddlewareFrame reply;
+			try {
+				reply = session.exchange(List.of(request)).get(0);
+			} finally {
+				endPhase(handshake, BATCH_MODE, String.join(",", IDVaults));
+			}
+			return processBatchReply(reply, IDVaults, keyAgreement, session.signatureVerifier());
+		} finally {
+			keyAgreement.destroy();
+		}
+	}
+
+	private static MiddlewareTransport.Connection open(MiddlewareTransport transport, String mode, String serialNumber, CharSequence PIN, String IDVault) throws IOException {
+		var event = beginPhase(PHASE_SPAWN);
+		try {
+			return transport.open(mode, serialNumber, PIN);
+		} finally {
+			endPhase(event, mode, IDVault);
+		}
+	}
+
+	private static byte[] agree(HandshakeKeyAgreement keyAgreement, byte[] PK_MIDD) {
+		var event = beginPhase(PHASE_KEY_AGREEMENT);
+		try {
+			return keyAgreement.agree(PK_MIDD);
+		} finally {
+			endPhase(event, null, null);
+		}
+	}
+
+	private static byte[] agree(HandshakeKeyAgreement keyAgreement, String PK_MIDD) {
+		var event = beginPhase(PHASE_KEY_AGREEMENT);
+		try {
+			return keyAgreement.agree(PK_MIDD);
+		} finally {
+			endPhase(event, null, null);
+		}
+	}
+
+	// JFR events cost next to nothing while not recording, so the phases are always instrumented
+	private static SecubeCommunicationEvent beginPhase(String phase) {
+		var event = new SecubeCommunicationEvent();
+		event.phase = phase;
+		event.begin();
+		return event;
+	}
+
+	private static void endPhase(SecubeCommunicationEvent event, String mode, String IDVault) {
+		if (event.shouldCommit()) {
+			event.mode = mode;
+			event.secubeVaultId = IDVault;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Processes a batch reply, whose payload holds [ DSig_secube, K_secube ] followed by [ MAC, IV, K_enc_vault ] for each requested vault.
+	 * An empty K_enc_vault means the device holds no key for that vault.
+	 */
+	private static Map<String, String> processBatchReply(MiddlewareFrame reply, List<String> IDVaults, HandshakeKeyAgreement keyAgreement, SignatureVerifier verifier) throws Exception {
+		if (reply.type() == MiddlewareFrame.Type.ERROR) {
+			return sameForAll(IDVaults, "Error: " + reply.errorMessage());
+		} else if (reply.type() != MiddlewareFrame.Type.KEYS) {
+			throw new ProtocolException("Unexpected " + reply.type() + " frame in reply to batch key request");
+		}
+		List<byte[]> fields = reply.requireFields(2 + 3 * IDVaults.size());
+		byte[] K_simm;
+		try {
+			K_simm = agree(keyAgreement, fields.get(1));
+		} catch (IllegalArgumentException e) {
+			return sameForAll(IDVaults, "Error: PK_MIDD is not a valid public key");
+		}
+		byte[] Hash_cryptomator;
+		try {
+			Hash_cryptomator = CryptoUtils.hash(K_simm);
+		} catch (Exception e) {
+			return sameForAll(IDVaults, "Error: Unable to hash the symmetric key");
+		} finally {
+			Arrays.fill(K_simm, (byte) 0);
+		}
+		try {
+			String signatureError = verifySignature(verifier, fields.get(0), Hash_cryptomator);
+			if (signatureError != null) {
+				return sameForAll(IDVaults, signatureError);
+			}
+			Map<String, String> keys = new LinkedHashMap<>();
+			for (int i = 0; i < IDVaults.size(); i++) {
+				byte[] MAC = fields.get(2 + 3 * i);
+				byte[] IV = fields.get(3 + 3 * i);
+				byte[] Ciphertext = fields.get(4 + 3 * i);
+				keys.put(IDVaults.get(i), Ciphertext.length == 0 ? "Error: No key stored for this vault" : decryptKey(MAC, IV, Ciphertext, Hash_cryptomator));
+			}
+			return keys;
+		} finally {
+			Arrays.fill(Hash_cryptomator, (byte) 0);
+		}
+	}
+
+	private static Map<String, String> sameForAll(List<String> IDVaults, String result) {
+		Map<String, String> results = new LinkedHashMap<>();
+		IDVaults.forEach(id -> results.put(id, result));
+		return results;
+	}
+
+	/**
+	 * Processes a binary reply, whose payload holds [ DSig_secube, MAC, IV, K_enc_vault, K_secube ] as raw bytes.
+	 */
+	private static String processReply(MiddlewareFrame reply, HandshakeKeyAgreement keyAgreement, SignatureVerifier verifier) throws Exception {
+		if (reply.type() == MiddlewareFrame.Type.ERROR) {
+			return "Error: " + reply.errorMessage();
+		} else if (reply.type() != MiddlewareFrame.Type.KEY) {
+			throw new ProtocolException("Unexpected " + reply.type() + " frame in reply to key request");
+		}
+		List<byte[]> fields = reply.requireFields(5);
+		byte[] K_simm;
+		try {
+			K_simm = agree(keyAgreement, fields.get(4));
+		} catch (IllegalArgumentException e) {
+			return "Error: PK_MIDD is not a valid public key";
+		}
+		return unwrapKey(verifier, fields.get(0), fields.get(1), fields.get(2), fields.get(3), K_simm);
+	}
+
+	private static String processReply(String sb, HandshakeKeyAgreement keyAgreement, SignatureVerifier verifier) throws Exception {
         // Receive [ K_secube, DSig_secube, K_enc_vault]
-        String sb = ProcessUtils.readFromProcess(process);
         String[] input = sb.split("\n");
         try {
         	String test = input[1];
@@ -81,9 +275,9 @@ public class Communication {
         
         byte[] IV = Hex.decode(input[4]);
         
-        BigInteger PK_MIDD = new BigInteger(input[8], 16);
+        String PK_MIDD = input[8];
         int PK_MIDD_len = Integer.valueOf(input[7]);
-        if(PK_MIDD.toByteArray().length*8 != PK_MIDD_len)
+        if(!keyAgreement.hasLength(PK_MIDD, PK_MIDD_len))
         	return "Error: PK_MIDD length is not right";
         
         if(debug) {
@@ -92,28 +286,68 @@ public class Communication {
         	System.out.println("\nMAC: " + CryptoUtils.bytesToHex(MAC));
         	System.out.println("\nIV: " + CryptoUtils.bytesToHex(IV));
         	System.out.println("\nCYPHERTEXT: " + CryptoUtils.bytesToHex(Ciphertext));
-        	System.out.println("\nPK_MIDD: " + PK_MIDD.toString(16));
+        	System.out.println("\nPK_MIDD: " + PK_MIDD);
         	System.out.println("---------------------------------------------------\n");
         }
         
         // Compute K_simm_cryptomator
-        BigInteger K_simm = PK_MIDD.modPow(A, P);
+        byte[] K_simm;
+        try {
+        	K_simm = agree(keyAgreement, PK_MIDD);
+        } catch (IllegalArgumentException e) {
+        	return "Error: PK_MIDD is not a valid public key";
+        }
         if(debug) {
-	        System.out.println("\nK_simm: " + K_simm);
-	        System.out.println("\nK_simm length: " + K_simm.bitLength());
-	        System.out.println("\nK_simmHex: " + K_simm.toString(16));
+	        System.out.println("\nK_simm length: " + K_simm.length * 8);
+	        System.out.println("\nK_simmHex: " + CryptoUtils.bytesToHex(K_simm));
 	        System.out.println("---------------------------------------------------\n");
         }
-        
+        return unwrapKey(verifier, ECDSByteFromHex, MAC, IV, Ciphertext, K_simm);
+	}
+
+	/**
+	 * Verifies the reply and decrypts the vault key. The shared secret and the derived key are wiped afterwards.
+	 */
+	private static String unwrapKey(SignatureVerifier verifier, byte[] ECDSByteFromHex, byte[] MAC, byte[] IV, byte[] Ciphertext, byte[] K_simm) throws Exception {
         // Compute Hash_cryptomator (AES_key)
         byte[] Hash_cryptomator;
         try {
-        	Hash_cryptomator = CryptoUtils.hash(K_simm.toByteArray());
+        	Hash_cryptomator = CryptoUtils.hash(K_simm);
         } catch (Exception e) {
         	//e.printStackTrace();
         	return "Error: Unable to hash the symmetric key";
+        } finally {
+        	Arrays.fill(K_simm, (byte) 0);
         }
-        
+        try {
+        	return verifyAndDecrypt(verifier, ECDSByteFromHex, MAC, IV, Ciphertext, Hash_cryptomator);
+        } finally {
+        	Arrays.fill(Hash_cryptomator, (byte) 0);
+        }
+	}
+
+	private static String verifyAndDecrypt(SignatureVerifier verifier, byte[] ECDSByteFromHex, byte[] MAC, byte[] IV, byte[] Ciphertext, byte[] Hash_cryptomator) throws Exception {
+		String signatureError = verifySignature(verifier, ECDSByteFromHex, Hash_cryptomator);
+		if (signatureError != null) {
+			return signatureError;
+		}
+		return decryptKey(MAC, IV, Ciphertext, Hash_cryptomator);
+	}
+
+	/**
+	 * @return <code>null</code> if the signature is valid, or an error message if it could not be checked
+	 * @throws SecurityException If the signature is invalid
+	 */
+	private static String verifySignature(SignatureVerifier verifier, byte[] ECDSByteFromHex, byte[] Hash_cryptomator) {
+		var event = beginPhase(PHASE_VERIFY);
+		try {
+			return verifySignature0(verifier, ECDSByteFromHex, Hash_cryptomator);
+		} finally {
+			endPhase(event, null, null);
+		}
+	}
+
+	private static String verifySignature0(SignatureVerifier verifier, byte[] ECDSByteFromHex, byte[] Hash_cryptomator) {
         if(debug) {
         	System.out.println("\nHash_cryptomator: " + CryptoUtils.bytesToHex(Hash_cryptomator));
         }
@@ -121,60 +355,84 @@ public class Communication {
         // Verify DSig_secube
         boolean validSignature = true;
 		try {
-			validSignature = CryptoUtils.verify(
+			validSignature = verifier.verify(
 					/* byte[] message */
 					Hash_cryptomator,
 					/* byte[] signature */
-					ECDSByteFromHex,
-					/* PublicKey publicKey */
-					pubByte
+					ECDSByteFromHex
 					);
 		} catch (Exception e) {
 			//e.printStackTrace();
 			return "Error: Unable to verify signature";
 		}
 		
-		System.out.println("\nvalidSignature: " + validSignature);
+		if(debug) {
+			System.out.println("\nvalidSignature: " + validSignature);
+		}
 		
         if (validSignature) {
-            // Decrypt K_enc_vault with K_simm_cryptomator
-            byte[] decryptedK_VaultBytes;
-            try{
-            	decryptedK_VaultBytes = CryptoUtils.decryptAES(
-            		/* byte[] encryptedData */
-            		Ciphertext,
-            		/* byte[] key */
-            		Hash_cryptomator,
-            		/* byte[] iv */
-            		IV
-            		);
-            } catch (Exception e) {
-            	//e.printStackTrace();
-    			return "Error: Unable to decrypt";
-            }
-            
-            // Use decryptedK_Vault as needed
-            System.out.println("\ndecryptedK_Vault: " + CryptoUtils.bytesToHex(decryptedK_VaultBytes));
-        
-            // Verify MAC of decryptedK_Vault
-            boolean validMac = false;
-            try{
-	            validMac = CryptoUtils.verifyHMACSHA256(
-	            		decryptedK_VaultBytes,
-	            		MAC,
-	            		Hash_cryptomator
-	            );
-            } catch (Exception e) {
-            	//e.printStackTrace();
-    			return "Error: Unable to validate MAC";
-            }
-
-            System.out.println("\nvalidMac: " + validMac);
-            
-            return CryptoUtils.bytesToHex(decryptedK_VaultBytes);
+        	return null;
         } else {
             // ABORT
             throw new SecurityException("Error: Invalid signature, aborting process.");
         }
 	}
+
+	private static String decryptKey(byte[] MAC, byte[] IV, byte[] Ciphertext, byte[] Hash_cryptomator) {
+		var event = beginPhase(PHASE_DECRYPT);
+		try {
+			return decryptKey0(MAC, IV, Ciphertext, Hash_cryptomator);
+		} finally {
+			endPhase(event, null, null);
+		}
+	}
+
+	private static String decryptKey0(byte[] MAC, byte[] IV, byte[] Ciphertext, byte[] Hash_cryptomator) {
+        // Decrypt K_enc_vault with K_simm_cryptomator
+        byte[] decryptedK_VaultBytes;
+        try{
+        	decryptedK_VaultBytes = CryptoUtils.decryptAES(
+        		/* byte[] encryptedData */
+        		Ciphertext,
+        		/* byte[] key */
+        		Hash_cryptomator,
+        		/* byte[] iv */
+        		IV
+        		);
+        } catch (Exception e) {
+        	//e.printStackTrace();
+			return "Error: Unable to decrypt";
+        }
+        
+        // Use decryptedK_Vault as needed
+        if(debug) {
+        	System.out.println("\ndecryptedK_Vault: " + CryptoUtils.bytesToHex(decryptedK_VaultBytes));
+        }
+    
+        // Verify MAC of decryptedK_Vault
+        boolean validMac = false;
+        try{
+            validMac = CryptoUtils.verifyHMACSHA256(
+            		decryptedK_VaultBytes,
+            		MAC,
+            		Hash_cryptomator
+            );
+        } catch (Exception e) {
+        	//e.printStackTrace();
+			return "Error: Unable to validate MAC";
+        }
+
+        if(debug) {
+        	System.out.println("\nvalidMac: " + validMac);
+        }
+        
+        try {
+        	if (!validMac) {
+        		return "Error: Invalid MAC";
+        	}
+        	return CryptoUtils.bytesToHex(decryptedK_VaultBytes);
+        } finally {
+        	Arrays.fill(decryptedK_VaultBytes, (byte) 0);
+        }
+	}
 }
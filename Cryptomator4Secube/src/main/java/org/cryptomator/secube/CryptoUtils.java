@@ -8,11 +8,11 @@ import javax.crypto.Cipher;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
-import org.bouncycastle.asn1.sec.SECNamedCurves;
 import org.bouncycastle.asn1.x9.X9ECParameters;
 import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.Mac;
 import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
 import org.bouncycastle.crypto.macs.HMac;
 import org.bouncycastle.crypto.params.ECDomainParameters;
 import org.bouncycastle.crypto.params.ECPublicKeyParameters;
@@ -31,6 +31,10 @@ public class CryptoUtils {
     public static final String HASH_ALG= "SHA-256";
     public static final String ECDSA_ALG= "SHA256withECDSA";
     public static final String PROVIDER = BouncyCastleProvider.PROVIDER_NAME;
+
+    // parsed once, the optimized field arithmetic of the custom curve implementation is several times faster than the generic one
+    static final X9ECParameters CURVE_PARAMS = CustomNamedCurves.getByName(CURVE);
+    static final ECDomainParameters DOMAIN_PARAMS = new ECDomainParameters(CURVE_PARAMS);
     
 
     /**
@@ -50,6 +54,7 @@ public class CryptoUtils {
     
     /**
      * Verifies a signature using a public key.
+     * Use a {@link SignatureVerifier} instead when verifying several signatures of the same key.
      *
      * @param message The message whose signature needs to be verified.
      * @param signature The signature to verify.
@@ -58,19 +63,28 @@ public class CryptoUtils {
      * @throws Exception If an error occurs during the verification of the signature.
      */
     public static boolean verify(byte[] message, byte[] signature, byte[] publicKey) throws Exception {
+        ECPublicKeyParameters pubKeyParams = new ECPublicKeyParameters(DOMAIN_PARAMS.getCurve().decodePoint(publicKey), DOMAIN_PARAMS);
+        return verify(message, signature, pubKeyParams);
+    }
+
+    /**
+     * Verifies a signature using already decoded public key parameters.
+     *
+     * @param message The message whose signature needs to be verified.
+     * @param signature The signature to verify.
+     * @param publicKey The decoded public key.
+     * @return true if the signature is valid, false otherwise.
+     */
+    static boolean verify(byte[] message, byte[] signature, ECPublicKeyParameters publicKey) {
 
         // Extract r and s from the signature
         BigInteger r = new BigInteger(1, Arrays.copyOfRange(signature, 4, 36));
         BigInteger s = new BigInteger(1, Arrays.copyOfRange(signature, 38, 70));
-        BigInteger[] rs = {r, s};
         
         // Initialize the signer
         ECDSASigner signer = new ECDSASigner();
-        X9ECParameters params = SECNamedCurves.getByName(CURVE);
-        ECDomainParameters ecParams = new ECDomainParameters(params.getCurve(), params.getG(), params.getN(), params.getH());
-        ECPublicKeyParameters pubKeyParams = new ECPublicKeyParameters(ecParams.getCurve().decodePoint(publicKey), ecParams);
-        signer.init(false, pubKeyParams);
-        return signer.verifySignature(message, rs[0].abs(), rs[1].abs());
+        signer.init(false, publicKey);
+        return signer.verifySignature(message, r, s);
     }
     
     /**
@@ -0,0 +1,139 @@
+package org.cryptomator.secube;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps track of the connected SEcube devices.
+ * <p>
+ * The device listing runs on a background thread and its result is cached, so windows asking for devices can show the last known list
+ * immediately. While at least one window {@link #watch() watches} the devices, the list is refreshed every {@value #REFRESH_INTERVAL_SECONDS} seconds,
+ * which picks up devices plugged in or removed in the meantime.
+ */
+@Singleton
+public class DeviceDiscovery {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DeviceDiscovery.class);
+	static final long REFRESH_INTERVAL_SECONDS = 5;
+
+	private final ExecutorService executor;
+	private final ScheduledExecutorService scheduler;
+	private final MiddlewareTransport transport;
+	private final ObservableList<String> serialNumbers = FXCollections.observableArrayList();
+	private final ObservableList<String> serialNumbersReadOnly = FXCollections.unmodifiableObservableList(serialNumbers);
+	private final ReadOnlyBooleanWrapper noDevicesFound = new ReadOnlyBooleanWrapper();
+	private final AtomicBoolean listing = new AtomicBoolean();
+	private int watchers;
+	private ScheduledFuture<?> periodicRefresh;
+
+	@Inject
+	public DeviceDiscovery(ExecutorService executor, ScheduledExecutorService scheduler, MiddlewareTransport transport) {
+		this.executor = executor;
+		this.scheduler = scheduler;
+		this.transport = transport;
+	}
+
+	/**
+	 * Starts refreshing the device list right away and then periodically, until the returned watch is closed.
+	 *
+	 * @return A handle to stop watching, e.g. when the window showing the devices gets hidden
+	 */
+	public synchronized Watch watch() {
+		if (watchers++ == 0) {
+			periodicRefresh = scheduler.scheduleWithFixedDelay(this::refresh, 0, REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+		}
+		return new Watch();
+	}
+
+	private synchronized void unwatch() {
+		if (--watchers == 0) {
+			periodicRefresh.cancel(false);
+			periodicRefresh = null;
+		}
+	}
+
+	/**
+	 * Lists the devices on a background thread. Does nothing if a listing is already running.
+	 */
+	public void refresh() {
+		if (listing.compareAndSet(false, true)) {
+			try {
+				executor.execute(this::list);
+			} catch (RejectedExecutionException e) {
+				listing.set(false);
+				LOG.debug("Not listing SEcube devices, executor rejected task.");
+			}
+		}
+	}
+
+	private void list() {
+		try {
+			var result = transport.listDevices();
+			Platform.runLater(() -> update(result));
+		} catch (IOException e) {
+			LOG.warn("Failed to list SEcube devices.", e);
+			Platform.runLater(() -> update(List.of()));
+		} finally {
+			listing.set(false);
+		}
+	}
+
+	private void update(List<String> result) {
+		if (!serialNumbers.equals(result)) {
+			LOG.debug("SEcube devices: {}", result);
+			serialNumbers.setAll(result);
+		}
+		noDevicesFound.set(result.isEmpty());
+	}
+
+	/* Observables */
+
+	/**
+	 * @return The serial numbers of the connected devices, as of the last listing. Only updated on the JavaFX application thread.
+	 */
+	public ObservableList<String> getSerialNumbers() {
+		return serialNumbersReadOnly;
+	}
+
+	/**
+	 * @return Whether the last listing found no device. <code>false</code> until the first listing completed.
+	 */
+	public ReadOnlyBooleanProperty noDevicesFoundProperty() {
+		return noDevicesFound.getReadOnlyProperty();
+	}
+
+	public boolean isNoDevicesFound() {
+		return noDevicesFound.get();
+	}
+
+	public class Watch implements AutoCloseable {
+
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		private Watch() {}
+
+		@Override
+		public void close() {
+			if (closed.compareAndSet(false, true)) {
+				unwatch();
+			}
+		}
+	}
+
+}
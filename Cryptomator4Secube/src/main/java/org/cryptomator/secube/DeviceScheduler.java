@@ -0,0 +1,172 @@
+package org.cryptomator.secube;
+
+import org.cryptomator.common.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs operations against SEcube devices one at a time per device.
+ * <p>
+ * A device serves a single middleware session at a time, so concurrent requests from different unlock workflows would make the middleware fail.
+ * Instead, requests for the same serial number wait in a bounded FIFO queue. Requests with equal coalescing keys share a single device operation,
+ * whether it is still queued or already running.
+ * <p>
+ * Each request has its own deadline. A request that is cancelled or times out before its operation starts leaves the queue. The operation
+ * itself only gets dropped once no request is waiting for it anymore. Operations already running are never interrupted, since the middleware
+ * would be left in an undefined state.
+ */
+@Singleton
+public class DeviceScheduler {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DeviceScheduler.class);
+	static final int MAX_QUEUED_PER_DEVICE = 16;
+
+	private final ExecutorService executor;
+	private final ScheduledExecutorService scheduler;
+	private final Map<String, DeviceQueue> queues = new ConcurrentHashMap<>();
+
+	@Inject
+	public DeviceScheduler(ExecutorService executor, ScheduledExecutorService scheduler) {
+		this.executor = executor;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Schedules an operation against a device.
+	 *
+	 * @param serialNumber The serial number of the device
+	 * @param coalescingKey Requests with equal keys share one operation, or <code>null</code> to always run the operation separately
+	 * @param timeout How long the caller is willing to wait, including time spent in the queue
+	 * @param operation The operation to run exclusively on the device
+	 * @param <T> The result type
+	 * @return A future completing with the result of the operation, or exceptionally with a {@link TimeoutException} once the timeout elapsed.
+	 * Fails with a {@link RejectedExecutionException} if too many requests are waiting for the device already.
+	 * Cancelling the future withdraws the request.
+	 */
+	public <T> CompletableFuture<T> submit(String serialNumber, @Nullable Object coalescingKey, Duration timeout, Callable<T> operation) {
+		return queues.computeIfAbsent(serialNumber, DeviceQueue::new).enqueue(coalescingKey, timeout, operation);
+	}
+
+	private class DeviceQueue {
+
+		private final String serialNumber;
+		private final Deque<Job<?>> pending = new ArrayDeque<>();
+		private final Map<Object, Job<?>> coalescable = new HashMap<>();
+		private Job<?> running;
+
+		DeviceQueue(String serialNumber) {
+			this.serialNumber = serialNumber;
+		}
+
+		@SuppressWarnings("unchecked")
+		synchronized <T> CompletableFuture<T> enqueue(@Nullable Object coalescingKey, Duration timeout, Callable<T> operation) {
+			Job<T> job = coalescingKey != null ? (Job<T>) coalescable.get(coalescingKey) : null;
+			if (job != null) {
+				LOG.debug("Coalescing request for SEcube {} with pending operation.", serialNumber);
+			} else if (pending.size() >= MAX_QUEUED_PER_DEVICE) {
+				return CompletableFuture.failedFuture(new RejectedExecutionException("Too many pending requests for SEcube " + serialNumber));
+			} else {
+				job = new Job<>(coalescingKey, operation);
+				pending.add(job);
+				if (coalescingKey != null) {
+					coalescable.put(coalescingKey, job);
+				}
+			}
+			var waiter = job.addWaiter(timeout);
+			runNext();
+			return waiter;
+		}
+
+		private synchronized void runNext() {
+			if (running != null || pending.isEmpty()) {
+				return;
+			}
+			var job = pending.poll();
+			running = job;
+			try {
+				executor.execute(() -> run(job));
+			} catch (RejectedExecutionException e) {
+				job.result.completeExceptionally(e);
+				finished(job);
+			}
+		}
+
+		private <T> void run(Job<T> job) {
+			try {
+				job.result.complete(job.operation.call());
+			} catch (Exception e) {
+				job.result.completeExceptionally(e);
+			} finally {
+				finished(job);
+			}
+		}
+
+		private synchronized void finished(Job<?> job) {
+			running = null;
+			if (job.coalescingKey != null) {
+				coalescable.remove(job.coalescingKey, job);
+			}
+			runNext();
+		}
+
+		private synchronized void withdraw(Job<?> job) {
+			if (--job.waiters == 0 && pending.remove(job)) {
+				LOG.debug("Dropping abandoned request for SEcube {}.", serialNumber);
+				if (job.coalescingKey != null) {
+					coalescable.remove(job.coalescingKey, job);
+				}
+				job.result.cancel(false);
+			}
+		}
+
+		private class Job<T> {
+
+			private final Object coalescingKey;
+			private final Callable<T> operation;
+			private final CompletableFuture<T> result = new CompletableFuture<>();
+			private int waiters; // guarded by DeviceQueue.this
+
+			Job(@Nullable Object coalescingKey, Callable<T> operation) {
+				this.coalescingKey = coalescingKey;
+				this.operation = operation;
+			}
+
+			CompletableFuture<T> addWaiter(Duration timeout) {
+				waiters++;
+				var waiter = new CompletableFuture<T>();
+				var deadline = scheduler.schedule(() -> waiter.completeExceptionally(new TimeoutException("Request for SEcube " + serialNumber + " timed out.")), timeout.toMillis(), TimeUnit.MILLISECONDS);
+				result.whenComplete((r, e) -> {
+					if (e != null) {
+						waiter.completeExceptionally(e);
+					} else {
+						waiter.complete(r);
+					}
+				});
+				waiter.whenComplete((r, e) -> {
+					deadline.cancel(false);
+					if (!result.isDone()) {
+						withdraw(this);
+					}
+				});
+				return waiter;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package org.cryptomator.secube;
+
+import org.bouncycastle.util.BigIntegers;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Classic Diffie-Hellman over the fixed ~1024 bit prime shared with the middleware, using a 2048 bit exponent.
+ */
+class DiffieHellmanKeyAgreement implements HandshakeKeyAgreement {
+
+	// Constants for Diffie-Hellman
+	static final BigInteger G = new BigInteger("2");
+	static final BigInteger P = new BigInteger("008b3413e6cde53095290320e1bc37c198bb9ef023308c5ff5ef98b4afb0f429224ceee1ed42f32b290fe49f8f68a81f2e4b0d28998d5842f363da73c2858932148da345aec40b5122142404146e397861b92c597ea134729311673f18fa3e965d9476635173f3479d5438883a3a95dbe31dd2954ec7ee8d0da418effd683063e07", 16);
+	private static final int EXPONENT_BITS = 2048;
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private final byte[] A = new byte[EXPONENT_BITS / Byte.SIZE]; // kept as bytes, as a BigInteger cannot be wiped
+	private final BigInteger K_cryptomator;
+	private volatile boolean destroyed;
+
+	DiffieHellmanKeyAgreement() {
+		RANDOM.nextBytes(A);
+		this.K_cryptomator = G.modPow(new BigInteger(1, A), P);
+	}
+
+	@Override
+	public Mode mode() {
+		return Mode.DH;
+	}
+
+	@Override
+	public byte[] publicKey() {
+		return BigIntegers.asUnsignedByteArray(K_cryptomator);
+	}
+
+	@Override
+	public String publicKeyHex() {
+		return K_cryptomator.toString(16);
+	}
+
+	@Override
+	public boolean hasLength(String peerPublicKeyHex, int bitLength) {
+		return new BigInteger(peerPublicKeyHex, 16).toByteArray().length * 8 == bitLength;
+	}
+
+	@Override
+	public byte[] agree(String peerPublicKeyHex) {
+		return agree(new BigInteger(peerPublicKeyHex, 16));
+	}
+
+	@Override
+	public byte[] agree(byte[] peerPublicKey) {
+		return agree(new BigInteger(1, peerPublicKey));
+	}
+
+	private byte[] agree(BigInteger PK_MIDD) {
+		if (destroyed) {
+			throw new IllegalStateException("Key agreement already destroyed.");
+		}
+		if (PK_MIDD.compareTo(BigInteger.ONE) <= 0 || PK_MIDD.compareTo(P.subtract(BigInteger.ONE)) >= 0) {
+			throw new IllegalArgumentException("Invalid public key");
+		}
+		return PK_MIDD.modPow(new BigInteger(1, A), P).toByteArray();
+	}
+
+	@Override
+	public void destroy() {
+		destroyed = true;
+		Arrays.fill(A, (byte) 0);
+	}
+
+	@Override
+	public boolean isDestroyed() {
+		return destroyed;
+	}
+}
@@ -0,0 +1,88 @@
+package org.cryptomator.secube;
+
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.math.ec.FixedPointUtil;
+import org.bouncycastle.util.BigIntegers;
+import org.bouncycastle.util.encoders.Hex;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Ephemeral ECDH on {@link CryptoUtils#CURVE}.
+ * <p>
+ * Public keys are exchanged as uncompressed points. The shared secret is the 32 byte big-endian x-coordinate of the agreed point.
+ */
+class EcdhKeyAgreement implements HandshakeKeyAgreement {
+
+	private static final ECDomainParameters PARAMS = CryptoUtils.DOMAIN_PARAMS;
+	private static final FixedPointCombMultiplier BASE_POINT_MULTIPLIER = new FixedPointCombMultiplier();
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	static {
+		FixedPointUtil.precompute(PARAMS.getG());
+	}
+
+	private final byte[] d; // kept as bytes, as a BigInteger cannot be wiped
+	private final ECPoint Q;
+	private volatile boolean destroyed;
+
+	EcdhKeyAgreement() {
+		var secret = BigIntegers.createRandomInRange(BigInteger.ONE, PARAMS.getN().subtract(BigInteger.ONE), RANDOM);
+		this.d = BigIntegers.asUnsignedByteArray(PARAMS.getN().bitLength() / Byte.SIZE, secret);
+		this.Q = BASE_POINT_MULTIPLIER.multiply(PARAMS.getG(), secret).normalize();
+	}
+
+	@Override
+	public Mode mode() {
+		return Mode.ECDH;
+	}
+
+	@Override
+	public byte[] publicKey() {
+		return Q.getEncoded(false);
+	}
+
+	@Override
+	public String publicKeyHex() {
+		return Hex.toHexString(publicKey());
+	}
+
+	@Override
+	public boolean hasLength(String peerPublicKeyHex, int bitLength) {
+		return peerPublicKeyHex.length() * 4 == bitLength;
+	}
+
+	@Override
+	public byte[] agree(String peerPublicKeyHex) {
+		return agree(Hex.decode(peerPublicKeyHex));
+	}
+
+	@Override
+	public byte[] agree(byte[] peerPublicKey) {
+		if (destroyed) {
+			throw new IllegalStateException("Key agreement already destroyed.");
+		}
+		// decodePoint validates that the point lies on the curve, secp256k1 has cofactor 1
+		ECPoint peer = PARAMS.getCurve().decodePoint(peerPublicKey);
+		ECPoint shared = peer.multiply(new BigInteger(1, d)).normalize();
+		if (shared.isInfinity()) {
+			throw new IllegalArgumentException("Invalid public key");
+		}
+		return shared.getAffineXCoord().getEncoded();
+	}
+
+	@Override
+	public void destroy() {
+		destroyed = true;
+		Arrays.fill(d, (byte) 0);
+	}
+
+	@Override
+	public boolean isDestroyed() {
+		return destroyed;
+	}
+}
@@ -0,0 +1,123 @@
+package org.cryptomator.secube;
+
+import org.cryptomator.common.ShutdownHook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A small pool of precomputed ephemeral key agreements for the SEcube handshake.
+ * <p>
+ * Generating an ephemeral key pair only depends on local randomness. Filling the pool in the background while the user is still typing the PIN takes
+ * the expensive exponentiation off the path between clicking "Unlock" and mounting the vault.
+ * <p>
+ * Only the mode of the most recent handshake is precomputed, starting with the most preferred one, so that no key pairs are generated for a mode
+ * the connected middleware does not negotiate.
+ * <p>
+ * Every key agreement is handed out exactly once and is {@link HandshakeKeyAgreement#destroy() destroyed} by the handshake after use.
+ * Key agreements left in the pool are destroyed on shutdown.
+ */
+@Singleton
+public class EphemeralKeyPool {
+
+	private static final Logger LOG = LoggerFactory.getLogger(EphemeralKeyPool.class);
+	static final int CAPACITY_PER_MODE = 2;
+
+	private final ExecutorService executor;
+	private final Map<HandshakeKeyAgreement.Mode, BlockingQueue<HandshakeKeyAgreement>> pool = new EnumMap<>(HandshakeKeyAgreement.Mode.class);
+	private final AtomicBoolean filling = new AtomicBoolean();
+	private volatile HandshakeKeyAgreement.Mode expectedMode = HandshakeKeyAgreement.Mode.values()[0];
+
+	@Inject
+	public EphemeralKeyPool(ExecutorService executor, ShutdownHook shutdownHook) {
+		this.executor = executor;
+		for (var mode : HandshakeKeyAgreement.Mode.values()) {
+			pool.put(mode, new ArrayBlockingQueue<>(CAPACITY_PER_MODE));
+		}
+		shutdownHook.runOnShutdown(this::clear);
+	}
+
+	/**
+	 * Tops up the pool for the expected mode on a background thread. Call this as soon as a key request becomes likely, e.g. when a PIN entry window opens.
+	 */
+	public void prefill() {
+		if (filling.compareAndSet(false, true)) {
+			try {
+				executor.execute(this::fill);
+			} catch (RejectedExecutionException e) {
+				filling.set(false);
+				LOG.debug("Not prefilling ephemeral keys, executor rejected task.");
+			}
+		}
+	}
+
+	private void fill() {
+		try {
+			var mode = expectedMode;
+			var queue = pool.get(mode);
+			while (queue.remainingCapacity() > 0) {
+				var keyAgreement = mode.newKeyAgreement();
+				if (!queue.offer(keyAgreement)) {
+					keyAgreement.destroy();
+				}
+			}
+			LOG.trace("Ephemeral key pool filled for {}.", mode);
+		} finally {
+			filling.set(false);
+		}
+	}
+
+	/**
+	 * Removes a key agreement from the pool, or generates a new one right away if the pool is empty, and refills the pool in the background.
+	 * The given mode becomes the expected mode, and pooled key agreements of other modes are destroyed.
+	 *
+	 * @param mode The negotiated key agreement mode
+	 * @return A fresh key agreement, not handed out before. The caller is responsible for destroying it.
+	 */
+	HandshakeKeyAgreement take(HandshakeKeyAgreement.Mode mode) {
+		if (expectedMode != mode) {
+			expectedMode = mode;
+			pool.forEach((m, queue) -> {
+				if (m != mode) {
+					clear(queue);
+				}
+			});
+		}
+		var keyAgreement = pool.get(mode).poll();
+		prefill();
+		if (keyAgreement != null) {
+			return keyAgreement;
+		} else {
+			LOG.debug("Ephemeral key pool empty, generating {} key pair on demand.", mode);
+			return mode.newKeyAgreement();
+		}
+	}
+
+	/**
+	 * Destroys all pooled key agreements.
+	 */
+	public void clear() {
+		pool.values().forEach(EphemeralKeyPool::clear);
+	}
+
+	private static void clear(BlockingQueue<HandshakeKeyAgreement> queue) {
+		HandshakeKeyAgreement keyAgreement;
+		while ((keyAgreement = queue.poll()) != null) {
+			keyAgreement.destroy();
+		}
+	}
+
+	int available(HandshakeKeyAgreement.Mode mode) {
+		return pool.get(mode).size();
+	}
+
+}
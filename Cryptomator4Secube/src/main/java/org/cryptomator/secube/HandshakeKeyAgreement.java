@@ -0,0 +1,105 @@
+package org.cryptomator.secube;
+
+import javax.security.auth.Destroyable;
+
+/**
+ * One side of the key agreement run at the start of every SEcube key request.
+ * <p>
+ * An instance holds a fresh ephemeral secret. It sends its public key to the middleware, receives the middleware's public key in the reply
+ * and derives the shared secret, which gets hashed into the AES/HMAC key protecting the vault key.
+ */
+interface HandshakeKeyAgreement extends Destroyable {
+
+	/**
+	 * @return The negotiated mode implemented by this key agreement.
+	 */
+	Mode mode();
+
+	/**
+	 * @return This side's public key in its binary encoding, as sent in {@link MiddlewareFrame binary frames}.
+	 */
+	byte[] publicKey();
+
+	/**
+	 * @return This side's public key, hex-encoded as expected by the middleware's text protocol.
+	 */
+	String publicKeyHex();
+
+	/**
+	 * Checks the length announced by the middleware for its public key.
+	 *
+	 * @param peerPublicKeyHex The middleware's hex-encoded public key
+	 * @param bitLength The announced bit length
+	 * @return <code>true</code> if the public key has the announced length
+	 */
+	boolean hasLength(String peerPublicKeyHex, int bitLength);
+
+	/**
+	 * Derives the shared secret.
+	 *
+	 * @param peerPublicKeyHex The middleware's hex-encoded public key
+	 * @return The raw shared secret, to be hashed by the caller
+	 * @throws IllegalArgumentException If the public key is invalid
+	 */
+	byte[] agree(String peerPublicKeyHex);
+
+	/**
+	 * Derives the shared secret.
+	 *
+	 * @param peerPublicKey The middleware's public key in its binary encoding
+	 * @return The raw shared secret, to be hashed by the caller
+	 * @throws IllegalArgumentException If the public key is invalid
+	 */
+	byte[] agree(byte[] peerPublicKey);
+
+	/**
+	 * Zeroes the stored ephemeral secret. Afterwards {@link #agree(byte[])} must not be called anymore.
+	 * <p>
+	 * The arithmetic works on transient {@link java.math.BigInteger} copies of the secret, which cannot be wiped and stay on the heap until
+	 * they are garbage collected.
+	 */
+	@Override
+	void destroy();
+
+	/**
+	 * Key agreement modes, in order of preference.
+	 */
+	enum Mode {
+		/**
+		 * ECDH on {@link CryptoUtils#CURVE}.
+		 */
+		ECDH("ecdh-secp256k1"),
+
+		/**
+		 * Classic finite field Diffie-Hellman, supported by every middleware version.
+		 */
+		DH("dh");
+
+		private final String wireName;
+
+		Mode(String wireName) {
+			this.wireName = wireName;
+		}
+
+		String wireName() {
+			return wireName;
+		}
+
+		HandshakeKeyAgreement newKeyAgreement() {
+			return switch (this) {
+				case ECDH -> new EcdhKeyAgreement();
+				case DH -> new DiffieHellmanKeyAgreement();
+			};
+		}
+
+		static Mode fromWireName(String wireName) {
+			for (Mode mode : values()) {
+				if (mode.wireName.equals(wireName)) {
+					return mode;
+				}
+			}
+			return DH;
+		}
+	}
+
+}
@@ -0,0 +1,210 @@
+package org.cryptomator.secube;
+
+import org.cryptomator.cryptolib.common.ByteBuffers;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A message of the binary middleware protocol, used once both sides agreed on a {@link #SUPPORTED_VERSIONS version} during session setup.
+ * <p>
+ * Every frame starts with a header of version (1 byte), type (1 byte), request id (4 bytes) and payload length (4 bytes), all big-endian.
+ * The payload is a sequence of fields, each prefixed with its length as unsigned 16 bit integer.
+ * Replies carry the id of the request they answer, so several requests can be in flight on the same channel.
+ *
+ * @param type The message type
+ * @param requestId Id of the request, or of the request answered by a reply
+ * @param fields The raw payload fields
+ */
+record MiddlewareFrame(Type type, int requestId, List<byte[]> fields) {
+
+	/**
+	 * Protocol versions supported by this side, in order of preference.
+	 */
+	static final List<Integer> SUPPORTED_VERSIONS = List.of(1);
+	static final int HEADER_SIZE = 2 * Byte.BYTES + 2 * Integer.BYTES;
+	static final int MAX_PAYLOAD_SIZE = 64 * 1024;
+	private static final int MAX_FIELD_SIZE = 0xFFFF;
+
+	enum Type {
+		RETRIEVE_KEY(0x01),
+		CREATE_KEY(0x02),
+		RETRIEVE_KEYS(0x03),
+		KEY(0x81),
+		KEYS(0x83),
+		ERROR(0xFF);
+
+		private final byte code;
+
+		Type(int code) {
+			this.code = (byte) code;
+		}
+
+		static Type forCode(byte code) throws ProtocolException {
+			for (Type type : values()) {
+				if (type.code == code) {
+					return type;
+				}
+			}
+			throw new ProtocolException("No such frame type: " + (code & 0xFF));
+		}
+
+		/**
+		 * @param mode The middleware operation, <code>retrieve-key</code> or <code>create-key</code>
+		 * @return The request type for the given operation
+		 */
+		static Type forMode(String mode) {
+			return switch (mode) {
+				case "retrieve-key" -> RETRIEVE_KEY;
+				case "create-key" -> CREATE_KEY;
+				default -> throw new IllegalArgumentException("Unsupported mode: " + mode);
+			};
+		}
+	}
+
+	/**
+	 * Picks the version announced by the middleware in reply to our offer.
+	 *
+	 * @param reply The middleware's reply to the framing offer
+	 * @return The agreed version, or <code>0</code> if the middleware only speaks the line-based text protocol
+	 */
+	static int negotiatedVersion(String reply) {
+		try {
+			int version = Integer.parseInt(reply.strip());
+			return SUPPORTED_VERSIONS.contains(version) ? version : 0;
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	static MiddlewareFrame keyRequest(int requestId, String mode, byte[] publicKey, String vaultId) {
+		return new MiddlewareFrame(Type.forMode(mode), requestId, List.of(publicKey, vaultId.getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	static MiddlewareFrame keysRequest(int requestId, byte[] publicKey, List<String> vaultIds) {
+		var fields = new ArrayList<byte[]>(1 + vaultIds.size());
+		fields.add(publicKey);
+		vaultIds.forEach(id -> fields.add(id.getBytes(StandardCharsets.US_ASCII)));
+		return new MiddlewareFrame(Type.RETRIEVE_KEYS, requestId, fields);
+	}
+
+	/**
+	 * @return The error message of an {@link Type#ERROR} frame
+	 */
+	String errorMessage() {
+		return fields.isEmpty() ? "" : new String(fields.get(0), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param count The expected number of fields
+	 * @return The payload fields
+	 * @throws ProtocolException If the frame has a different number of fields
+	 */
+	List<byte[]> requireFields(int count) throws ProtocolException {
+		if (fields.size() != count) {
+			throw new ProtocolException("Expected " + count + " fields in " + type + " frame, got " + fields.size());
+		}
+		return fields;
+	}
+
+	int encodedSize() {
+		return HEADER_SIZE + fields.stream().mapToInt(f -> Short.BYTES + f.length).sum();
+	}
+
+	void encodeInto(ByteBuffer buf, int version) {
+		buf.put((byte) version);
+		buf.put(type.code);
+		buf.putInt(requestId);
+		buf.putInt(encodedSize() - HEADER_SIZE);
+		for (byte[] field : fields) {
+			if (field.length > MAX_FIELD_SIZE) {
+				throw new IllegalArgumentException("Field too large: " + field.length);
+			}
+			buf.putShort((short) field.length);
+			buf.put(field);
+		}
+	}
+
+	/**
+	 * Writes all given frames with a single write.
+	 *
+	 * @param channel The channel to write to
+	 * @param version The negotiated protocol version
+	 * @param frames The frames to send
+	 * @throws IOException If writing fails
+	 */
+	static void send(WritableByteChannel channel, int version, Collection<MiddlewareFrame> frames) throws IOException {
+		var buf = ByteBuffer.allocate(frames.stream().mapToInt(MiddlewareFrame::encodedSize).sum());
+		for (MiddlewareFrame frame : frames) {
+			frame.encodeInto(buf, version);
+		}
+		buf.flip();
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+	}
+
+	/**
+	 * Reads the next frame.
+	 *
+	 * @param channel The channel to read from
+	 * @param version The negotiated protocol version
+	 * @return The received frame
+	 * @throws EOFException If the channel is closed before a complete frame has been read
+	 * @throws ProtocolException If the frame is malformed or uses a different version
+	 */
+	static MiddlewareFrame receive(ReadableByteChannel channel, int version) throws IOException {
+		var header = ByteBuffer.allocate(HEADER_SIZE);
+		if (ByteBuffers.fill(channel, header) < header.capacity()) {
+			throw new EOFException();
+		}
+		header.flip();
+		int frameVersion = header.get() & 0xFF;
+		if (frameVersion != version) {
+			throw new ProtocolException("Expected protocol version " + version + ", got " + frameVersion);
+		}
+		Type type = Type.forCode(header.get());
+		int requestId = header.getInt();
+		int length = header.getInt();
+		if (length < 0 || length > MAX_PAYLOAD_SIZE) {
+			throw new ProtocolException("Invalid payload length: " + length);
+		}
+		var payload = ByteBuffer.allocate(length);
+		if (ByteBuffers.fill(channel, payload) < length) {
+			throw new EOFException();
+		}
+		payload.flip();
+		return new MiddlewareFrame(type, requestId, decodeFields(payload));
+	}
+
+	/**
+	 * Splits a payload into its fields.
+	 *
+	 * @param payload The payload, positioned at its first field
+	 * @return The fields
+	 * @throws ProtocolException If a field length exceeds the payload
+	 */
+	static List<byte[]> decodeFields(ByteBuffer payload) throws ProtocolException {
+		var fields = new ArrayList<byte[]>();
+		try {
+			while (payload.hasRemaining()) {
+				byte[] field = new byte[Short.toUnsignedInt(payload.getShort())];
+				payload.get(field);
+				fields.add(field);
+			}
+		} catch (BufferUnderflowException e) {
+			throw new ProtocolException("Truncated field in frame payload");
+		}
+		return fields;
+	}
+
+}
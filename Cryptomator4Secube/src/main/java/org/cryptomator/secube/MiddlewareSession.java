@@ -0,0 +1,230 @@
+package org.cryptomator.secube;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ProtocolException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.stream.Collectors;
+
+/**
+ * A long-lived, authenticated channel to the SEcube middleware for a single device.
+ * <p>
+ * The middleware is connected once in session mode, opens the device and logs in with the PIN.
+ * Afterwards each request is answered over the same {@link MiddlewareTransport.Connection connection}, without connecting or logging in again.
+ * <p>
+ * Session setup is line-based. If the middleware accepts the {@link MiddlewareFrame binary protocol} during negotiation,
+ * all further requests are sent as frames.
+ */
+class MiddlewareSession implements AutoCloseable {
+
+	private static final String QUIT = "quit";
+	private static final String NEGOTIATE = "negotiate";
+	private static final String FRAMING = "framing";
+
+	private final String serialNumber;
+	private final byte[] pinDigest;
+	private final MiddlewareTransport.Connection connection;
+	private final SignatureVerifier verifier;
+	private final BufferedReader reader;
+	private final PrintWriter writer;
+	private final ReadableByteChannel inChannel;
+	private final WritableByteChannel outChannel;
+	private volatile boolean answered;
+	private HandshakeKeyAgreement.Mode keyAgreementMode;
+	private int framingVersion;
+	private int lastRequestId;
+	private ScheduledFuture<?> idleTimeout;
+
+	private MiddlewareSession(String serialNumber, byte[] pinDigest, MiddlewareTransport.Connection connection, SignatureVerifier verifier) {
+		this.serialNumber = serialNumber;
+		this.pinDigest = pinDigest;
+		this.connection = connection;
+		this.verifier = verifier;
+		this.reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII));
+		this.writer = new PrintWriter(connection.getOutputStream(), false, StandardCharsets.US_ASCII);
+		this.inChannel = Channels.newChannel(connection.getInputStream());
+		this.outChannel = Channels.newChannel(connection.getOutputStream());
+	}
+
+	/**
+	 * Connects to the middleware in session mode for the given device.
+	 *
+	 * @param transport The transport to reach the middleware.
+	 * @param serialNumber The serial number of the SEcube device.
+	 * @param pin The PIN used to log in to the device.
+	 * @param pinDigest A keyed digest of the PIN, which is kept to recognize the PIN of later requests
+	 * @return A new session. The device login happens inside the middleware.
+	 * @throws IOException If the middleware cannot be reached.
+	 */
+	static MiddlewareSession open(MiddlewareTransport transport, String serialNumber, CharSequence pin, byte[] pinDigest) throws IOException {
+		var connection = transport.open(MiddlewareTransport.SESSION_MODE, serialNumber, pin);
+		return new MiddlewareSession(serialNumber, pinDigest, connection, transport.signatureVerifier());
+	}
+
+	/**
+	 * Sends one request and waits for its reply.
+	 *
+	 * @param mode The middleware operation, e.g. <code>retrieve-key</code>.
+	 * @param data The request lines following the mode.
+	 * @return The reply lines, each terminated by a line feed.
+	 * @throws IOException If the middleware closed the session before replying.
+	 */
+	synchronized String exchange(String mode, List<?> data) throws IOException {
+		if (framingVersion != 0) {
+			throw new IllegalStateException("Session switched to binary frames.");
+		}
+		writer.println(mode);
+		for (Object elem : data) {
+			writer.println(elem);
+		}
+		writer.flush();
+		if (writer.checkError()) {
+			throw new IOException("Middleware session for " + serialNumber + " closed.");
+		}
+		String reply = ProcessUtils.readReply(reader);
+		if (reply.isEmpty()) {
+			throw new IOException("Middleware session for " + serialNumber + " closed without reply.");
+		}
+		answered = true;
+		return reply;
+	}
+
+	/**
+	 * Sends several requests at once and waits for all replies.
+	 *
+	 * @param requests The request frames, each with a distinct {@link #nextRequestId() request id}
+	 * @return The replies, in the order of the requests
+	 * @throws IOException If the middleware closed the session or violated the protocol
+	 */
+	synchronized List<MiddlewareFrame> exchange(List<MiddlewareFrame> requests) throws IOException {
+		if (framingVersion == 0) {
+			throw new IllegalStateException("Session does not use binary frames.");
+		}
+		MiddlewareFrame.send(outChannel, framingVersion, requests);
+		connection.getOutputStream().flush();
+		Map<Integer, MiddlewareFrame> replies = new HashMap<>();
+		while (replies.size() < requests.size()) {
+			var reply = MiddlewareFrame.receive(inChannel, framingVersion);
+			if (requests.stream().noneMatch(r -> r.requestId() == reply.requestId()) || replies.putIfAbsent(reply.requestId(), reply) != null) {
+				throw new ProtocolException("Unexpected reply to request " + reply.requestId());
+			}
+			answered = true;
+		}
+		return requests.stream().map(r -> replies.get(r.requestId())).toList();
+	}
+
+	synchronized int nextRequestId() {
+		return ++lastRequestId;
+	}
+
+	/**
+	 * @return The key agreement mode to use for requests in this session
+	 * @throws IOException If the middleware closed the session
+	 */
+	synchronized HandshakeKeyAgreement.Mode keyAgreementMode() throws IOException {
+		negotiate();
+		return keyAgreementMode;
+	}
+
+	/**
+	 * @return <code>true</code> if requests in this session are sent as {@link MiddlewareFrame binary frames}
+	 * @throws IOException If the middleware closed the session
+	 */
+	synchronized boolean isFramed() throws IOException {
+		negotiate();
+		return framingVersion != 0;
+	}
+
+	/**
+	 * Negotiates the key agreement and the protocol once per session. The middleware answers each offer with the first option it supports.
+	 * Middleware versions that do not know about an offer answer with an error, in which case classic Diffie-Hellman
+	 * or the text protocol is used, respectively.
+	 * <p>
+	 * The framing offer is the last line-based exchange. The middleware does not write anything until it receives the first frame,
+	 * so no bytes of the binary protocol end up in the buffer of the text reader.
+	 */
+	private void negotiate() throws IOException {
+		if (keyAgreementMode == null) {
+			String offer = Arrays.stream(HandshakeKeyAgreement.Mode.values()).map(HandshakeKeyAgreement.Mode::wireName).collect(Collectors.joining(" "));
+			String reply = exchange(NEGOTIATE, List.of(offer));
+			keyAgreementMode = HandshakeKeyAgreement.Mode.fromWireName(reply.strip());
+			String versions = MiddlewareFrame.SUPPORTED_VERSIONS.stream().map(String::valueOf).collect(Collectors.joining(" "));
+			framingVersion = MiddlewareFrame.negotiatedVersion(exchange(FRAMING, List.of(versions)));
+		}
+	}
+
+	String getSerialNumber() {
+		return serialNumber;
+	}
+
+	/**
+	 * @return The verifier for the signatures of the middleware at the other end of this session
+	 */
+	SignatureVerifier signatureVerifier() {
+		return verifier;
+	}
+
+	/**
+	 * @return <code>true</code> if the middleware has answered at least one request through this session.
+	 */
+	boolean hasAnswered() {
+		return answered;
+	}
+
+	boolean isAlive() {
+		return connection.isOpen();
+	}
+
+	/**
+	 * Checks in constant time whether this session has been opened with the given PIN.
+	 *
+	 * @param pinDigest The keyed digest of the PIN to compare, made with the same key as the one passed to {@link #open(MiddlewareTransport, String, CharSequence, byte[]) open}
+	 * @return <code>true</code> if the PIN matches the one used to log in.
+	 */
+	boolean matchesPin(byte[] pinDigest) {
+		return MessageDigest.isEqual(this.pinDigest, pinDigest);
+	}
+
+	/**
+	 * @return <code>true</code> if no request is using this session, i.e. its idle timeout is armed
+	 */
+	synchronized boolean isIdle() {
+		return idleTimeout != null;
+	}
+
+	/**
+	 * @param idleTimeout The task closing this session once idle, or <code>null</code> while a request is using it. Replaces and cancels the previous one.
+	 */
+	synchronized void setIdleTimeout(ScheduledFuture<?> idleTimeout) {
+		if (this.idleTimeout != null) {
+			this.idleTimeout.cancel(false);
+		}
+		this.idleTimeout = idleTimeout;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (idleTimeout != null) {
+			idleTimeout.cancel(false);
+		}
+		if (connection.isOpen()) {
+			if (framingVersion == 0) {
+				writer.println(QUIT);
+				writer.flush();
+			}
+			connection.close();
+		}
+	}
+
+}
@@ -0,0 +1,364 @@
+package org.cryptomator.secube;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.macs.HMac;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.cryptomator.common.ShutdownHook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one authenticated middleware session per SEcube serial number.
+ * <p>
+ * The first request for a device connects to the middleware and logs in with the PIN. Later requests with the same PIN reuse the session,
+ * so they neither connect nor log in again. Sessions are closed after {@value #IDLE_TIMEOUT_SECONDS} seconds without requests.
+ * <p>
+ * Middleware builds without session support terminate without answering. Such devices are remembered and served by
+ * {@link Communication#main(MiddlewareTransport, String, String, CharSequence, String, HandshakeKeyAgreement) one connection per request} instead.
+ * <p>
+ * All requests go through the {@link DeviceScheduler}, so a device never sees concurrent requests. Concurrent requests for the same key
+ * with the same PIN are answered by a single device operation.
+ * <p>
+ * PINs are only kept as an HMAC under a random key that never leaves this instance, so a short PIN can't be recovered from memory by hashing all
+ * candidates.
+ */
+@Singleton
+public class MiddlewareSessionManager {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MiddlewareSessionManager.class);
+	static final long IDLE_TIMEOUT_SECONDS = 300;
+	static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+	private static final String RETRIEVE_KEY = "retrieve-key";
+	private static final String ERROR_PREFIX = "Error:";
+
+	private final ScheduledExecutorService scheduler;
+	private final MiddlewareTransport transport;
+	private final EphemeralKeyPool keyPool;
+	private final DeviceScheduler deviceScheduler;
+	private final Map<String, MiddlewareSession> sessions = new ConcurrentHashMap<>();
+	private final Set<String> sessionlessDevices = ConcurrentHashMap.newKeySet();
+	private final KeyParameter pinKey;
+
+	@Inject
+	public MiddlewareSessionManager(ScheduledExecutorService scheduler, MiddlewareTransport transport, EphemeralKeyPool keyPool, DeviceScheduler deviceScheduler, ShutdownHook shutdownHook) {
+		this.scheduler = scheduler;
+		this.transport = transport;
+		this.keyPool = keyPool;
+		this.deviceScheduler = deviceScheduler;
+		byte[] rawPinKey = new byte[32];
+		new SecureRandom().nextBytes(rawPinKey);
+		this.pinKey = new KeyParameter(rawPinKey);
+		Arrays.fill(rawPinKey, (byte) 0);
+		shutdownHook.runOnShutdown(this::closeAll);
+	}
+
+	/**
+	 * Runs a key request against the given device, reusing its session if possible.
+	 *
+	 * @param mode Either <code>retrieve-key</code> or <code>create-key</code>
+	 * @param serialNumber The serial number of the SEcube device
+	 * @param pin The device PIN
+	 * @param vaultId The SEcube vault ID
+	 * @return The vault key as hex string, or an error message starting with <code>Error:</code>
+	 * @throws Exception If the middleware could not be reached or the reply failed verification
+	 * @throws java.util.concurrent.TimeoutException If the device did not answer within {@link #REQUEST_TIMEOUT}, including time spent waiting for other requests
+	 */
+	public String request(String mode, String serialNumber, CharSequence pin, String vaultId) throws Exception {
+		return await(submit(mode, serialNumber, pin, vaultId));
+	}
+
+	private CompletableFuture<String> submit(String mode, String serialNumber, CharSequence pin, String vaultId) {
+		var coalescingKey = RETRIEVE_KEY.equals(mode) ? new CoalescingKey(mode, vaultId, pinDigest(pin)) : null;
+		return deviceScheduler.submit(serialNumber, coalescingKey, REQUEST_TIMEOUT, () -> withSession(serialNumber, pin, //
+				session -> Communication.run(session, mode, vaultId, keyPool.take(session.keyAgreementMode())), //
+				() -> Communication.main(transport, mode, serialNumber, pin, vaultId, keyPool.take(HandshakeKeyAgreement.Mode.DH))));
+	}
+
+	/**
+	 * Asks several devices for the same key at once and takes the first verified answer.
+	 * <p>
+	 * A reply only counts once its signature and MAC have been verified, so a device that is busy, missing, locked with a different PIN
+	 * or does not hold the key never delays the unlock as long as another device answers. Requests still waiting for their device are withdrawn
+	 * as soon as one device answered. Requests already running on a device complete in the background and their result is discarded.
+	 *
+	 * @param serialNumbers The serial numbers of the devices to ask
+	 * @param pin The PIN, which must be the same on all devices holding the key
+	 * @param vaultId The SEcube vault ID
+	 * @return The vault key as hex string. If no device returned the key, the error message of the first device in the given order that answered
+	 * @throws SecurityException If no device returned the key and a reply failed signature verification
+	 * @throws Exception If no device returned the key or an error message
+	 */
+	public String retrieveKeyFromAny(Collection<String> serialNumbers, CharSequence pin, String vaultId) throws Exception {
+		List<String> serials = serialNumbers.stream().distinct().toList();
+		if (serials.isEmpty()) {
+			throw new IOException("No SEcube connected.");
+		} else if (serials.size() == 1) {
+			return request(RETRIEVE_KEY, serials.get(0), pin, vaultId);
+		}
+		List<CompletableFuture<String>> attempts = serials.stream().map(serial -> submit(RETRIEVE_KEY, serial, pin, vaultId)).toList();
+		var winner = new CompletableFuture<String>();
+		for (int i = 0; i < attempts.size(); i++) {
+			String serial = serials.get(i);
+			attempts.get(i).thenAccept(key -> {
+				if (!isError(key) && winner.complete(key)) {
+					LOG.debug("SEcube {} answered first.", serial);
+				}
+			});
+		}
+		// once all attempts are done, the winner is decided even if the thenAccept callbacks above have not run yet
+		CompletableFuture.allOf(attempts.toArray(CompletableFuture[]::new)).whenComplete((r, e) -> winner.complete(firstKey(attempts)));
+		try {
+			String key = await(winner);
+			if (key != null) {
+				return key;
+			}
+		} finally {
+			attempts.forEach(attempt -> attempt.cancel(false));
+		}
+		return firstError(attempts);
+	}
+
+	/**
+	 * Tells error messages apart from vault keys in the results of this class.
+	 *
+	 * @param reply A vault key or an error message, as returned by {@link #request(String, String, CharSequence, String) request} and friends
+	 * @return <code>true</code> if the reply is an error message starting with {@value #ERROR_PREFIX}
+	 */
+	public static boolean isError(String reply) {
+		return reply.startsWith(ERROR_PREFIX);
+	}
+
+	private static String firstKey(List<CompletableFuture<String>> attempts) {
+		return attempts.stream().filter(a -> !a.isCompletedExceptionally()).map(CompletableFuture::join).filter(key -> !isError(key)).findFirst().orElse(null);
+	}
+
+	private static String firstError(List<CompletableFuture<String>> attempts) throws Exception {
+		var forged = attempts.stream().filter(a -> a.isCompletedExceptionally() && a.handle((r, e) -> e instanceof SecurityException).join()).findFirst();
+		if (forged.isPresent()) {
+			return await(forged.get());
+		}
+		var answered = attempts.stream().filter(a -> !a.isCompletedExceptionally()).findFirst();
+		return await(answered.orElse(attempts.get(0)));
+	}
+
+	/**
+	 * Retrieves the keys of several vaults stored on the same device, logging in only once.
+	 * If the middleware speaks the binary protocol, all keys are fetched with a single handshake and round trip.
+	 *
+	 * @param serialNumber The serial number of the SEcube device
+	 * @param pin The device PIN
+	 * @param vaultIds The SEcube vault IDs
+	 * @return The vault keys as hex strings, or error messages starting with <code>Error:</code>, by SEcube vault ID
+	 * @throws Exception If the middleware could not be reached or the reply failed verification
+	 */
+	public Map<String, String> retrieveKeys(String serialNumber, CharSequence pin, Collection<String> vaultIds) throws Exception {
+		List<String> ids = vaultIds.stream().distinct().toList();
+		return await(deviceScheduler.submit(serialNumber, null, REQUEST_TIMEOUT, () -> withSession(serialNumber, pin, session -> {
+			if (session.isFramed()) {
+				return Communication.runBatch(session, ids, keyPool.take(session.keyAgreementMode()));
+			}
+			Map<String, String> keys = new LinkedHashMap<>();
+			for (String id : ids) {
+				keys.put(id, Communication.run(session, RETRIEVE_KEY, id, keyPool.take(session.keyAgreementMode())));
+			}
+			return keys;
+		}, () -> {
+			Map<String, String> keys = new LinkedHashMap<>();
+			for (String id : ids) {
+				keys.put(id, Communication.main(transport, RETRIEVE_KEY, serialNumber, pin, id, keyPool.take(HandshakeKeyAgreement.Mode.DH)));
+			}
+			return keys;
+		})));
+	}
+
+	private static <T> T await(CompletableFuture<T> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception cause) {
+				throw cause;
+			}
+			throw e;
+		} catch (InterruptedException e) {
+			future.cancel(false);
+			Thread.currentThread().interrupt();
+			throw e;
+		}
+	}
+
+	private <T> T withSession(String serialNumber, CharSequence pin, SessionCall<T> sessionCall, Callable<T> sessionlessCall) throws Exception {
+		if (sessionlessDevices.contains(serialNumber)) {
+			return sessionlessCall.call();
+		}
+		MiddlewareSession session = acquire(serialNumber, pin);
+		try {
+			return sessionCall.call(session);
+		} catch (IOException e) {
+			close(session);
+			if (!session.hasAnswered()) {
+				LOG.info("Middleware does not keep a session for SEcube {}. Falling back to one connection per request.", serialNumber);
+				sessionlessDevices.add(serialNumber);
+				return sessionlessCall.call();
+			}
+			throw e;
+		} finally {
+			if (sessions.get(serialNumber) == session) {
+				session.setIdleTimeout(scheduler.schedule(() -> closeIfIdle(session), IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			}
+		}
+	}
+
+	private MiddlewareSession acquire(String serialNumber, CharSequence pin) throws IOException {
+		byte[] pinDigest = pinDigest(pin);
+		try {
+			return sessions.compute(serialNumber, (serial, existing) -> {
+				if (existing != null && existing.isAlive() && existing.matchesPin(pinDigest)) {
+					LOG.debug("Reusing middleware session for SEcube {}", serial);
+					existing.setIdleTimeout(null); // re-armed once the call finished
+					return existing;
+				} else if (existing != null) {
+					existing.close();
+				}
+				try {
+					LOG.debug("Opening middleware session for SEcube {}", serial);
+					return MiddlewareSession.open(transport, serial, pin, pinDigest);
+				} catch (IOException e) {
+					throw new SessionOpeningFailedException(e);
+				}
+			});
+		} catch (SessionOpeningFailedException e) {
+			throw e.getCause();
+		}
+	}
+
+	private byte[] pinDigest(CharSequence pin) {
+		var buf = StandardCharsets.UTF_8.encode(CharBuffer.wrap(pin));
+		byte[] bytes = new byte[buf.remaining()];
+		buf.get(bytes);
+		try {
+			var hmac = new HMac(new SHA256Digest());
+			hmac.init(pinKey);
+			hmac.update(bytes, 0, bytes.length);
+			byte[] result = new byte[hmac.getMacSize()];
+			hmac.doFinal(result, 0);
+			return result;
+		} finally {
+			Arrays.fill(bytes, (byte) 0);
+			Arrays.fill(buf.array(), (byte) 0);
+		}
+	}
+
+	/**
+	 * Starts precomputing handshake keys in the background, so that an upcoming {@link #request(String, String, CharSequence, String) request}
+	 * does not have to wait for key generation. Call this when the PIN prompt is shown.
+	 */
+	public void prepare() {
+		keyPool.prefill();
+	}
+
+	/**
+	 * Closes the session of the given device, if any. The next request will log in again.
+	 *
+	 * @param serialNumber The serial number of the SEcube device
+	 */
+	public void close(String serialNumber) {
+		var session = sessions.remove(serialNumber);
+		if (session != null) {
+			session.close();
+		}
+	}
+
+	private void close(MiddlewareSession session) {
+		if (sessions.remove(session.getSerialNumber(), session)) {
+			LOG.debug("Closing middleware session for SEcube {}", session.getSerialNumber());
+		}
+		session.close();
+	}
+
+	// runs in the same map bin as acquire, so a session is never closed after a request picked it up
+	private void closeIfIdle(MiddlewareSession session) {
+		sessions.computeIfPresent(session.getSerialNumber(), (serial, current) -> {
+			if (current != session || !session.isIdle()) {
+				return current;
+			}
+			LOG.debug("Closing idle middleware session for SEcube {}", serial);
+			session.close();
+			return null;
+		});
+	}
+
+	/**
+	 * Closes all sessions.
+	 */
+	public void closeAll() {
+		sessions.values().forEach(this::close);
+	}
+
+	/**
+	 * Identifies requests that can share a device operation. Includes the keyed PIN digest, so a request with a wrong PIN never gets the result of a
+	 * request with the right PIN.
+	 */
+	private static final class CoalescingKey {
+
+		private final String mode;
+		private final String vaultId;
+		private final byte[] pinDigest;
+
+		CoalescingKey(String mode, String vaultId, byte[] pinDigest) {
+			this.mode = mode;
+			this.vaultId = vaultId;
+			this.pinDigest = pinDigest;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof CoalescingKey other && mode.equals(other.mode) && vaultId.equals(other.vaultId) && MessageDigest.isEqual(pinDigest, other.pinDigest);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(mode, vaultId);
+		}
+	}
+
+	@FunctionalInterface
+	private interface SessionCall<T> {
+
+		T call(MiddlewareSession session) throws Exception;
+	}
+
+	private static class SessionOpeningFailedException extends RuntimeException {
+
+		SessionOpeningFailedException(IOException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized IOException getCause() {
+			return (IOException) super.getCause();
+		}
+	}
+
+}
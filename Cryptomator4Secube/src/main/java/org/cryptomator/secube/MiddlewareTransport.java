@@ -0,0 +1,68 @@
+package org.cryptomator.secube;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Connects to the SEcube middleware.
+ * <p>
+ * Every transport speaks the same protocol: a connection is opened for an operation mode, a device and its PIN, and the mode-specific exchange
+ * follows on the connection's streams. In {@value #SESSION_MODE} mode the connection stays open for further requests, in any other mode
+ * the middleware answers a single request and closes the connection.
+ */
+public interface MiddlewareTransport {
+
+	String SESSION_MODE = "session";
+
+	/**
+	 * @return The serial numbers of the connected devices. Empty if no device is connected.
+	 * @throws IOException If the middleware could not be asked
+	 */
+	List<String> listDevices() throws IOException;
+
+	/**
+	 * Opens a connection to the middleware, which opens the device and logs in with the PIN.
+	 *
+	 * @param mode {@value #SESSION_MODE}, or the operation of a single request, e.g. <code>retrieve-key</code>
+	 * @param serialNumber The serial number of the SEcube device
+	 * @param pin The PIN used to log in to the device
+	 * @return A new connection
+	 * @throws IOException If the middleware could not be reached
+	 */
+	Connection open(String mode, String serialNumber, CharSequence pin) throws IOException;
+
+	/**
+	 * @return The verifier for the signatures made by the middleware reached through this transport
+	 */
+	default SignatureVerifier signatureVerifier() {
+		return Communication.MIDDLEWARE_VERIFIER;
+	}
+
+	/**
+	 * A bidirectional byte stream to the middleware.
+	 */
+	interface Connection extends Closeable {
+
+		/**
+		 * @return Bytes written by the middleware
+		 */
+		InputStream getInputStream();
+
+		/**
+		 * @return Bytes read by the middleware
+		 */
+		OutputStream getOutputStream();
+
+		/**
+		 * @return <code>false</code> once the middleware or this side closed the connection
+		 */
+		boolean isOpen();
+
+		@Override
+		void close();
+	}
+
+}
@@ -0,0 +1,94 @@
+package org.cryptomator.secube;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the middleware executable for each connection and talks to it through stdin/stdout.
+ */
+public class ProcessTransport implements MiddlewareTransport {
+
+	static final String MIDDLEWARE_CMD = "../dist/win/CommMIddleware.exe";
+	static final String LISTING_CMD = "../dist/win/secube_listing.exe";
+	private static final long LISTING_TIMEOUT_SECONDS = 10;
+	private static final String ERROR_MARKER = "Error : ";
+
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * @param scheduler Used to kill a hanging listing process
+	 */
+	public ProcessTransport(ScheduledExecutorService scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	public List<String> listDevices() throws IOException {
+		Process process = new ProcessBuilder(LISTING_CMD).start();
+		var timeout = scheduler.schedule(process::destroyForcibly, LISTING_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+			List<String> lines = new ArrayList<>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+			return parseListing(lines);
+		} finally {
+			timeout.cancel(false);
+		}
+	}
+
+	/**
+	 * @param lines The output of the listing tool, one serial number per line
+	 * @return The serial numbers, or an empty list if the tool reported an error, e.g. because no device is connected
+	 */
+	static List<String> parseListing(List<String> lines) {
+		if (lines.stream().anyMatch(line -> line.contains(ERROR_MARKER))) {
+			return List.of();
+		}
+		return lines.stream().map(String::strip).filter(line -> !line.isEmpty()).toList();
+	}
+
+	@Override
+	public Connection open(String mode, String serialNumber, CharSequence pin) throws IOException {
+		Process process = new ProcessBuilder(MIDDLEWARE_CMD, mode, serialNumber, pin.toString()).start();
+		return new ProcessConnection(process);
+	}
+
+	private static class ProcessConnection implements Connection {
+
+		private final Process process;
+
+		ProcessConnection(Process process) {
+			this.process = process;
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return process.getInputStream();
+		}
+
+		@Override
+		public OutputStream getOutputStream() {
+			return process.getOutputStream();
+		}
+
+		@Override
+		public boolean isOpen() {
+			return process.isAlive();
+		}
+
+		@Override
+		public void close() {
+			process.destroy();
+		}
+	}
+
+}
@@ -18,7 +18,16 @@ public class ProcessUtils {
      * @throws Exception If an I/O error occurs.
      */
 	public static String readFromProcess(Process process) throws Exception {
-		InputStream stdin = process.getInputStream();
+		return readFrom(process.getInputStream());
+	}
+	
+	/**
+     * Reads everything from a stream until it is closed.
+     * 
+     * @param stdin The output of the middleware.
+     * @return The output as a String.
+     */
+	public static String readFrom(InputStream stdin) {
         InputStreamReader isr = new InputStreamReader(stdin);
         BufferedReader br = new BufferedReader(isr);
         StringBuilder sb = new StringBuilder();
@@ -35,6 +44,23 @@ public class ProcessUtils {
         return sb.toString();
 	}
 	
+	/**
+     * Reads a single reply from a long-lived Process.
+     * A reply ends with an empty line, or when the process closes its output.
+     * 
+     * @param reader The reader attached to the output of the Process.
+     * @return The reply lines, each terminated by a line feed. Empty if the process closed its output.
+     * @throws IOException If an I/O error occurs.
+     */
+	public static String readReply(BufferedReader reader) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		String s1;
+		while ((s1 = reader.readLine()) != null && !s1.isEmpty()) {
+			sb.append(s1).append("\n");
+		}
+		return sb.toString();
+	}
+	
 	/**
      * Writes a list of data to the input of a given Process.
      * 
@@ -44,7 +70,17 @@ public class ProcessUtils {
      * @throws Exception If an I/O error occurs.
      */
 	public static <T> void writeOnProcess(Process process, List<T> data) throws Exception {
-		OutputStream os = process.getOutputStream();
+		writeTo(process.getOutputStream(), data);
+	}
+	
+	/**
+     * Writes a list of data to a stream, one element per line.
+     * 
+     * @param <T> The type of data to write.
+     * @param os The input of the middleware.
+     * @param data The List of data to write.
+     */
+	public static <T> void writeTo(OutputStream os, List<T> data) {
         PrintWriter pw = new PrintWriter(os);
         for(T elem : data) {
         	pw.println(elem);
@@ -0,0 +1,22 @@
+package org.cryptomator.secube;
+
+import dagger.Module;
+import dagger.Provides;
+import org.cryptomator.common.Environment;
+
+import javax.inject.Singleton;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Module
+public class SecubeModule {
+
+	@Provides
+	@Singleton
+	static MiddlewareTransport provideMiddlewareTransport(Environment environment, ScheduledExecutorService scheduler) {
+		return switch (environment.getSecubeTransport()) {
+			case "socket" -> new SocketTransport(environment.getSecubeDaemonPort());
+			default -> new ProcessTransport(scheduler);
+		};
+	}
+
+}
@@ -0,0 +1,21 @@
+package org.cryptomator.secube;
+
+import com.google.common.io.BaseEncoding;
+
+public final class SecubeVaultIds {
+
+	private SecubeVaultIds() {}
+
+	/**
+	 * Converts a vault ID to the ID under which the SEcube stores the vault's key, between 1 and 999.
+	 *
+	 * @param vaultId The base64url-encoded vault ID
+	 * @return The SEcube vault ID
+	 */
+	public static String of(String vaultId) {
+		byte[] randomBytes = BaseEncoding.base64Url().decode(vaultId);
+		int randomNumber = ((randomBytes[0] & 0xFF) << 8) | (randomBytes[1] & 0xFF);
+		return Integer.toString(1 + (randomNumber % 999));
+	}
+
+}
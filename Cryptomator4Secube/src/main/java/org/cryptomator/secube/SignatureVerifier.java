@@ -0,0 +1,42 @@
+package org.cryptomator.secube;
+
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.WNafUtil;
+
+/**
+ * Verifies ECDSA signatures made with one fixed public key on {@link CryptoUtils#CURVE}.
+ * <p>
+ * The public key is decoded once. The wNAF tables of the generator and of the public key are precomputed up front and stay attached to the
+ * cached points, so each verification only pays for recoding its scalars and for the interleaved point additions and doublings.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public class SignatureVerifier {
+
+	private final ECPublicKeyParameters publicKey;
+
+	/**
+	 * @param publicKey The encoded public key.
+	 * @throws IllegalArgumentException If the public key is not a valid point on the curve.
+	 */
+	public SignatureVerifier(byte[] publicKey) {
+		ECPoint Q = CryptoUtils.DOMAIN_PARAMS.getCurve().decodePoint(publicKey);
+		this.publicKey = new ECPublicKeyParameters(Q, CryptoUtils.DOMAIN_PARAMS);
+		int width = WNafUtil.getWindowSize(CryptoUtils.DOMAIN_PARAMS.getN().bitLength());
+		WNafUtil.precompute(CryptoUtils.DOMAIN_PARAMS.getG(), width, true);
+		WNafUtil.precompute(this.publicKey.getQ(), width, true);
+	}
+
+	/**
+	 * Verifies a signature.
+	 *
+	 * @param message The message whose signature needs to be verified.
+	 * @param signature The signature to verify.
+	 * @return true if the signature is valid, false otherwise.
+	 */
+	public boolean verify(byte[] message, byte[] signature) {
+		return CryptoUtils.verify(message, signature, publicKey);
+	}
+
+}
@@ -0,0 +1,176 @@
+package org.cryptomator.secube;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Connects to a resident middleware daemon listening on a loopback port, which keeps the devices open between connections.
+ * <p>
+ * Each connection starts with a header of one line per argument, i.e. the mode, the serial number and the PIN, mirroring the command line
+ * of the {@link ProcessTransport middleware executable}. The listing is requested with the mode {@value #LIST_MODE} and no further arguments.
+ */
+public class SocketTransport implements MiddlewareTransport {
+
+	private static final String LIST_MODE = "list";
+	private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+	private final InetSocketAddress address;
+
+	/**
+	 * @param port The loopback port of the middleware daemon
+	 */
+	public SocketTransport(int port) {
+		this.address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+	}
+
+	@Override
+	public List<String> listDevices() throws IOException {
+		try (var socket = connect(List.of(LIST_MODE)); //
+			 var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))) {
+			List<String> lines = new ArrayList<>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+			return ProcessTransport.parseListing(lines);
+		}
+	}
+
+	@Override
+	public Connection open(String mode, String serialNumber, CharSequence pin) throws IOException {
+		return new SocketConnection(connect(List.of(mode, serialNumber, pin)));
+	}
+
+	private Socket connect(List<? extends CharSequence> header) throws IOException {
+		var socket = new Socket();
+		try {
+			socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+			var out = socket.getOutputStream();
+			out.write((String.join("\n", header) + "\n").getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+			return socket;
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * A connection that notices when the middleware closed its end. Reading EOF or failing to read marks the connection closed, and
+	 * {@link #isOpen()} probes an idle connection for a pending EOF before it gets reused.
+	 */
+	private static class SocketConnection implements Connection {
+
+		private static final int PROBE_TIMEOUT_MILLIS = 1;
+
+		private final Socket socket;
+		private final PushbackInputStream in;
+		private final OutputStream out;
+		private volatile boolean closed;
+
+		SocketConnection(Socket socket) throws IOException {
+			this.socket = socket;
+			this.in = new PushbackInputStream(new EofDetectingInputStream(socket.getInputStream()));
+			this.out = socket.getOutputStream();
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return in;
+		}
+
+		@Override
+		public OutputStream getOutputStream() {
+			return out;
+		}
+
+		@Override
+		public synchronized boolean isOpen() {
+			if (closed || socket.isClosed() || socket.isInputShutdown()) {
+				return false;
+			}
+			try {
+				if (in.available() > 0) {
+					return true;
+				}
+				int timeout = socket.getSoTimeout();
+				socket.setSoTimeout(PROBE_TIMEOUT_MILLIS);
+				try {
+					int b = in.read();
+					if (b >= 0) {
+						in.unread(b);
+					}
+				} catch (SocketTimeoutException e) {
+					// nothing pending, the middleware is still waiting for requests
+				} finally {
+					socket.setSoTimeout(timeout);
+				}
+			} catch (IOException e) {
+				closed = true;
+			}
+			return !closed;
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// nothing left to clean up
+			}
+		}
+
+		private class EofDetectingInputStream extends FilterInputStream {
+
+			EofDetectingInputStream(InputStream in) {
+				super(in);
+			}
+
+			@Override
+			public int read() throws IOException {
+				try {
+					int b = super.read();
+					if (b < 0) {
+						closed = true;
+					}
+					return b;
+				} catch (SocketTimeoutException e) {
+					throw e;
+				} catch (IOException e) {
+					closed = true;
+					throw e;
+				}
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				try {
+					int n = super.read(b, off, len);
+					if (n < 0) {
+						closed = true;
+					}
+					return n;
+				} catch (SocketTimeoutException e) {
+					throw e;
+				} catch (IOException e) {
+					closed = true;
+					throw e;
+				}
+			}
+		}
+	}
+
+}
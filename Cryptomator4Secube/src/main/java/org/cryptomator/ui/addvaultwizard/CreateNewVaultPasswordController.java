@@ -13,7 +13,9 @@ import org.cryptomator.cryptolib.api.CryptorProvider;
 import org.cryptomator.cryptolib.api.Masterkey;
 import org.cryptomator.cryptolib.api.MasterkeyLoader;
 import org.cryptomator.cryptolib.common.MasterkeyFileAccess;
-import org.cryptomator.secube.Communication;
+import org.cryptomator.secube.DeviceDiscovery;
+import org.cryptomator.secube.MiddlewareSessionManager;
+import org.cryptomator.secube.SecubeVaultIds;
 import org.cryptomator.ui.common.ErrorComponent;
 import org.cryptomator.ui.common.FxController;
 import org.cryptomator.ui.common.FxmlFile;
@@ -36,8 +38,6 @@ import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.StringProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.Scene;
@@ -52,9 +52,6 @@ import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.BufferedReader;
 import java.io.UncheckedIOException;
 import java.net.URI;
 import java.nio.channels.WritableByteChannel;
@@ -92,6 +89,9 @@ public class CreateNewVaultPasswordController implements FxController {
 	private final ReadmeGenerator readmeGenerator;
 	private final SecureRandom csprng;
 	private final MasterkeyFileAccess masterkeyFileAccess;
+	private final MiddlewareSessionManager secubeSessions;
+	private final DeviceDiscovery deviceDiscovery;
+	private DeviceDiscovery.Watch deviceWatch;
 	private final BooleanProperty processing;
 	private final BooleanProperty readyToCreateVault;
 	private final ObjectBinding<ContentDisplay> createVaultButtonState;
@@ -117,7 +117,7 @@ public class CreateNewVaultPasswordController implements FxController {
 
 
 	@Inject
-	CreateNewVaultPasswordController(@AddVaultWizardWindow Stage window, @FxmlScene(FxmlFile.ADDVAULT_NEW_LOCATION) Lazy<Scene> chooseLocationScene, @FxmlScene(FxmlFile.ADDVAULT_NEW_RECOVERYKEY) Lazy<Scene> recoveryKeyScene, @FxmlScene(FxmlFile.ADDVAULT_SUCCESS) Lazy<Scene> successScene, ErrorComponent.Builder errorComponent, ExecutorService executor, RecoveryKeyFactory recoveryKeyFactory, @Named("vaultName") StringProperty vaultName, ObjectProperty<Path> vaultPath, @AddVaultWizardWindow ObjectProperty<Vault> vault, @Named("recoveryKey") StringProperty recoveryKey, VaultListManager vaultListManager, ResourceBundle resourceBundle, ReadmeGenerator readmeGenerator, SecureRandom csprng, MasterkeyFileAccess masterkeyFileAccess) {
+	CreateNewVaultPasswordController(@AddVaultWizardWindow Stage window, @FxmlScene(FxmlFile.ADDVAULT_NEW_LOCATION) Lazy<Scene> chooseLocationScene, @FxmlScene(FxmlFile.ADDVAULT_NEW_RECOVERYKEY) Lazy<Scene> recoveryKeyScene, @FxmlScene(FxmlFile.ADDVAULT_SUCCESS) Lazy<Scene> successScene, ErrorComponent.Builder errorComponent, ExecutorService executor, RecoveryKeyFactory recoveryKeyFactory, @Named("vaultName") StringProperty vaultName, ObjectProperty<Path> vaultPath, @AddVaultWizardWindow ObjectProperty<Vault> vault, @Named("recoveryKey") StringProperty recoveryKey, VaultListManager vaultListManager, ResourceBundle resourceBundle, ReadmeGenerator readmeGenerator, SecureRandom csprng, MasterkeyFileAccess masterkeyFileAccess, MiddlewareSessionManager secubeSessions, DeviceDiscovery deviceDiscovery) {
 		this.window = window;
 		this.chooseLocationScene = chooseLocationScene;
 		this.recoveryKeyScene = recoveryKeyScene;
@@ -134,6 +134,8 @@ public class CreateNewVaultPasswordController implements FxController {
 		this.readmeGenerator = readmeGenerator;
 		this.csprng = csprng;
 		this.masterkeyFileAccess = masterkeyFileAccess;
+		this.secubeSessions = secubeSessions;
+		this.deviceDiscovery = deviceDiscovery;
 		this.processing = new SimpleBooleanProperty();
 		this.readyToCreateVault = new SimpleBooleanProperty();
 		this.createVaultButtonState = Bindings.createObjectBinding(this::getCreateVaultButtonState, processing);
@@ -146,40 +148,21 @@ public class CreateNewVaultPasswordController implements FxController {
 		window.setOnHiding(event -> {
 			newPasswordSceneController.passwordField.wipe();
 			newPasswordSceneController.reenterField.wipe();
+			deviceWatch.close();
 		});
 				
 		// SEcube list (if so)
-		try {
-			ObservableList<String> serialNumberList = FXCollections.observableArrayList();
-			String cmd = "../dist/win/secube_listing.exe";
-			InputStream stdin = Runtime.getRuntime().exec(cmd).getInputStream();
-			InputStreamReader isr = new InputStreamReader(stdin);
-			BufferedReader br = new BufferedReader(isr);
-			//StringBuilder sb = new StringBuilder();
-			String s1;
-			while ((s1 = br.readLine()) != null) {
-				//sb.append(s1);
-				serialNumberList.add(s1);
-			}
-			CharSequence errorSeq = "Error : ";
-			if (serialNumberList.toString().contains(errorSeq)) {
-				 //throw new IOException("Failed getting password. " + serialNumberList.toString());
-				secubeSerialList.setVisible(false);
-				PIN.setVisible(false);
-				labelPIN.setVisible(false);
-				labelList.setVisible(false);
-				noSEcubeFound.setVisible(true);
-				createSEcubeButton.disableProperty().set(true);
-			} else {
-				secubeSerialList.setItems(serialNumberList);	
-				secubeSerialList.setOnAction(this::onComboBoxSelected);
-				secubeSerialList.setVisible(true);
-				noSEcubeFound.setVisible(false);
-			}
-			
-		} catch (IOException e) {
-			throw new IOException("Failed getting password", e);
-		}
+		var secubeFound = deviceDiscovery.noDevicesFoundProperty().not();
+		secubeSerialList.setItems(deviceDiscovery.getSerialNumbers());
+		secubeSerialList.setOnAction(this::onComboBoxSelected);
+		secubeSerialList.visibleProperty().bind(secubeFound);
+		PIN.visibleProperty().bind(secubeFound);
+		labelPIN.visibleProperty().bind(secubeFound);
+		labelList.visibleProperty().bind(secubeFound);
+		noSEcubeFound.visibleProperty().bind(deviceDiscovery.noDevicesFoundProperty());
+		createSEcubeButton.disableProperty().bind(deviceDiscovery.noDevicesFoundProperty());
+		deviceWatch = deviceDiscovery.watch();
+		secubeSessions.prepare();
 	}
 	
 	
@@ -319,15 +302,12 @@ public class CreateNewVaultPasswordController implements FxController {
 			/*Call SEcube -> create password*/
 			
 			// Convert the IDVault to an ID compatible with SECube, between 1 and 999
-			byte[] randomBytes = new byte[9];
-			randomBytes = BaseEncoding.base64Url().decode(this.vaultId);
-			int randomNumber = ((randomBytes[0] & 0xFF) << 8) | (randomBytes[1] & 0xFF);
-	        String SECubeVaultID = Integer.toString(1 + (randomNumber % 999));
+	        String SECubeVaultID = SecubeVaultIds.of(this.vaultId);
 
 			
 			String key;
-			key = Communication.main("create-key", serialNumberChoosen, PIN.getCharacters().toString(), SECubeVaultID);
-			if(key.contains("Error:")) {
+			key = secubeSessions.request("create-key", serialNumberChoosen, PIN.getCharacters(), SECubeVaultID);
+			if(MiddlewareSessionManager.isError(key)) {
 				Exception e = new IOException("Failed initialize vault. " + key);
 				errorComponent.cause(e).window(window).returnToScene(window.getScene()).build().showErrorScene();
 				throw e;
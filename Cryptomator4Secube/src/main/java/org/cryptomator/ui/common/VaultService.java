@@ -2,6 +2,7 @@ package org.cryptomator.ui.common;
 
 import org.cryptomator.common.vaults.LockNotCompletedException;
 import org.cryptomator.common.vaults.Vault;
+import org.cryptomator.common.vaults.VaultLockCoordinator;
 import org.cryptomator.common.vaults.VaultState;
 import org.cryptomator.common.vaults.Volume;
 import org.cryptomator.ui.fxapp.FxApplicationScoped;
@@ -12,9 +13,7 @@ import javax.inject.Inject;
 import javafx.concurrent.Task;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
@@ -25,11 +24,13 @@ public class VaultService {
 
 	private final ExecutorService executorService;
 	private final HostServiceRevealer vaultRevealer;
+	private final VaultLockCoordinator lockCoordinator;
 
 	@Inject
-	public VaultService(ExecutorService executorService, HostServiceRevealer vaultRevealer) {
+	public VaultService(ExecutorService executorService, HostServiceRevealer vaultRevealer, VaultLockCoordinator lockCoordinator) {
 		this.executorService = executorService;
 		this.vaultRevealer = vaultRevealer;
+		this.lockCoordinator = lockCoordinator;
 	}
 
 	public void reveal(Vault vault) {
@@ -87,12 +88,10 @@ public class VaultService {
 	 *
 	 * @param vaults The list of vaults to be locked
 	 * @param forced Whether to attempt a forced lock
-	 * @return Meta-Task that waits until all vaults are locked or fails after the first failure of a subtask
+	 * @return Task that locks all vaults concurrently and fails if any of them is still unlocked after the {@link VaultLockCoordinator}'s deadline
 	 */
 	public Task<Collection<Vault>> createLockAllTask(Collection<Vault> vaults, boolean forced) {
-		List<Task<Vault>> lockTasks = vaults.stream().map(v -> new LockVaultTask(v, forced)).collect(Collectors.toUnmodifiableList());
-		lockTasks.forEach(executorService::execute);
-		Task<Collection<Vault>> task = new WaitForTasksTask(lockTasks);
+		Task<Collection<Vault>> task = new LockAllVaultsTask(lockCoordinator, vaults, forced);
 		String vaultNames = vaults.stream().map(Vault::getDisplayName).collect(Collectors.joining(", "));
 		task.setOnSucceeded(evt -> LOG.info("Locked {}", vaultNames));
 		task.setOnFailed(evt -> LOG.error("Failed to lock vaults " + vaultNames, evt.getSource().getException()));
@@ -123,37 +122,58 @@ public class VaultService {
 	}
 
 	/**
-	 * A task that waits for completion of multiple other tasks
+	 * A task that locks multiple vaults concurrently
 	 */
-	private static class WaitForTasksTask extends Task<Collection<Vault>> {
+	private static class LockAllVaultsTask extends Task<Collection<Vault>> {
 
-		private final Collection<Task<Vault>> startedTasks;
+		private final VaultLockCoordinator lockCoordinator;
+		private final List<Vault> vaults;
+		private final List<Vault> processing = new ArrayList<>();
+		private final boolean forced;
 
-		public WaitForTasksTask(Collection<Task<Vault>> tasks) {
-			this.startedTasks = List.copyOf(tasks);
+		/**
+		 * @param lockCoordinator The coordinator locking the vaults
+		 * @param vaults The vaults to lock
+		 * @param forced Whether to attempt a forced lock
+		 */
+		public LockAllVaultsTask(VaultLockCoordinator lockCoordinator, Collection<Vault> vaults, boolean forced) {
+			this.lockCoordinator = lockCoordinator;
+			this.vaults = List.copyOf(vaults);
+			this.forced = forced;
 
 			setOnFailed(event -> LOG.error("Failed to lock multiple vaults", getException()));
 		}
 
 		@Override
-		protected Collection<Vault> call() throws ExecutionException, InterruptedException {
-			Iterator<Task<Vault>> remainingTasks = startedTasks.iterator();
-			Collection<Vault> completed = new ArrayList<>();
-			try {
-				// wait for all tasks:
-				while (remainingTasks.hasNext()) {
-					Vault done = remainingTasks.next().get();
-					completed.add(done);
-				}
-			} catch (ExecutionException e) {
-				// cancel all remaining:
-				while (remainingTasks.hasNext()) {
-					remainingTasks.next().cancel(true);
-				}
-				throw e;
-			}
-			return completed;
+		protected Collection<Vault> call() throws LockNotCompletedException, InterruptedException {
+			return lockCoordinator.lockAll(vaults, forced);
 		}
+
+		@Override
+		protected void scheduled() {
+			vaults.stream().filter(v -> v.stateProperty().transition(VaultState.Value.UNLOCKED, VaultState.Value.PROCESSING)).forEach(processing::add);
+		}
+
+		@Override
+		protected void succeeded() {
+			resetVaultsNotLocked();
+		}
+
+		@Override
+		protected void failed() {
+			resetVaultsNotLocked();
+		}
+
+		@Override
+		protected void cancelled() {
+			resetVaultsNotLocked();
+		}
+
+		private void resetVaultsNotLocked() {
+			// locked vaults already left the processing state when their volume exited
+			processing.forEach(v -> v.stateProperty().transition(VaultState.Value.PROCESSING, VaultState.Value.UNLOCKED));
+		}
+
 	}
 
 	/**
@@ -118,27 +118,30 @@ public class FxApplication extends Application {
 		return future;
 	}
 
-	public void startUnlockWorkflow(Vault vault, Optional<Stage> owner) {
-		Platform.runLater(() -> {
-			if (vault.stateProperty().transition(VaultState.Value.LOCKED, VaultState.Value.PROCESSING)) {
-				unlockWorkflowBuilderProvider.get().vault(vault).owner(owner).build().startUnlockWorkflow();
-				LOG.debug("Start unlock workflow for {}", vault.getDisplayName());
-			} else {
-				showMainWindow().thenAccept(mainWindow -> errorWindowBuilder.window(mainWindow).cause(new IllegalStateException("Unable to unlock vault in non-locked state.")));
-			}
-		});
+	/**
+	 * @return A stage completing with <code>true</code> once the vault is unlocked, or with <code>false</code> if it was not unlocked
+	 */
+	public CompletionStage<Boolean> startUnlockWorkflow(Vault vault, Optional<Stage> owner) {
+		return startUnlockWorkflow(vault, owner, VaultState.Value.LOCKED);
 	}
 	
 	/* Duplicated function for SEcube unlock */
-	public void startUnlockWorkflowSecube(Vault vault, Optional<Stage> owner) {
+	public CompletionStage<Boolean> startUnlockWorkflowSecube(Vault vault, Optional<Stage> owner) {
+		return startUnlockWorkflow(vault, owner, VaultState.Value.SECUBE);
+	}
+
+	private CompletionStage<Boolean> startUnlockWorkflow(Vault vault, Optional<Stage> owner, VaultState.Value lockedState) {
+		CompletableFuture<Boolean> unlocked = new CompletableFuture<>();
 		Platform.runLater(() -> {
-			if (vault.stateProperty().transition(VaultState.Value.SECUBE, VaultState.Value.PROCESSING)) {
-				unlockWorkflowBuilderProvider.get().vault(vault).owner(owner).build().startUnlockWorkflow();
+			if (vault.stateProperty().transition(lockedState, VaultState.Value.PROCESSING)) {
+				unlockWorkflowBuilderProvider.get().vault(vault).owner(owner).build().startUnlockWorkflow().whenComplete((result, e) -> unlocked.complete(e == null && result));
 				LOG.debug("Start unlock workflow for {}", vault.getDisplayName());
 			} else {
 				showMainWindow().thenAccept(mainWindow -> errorWindowBuilder.window(mainWindow).cause(new IllegalStateException("Unable to unlock vault in non-locked state.")));
+				unlocked.complete(false);
 			}
 		});
+		return unlocked;
 	}
 
 	public void startLockWorkflow(Vault vault, Optional<Stage> owner) {
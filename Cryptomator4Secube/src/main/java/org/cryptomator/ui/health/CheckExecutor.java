@@ -1,6 +1,7 @@
 package org.cryptomator.ui.health;
 
 import com.google.common.collect.Comparators;
+import org.cryptomator.common.jfr.HealthCheckEvent;
 import org.cryptomator.common.vaults.Vault;
 import org.cryptomator.cryptofs.VaultConfig;
 import org.cryptomator.cryptofs.health.api.DiagnosticResult;
@@ -22,6 +23,7 @@ import java.util.concurrent.atomic.AtomicReference;
 @HealthCheckScoped
 public class CheckExecutor {
 
+	private final String vaultId;
 	private final Path vaultPath;
 	private final SecureRandom csprng;
 	private final Masterkey masterkey;
@@ -32,6 +34,7 @@ public class CheckExecutor {
 
 	@Inject
 	public CheckExecutor(@HealthCheckWindow Vault vault, AtomicReference<Masterkey> masterkeyRef, AtomicReference<VaultConfig> vaultConfigRef, SecureRandom csprng) {
+		this.vaultId = vault.getId();
 		this.vaultPath = vault.getPath();
 		this.masterkey = masterkeyRef.get();
 		this.vaultConfig = vaultConfigRef.get();
@@ -67,12 +70,21 @@ public class CheckExecutor {
 
 		@Override
 		protected Void call() throws Exception {
+			var event = new HealthCheckEvent();
+			event.begin();
 			try (var masterkeyClone = masterkey.copy(); //
 				 var cryptor = CryptorProvider.forScheme(vaultConfig.getCipherCombo()).provide(masterkeyClone, csprng)) {
 				c.getHealthCheck().check(vaultPath, vaultConfig, masterkeyClone, cryptor, diagnosis -> {
 					Platform.runLater(() -> c.getResults().add(Result.create(diagnosis)));
 					highestResultSeverity = Comparators.max(highestResultSeverity, diagnosis.getSeverity());
 				});
+			} finally {
+				if (event.shouldCommit()) {
+					event.vaultId = vaultId;
+					event.check = c.getName();
+					event.highestSeverity = highestResultSeverity.name();
+					event.commit();
+				}
 			}
 			return null;
 		}
@@ -0,0 +1,280 @@
+package org.cryptomator.ui.keyloading;
+
+import org.cryptomator.common.vaults.Vault;
+import org.cryptomator.common.vaults.VaultState;
+import org.cryptomator.common.vaults.VaultStateEvent;
+import org.cryptomator.common.vaults.VaultStateEventBus;
+import org.cryptomator.cryptolib.api.Masterkey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javafx.beans.InvalidationListener;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import java.awt.Desktop;
+import java.awt.desktop.SystemSleepEvent;
+import java.awt.desktop.SystemSleepListener;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the masterkeys of recently locked vaults, so they can be unlocked again without the costly key derivation or device handshake.
+ * <p>
+ * Only vaults with a {@link org.cryptomator.common.settings.VaultSettings#quickUnlockSeconds() quick re-unlock window} are remembered.
+ * Their keys are sealed with a session key that never leaves memory. A key is wiped once the window after locking the vault expired,
+ * after it has been taken for unlocking, when the window is disabled, when the vault is removed and when the system goes to sleep.
+ * Sleeping is noticed by the desktop, where supported, or by the wall clock running ahead of the system's uptime.
+ * <p>
+ * The windows are read from the vault settings on the FX Application Thread and kept in a snapshot, which can be read from any thread.
+ */
+@Singleton
+public class QuickUnlockCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(QuickUnlockCache.class);
+	private static final Set<VaultState.Value> LOCKED_STATES = Set.of(VaultState.Value.LOCKED, VaultState.Value.SECUBE);
+	private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+	private static final int NONCE_LEN = 12;
+	private static final int TAG_LEN_BITS = 128;
+	private static final Duration MAX_CLOCK_DRIFT = Duration.ofSeconds(10);
+
+	private final ScheduledExecutorService scheduler;
+	private final SecureRandom csprng;
+	private final SecretKey sessionKey;
+	private final Map<String, SealedKey> sealedKeys = new ConcurrentHashMap<>();
+	private final Map<String, Integer> windowSeconds = new ConcurrentHashMap<>(); // by vault id, only vaults with a window
+	private final Map<Vault, InvalidationListener> windowListeners = new HashMap<>(); // only accessed on the FX Application Thread
+	private final ObservableList<Vault> vaultList;
+
+	@Inject
+	public QuickUnlockCache(ObservableList<Vault> vaultList, VaultStateEventBus eventBus, ScheduledExecutorService scheduler, SecureRandom csprng) {
+		this.vaultList = vaultList;
+		this.scheduler = scheduler;
+		this.csprng = csprng;
+		byte[] rawSessionKey = new byte[32];
+		csprng.nextBytes(rawSessionKey);
+		this.sessionKey = new SecretKeySpec(rawSessionKey, "AES");
+		Arrays.fill(rawSessionKey, (byte) 0x00);
+		eventBus.consume(this::vaultStateChanged, scheduler);
+		vaultList.forEach(this::watch);
+		vaultList.addListener(this::vaultListChanged);
+		if (Desktop.isDesktopSupported() && Desktop.getDesktop().isSupported(Desktop.Action.APP_EVENT_SYSTEM_SLEEP)) {
+			Desktop.getDesktop().addAppEventListener(new WipeOnSleep());
+		}
+	}
+
+	/**
+	 * Can be called from any thread.
+	 *
+	 * @param vault A vault
+	 * @return <code>true</code> if keys of this vault are remembered after unlocking it
+	 */
+	public boolean isEnabled(Vault vault) {
+		return windowSeconds.containsKey(vault.getId());
+	}
+
+	/**
+	 * Remembers the key of an unlocked vault until the quick re-unlock window after locking it expired.
+	 *
+	 * @param vault The unlocked vault
+	 * @param masterkey Its masterkey, which is not consumed by this method
+	 */
+	public void remember(Vault vault, Masterkey masterkey) {
+		if (!isEnabled(vault)) {
+			return;
+		}
+		try {
+			var sealed = seal(vault, masterkey.getEncoded());
+			wipe(sealedKeys.put(vault.getId(), sealed));
+		} catch (GeneralSecurityException e) {
+			LOG.warn("Failed to remember key of {}.", vault.getDisplayName(), e);
+		}
+	}
+
+	/**
+	 * Takes the key of a recently locked vault. The remembered key is wiped, so it can only be taken once.
+	 *
+	 * @param vault The vault to unlock
+	 * @return The masterkey, if still remembered, which the caller must destroy after use
+	 */
+	public Optional<Masterkey> take(Vault vault) {
+		var sealed = sealedKeys.remove(vault.getId());
+		if (sealed == null) {
+			return Optional.empty();
+		}
+		try {
+			if (sealed.isExpired() || sealed.sleptSinceSealed()) {
+				LOG.debug("Quick re-unlock window of {} expired.", vault.getDisplayName());
+				return Optional.empty();
+			}
+			byte[] raw = unseal(sealed);
+			try {
+				return Optional.of(new Masterkey(raw));
+			} finally {
+				Arrays.fill(raw, (byte) 0x00);
+			}
+		} catch (GeneralSecurityException e) {
+			LOG.warn("Failed to unseal key of {}.", vault.getDisplayName(), e);
+			return Optional.empty();
+		} finally {
+			wipe(sealed);
+		}
+	}
+
+	/**
+	 * Wipes all remembered keys.
+	 */
+	public void wipeAll() {
+		sealedKeys.keySet().forEach(vaultId -> wipe(sealedKeys.remove(vaultId)));
+	}
+
+	private void vaultListChanged(ListChangeListener.Change<? extends Vault> c) {
+		while (c.next()) {
+			c.getRemoved().stream().filter(vault -> !vaultList.contains(vault)).forEach(this::unwatch); // not just moved
+			c.getAddedSubList().forEach(this::watch);
+		}
+	}
+
+	private void watch(Vault vault) {
+		if (windowListeners.containsKey(vault)) {
+			return;
+		}
+		var seconds = vault.getVaultSettings().quickUnlockSeconds();
+		InvalidationListener listener = observable -> windowChanged(vault, seconds.get());
+		windowListeners.put(vault, listener);
+		seconds.addListener(listener);
+		windowChanged(vault, seconds.get());
+	}
+
+	private void unwatch(Vault vault) {
+		var listener = windowListeners.remove(vault);
+		if (listener != null) {
+			vault.getVaultSettings().quickUnlockSeconds().removeListener(listener);
+		}
+		windowSeconds.remove(vault.getId());
+		forget(vault.getId());
+	}
+
+	private void windowChanged(Vault vault, int seconds) {
+		if (seconds > 0) {
+			windowSeconds.put(vault.getId(), seconds);
+		} else {
+			windowSeconds.remove(vault.getId());
+			forget(vault.getId());
+		}
+	}
+
+	private void forget(String vaultId) {
+		var sealed = sealedKeys.remove(vaultId);
+		if (sealed != null) {
+			LOG.debug("Wiping quick re-unlock key of {}.", sealed.vault.getDisplayName());
+			wipe(sealed);
+		}
+	}
+
+	private void vaultStateChanged(VaultStateEvent event) {
+		var sealed = sealedKeys.get(event.vaultId());
+		if (sealed != null && LOCKED_STATES.contains(event.to()) && !LOCKED_STATES.contains(event.from())) {
+			var seconds = windowSeconds.get(event.vaultId());
+			if (seconds == null) { // disabled meanwhile
+				forget(event.vaultId());
+				return;
+			}
+			var window = Duration.ofSeconds(seconds);
+			sealed.expireIn(window);
+			scheduler.schedule(() -> expire(event.vaultId(), sealed), window.toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void expire(String vaultId, SealedKey sealed) {
+		if (sealedKeys.remove(vaultId, sealed)) {
+			LOG.debug("Quick re-unlock window of {} expired.", sealed.vault.getDisplayName());
+			wipe(sealed);
+		}
+	}
+
+	private SealedKey seal(Vault vault, byte[] raw) throws GeneralSecurityException {
+		byte[] nonce = new byte[NONCE_LEN];
+		csprng.nextBytes(nonce);
+		var cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+		cipher.init(Cipher.ENCRYPT_MODE, sessionKey, new GCMParameterSpec(TAG_LEN_BITS, nonce));
+		cipher.updateAAD(vault.getId().getBytes(StandardCharsets.UTF_8));
+		return new SealedKey(vault, nonce, cipher.doFinal(raw));
+	}
+
+	private byte[] unseal(SealedKey sealed) throws GeneralSecurityException {
+		var cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+		cipher.init(Cipher.DECRYPT_MODE, sessionKey, new GCMParameterSpec(TAG_LEN_BITS, sealed.nonce));
+		cipher.updateAAD(sealed.vault.getId().getBytes(StandardCharsets.UTF_8));
+		return cipher.doFinal(sealed.ciphertext);
+	}
+
+	private static void wipe(SealedKey sealed) {
+		if (sealed != null) {
+			Arrays.fill(sealed.ciphertext, (byte) 0x00);
+		}
+	}
+
+	private static class SealedKey {
+
+		private final Vault vault;
+		private final byte[] nonce;
+		private final byte[] ciphertext;
+		private final long sealedAtNanos = System.nanoTime();
+		private final long sealedAtMillis = System.currentTimeMillis();
+		private volatile long expiresAtNanos;
+		private volatile boolean expiring; // not before the vault got locked
+
+		SealedKey(Vault vault, byte[] nonce, byte[] ciphertext) {
+			this.vault = vault;
+			this.nonce = nonce;
+			this.ciphertext = ciphertext;
+		}
+
+		void expireIn(Duration window) {
+			expiresAtNanos = System.nanoTime() + window.toNanos();
+			expiring = true;
+		}
+
+		boolean isExpired() {
+			return expiring && System.nanoTime() - expiresAtNanos >= 0;
+		}
+
+		// the monotonic clock stands still while the system sleeps, the wall clock doesn't
+		boolean sleptSinceSealed() {
+			long uptimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sealedAtNanos);
+			long wallClockMillis = System.currentTimeMillis() - sealedAtMillis;
+			return wallClockMillis - uptimeMillis > MAX_CLOCK_DRIFT.toMillis();
+		}
+	}
+
+	private class WipeOnSleep implements SystemSleepListener {
+
+		@Override
+		public void systemAboutToSleep(SystemSleepEvent e) {
+			LOG.debug("Wiping quick re-unlock keys before sleep.");
+			wipeAll();
+		}
+
+		@Override
+		public void systemAwoke(SystemSleepEvent e) {
+			// no-op
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+package org.cryptomator.ui.keyloading;
+
+import org.cryptomator.common.vaults.Vault;
+import org.cryptomator.cryptolib.api.Masterkey;
+import org.cryptomator.cryptolib.api.MasterkeyLoadingFailedException;
+
+import java.net.URI;
+
+/**
+ * Loads the key of a recently locked vault from the {@link QuickUnlockCache}, without asking the user or deriving the key again.
+ * Otherwise, or if the remembered key didn't work, the key is loaded by the given strategy.
+ * After a successful unlock, the loaded key is remembered for the next quick re-unlock.
+ */
+public class QuickUnlockLoadingStrategy implements KeyLoadingStrategy {
+
+	private final Vault vault;
+	private final QuickUnlockCache cache;
+	private final KeyLoadingStrategy delegate;
+
+	private boolean triedCache;
+	private boolean loadedFromCache;
+	private Masterkey loadedKey;
+
+	public QuickUnlockLoadingStrategy(Vault vault, QuickUnlockCache cache, KeyLoadingStrategy delegate) {
+		this.vault = vault;
+		this.cache = cache;
+		this.delegate = delegate;
+	}
+
+	@Override
+	public Masterkey loadKey(URI keyId) throws MasterkeyLoadingFailedException {
+		discardLoadedKey();
+		if (!triedCache) {
+			triedCache = true;
+			var cached = cache.take(vault);
+			if (cached.isPresent()) {
+				LOG.info("Quick re-unlock of {}.", vault.getDisplayName());
+				loadedFromCache = true;
+				loadedKey = cached.get().copy();
+				return cached.get();
+			}
+		}
+		loadedFromCache = false;
+		var masterkey = delegate.loadKey(keyId);
+		if (cache.isEnabled(vault)) {
+			loadedKey = masterkey.copy();
+		}
+		return masterkey;
+	}
+
+	@Override
+	public boolean recoverFromException(MasterkeyLoadingFailedException exception) {
+		if (loadedFromCache) {
+			LOG.info("Remembered key of {} failed. Loading it again.", vault.getDisplayName());
+			return true; // reattempt with the delegate
+		} else {
+			return delegate.recoverFromException(exception);
+		}
+	}
+
+	@Override
+	public void cleanup(boolean unlockedSuccessfully) {
+		if (unlockedSuccessfully && loadedKey != null) {
+			cache.remember(vault, loadedKey);
+		}
+		discardLoadedKey();
+		delegate.cleanup(unlockedSuccessfully);
+	}
+
+	private void discardLoadedKey() {
+		if (loadedKey != null) {
+			loadedKey.destroy();
+			loadedKey = null;
+		}
+	}
+
+}
@@ -2,6 +2,7 @@ package org.cryptomator.ui.keyloading.masterkeyfile;
 
 import com.google.common.base.Preconditions;
 import org.cryptomator.common.Passphrase;
+import org.cryptomator.common.jfr.MasterkeyFileLoadEvent;
 import org.cryptomator.common.keychain.KeychainManager;
 import org.cryptomator.common.vaults.Vault;
 import org.cryptomator.cryptofs.common.BackupHelper;
@@ -41,13 +42,14 @@ public class MasterkeyFileLoadingStrategy implements KeyLoadingStrategy {
 	private final ChooseMasterkeyFileComponent.Builder masterkeyFileChoice;
 	private final KeychainManager keychain;
 	private final ResourceBundle resourceBundle;
+	private final SecubeUnlockBatch secubeUnlockBatch;
 
 	private Passphrase passphrase;
 	private boolean savePassphrase;
 	private boolean wrongPassphrase;
 
 	@Inject
-	public MasterkeyFileLoadingStrategy(@KeyLoading Vault vault, MasterkeyFileAccess masterkeyFileAccess, @KeyLoading Stage window, @Named("savedPassword") Optional<char[]> savedPassphrase, PassphraseEntryComponent.Builder passphraseEntry, ChooseMasterkeyFileComponent.Builder masterkeyFileChoice, KeychainManager keychain, ResourceBundle resourceBundle) {
+	public MasterkeyFileLoadingStrategy(@KeyLoading Vault vault, MasterkeyFileAccess masterkeyFileAccess, @KeyLoading Stage window, @Named("savedPassword") Optional<char[]> savedPassphrase, PassphraseEntryComponent.Builder passphraseEntry, ChooseMasterkeyFileComponent.Builder masterkeyFileChoice, KeychainManager keychain, ResourceBundle resourceBundle, SecubeUnlockBatch secubeUnlockBatch) {
 		this.vault = vault;
 		this.masterkeyFileAccess = masterkeyFileAccess;
 		this.window = window;
@@ -55,6 +57,7 @@ public class MasterkeyFileLoadingStrategy implements KeyLoadingStrategy {
 		this.masterkeyFileChoice = masterkeyFileChoice;
 		this.keychain = keychain;
 		this.resourceBundle = resourceBundle;
+		this.secubeUnlockBatch = secubeUnlockBatch;
 		this.passphrase = savedPassphrase.map(Passphrase::new).orElse(null);
 		this.savePassphrase = savedPassphrase.isPresent();
 	}
@@ -67,10 +70,13 @@ public class MasterkeyFileLoadingStrategy implements KeyLoadingStrategy {
 			if (!Files.exists(filePath)) {
 				filePath = askUserForMasterkeyFilePath();
 			}
+			if (passphrase == null) {
+				passphrase = secubeUnlockBatch.takeKey(vault).orElse(null);
+			}
 			if (passphrase == null) {
 				askForPassphrase();
 			}
-			var masterkey = masterkeyFileAccess.load(filePath, passphrase);
+			var masterkey = loadMasterkeyFile(filePath);
 			//backup
 			if (filePath.startsWith(vault.getPath())) {
 				try {
@@ -88,6 +94,21 @@ public class MasterkeyFileLoadingStrategy implements KeyLoadingStrategy {
 		}
 	}
 
+	private Masterkey loadMasterkeyFile(Path filePath) throws MasterkeyLoadingFailedException {
+		var event = new MasterkeyFileLoadEvent();
+		event.begin();
+		try {
+			var masterkey = masterkeyFileAccess.load(filePath, passphrase);
+			event.success = true;
+			return masterkey;
+		} finally {
+			if (event.shouldCommit()) {
+				event.vaultId = vault.getId();
+				event.commit();
+			}
+		}
+	}
+
 	@Override
 	public boolean recoverFromException(MasterkeyLoadingFailedException exception) {
 		if (exception instanceof InvalidPassphraseException) {
@@ -102,6 +123,7 @@ public class MasterkeyFileLoadingStrategy implements KeyLoadingStrategy {
 
 	@Override
 	public void cleanup(boolean unlockedSuccessfully) {
+		secubeUnlockBatch.abort(vault);
 		if (unlockedSuccessfully && savePassphrase) {
 			savePasswordToSystemkeychain(passphrase);
 		}
@@ -2,8 +2,11 @@ package org.cryptomator.ui.keyloading.masterkeyfile;
 
 import org.cryptomator.common.Nullable;
 import org.cryptomator.common.keychain.KeychainManager;
+import org.cryptomator.common.settings.Settings;
 import org.cryptomator.common.vaults.Vault;
-import org.cryptomator.secube.Communication;
+import org.cryptomator.secube.DeviceDiscovery;
+import org.cryptomator.secube.MiddlewareSessionManager;
+import org.cryptomator.secube.SecubeVaultIds;
 import org.cryptomator.ui.common.ErrorComponent;
 import org.cryptomator.ui.common.FxController;
 import org.cryptomator.common.Passphrase;
@@ -15,8 +18,6 @@ import org.cryptomator.ui.keyloading.KeyLoading;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.io.BaseEncoding;
-
 import javax.inject.Inject;
 import javax.inject.Named;
 import javafx.animation.Animation;
@@ -31,8 +32,6 @@ import javafx.beans.binding.StringBinding;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ReadOnlyBooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.CheckBox;
@@ -47,11 +46,15 @@ import javafx.stage.WindowEvent;
 import javafx.util.Duration;
 
 import javafx.scene.control.Button;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 
 @PassphraseEntryScoped
 public class PassphraseEntryController implements FxController {
@@ -64,6 +67,11 @@ public class PassphraseEntryController implements FxController {
 	private final Passphrase savedPassword;
 	private final ForgetPasswordComponent.Builder forgetPassword;
 	private final KeychainManager keychain;
+	private final MiddlewareSessionManager secubeSessions;
+	private final DeviceDiscovery deviceDiscovery;
+	private final SecubeUnlockBatch unlockBatch;
+	private final Settings settings;
+	private final ExecutorService executor;
 	private final StringBinding vaultName;
 	private final BooleanProperty unlockInProgress = new SimpleBooleanProperty();
 	private final ObjectBinding<ContentDisplay> unlockButtonContentDisplay = Bindings.createObjectBinding(this::getUnlockButtonContentDisplay, unlockInProgress);
@@ -71,6 +79,7 @@ public class PassphraseEntryController implements FxController {
 	private final BooleanProperty unlockButtonSecubeVisible = new SimpleBooleanProperty();
 	private final BooleanProperty unlockButtonVisible = new SimpleBooleanProperty();
 	public boolean visibleListEmpty;
+	private DeviceDiscovery.Watch deviceWatch;
 
 	/* FXML */
 	public NiceSecurePasswordField passwordField;
@@ -92,13 +101,18 @@ public class PassphraseEntryController implements FxController {
 	public Button unlockButton;
 
 	@Inject
-	public PassphraseEntryController(@KeyLoading Stage window, @KeyLoading Vault vault, CompletableFuture<PassphraseEntryResult> result, @Nullable @Named("savedPassword") Passphrase savedPassword, ForgetPasswordComponent.Builder forgetPassword, KeychainManager keychain) {
+	public PassphraseEntryController(@KeyLoading Stage window, @KeyLoading Vault vault, CompletableFuture<PassphraseEntryResult> result, @Nullable @Named("savedPassword") Passphrase savedPassword, ForgetPasswordComponent.Builder forgetPassword, KeychainManager keychain, MiddlewareSessionManager secubeSessions, DeviceDiscovery deviceDiscovery, SecubeUnlockBatch unlockBatch, Settings settings, ExecutorService executor) {
 		this.window = window;
 		this.vault = vault;
 		this.result = result;
 		this.savedPassword = savedPassword;
 		this.forgetPassword = forgetPassword;
 		this.keychain = keychain;
+		this.secubeSessions = secubeSessions;
+		this.deviceDiscovery = deviceDiscovery;
+		this.unlockBatch = unlockBatch;
+		this.settings = settings;
+		this.executor = executor;
 		this.vaultName = WeakBindings.bindString(vault.displayNameProperty());
 		window.setOnHiding(this::windowClosed);
 		result.whenCompleteAsync((r, t) -> unlockInProgress.set(false), Platform::runLater);
@@ -110,7 +124,7 @@ public class PassphraseEntryController implements FxController {
 			this.unlockButtonSecubeVisible.set(true);
 			this.unlockButtonVisible.set(false);
 			this.enterPasswordField.setVisible(false);
-
+			secubeSessions.prepare();
 		} else {
 			this.unlockButtonVisible.set(true);
 			this.unlockButtonSecubeVisible.set(false);
@@ -166,38 +180,13 @@ public class PassphraseEntryController implements FxController {
 		result.whenCompleteAsync((r, t) -> stopUnlockAnimation());
 		
 		// SEcube list (if so)
-		try {
-			ObservableList<String> serialNumberList = FXCollections.observableArrayList();
-			String cmd = "../dist/win/secube_listing.exe";
-			InputStream stdin = Runtime.getRuntime().exec(cmd).getInputStream();
-			InputStreamReader isr = new InputStreamReader(stdin);
-			BufferedReader br = new BufferedReader(isr);
-			//StringBuilder sb = new StringBuilder();
-			String s1;
-			while ((s1 = br.readLine()) != null) {
-				//sb.append(s1);
-				serialNumberList.add(s1);
-			}
-			CharSequence errorSeq = "Error : ";
-			if (serialNumberList.toString().contains(errorSeq)) {
-				 //throw new IOException("Failed getting password. " + serialNumberList.toString());
-//				secubeSerialList.setVisible(false);
-//				PIN.setVisible(false);
-//				labelPIN.setVisible(false);
-//				labelList.setVisible(false);
-				noSEcubeFound.setVisible(true);
-				normalWindow.setVisible(false);
-				unlockButton.disableProperty().set(true);
-			} else {
-				secubeSerialList.setItems(serialNumberList);	
-				secubeSerialList.setOnAction(this::onComboBoxSelected);
-				//secubeSerialList.setVisible(true);
-				noSEcubeFound.setVisible(false);
-			}
-			
-		} catch (IOException e) {
-			throw new IOException("Failed getting password", e);
-		}
+		secubeSerialList.setItems(deviceDiscovery.getSerialNumbers());
+		secubeSerialList.setOnAction(this::onComboBoxSelected);
+		secubeSerialList.disableProperty().bind(settings.secubeQueryAllDevices());
+		noSEcubeFound.visibleProperty().bind(deviceDiscovery.noDevicesFoundProperty());
+		normalWindow.visibleProperty().bind(deviceDiscovery.noDevicesFoundProperty().not());
+		unlockButton.disableProperty().bind(deviceDiscovery.noDevicesFoundProperty());
+		deviceWatch = deviceDiscovery.watch();
 	}
 	
 	private void onComboBoxSelected(ActionEvent event) {
@@ -210,6 +199,9 @@ public class PassphraseEntryController implements FxController {
 	}
 
 	private void windowClosed(WindowEvent windowEvent) {
+		if (deviceWatch != null) {
+			deviceWatch.close();
+		}
 		if(!result.isDone()) {
 			result.cancel(true);
 			LOG.debug("Unlock canceled by user.");
@@ -232,7 +224,7 @@ public class PassphraseEntryController implements FxController {
 	}
 	
 	@FXML
-	public void unlocksecube() throws Exception {
+	public void unlocksecube() {
 		
 		/* Here a request should be sent to the secube with the vault ID 
 		 * and the SEcube will send back the password to unlock the vault. 
@@ -240,30 +232,101 @@ public class PassphraseEntryController implements FxController {
 		
 		LOG.trace("UnlockController.unlock() secube");
 		unlockInProgress.set(true);
-		
-		try {
-			// Convert the IDVault to an ID compatible with SECube, between 1 and 999
-			byte[] randomBytes = new byte[9];
-			randomBytes = BaseEncoding.base64Url().decode(this.vault.getId());
-			int randomNumber = ((randomBytes[0] & 0xFF) << 8) | (randomBytes[1] & 0xFF);
-	        String SECubeVaultID = Integer.toString(1 + (randomNumber % 999));
-			
-			String key = Communication.main("retrieve-key", serialNumberChoosen, PIN.getCharacters().toString(), SECubeVaultID);
-			
-			Passphrase pw = Passphrase.copyOf(key);
-			
-			result.complete(new PassphraseEntryResult(pw, savePasswordCheckbox.isSelected()));
-			
-			startUnlockAnimation();
-			
-			if(key.contains("Error:")) {
-				throw new IOException("Failed initialize vault. " + key);
+
+		// Convert the IDVault to an ID compatible with SECube, between 1 and 999
+		String SECubeVaultID = SecubeVaultIds.of(this.vault.getId());
+		// the controls are read here, the device is asked in the background, as it may keep us waiting for a while
+		List<Vault> batchVaults = unlockBatch.followersOf(vault);
+		List<String> connected = List.copyOf(deviceDiscovery.getSerialNumbers());
+		boolean queryAllDevices = settings.secubeQueryAllDevices().get();
+		String selected = queryAllDevices ? null : selectedDevice();
+		Passphrase pin = Passphrase.copyOf(PIN.getCharacters());
+
+		CompletableFuture.supplyAsync(() -> {
+			try {
+				if (batchVaults.isEmpty() && queryAllDevices) {
+					return secubeSessions.retrieveKeyFromAny(connected, pin, SECubeVaultID);
+				} else if (batchVaults.isEmpty()) {
+					return secubeSessions.request("retrieve-key", chosenDevice(selected, connected), pin, SECubeVaultID);
+				} else {
+					return retrieveKeysForBatch(SECubeVaultID, batchVaults, batchDevice(selected, connected), pin);
+				}
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			} finally {
+				pin.destroy();
 			}
-		} catch (IOException e) {
-			throw new IOException("Failed getting password", e);
+		}, executor).whenCompleteAsync(this::retrievedKey, Platform::runLater);
+	}
+
+	private void retrievedKey(String key, Throwable exception) {
+		if (exception != null) {
+			var cause = exception instanceof CompletionException ? exception.getCause() : exception;
+			LOG.warn("Failed getting password from SEcube.", cause);
+			result.completeExceptionally(new IOException("Failed getting password", cause));
+			return;
 		}
+		if (MiddlewareSessionManager.isError(key)) {
+			LOG.warn("Failed initialize vault. {}", key);
+		}
+		result.complete(new PassphraseEntryResult(Passphrase.copyOf(key), savePasswordCheckbox.isSelected()));
+		startUnlockAnimation();
+	}
+
+	private String selectedDevice() {
+		return serialNumberChoosen != null ? serialNumberChoosen : secubeSerialList.getSelectionModel().getSelectedItem();
+	}
+
+	/**
+	 * Single requests go to the selected device, or to the only connected one if none has been selected.
+	 */
+	private static String chosenDevice(String selected, List<String> connected) throws IOException {
+		if (selected != null) {
+			return selected;
+		} else if (connected.size() == 1) {
+			return connected.get(0);
+		} else {
+			throw new IOException(connected.isEmpty() ? "No SEcube connected." : "No SEcube selected.");
+		}
+	}
+
+	/**
+	 * Retrieves the keys of the other vaults in this vault's {@link SecubeUnlockBatch batch} along with this vault's key,
+	 * so their unlock workflows don't need to ask for the PIN again.
+	 */
+	private String retrieveKeysForBatch(String SECubeVaultID, List<Vault> batchVaults, String serialNumber, CharSequence pin) throws Exception {
+		Map<Vault, String> batchVaultIds = new LinkedHashMap<>();
+		batchVaults.forEach(v -> batchVaultIds.put(v, SecubeVaultIds.of(v.getId())));
+		List<String> ids = new ArrayList<>();
+		ids.add(SECubeVaultID);
+		ids.addAll(batchVaultIds.values());
+
+		Map<String, String> keys = secubeSessions.retrieveKeys(serialNumber, pin, ids);
+
+		Map<Vault, Passphrase> batchKeys = new HashMap<>();
+		batchVaultIds.forEach((v, id) -> {
+			String batchKey = keys.get(id);
+			if (batchKey != null && !MiddlewareSessionManager.isError(batchKey)) {
+				batchKeys.put(v, Passphrase.copyOf(batchKey));
+			} else {
+				LOG.info("No key for vault {} on SEcube {}: {}", v.getDisplayName(), serialNumber, batchKey);
+			}
+		});
+		unlockBatch.complete(vault, batchKeys);
+		return keys.get(SECubeVaultID);
+	}
+
+	/**
+	 * Batches are served by a single device, which is the first connected one if no device can be chosen.
+	 */
+	private static String batchDevice(String selected, List<String> connected) throws IOException {
+		if (selected != null) {
+			return selected;
+		} else if (connected.isEmpty()) {
+			throw new IOException("No SEcube connected.");
+		}
+		return connected.get(0);
 	}
-	
 
 	private void startUnlockAnimation() {
 		leftArm.setVisible(true);
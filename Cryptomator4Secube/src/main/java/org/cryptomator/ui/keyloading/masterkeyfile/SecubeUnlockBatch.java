@@ -0,0 +1,133 @@
+package org.cryptomator.ui.keyloading.masterkeyfile;
+
+import org.cryptomator.common.Passphrase;
+import org.cryptomator.common.vaults.Vault;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unlocks several SEcube vaults with a single PIN prompt.
+ * <p>
+ * The unlock workflow of the first vault of a batch (the leader) asks for the PIN and retrieves the keys of all vaults in the batch
+ * from the device in one go. The keys of the other vaults are kept here until their own unlock workflows {@link #takeKey(Vault) pick them up}
+ * instead of asking for the PIN again. Keys not picked up within {@value #KEY_TTL_SECONDS} seconds are discarded.
+ */
+@Singleton
+public class SecubeUnlockBatch {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SecubeUnlockBatch.class);
+	private static final long KEY_TTL_SECONDS = 120;
+
+	private final ScheduledExecutorService scheduler;
+	private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+	private final Map<String, Passphrase> pendingKeys = new ConcurrentHashMap<>();
+
+	@Inject
+	public SecubeUnlockBatch(ScheduledExecutorService scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Registers vaults to be unlocked along with the leader.
+	 *
+	 * @param leader The vault whose unlock workflow asks for the PIN
+	 * @param followers The vaults whose keys are retrieved together with the leader's key
+	 * @return A future completing once the keys have been retrieved or the leader's unlock workflow ended without retrieving them.
+	 * Start the unlock workflows of the followers afterwards.
+	 */
+	public CompletableFuture<Void> begin(Vault leader, List<Vault> followers) {
+		var batch = new Batch(followers);
+		var previous = batches.put(leader.getId(), batch);
+		if (previous != null) {
+			previous.done().complete(null);
+		}
+		return batch.done();
+	}
+
+	/**
+	 * @param leader A vault about to ask for the PIN
+	 * @return The vaults whose keys should be retrieved along with the leader's key
+	 */
+	List<Vault> followersOf(Vault leader) {
+		var batch = batches.get(leader.getId());
+		return batch != null ? batch.followers() : List.of();
+	}
+
+	/**
+	 * Hands over the keys retrieved for the followers and ends the batch.
+	 *
+	 * @param leader The vault that retrieved the keys
+	 * @param keys The keys of all followers with a key on the device
+	 */
+	void complete(Vault leader, Map<Vault, Passphrase> keys) {
+		var batch = batches.remove(leader.getId());
+		if (batch == null) {
+			keys.values().forEach(Passphrase::destroy);
+			return;
+		}
+		keys.forEach((vault, key) -> {
+			var previous = pendingKeys.put(vault.getId(), key);
+			if (previous != null) {
+				previous.destroy();
+			}
+			scheduler.schedule(() -> discardKey(vault.getId(), key), KEY_TTL_SECONDS, TimeUnit.SECONDS);
+		});
+		batch.done().complete(null);
+	}
+
+	/**
+	 * Ends the batch of the given leader without handing over keys. Does nothing if the leader has no open batch.
+	 *
+	 * @param leader The leader of the batch
+	 */
+	void abort(Vault leader) {
+		var batch = batches.remove(leader.getId());
+		if (batch != null) {
+			batch.done().complete(null);
+		}
+	}
+
+	/**
+	 * @param vault A follower of a completed batch
+	 * @return The key retrieved by the leader, if any. The caller is responsible for destroying it.
+	 */
+	Optional<Passphrase> takeKey(Vault vault) {
+		return Optional.ofNullable(pendingKeys.remove(vault.getId()));
+	}
+
+	private void discardKey(String vaultId, Passphrase key) {
+		if (pendingKeys.remove(vaultId, key)) {
+			LOG.debug("Discarding unused SEcube key of vault {}", vaultId);
+			key.destroy();
+		}
+	}
+
+	private static class Batch {
+
+		private final List<Vault> followers;
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+		Batch(List<Vault> followers) {
+			this.followers = List.copyOf(followers);
+		}
+
+		List<Vault> followers() {
+			return followers;
+		}
+
+		CompletableFuture<Void> done() {
+			return done;
+		}
+	}
+
+}
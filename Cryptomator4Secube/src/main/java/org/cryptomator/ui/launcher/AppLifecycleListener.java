@@ -3,8 +3,8 @@ package org.cryptomator.ui.launcher;
 import org.cryptomator.common.ShutdownHook;
 import org.cryptomator.common.vaults.LockNotCompletedException;
 import org.cryptomator.common.vaults.Vault;
+import org.cryptomator.common.vaults.VaultLockCoordinator;
 import org.cryptomator.common.vaults.VaultState;
-import org.cryptomator.common.vaults.Volume;
 import org.cryptomator.ui.preferences.SelectedPreferencesTab;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +22,7 @@ import java.awt.desktop.QuitResponse;
 import java.awt.desktop.QuitStrategy;
 import java.util.EnumSet;
 import java.util.EventObject;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -37,13 +38,15 @@ public class AppLifecycleListener {
 	private final FxApplicationStarter fxApplicationStarter;
 	private final CountDownLatch shutdownLatch;
 	private final ObservableList<Vault> vaults;
+	private final VaultLockCoordinator lockCoordinator;
 	private final AtomicBoolean allowQuitWithoutPrompt;
 
 	@Inject
-	AppLifecycleListener(FxApplicationStarter fxApplicationStarter, @Named("shutdownLatch") CountDownLatch shutdownLatch, ShutdownHook shutdownHook, ObservableList<Vault> vaults) {
+	AppLifecycleListener(FxApplicationStarter fxApplicationStarter, @Named("shutdownLatch") CountDownLatch shutdownLatch, ShutdownHook shutdownHook, ObservableList<Vault> vaults, VaultLockCoordinator lockCoordinator) {
 		this.fxApplicationStarter = fxApplicationStarter;
 		this.shutdownLatch = shutdownLatch;
 		this.vaults = vaults;
+		this.lockCoordinator = lockCoordinator;
 		this.allowQuitWithoutPrompt = new AtomicBoolean(true);
 		vaults.addListener(this::vaultListChanged);
 
@@ -67,7 +70,8 @@ public class AppLifecycleListener {
 			Desktop.getDesktop().setQuitStrategy(QuitStrategy.CLOSE_ALL_WINDOWS);
 		}
 
-		shutdownHook.runOnShutdown(this::forceUnmountRemainingVaults);
+		// run before the executors shut down, as the vaults get locked concurrently:
+		shutdownHook.runOnShutdown(ShutdownHook.PRIO_FIRST, this::forceUnmountRemainingVaults);
 	}
 
 	/**
@@ -130,16 +134,16 @@ public class AppLifecycleListener {
 	}
 
 	private void forceUnmountRemainingVaults() {
-		for (Vault vault : vaults) {
-			if (vault.isUnlocked()) {
-				try {
-					vault.lock(true);
-				} catch (Volume.VolumeException e) {
-					LOG.error("Failed to unmount vault " + vault.getPath(), e);
-				} catch (LockNotCompletedException e) {
-					LOG.error("Failed to lock vault " + vault.getPath(), e);
-				}
-			}
+		List<Vault> unlockedVaults = vaults.stream().filter(Vault::isUnlocked).toList();
+		if (unlockedVaults.isEmpty()) {
+			return;
+		}
+		try {
+			lockCoordinator.lockAll(unlockedVaults, true);
+		} catch (LockNotCompletedException e) {
+			LOG.error("Failed to lock all vaults", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
 
@@ -0,0 +1,153 @@
+package org.cryptomator.ui.launcher;
+
+import org.cryptomator.common.Environment;
+import org.cryptomator.common.keychain.KeychainManager;
+import org.cryptomator.common.vaults.Vault;
+import org.cryptomator.integrations.keychain.KeychainAccessException;
+import org.cryptomator.ui.fxapp.FxApplication;
+import org.cryptomator.ui.keyloading.masterkeyfile.SecubeUnlockBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Unlocks the vaults marked to be unlocked after startup.
+ * <p>
+ * Vaults with a password in the system keychain don't need any user interaction. They are unlocked concurrently, but at most
+ * {@link Environment#getAutoUnlockParallelism()} at a time, as each of them derives its key and mounts its volume. Vaults asking for a
+ * password or PIN are unlocked one after another, so only one prompt is shown at a time. All SEcube vaults share a single PIN prompt,
+ * see {@link SecubeUnlockBatch}.
+ */
+@Singleton
+public class StartupUnlocker {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StartupUnlocker.class);
+
+	private final KeychainManager keychain;
+	private final SecubeUnlockBatch secubeUnlockBatch;
+	private final int parallelism;
+
+	@Inject
+	public StartupUnlocker(KeychainManager keychain, SecubeUnlockBatch secubeUnlockBatch, Environment environment) {
+		this.keychain = keychain;
+		this.secubeUnlockBatch = secubeUnlockBatch;
+		this.parallelism = environment.getAutoUnlockParallelism();
+	}
+
+	/**
+	 * @param app The application running the unlock workflows
+	 * @param vaults The locked vaults to unlock
+	 * @return A stage completing once every unlock workflow has ended
+	 */
+	public CompletionStage<Void> unlock(FxApplication app, List<Vault> vaults) {
+		long start = System.nanoTime();
+		var limiter = new Limiter(parallelism);
+		List<CompletableFuture<Boolean>> unattended = new ArrayList<>();
+		List<CompletableFuture<Boolean>> prompted = new ArrayList<>();
+		CompletableFuture<Boolean> previousPrompt = CompletableFuture.completedFuture(true);
+
+		List<Vault> secubeVaults = vaults.stream().filter(Vault::isSecube).toList();
+		if (!secubeVaults.isEmpty()) {
+			var leader = secubeVaults.get(0);
+			var followers = secubeVaults.subList(1, secubeVaults.size());
+			if (!followers.isEmpty()) {
+				// the followers get their keys along with the leader and unlock without user interaction
+				var keysRetrieved = secubeUnlockBatch.begin(leader, followers);
+				for (Vault vault : followers) {
+					unattended.add(keysRetrieved.thenCompose(ignored -> limiter.submit(() -> app.startUnlockWorkflowSecube(vault, Optional.empty()))));
+				}
+			}
+			previousPrompt = previousPrompt.thenCompose(ignored -> app.startUnlockWorkflowSecube(leader, Optional.empty()));
+			prompted.add(previousPrompt);
+		}
+		for (Vault vault : vaults.stream().filter(Predicate.not(Vault::isSecube)).toList()) {
+			if (isPassphraseStored(vault)) {
+				unattended.add(limiter.submit(() -> app.startUnlockWorkflow(vault, Optional.empty())));
+			} else {
+				previousPrompt = previousPrompt.thenCompose(ignored -> app.startUnlockWorkflow(vault, Optional.empty()));
+				prompted.add(previousPrompt);
+			}
+		}
+
+		var unattendedDone = CompletableFuture.allOf(unattended.toArray(CompletableFuture[]::new)).thenApply(ignored -> System.nanoTime());
+		var promptedDone = CompletableFuture.allOf(prompted.toArray(CompletableFuture[]::new));
+		return unattendedDone.thenCombine(promptedDone, (unattendedEnd, ignored) -> {
+			long unlocked = Stream.concat(unattended.stream(), prompted.stream()).filter(CompletableFuture::join).count();
+			LOG.info("Unlocked {} of {} vaults after startup in {} ms. {} unlocks without user interaction took {} ms.", unlocked, vaults.size(), //
+					(System.nanoTime() - start) / 1_000_000, unattended.size(), (unattendedEnd - start) / 1_000_000);
+			return null;
+		});
+	}
+
+	private boolean isPassphraseStored(Vault vault) {
+		if (!keychain.isSupported() || keychain.isLocked()) {
+			return false;
+		}
+		try {
+			return keychain.isPassphraseStored(vault.getId());
+		} catch (KeychainAccessException e) {
+			LOG.warn("Failed to look up passphrase of {} in system keychain.", vault.getDisplayName(), e);
+			return false;
+		}
+	}
+
+	/**
+	 * Starts unlocks as long as fewer than the given number are running and queues the others.
+	 */
+	private static class Limiter {
+
+		private final Queue<Runnable> queued = new ArrayDeque<>();
+		private int available;
+
+		Limiter(int limit) {
+			this.available = limit;
+		}
+
+		CompletableFuture<Boolean> submit(Supplier<CompletionStage<Boolean>> unlock) {
+			var result = new CompletableFuture<Boolean>();
+			Runnable start = () -> unlock.get().whenComplete((unlocked, e) -> {
+				release();
+				result.complete(e == null && unlocked);
+			});
+			boolean startNow;
+			synchronized (this) {
+				startNow = available > 0;
+				if (startNow) {
+					available--;
+				} else {
+					queued.add(start);
+				}
+			}
+			if (startNow) {
+				start.run();
+			}
+			return result;
+		}
+
+		private void release() {
+			Runnable next;
+			synchronized (this) {
+				next = queued.poll();
+				if (next == null) {
+					available++;
+				}
+			}
+			if (next != null) {
+				next.run();
+			}
+		}
+	}
+
+}
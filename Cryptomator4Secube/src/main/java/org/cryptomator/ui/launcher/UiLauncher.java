@@ -3,6 +3,7 @@ package org.cryptomator.ui.launcher;
 import dagger.Lazy;
 import org.cryptomator.common.settings.Settings;
 import org.cryptomator.common.vaults.Vault;
+import org.cryptomator.common.vaults.VaultState;
 import org.cryptomator.integrations.tray.TrayIntegrationProvider;
 import org.cryptomator.ui.fxapp.FxApplication;
 import org.cryptomator.ui.traymenu.TrayMenuComponent;
@@ -15,8 +16,9 @@ import javafx.collections.ObservableList;
 import java.awt.Desktop;
 import java.awt.SystemTray;
 import java.awt.desktop.AppReopenedListener;
-import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Singleton
 public class UiLauncher {
@@ -29,15 +31,17 @@ public class UiLauncher {
 	private final FxApplicationStarter fxApplicationStarter;
 	private final AppLaunchEventHandler launchEventHandler;
 	private final Optional<TrayIntegrationProvider> trayIntegration;
+	private final StartupUnlocker startupUnlocker;
 
 	@Inject
-	public UiLauncher(Settings settings, ObservableList<Vault> vaults, Lazy<TrayMenuComponent> trayMenu, FxApplicationStarter fxApplicationStarter, AppLaunchEventHandler launchEventHandler, Optional<TrayIntegrationProvider> trayIntegration) {
+	public UiLauncher(Settings settings, ObservableList<Vault> vaults, Lazy<TrayMenuComponent> trayMenu, FxApplicationStarter fxApplicationStarter, AppLaunchEventHandler launchEventHandler, Optional<TrayIntegrationProvider> trayIntegration, StartupUnlocker startupUnlocker) {
 		this.settings = settings;
 		this.vaults = vaults;
 		this.trayMenu = trayMenu;
 		this.fxApplicationStarter = fxApplicationStarter;
 		this.launchEventHandler = launchEventHandler;
 		this.trayIntegration = trayIntegration;
+		this.startupUnlocker = startupUnlocker;
 	}
 
 	public void launch() {
@@ -66,13 +70,13 @@ public class UiLauncher {
 		// register app reopen listener
 		Desktop.getDesktop().addAppEventListener((AppReopenedListener) e -> showMainWindowAsync(false));
 
-		// auto unlock
-		Collection<Vault> vaultsToAutoUnlock = vaults.filtered(this::shouldAttemptAutoUnlock);
-		if (!vaultsToAutoUnlock.isEmpty()) {
-			fxApplicationStarter.get().thenAccept(app -> {
-				for (Vault vault : vaultsToAutoUnlock) {
-					app.startUnlockWorkflow(vault, Optional.empty());
-				}
+		// auto unlock, as soon as the states of the vaults are known
+		List<Vault> autoUnlockCandidates = vaults.stream().filter(vault -> vault.getVaultSettings().unlockAfterStartup().get()).toList();
+		if (!autoUnlockCandidates.isEmpty()) {
+			var statesDetermined = CompletableFuture.allOf(autoUnlockCandidates.stream().map(vault -> vault.stateProperty().stateReached(state -> state != VaultState.Value.PROCESSING)).toArray(CompletableFuture[]::new));
+			statesDetermined.thenCombine(fxApplicationStarter.get(), (ignored, app) -> app).thenAccept(app -> {
+				List<Vault> vaultsToAutoUnlock = autoUnlockCandidates.stream().filter(this::shouldAttemptAutoUnlock).toList();
+				startupUnlocker.unlock(app, vaultsToAutoUnlock);
 			});
 		}
 
@@ -80,7 +84,7 @@ public class UiLauncher {
 	}
 
 	private boolean shouldAttemptAutoUnlock(Vault vault) {
-		return vault.isLocked() && vault.getVaultSettings().unlockAfterStartup().get();
+		return vault.isLocked() || vault.isSecube();
 	}
 
 	private void showMainWindowAsync(boolean minimize) {
@@ -1,7 +1,6 @@
 package org.cryptomator.ui.mainwindow;
 
 import org.apache.commons.lang3.SystemUtils;
-import org.cryptomator.common.vaults.Vault;
 import org.cryptomator.common.vaults.VaultListManager;
 import org.cryptomator.cryptofs.CryptoFileSystemProvider;
 import org.cryptomator.cryptofs.DirStructure;
@@ -13,8 +12,6 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javafx.beans.Observable;
 import javafx.beans.property.BooleanProperty;
-import javafx.beans.property.ObjectProperty;
-import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.fxml.FXML;
 import javafx.scene.input.DragEvent;
@@ -38,17 +35,15 @@ public class MainWindowController implements FxController {
 
 	private final Stage window;
 	private final VaultListManager vaultListManager;
-	private final ReadOnlyObjectProperty<Vault> selectedVault;
 	private final WrongFileAlertComponent.Builder wrongFileAlert;
 	private final BooleanProperty draggingOver = new SimpleBooleanProperty();
 	private final BooleanProperty draggingVaultOver = new SimpleBooleanProperty();
 	public StackPane root;
 
 	@Inject
-	public MainWindowController(@MainWindow Stage window, VaultListManager vaultListManager, ObjectProperty<Vault> selectedVault, WrongFileAlertComponent.Builder wrongFileAlert) {
+	public MainWindowController(@MainWindow Stage window, VaultListManager vaultListManager, WrongFileAlertComponent.Builder wrongFileAlert) {
 		this.window = window;
 		this.vaultListManager = vaultListManager;
-		this.selectedVault = selectedVault;
 		this.wrongFileAlert = wrongFileAlert;
 	}
 
@@ -66,9 +61,8 @@ public class MainWindowController implements FxController {
 	}
 
 	private void mainWindowFocusChanged(Observable observable) {
-		var v = selectedVault.get();
-		if (v != null) {
-			VaultListManager.redetermineVaultState(v);
+		if (window.isFocused()) {
+			vaultListManager.redetermineVaultStates();
 		}
 	}
 
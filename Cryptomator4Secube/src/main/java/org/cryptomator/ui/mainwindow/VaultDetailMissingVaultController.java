@@ -17,14 +17,16 @@ import java.util.ResourceBundle;
 public class VaultDetailMissingVaultController implements FxController {
 
 	private final ObjectProperty<Vault> vault;
+	private final VaultListManager vaultListManager;
 	private final RemoveVaultComponent.Builder removeVault;
 	private final ResourceBundle resourceBundle;
 	private final Stage window;
 
 
 	@Inject
-	public VaultDetailMissingVaultController(ObjectProperty<Vault> vault, RemoveVaultComponent.Builder removeVault, ResourceBundle resourceBundle, @MainWindow Stage window) {
+	public VaultDetailMissingVaultController(ObjectProperty<Vault> vault, VaultListManager vaultListManager, RemoveVaultComponent.Builder removeVault, ResourceBundle resourceBundle, @MainWindow Stage window) {
 		this.vault = vault;
+		this.vaultListManager = vaultListManager;
 		this.removeVault = removeVault;
 		this.resourceBundle = resourceBundle;
 		this.window = window;
@@ -32,7 +34,7 @@ public class VaultDetailMissingVaultController implements FxController {
 
 	@FXML
 	public void recheck() {
-		VaultListManager.redetermineVaultState(vault.get());
+		vaultListManager.redetermineVaultState(vault.get());
 	}
 
 	@FXML
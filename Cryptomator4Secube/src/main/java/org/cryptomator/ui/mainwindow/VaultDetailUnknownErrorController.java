@@ -18,13 +18,15 @@ import javafx.stage.Stage;
 public class VaultDetailUnknownErrorController implements FxController {
 
 	private final ObjectProperty<Vault> vault;
+	private final VaultListManager vaultListManager;
 	private final ErrorComponent.Builder errorComponentBuilder;
 	private final Stage errorWindow;
 	private final RemoveVaultComponent.Builder removeVault;
 
 	@Inject
-	public VaultDetailUnknownErrorController(ObjectProperty<Vault> vault, ErrorComponent.Builder errorComponentBuilder, @Named("errorWindow") Stage errorWindow, RemoveVaultComponent.Builder removeVault) {
+	public VaultDetailUnknownErrorController(ObjectProperty<Vault> vault, VaultListManager vaultListManager, ErrorComponent.Builder errorComponentBuilder, @Named("errorWindow") Stage errorWindow, RemoveVaultComponent.Builder removeVault) {
 		this.vault = vault;
+		this.vaultListManager = vaultListManager;
 		this.errorComponentBuilder = errorComponentBuilder;
 		this.errorWindow = errorWindow;
 		this.removeVault = removeVault;
@@ -37,7 +39,7 @@ public class VaultDetailUnknownErrorController implements FxController {
 
 	@FXML
 	public void reload() {
-		VaultListManager.redetermineVaultState(vault.get());
+		vaultListManager.redetermineVaultState(vault.get());
 	}
 
 	@FXML
@@ -53,6 +53,7 @@ public class GeneralPreferencesController implements FxController {
 	public CheckBox showMinimizeButtonCheckbox;
 	public CheckBox showTrayIconCheckbox;
 	public CheckBox startHiddenCheckbox;
+	public CheckBox secubeQueryAllDevicesCheckbox;
 	public CheckBox debugModeCheckbox;
 	public CheckBox autoStartCheckbox;
 	public ToggleGroup nodeOrientation;
@@ -91,6 +92,8 @@ public class GeneralPreferencesController implements FxController {
 
 		startHiddenCheckbox.selectedProperty().bindBidirectional(settings.startHidden());
 
+		secubeQueryAllDevicesCheckbox.selectedProperty().bindBidirectional(settings.secubeQueryAllDevices());
+
 		debugModeCheckbox.selectedProperty().bindBidirectional(settings.debugMode());
 
 		autoStartProvider.ifPresent(autoStart -> autoStartCheckbox.setSelected(autoStart.isEnabled()));
@@ -1,5 +1,8 @@
 package org.cryptomator.ui.stats;
 
+import org.cryptomator.common.fs.FileSystemOperationStats.Operation;
+import org.cryptomator.common.settings.VolumeImpl;
+import org.cryptomator.common.vaults.PhaseLatencies.Phase;
 import org.cryptomator.common.vaults.Vault;
 import org.cryptomator.common.vaults.VaultStats;
 import org.cryptomator.ui.common.FxController;
@@ -11,6 +14,8 @@ import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.beans.binding.DoubleBinding;
 import javafx.beans.binding.LongBinding;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
@@ -20,13 +25,16 @@ import javafx.scene.chart.XYChart.Data;
 import javafx.scene.chart.XYChart.Series;
 import javafx.stage.Stage;
 import javafx.util.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.ResourceBundle;
 
 @VaultStatisticsScoped
 public class VaultStatisticsController implements FxController {
 
 	private static final int IO_SAMPLING_STEPS = 30;
 	private static final double IO_SAMPLING_INTERVAL = 1;
+	private static final int HOT_PATHS_SHOWN = 5;
 
 	private final VaultStatisticsComponent component; // keep a strong reference to the component (see component's javadoc)
 	private final VaultStats stats;
@@ -46,6 +54,10 @@ public class VaultStatisticsController implements FxController {
 	private final LongBinding filesWritten;
 	private final LongBinding bpsEncrypted;
 	private final LongBinding bpsDecrypted;
+	private final ResourceBundle resourceBundle;
+	private final StringProperty phaseLatencies = new SimpleStringProperty();
+	private final StringProperty operationLatencies = new SimpleStringProperty();
+	private final StringProperty metadataCacheRates = new SimpleStringProperty();
 
 	public AreaChart<Number, Number> readChart;
 	public AreaChart<Number, Number> writeChart;
@@ -55,8 +67,9 @@ public class VaultStatisticsController implements FxController {
 	public NumberAxis writeChartYAxis;
 
 	@Inject
-	public VaultStatisticsController(VaultStatisticsComponent component, @VaultStatisticsWindow Stage window, @VaultStatisticsWindow Vault vault) {
+	public VaultStatisticsController(VaultStatisticsComponent component, @VaultStatisticsWindow Stage window, @VaultStatisticsWindow Vault vault, ResourceBundle resourceBundle) {
 		this.component = component;
+		this.resourceBundle = resourceBundle;
 		this.stats = vault.getStats();
 		this.readData = new Series<>();
 		this.writeData = new Series<>();
@@ -76,6 +89,11 @@ public class VaultStatisticsController implements FxController {
 
 		this.ioAnimation = new Timeline(); //TODO Research better timer
 		ioAnimation.getKeyFrames().add(new KeyFrame(Duration.seconds(IO_SAMPLING_INTERVAL), new IoSamplingAnimationHandler(readData, writeData)));
+		ioAnimation.getKeyFrames().add(new KeyFrame(Duration.seconds(IO_SAMPLING_INTERVAL), evt -> {
+			updatePhaseLatencies();
+			updateOperationLatencies();
+			updateMetadataCacheRates();
+		}));
 		ioAnimation.setCycleCount(Animation.INDEFINITE);
 		ioAnimation.play();
 
@@ -89,6 +107,61 @@ public class VaultStatisticsController implements FxController {
 	public void initialize() {
 		readChart.getData().addAll(readData);
 		writeChart.getData().addAll(writeData);
+		updatePhaseLatencies();
+		updateOperationLatencies();
+		updateMetadataCacheRates();
+	}
+
+	private void updatePhaseLatencies() {
+		var latencies = stats.getPhaseLatencies();
+		var lines = new ArrayList<String>();
+		for (var volumeType : VolumeImpl.values()) {
+			for (var phase : Phase.values()) {
+				latencies.get(volumeType, phase).ifPresent(histogram -> lines.add(String.format(resourceBundle.getString("stats.phases.line"), //
+						volumeType.getDisplayName(), //
+						resourceBundle.getString("stats.phases." + phase.name()), //
+						histogram.getCount(), //
+						histogram.getPercentile(50).toMillis(), //
+						histogram.getPercentile(95).toMillis(), //
+						histogram.getMax().toMillis())));
+			}
+		}
+		phaseLatencies.set(lines.isEmpty() ? resourceBundle.getString("stats.phases.none") : String.join("\n", lines));
+	}
+
+	private void updateOperationLatencies() {
+		var operationStats = stats.getOperationStats();
+		if (operationStats.isEmpty()) {
+			operationLatencies.set(resourceBundle.getString("stats.operations.none"));
+			return;
+		}
+		var operations = operationStats.get();
+		var lines = new ArrayList<String>();
+		lines.add(String.format(resourceBundle.getString("stats.operations.sampling"), operations.getSamplingPercent()));
+		for (var operation : Operation.values()) {
+			var histogram = operations.getLatencies(operation);
+			if (histogram.getCount() > 0) {
+				lines.add(String.format(resourceBundle.getString("stats.operations.line"), //
+						resourceBundle.getString("stats.operations." + operation.name()), //
+						operations.getCount(operation), //
+						histogram.getPercentile(50).toNanos() / 1000, //
+						histogram.getPercentile(99).toNanos() / 1000, //
+						histogram.getMax().toNanos() / 1000));
+			}
+		}
+		var hotPaths = operations.getHottestPaths(HOT_PATHS_SHOWN);
+		if (!hotPaths.isEmpty()) {
+			lines.add(resourceBundle.getString("stats.operations.hotPaths"));
+			hotPaths.forEach(p -> lines.add(String.format(resourceBundle.getString("stats.operations.hotPath"), p.path(), p.count())));
+		}
+		operationLatencies.set(String.join("\n", lines));
+	}
+
+	private void updateMetadataCacheRates() {
+		metadataCacheRates.set(stats.getMetadataCacheStats().map(cache -> String.join("\n", //
+				String.format(resourceBundle.getString("stats.metadataCache.attributes"), cache.getAttributeHits(), cache.getAttributeMisses(), cache.getAttributeHitRate() * 100), //
+				String.format(resourceBundle.getString("stats.metadataCache.listings"), cache.getListingHits(), cache.getListingMisses(), cache.getListingHitRate() * 100) //
+		)).orElse(resourceBundle.getString("stats.metadataCache.none")));
 	}
 
 	private class IoSamplingAnimationHandler implements EventHandler<ActionEvent> {
@@ -184,6 +257,30 @@ public class VaultStatisticsController implements FxController {
 
 	public long getTotalBytesDecrypted() { return totalBytesDecrypted.get();}
 
+	public StringProperty phaseLatenciesProperty() {
+		return phaseLatencies;
+	}
+
+	public String getPhaseLatencies() {
+		return phaseLatencies.get();
+	}
+
+	public StringProperty operationLatenciesProperty() {
+		return operationLatencies;
+	}
+
+	public String getOperationLatencies() {
+		return operationLatencies.get();
+	}
+
+	public StringProperty metadataCacheRatesProperty() {
+		return metadataCacheRates;
+	}
+
+	public String getMetadataCacheRates() {
+		return metadataCacheRates.get();
+	}
+
 	public LongBinding bpsEncryptedProperty() {
 		return bpsEncrypted;
 	}
@@ -13,8 +13,9 @@ import org.cryptomator.common.vaults.Vault;
 import javax.inject.Named;
 import javafx.stage.Stage;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 
 
 @UnlockScoped
@@ -25,11 +26,17 @@ public interface UnlockComponent {
 
 	UnlockWorkflow unlockWorkflow();
 
-	default Future<Boolean> startUnlockWorkflow() {
-		
+	/**
+	 * @return A stage completing with <code>true</code> once the vault is unlocked, or with <code>false</code> if unlocking failed or was cancelled
+	 */
+	default CompletionStage<Boolean> startUnlockWorkflow() {
 		UnlockWorkflow workflow = unlockWorkflow();
+		CompletableFuture<Boolean> unlocked = new CompletableFuture<>();
+		workflow.setOnSucceeded(event -> unlocked.complete(workflow.getValue()));
+		workflow.setOnFailed(event -> unlocked.complete(false));
+		workflow.setOnCancelled(event -> unlocked.complete(false));
 		defaultExecutorService().submit(workflow);
-		return workflow;
+		return unlocked;
 	}
 
 	@Subcomponent.Builder
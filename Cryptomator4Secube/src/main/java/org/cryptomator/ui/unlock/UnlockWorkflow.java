@@ -3,8 +3,10 @@ package org.cryptomator.ui.unlock;
 import com.google.common.base.Throwables;
 import dagger.Lazy;
 import org.apache.commons.lang3.SystemUtils;
+import org.cryptomator.common.jfr.UnlockWorkflowEvent;
 import org.cryptomator.common.mountpoint.InvalidMountPointException;
 import org.cryptomator.common.vaults.MountPointRequirement;
+import org.cryptomator.common.vaults.PhaseLatencies.Phase;
 import org.cryptomator.common.vaults.Vault;
 import org.cryptomator.common.vaults.VaultState;
 import org.cryptomator.common.vaults.Volume.VolumeException;
@@ -26,6 +28,7 @@ import java.io.IOException;
 import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.NotDirectoryException;
+import java.time.Duration;
 
 /**
  * A multi-step task that consists of background activities as well as user interaction.
@@ -58,12 +61,25 @@ public class UnlockWorkflow extends Task<Boolean> {
 
 	@Override
 	protected Boolean call() throws InterruptedException, IOException, VolumeException, InvalidMountPointException, CryptoException {
+		var event = new UnlockWorkflowEvent();
+		event.begin();
+		event.outcome = "failed";
 		try {
+			long start = System.nanoTime();
 			attemptUnlock();
+			recordUnlockTime(Duration.ofNanos(System.nanoTime() - start));
+			event.outcome = "succeeded";
 			return true;
 		} catch (UnlockCancelledException e) {
+			event.outcome = "cancelled";
 			cancel(false); // set Tasks state to cancelled
 			return false;
+		} finally {
+			if (event.shouldCommit()) {
+				event.vaultId = vault.getId();
+				event.volumeType = vault.getVolume().map(volume -> volume.getImplementationType().name()).orElse(null);
+				event.commit();
+			}
 		}
 	}
 
@@ -79,6 +95,14 @@ public class UnlockWorkflow extends Task<Boolean> {
 		}
 	}
 
+	private void recordUnlockTime(Duration duration) {
+		var latencies = vault.getStats().getPhaseLatencies();
+		vault.getVolume().ifPresent(volume -> latencies.record(volume.getImplementationType(), Phase.UNLOCK, duration));
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Unlock latencies of '{}' so far:{}{}", vault.getDisplayName(), System.lineSeparator(), latencies);
+		}
+	}
+
 	private void handleInvalidMountPoint(InvalidMountPointException impExc) {
 		var requirement = vault.getVolume().orElseThrow(() -> new IllegalStateException("Invalid Mountpoint without a Volume?!", impExc)).getMountPointRequirement();
 		assert requirement != MountPointRequirement.NONE; //An invalid MountPoint with no required MountPoint doesn't seem sensible
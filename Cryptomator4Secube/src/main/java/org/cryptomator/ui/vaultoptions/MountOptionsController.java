@@ -27,12 +27,16 @@ import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.ResourceBundle;
 import java.util.Set;
 
 @VaultOptionsScoped
 public class MountOptionsController implements FxController {
 
+	private static final List<Integer> SAMPLING_PERCENTAGES = List.of(0, 1, 10, 100);
+	private static final List<Integer> METADATA_CACHE_SECONDS = List.of(0, 1, 5, 30);
+
 	private final Stage window;
 	private final Vault vault;
 	private final VolumeImpl usedVolumeImpl;
@@ -47,6 +51,8 @@ public class MountOptionsController implements FxController {
 	public RadioButton mountPointWinDriveLetter;
 	public RadioButton mountPointCustomDir;
 	public ChoiceBox<String> driveLetterSelection;
+	public ChoiceBox<Integer> operationSamplingChoiceBox;
+	public ChoiceBox<Integer> metadataCacheChoiceBox;
 
 	@Inject
 	MountOptionsController(@VaultOptionsWindow Stage window, @VaultOptionsWindow Vault vault, Settings settings, WindowsDriveLetters windowsDriveLetters, ResourceBundle resourceBundle, Environment environment) {
@@ -98,6 +104,26 @@ public class MountOptionsController implements FxController {
 						.then(driveLetterSelection.getSelectionModel().selectedItemProperty()) //
 						.otherwise((String) null) //
 		);
+
+		// file system operation sampling:
+		var samplingPercent = vault.getVaultSettings().operationSamplingPercent();
+		operationSamplingChoiceBox.getItems().addAll(SAMPLING_PERCENTAGES);
+		if (!SAMPLING_PERCENTAGES.contains(samplingPercent.get())) {
+			operationSamplingChoiceBox.getItems().add(samplingPercent.get());
+		}
+		operationSamplingChoiceBox.setConverter(new SamplingPercentConverter(resourceBundle));
+		operationSamplingChoiceBox.setValue(samplingPercent.get());
+		operationSamplingChoiceBox.valueProperty().addListener((observable, oldValue, newValue) -> samplingPercent.set(newValue));
+
+		// metadata cache:
+		var cacheSeconds = vault.getVaultSettings().metadataCacheSeconds();
+		metadataCacheChoiceBox.getItems().addAll(METADATA_CACHE_SECONDS);
+		if (!METADATA_CACHE_SECONDS.contains(cacheSeconds.get())) {
+			metadataCacheChoiceBox.getItems().add(cacheSeconds.get());
+		}
+		metadataCacheChoiceBox.setConverter(new MetadataCacheSecondsConverter(resourceBundle));
+		metadataCacheChoiceBox.setValue(cacheSeconds.get());
+		metadataCacheChoiceBox.valueProperty().addListener((observable, oldValue, newValue) -> cacheSeconds.set(newValue));
 	}
 
 	@FXML
@@ -176,6 +202,54 @@ public class MountOptionsController implements FxController {
 
 	}
 
+	private static class SamplingPercentConverter extends StringConverter<Integer> {
+
+		private final ResourceBundle resourceBundle;
+
+		SamplingPercentConverter(ResourceBundle resourceBundle) {
+			this.resourceBundle = resourceBundle;
+		}
+
+		@Override
+		public String toString(Integer percent) {
+			if (percent == null || percent <= 0) {
+				return resourceBundle.getString("vaultOptions.mount.operationSampling.off");
+			} else {
+				return String.format(resourceBundle.getString("vaultOptions.mount.operationSampling.percent"), percent);
+			}
+		}
+
+		@Override
+		public Integer fromString(String string) {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+	private static class MetadataCacheSecondsConverter extends StringConverter<Integer> {
+
+		private final ResourceBundle resourceBundle;
+
+		MetadataCacheSecondsConverter(ResourceBundle resourceBundle) {
+			this.resourceBundle = resourceBundle;
+		}
+
+		@Override
+		public String toString(Integer seconds) {
+			if (seconds == null || seconds <= 0) {
+				return resourceBundle.getString("vaultOptions.mount.metadataCache.off");
+			} else {
+				return String.format(resourceBundle.getString("vaultOptions.mount.metadataCache.seconds"), seconds);
+			}
+		}
+
+		@Override
+		public Integer fromString(String string) {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
 	// Getter & Setter
 
 	public boolean isOsWindows() {
@@ -0,0 +1,158 @@
+package org.cryptomator.common.fs;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+public class CachingFileSystemProviderTest {
+
+	private Path tmpDir;
+	private MetadataCacheStats stats;
+	private Path root;
+
+	@BeforeEach
+	public void setup(@TempDir Path tmpDir) {
+		this.tmpDir = tmpDir;
+		this.stats = new MetadataCacheStats();
+		this.root = new CachingFileSystemProvider(tmpDir.getFileSystem(), Duration.ofMinutes(1), stats).decorate(tmpDir);
+	}
+
+	private long size(Path path) throws IOException {
+		return Files.readAttributes(path, BasicFileAttributes.class).size();
+	}
+
+	@Test
+	@DisplayName("attributes are cached until changed through the cache")
+	public void testAttributes() throws IOException {
+		var file = root.resolve("file");
+		Files.write(file, new byte[3]);
+		Assertions.assertEquals(3, size(file));
+
+		Files.write(tmpDir.resolve("file"), new byte[5]); // bypasses the cache
+		Assertions.assertEquals(3, size(file));
+		Assertions.assertEquals(1, stats.getAttributeHits());
+		Assertions.assertEquals(1, stats.getAttributeMisses());
+
+		Files.write(file, new byte[7]);
+		Assertions.assertEquals(7, size(file));
+	}
+
+	@Test
+	@DisplayName("writing to an open channel invalidates the attributes")
+	public void testWriteThrough() throws IOException {
+		var file = root.resolve("file");
+		try (var ch = Files.newByteChannel(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			Assertions.assertEquals(0, size(file));
+			ch.write(ByteBuffer.allocate(4));
+			Assertions.assertEquals(4, size(file));
+		}
+	}
+
+	@Test
+	@DisplayName("missing files are remembered until created")
+	public void testNegativeEntries() throws IOException {
+		var file = root.resolve("file");
+		Assertions.assertThrows(NoSuchFileException.class, () -> size(file));
+		Assertions.assertThrows(NoSuchFileException.class, () -> size(file));
+		Assertions.assertEquals(1, stats.getAttributeHits());
+
+		Files.createDirectory(file);
+
+		Assertions.assertTrue(Files.isDirectory(file));
+	}
+
+	@Test
+	@DisplayName("listings are cached until their directory changes")
+	public void testListings() throws IOException {
+		var dir = Files.createDirectory(root.resolve("dir"));
+		Files.createDirectory(dir.resolve("a"));
+		try (var children = Files.list(dir)) {
+			Assertions.assertEquals(1, children.count());
+		}
+
+		Files.createDirectory(tmpDir.resolve("dir/b")); // bypasses the cache
+		try (var children = Files.list(dir)) {
+			Assertions.assertEquals(1, children.count());
+		}
+		Assertions.assertEquals(1, stats.getListingHits());
+
+		Files.move(dir.resolve("a"), dir.resolve("c"));
+		try (var children = Files.list(dir)) {
+			Assertions.assertEquals(2, children.count());
+			Assertions.assertEquals(2, stats.getListingMisses());
+		}
+	}
+
+	@Test
+	@DisplayName("directories too large to cache are listed every time")
+	public void testLargeListings() throws IOException {
+		var dir = Files.createDirectory(root.resolve("dir"));
+		for (int i = 0; i <= CachingFileSystemProvider.MAX_LISTING_SIZE; i++) {
+			Files.createFile(tmpDir.resolve("dir").resolve("file" + i));
+		}
+		try (var children = Files.list(dir)) {
+			Assertions.assertEquals(CachingFileSystemProvider.MAX_LISTING_SIZE + 1, children.count());
+		}
+
+		Files.createFile(tmpDir.resolve("dir/another")); // bypasses the cache
+		try (var children = Files.list(dir)) {
+			Assertions.assertEquals(CachingFileSystemProvider.MAX_LISTING_SIZE + 2, children.count());
+		}
+		Assertions.assertEquals(0, stats.getListingHits());
+	}
+
+	@Test
+	@DisplayName("moving a directory invalidates everything within")
+	public void testMoveTree() throws IOException {
+		var file = Files.createDirectories(root.resolve("dir/sub")).resolve("file");
+		Files.write(file, new byte[3]);
+		Assertions.assertEquals(3, size(file));
+
+		Files.move(root.resolve("dir"), root.resolve("moved"));
+
+		Assertions.assertThrows(NoSuchFileException.class, () -> size(file));
+		Assertions.assertEquals(3, size(root.resolve("moved/sub/file")));
+	}
+
+	@Test
+	@DisplayName("files deleted on close are forgotten once closed")
+	public void testDeleteOnClose() throws IOException {
+		var file = root.resolve("file");
+		Files.write(file, new byte[3]);
+		Assertions.assertEquals(3, size(file));
+
+		try (var ch = Files.newByteChannel(file, StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE)) {
+			ch.read(ByteBuffer.allocate(3));
+		}
+
+		Assertions.assertThrows(NoSuchFileException.class, () -> size(file));
+	}
+
+	@Test
+	@DisplayName("changing times through a view invalidates the attributes")
+	public void testViews() throws IOException {
+		var file = root.resolve("file");
+		Files.write(file, new byte[3]);
+		var time = FileTime.from(Instant.parse("2020-01-01T00:00:00Z"));
+		Files.readAttributes(file, BasicFileAttributes.class);
+
+		Files.getFileAttributeView(file, BasicFileAttributeView.class).setTimes(time, null, null);
+
+		Assertions.assertEquals(time, Files.readAttributes(file, BasicFileAttributes.class).lastModifiedTime());
+	}
+
+}
@@ -0,0 +1,91 @@
+package org.cryptomator.common.fs;
+
+import org.cryptomator.common.fs.FileSystemOperationStats.Operation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.attribute.BasicFileAttributes;
+
+public class InstrumentedFileSystemProviderTest {
+
+	private FileSystemOperationStats stats;
+	private Path root;
+
+	@BeforeEach
+	public void setup(@TempDir Path tmpDir) {
+		stats = new FileSystemOperationStats(100);
+		root = new InstrumentedFileSystemProvider(tmpDir.getFileSystem(), stats).decorate(tmpDir);
+	}
+
+	@Test
+	@DisplayName("operations are forwarded and recorded")
+	public void testOperationsAreRecorded() throws IOException {
+		var file = root.resolve("file.txt");
+		Files.writeString(file, "hello world");
+		String content = Files.readString(file);
+		Files.readAttributes(file, BasicFileAttributes.class);
+		Assertions.assertThrows(NoSuchFileException.class, () -> Files.readAttributes(root.resolve("missing"), BasicFileAttributes.class));
+
+		Assertions.assertEquals("hello world", content);
+		Assertions.assertEquals(2, stats.getCount(Operation.OPEN));
+		Assertions.assertTrue(stats.getCount(Operation.WRITE) >= 1);
+		Assertions.assertTrue(stats.getCount(Operation.READ) >= 1);
+		Assertions.assertEquals(2, stats.getCount(Operation.CLOSE));
+		Assertions.assertEquals(2, stats.getCount(Operation.READ_ATTRIBUTES));
+		Assertions.assertEquals(2, stats.getLatencies(Operation.READ_ATTRIBUTES).getCount());
+		Assertions.assertEquals(file.toString(), stats.getHottestPaths(1).get(0).path());
+	}
+
+	@Test
+	@DisplayName("listings stay within the decorated file system and are timed when closed")
+	public void testDirectoryListing() throws IOException {
+		Files.createDirectory(root.resolve("dir"));
+		Files.write(root.resolve("dir/a"), new byte[1]);
+		Files.write(root.resolve("dir/b"), "b".getBytes(StandardCharsets.UTF_8));
+
+		try (var children = Files.list(root.resolve("dir"))) {
+			var paths = children.toList();
+			Assertions.assertEquals(2, paths.size());
+			Assertions.assertTrue(paths.stream().allMatch(p -> p.getFileSystem() == root.getFileSystem()));
+			Assertions.assertEquals(0, stats.getLatencies(Operation.READ_DIRECTORY).getCount());
+		}
+
+		Assertions.assertEquals(1, stats.getCount(Operation.CREATE_DIRECTORY));
+		Assertions.assertEquals(1, stats.getCount(Operation.READ_DIRECTORY));
+		Assertions.assertEquals(1, stats.getLatencies(Operation.READ_DIRECTORY).getCount());
+	}
+
+	@Test
+	@DisplayName("paths of other file systems are rejected")
+	public void testForeignPaths(@TempDir Path otherDir) {
+		Assertions.assertThrows(ProviderMismatchException.class, () -> root.resolve(otherDir));
+		Assertions.assertThrows(ProviderMismatchException.class, () -> root.getFileSystem().provider().copy(root.resolve("file"), otherDir.resolve("file")));
+	}
+
+	@Test
+	@DisplayName("the least frequent path makes room for a new one")
+	public void testHotPaths() {
+		var hotPaths = new HotPaths(2);
+		hotPaths.record("/a");
+		hotPaths.record("/a");
+		hotPaths.record("/a");
+		hotPaths.record("/b");
+		hotPaths.record("/c");
+
+		var top = hotPaths.top(5);
+
+		Assertions.assertEquals(2, top.size());
+		Assertions.assertEquals(new FileSystemOperationStats.PathCount("/a", 3), top.get(0));
+		Assertions.assertEquals(new FileSystemOperationStats.PathCount("/c", 2), top.get(1));
+	}
+
+}
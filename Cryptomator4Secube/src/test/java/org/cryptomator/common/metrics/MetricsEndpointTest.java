@@ -0,0 +1,124 @@
+package org.cryptomator.common.metrics;
+
+import org.cryptomator.common.Environment;
+import org.cryptomator.common.ShutdownHook;
+import org.cryptomator.common.vaults.StatsTimeSeries.Counter;
+import org.cryptomator.common.vaults.Vault;
+import org.cryptomator.common.vaults.VaultState;
+import org.cryptomator.common.vaults.VaultStateEventBus;
+import org.cryptomator.common.vaults.VaultStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import javafx.collections.FXCollections;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class MetricsEndpointTest {
+
+	private ExecutorService executor;
+	private Vault vault;
+
+	@BeforeEach
+	public void setup() {
+		executor = Executors.newCachedThreadPool();
+		vault = Mockito.mock(Vault.class);
+		var stats = Mockito.mock(VaultStats.class);
+		Mockito.when(vault.getId()).thenReturn("vault-1");
+		Mockito.when(vault.getState()).thenReturn(VaultState.Value.LOCKED);
+		Mockito.when(vault.getStats()).thenReturn(stats);
+		Mockito.when(stats.getTimeSeries()).thenReturn(Optional.empty());
+		Mockito.when(stats.getTotal(Counter.BYTES_READ)).thenReturn(1234L);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	@DisplayName("metrics are formatted as OpenMetrics text")
+	public void testFormat() {
+		var totals = new long[Counter.values().length];
+		totals[Counter.BYTES_WRITTEN.ordinal()] = 42;
+		var perSecond = new long[Counter.values().length];
+		perSecond[Counter.CHUNK_CACHE_ACCESSES.ordinal()] = 4;
+		perSecond[Counter.CHUNK_CACHE_HITS.ordinal()] = 1;
+		var metrics = new VaultMetrics("a\"b", VaultState.Value.UNLOCKED, totals, perSecond, Instant.ofEpochSecond(1_700_000_000), 3, 2);
+
+		var text = OpenMetricsFormat.format(List.of(metrics));
+
+		Assertions.assertTrue(text.contains("# TYPE cryptomator_vault_written_bytes counter\n"));
+		Assertions.assertTrue(text.contains("cryptomator_vault_written_bytes_total{vault_id=\"a\\\"b\"} 42\n"));
+		Assertions.assertTrue(text.contains("cryptomator_vault_unlocks_total{vault_id=\"a\\\"b\"} 3\n"));
+		Assertions.assertTrue(text.contains("cryptomator_vault_chunk_cache_hit_ratio{vault_id=\"a\\\"b\"} 0.25\n"));
+		Assertions.assertTrue(text.contains("cryptomator_vault_last_activity_timestamp_seconds{vault_id=\"a\\\"b\"} 1700000000\n"));
+		Assertions.assertTrue(text.contains("cryptomator_vault_state{vault_id=\"a\\\"b\",cryptomator_vault_state=\"UNLOCKED\"} 1\n"));
+		Assertions.assertTrue(text.contains("cryptomator_vault_state{vault_id=\"a\\\"b\",cryptomator_vault_state=\"LOCKED\"} 0\n"));
+		Assertions.assertTrue(text.endsWith("# EOF\n"));
+	}
+
+	@Test
+	@DisplayName("metrics are served on loopback")
+	public void testScrape() throws IOException, InterruptedException {
+		var endpoint = new MetricsEndpoint(Mockito.mock(Environment.class), FXCollections.observableArrayList(vault), new VaultStateEventBus(), executor, Mockito.mock(ShutdownHook.class));
+		var address = (InetSocketAddress) endpoint.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), null);
+		var client = HttpClient.newHttpClient();
+		var base = "http://" + address.getHostString() + ":" + address.getPort();
+
+		var metrics = client.send(HttpRequest.newBuilder(URI.create(base + "/metrics")).build(), HttpResponse.BodyHandlers.ofString());
+		var other = client.send(HttpRequest.newBuilder(URI.create(base + "/")).build(), HttpResponse.BodyHandlers.ofString());
+
+		Assertions.assertEquals(200, metrics.statusCode());
+		Assertions.assertEquals(OpenMetricsFormat.CONTENT_TYPE, metrics.headers().firstValue("Content-Type").orElseThrow());
+		Assertions.assertTrue(metrics.body().contains("cryptomator_vault_read_bytes_total{vault_id=\"vault-1\"} 1234\n"));
+		Assertions.assertEquals(404, other.statusCode());
+	}
+
+	@Test
+	@DisplayName("files other than sockets are not replaced by the metrics socket")
+	public void testKeepsRegularFile(@TempDir Path tmpDir) throws IOException {
+		var file = Files.writeString(tmpDir.resolve("metrics.sock"), "important");
+		var endpoint = new MetricsEndpoint(Mockito.mock(Environment.class), FXCollections.observableArrayList(vault), new VaultStateEventBus(), executor, Mockito.mock(ShutdownHook.class));
+
+		var address = endpoint.start(UnixDomainSocketAddress.of(file), file);
+
+		Assertions.assertNull(address);
+		Assertions.assertEquals("important", Files.readString(file));
+	}
+
+	@Test
+	@DisplayName("idle connections are closed after the request timeout")
+	public void testIdleConnectionTimesOut() throws IOException, InterruptedException {
+		var endpoint = new MetricsEndpoint(Mockito.mock(Environment.class), FXCollections.observableArrayList(vault), new VaultStateEventBus(), executor, Mockito.mock(ShutdownHook.class));
+		var address = (InetSocketAddress) endpoint.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), null);
+
+		try (var idle = new Socket(address.getAddress(), address.getPort())) {
+			idle.setSoTimeout((int) MetricsEndpoint.REQUEST_TIMEOUT.multipliedBy(2).toMillis());
+			Assertions.assertEquals(-1, idle.getInputStream().read());
+		}
+		var metrics = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create("http://" + address.getHostString() + ":" + address.getPort() + "/metrics")).build(), HttpResponse.BodyHandlers.ofString());
+
+		Assertions.assertEquals(200, metrics.statusCode());
+	}
+
+}
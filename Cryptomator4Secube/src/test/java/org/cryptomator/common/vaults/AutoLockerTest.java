@@ -0,0 +1,107 @@
+package org.cryptomator.common.vaults;
+
+import org.cryptomator.common.settings.VaultSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.FXCollections;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class AutoLockerTest {
+
+	private final ObjectProperty<Instant> lastActivity = new SimpleObjectProperty<>(Instant.now());
+	private final VaultSettings vaultSettings = VaultSettings.withRandomId();
+	private final Vault vault = Mockito.mock(Vault.class);
+	private final CompletableFuture<Instant> locked = new CompletableFuture<>();
+	private ScheduledExecutorService scheduler;
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		scheduler = Executors.newSingleThreadScheduledExecutor();
+		executor = Executors.newCachedThreadPool();
+		var stats = Mockito.mock(VaultStats.class);
+		Mockito.when(stats.lastActivityProperty()).thenReturn(lastActivity);
+		Mockito.when(stats.getLastActivity()).thenAnswer(invocation -> lastActivity.get());
+		Mockito.when(vault.getStats()).thenReturn(stats);
+		Mockito.when(vault.getVaultSettings()).thenReturn(vaultSettings);
+		Mockito.when(vault.stateProperty()).thenReturn(new VaultState(VaultState.Value.UNLOCKED));
+		Mockito.when(vault.isUnlocked()).thenReturn(true);
+		Mockito.doAnswer(invocation -> locked.complete(Instant.now())).when(vault).lock(false);
+		vaultSettings.autoLockWhenIdle().set(true);
+		vaultSettings.autoLockIdleSeconds().set(1);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		scheduler.shutdownNow();
+		executor.shutdownNow();
+	}
+
+	@Test
+	@DisplayName("idle vaults get locked right after their deadline")
+	public void testLocksAfterDeadline() throws Exception {
+		lastActivity.set(Instant.now());
+		var deadline = lastActivity.get().plusSeconds(1);
+		new AutoLocker(scheduler, executor, FXCollections.observableArrayList(vault)).init();
+
+		var lockedAt = locked.get(5, TimeUnit.SECONDS);
+
+		Assertions.assertFalse(lockedAt.isBefore(deadline));
+		Assertions.assertTrue(Duration.between(deadline, lockedAt).toMillis() < 1000);
+	}
+
+	@Test
+	@DisplayName("activity postpones the deadline")
+	public void testActivityPostponesLock() throws Exception {
+		vaultSettings.autoLockIdleSeconds().set(2);
+		lastActivity.set(Instant.now());
+		new AutoLocker(scheduler, executor, FXCollections.observableArrayList(vault)).init();
+
+		Thread.sleep(1000);
+		lastActivity.set(Instant.now());
+		var deadline = lastActivity.get().plusSeconds(2);
+		var lockedAt = locked.get(5, TimeUnit.SECONDS);
+
+		Assertions.assertFalse(lockedAt.isBefore(deadline));
+		Assertions.assertTrue(Duration.between(deadline, lockedAt).toMillis() < 1000);
+	}
+
+	@Test
+	@DisplayName("locking does not block the scheduler")
+	public void testLocksOffTheScheduler() throws Exception {
+		var scheduledThread = new CompletableFuture<Thread>();
+		scheduler.execute(() -> scheduledThread.complete(Thread.currentThread()));
+		var lockingThread = new CompletableFuture<Thread>();
+		Mockito.doAnswer(invocation -> lockingThread.complete(Thread.currentThread())).when(vault).lock(false);
+		lastActivity.set(Instant.now());
+		new AutoLocker(scheduler, executor, FXCollections.observableArrayList(vault)).init();
+
+		Assertions.assertNotSame(scheduledThread.get(5, TimeUnit.SECONDS), lockingThread.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	@DisplayName("vaults without auto-lock don't schedule anything")
+	public void testNothingScheduledWithoutAutoLock() {
+		var mockedScheduler = Mockito.mock(ScheduledExecutorService.class);
+		vaultSettings.autoLockWhenIdle().set(false);
+
+		new AutoLocker(mockedScheduler, executor, FXCollections.observableArrayList(vault)).init();
+		lastActivity.set(Instant.now());
+
+		Mockito.verifyNoInteractions(mockedScheduler);
+	}
+
+}
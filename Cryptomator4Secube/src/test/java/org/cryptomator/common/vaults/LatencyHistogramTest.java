@@ -0,0 +1,56 @@
+package org.cryptomator.common.vaults;
+
+import org.cryptomator.common.settings.VolumeImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+public class LatencyHistogramTest {
+
+	@Test
+	@DisplayName("percentiles are bounded by their bucket and the maximum")
+	public void testPercentiles() {
+		var histogram = new LatencyHistogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(Duration.ofMillis(i));
+		}
+
+		Assertions.assertEquals(100, histogram.getCount());
+		Assertions.assertEquals(Duration.ofMillis(100), histogram.getMax());
+		Assertions.assertEquals(Duration.ofNanos(50_500_000), histogram.getMean());
+		var median = histogram.getPercentile(50);
+		Assertions.assertTrue(median.compareTo(Duration.ofMillis(50)) >= 0 && median.compareTo(Duration.ofMillis(100)) <= 0, "median " + median);
+		Assertions.assertEquals(Duration.ofMillis(100), histogram.getPercentile(100));
+	}
+
+	@Test
+	@DisplayName("an empty histogram reports zero")
+	public void testEmpty() {
+		var histogram = new LatencyHistogram();
+
+		Assertions.assertEquals(0, histogram.getCount());
+		Assertions.assertEquals(Duration.ZERO, histogram.getMean());
+		Assertions.assertEquals(Duration.ZERO, histogram.getPercentile(95));
+	}
+
+	@Test
+	@DisplayName("recordings are kept per volume type and phase")
+	public void testPhaseLatenciesPerVolumeType() {
+		var latencies = new PhaseLatencies();
+		var recording = latencies.startRecording();
+		recording.add(PhaseLatencies.Phase.KEY_LOADING, Duration.ofMillis(10));
+		recording.add(PhaseLatencies.Phase.KEY_LOADING, Duration.ofMillis(5));
+
+		recording.commit(VolumeImpl.FUSE);
+
+		var keyLoading = latencies.get(VolumeImpl.FUSE, PhaseLatencies.Phase.KEY_LOADING);
+		Assertions.assertTrue(keyLoading.isPresent());
+		Assertions.assertEquals(1, keyLoading.get().getCount());
+		Assertions.assertEquals(Duration.ofMillis(15), keyLoading.get().getMax());
+		Assertions.assertTrue(latencies.get(VolumeImpl.WEBDAV, PhaseLatencies.Phase.KEY_LOADING).isEmpty());
+		Assertions.assertTrue(latencies.get(VolumeImpl.FUSE, PhaseLatencies.Phase.MOUNT).isEmpty());
+	}
+
+}
@@ -0,0 +1,83 @@
+package org.cryptomator.common.vaults;
+
+import org.cryptomator.common.mountpoint.InvalidMountPointException;
+import org.cryptomator.common.mountpoint.MountPointChooser;
+import org.cryptomator.common.settings.VolumeImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
+public class MountPointSelectionEventTest {
+
+	private static final String EVENT_NAME = "org.cryptomator.MountPointSelection";
+
+	@Test
+	@DisplayName("mount point selection is recorded with volume type and chooser")
+	public void testEventIsRecorded(@TempDir Path tmpDir) throws IOException, InvalidMountPointException {
+		var chooser = Mockito.mock(MountPointChooser.class);
+		var volume = new TestVolume(List.of(chooser));
+		Mockito.when(chooser.isApplicable(volume)).thenReturn(true);
+		Mockito.when(chooser.chooseMountPoint(volume)).thenReturn(Optional.of(tmpDir));
+		var dump = tmpDir.resolve("recording.jfr");
+
+		try (var recording = new Recording()) {
+			recording.enable(EVENT_NAME).withThreshold(Duration.ZERO);
+			recording.start();
+			Assertions.assertEquals(tmpDir, volume.determineMountPoint());
+			recording.stop();
+			recording.dump(dump);
+		}
+
+		var events = RecordingFile.readAllEvents(dump).stream().filter(e -> EVENT_NAME.equals(e.getEventType().getName())).toList();
+		Assertions.assertEquals(1, events.size());
+		Assertions.assertEquals("FUSE", events.get(0).getString("volumeType"));
+		Assertions.assertEquals(chooser.getClass().getSimpleName(), events.get(0).getString("chooser"));
+		Assertions.assertTrue(volume.getMountPointSelectionTime().isPresent());
+	}
+
+	private static class TestVolume extends AbstractVolume {
+
+		TestVolume(Iterable<MountPointChooser> choosers) {
+			super(choosers);
+		}
+
+		@Override
+		public boolean isSupported() {
+			return true;
+		}
+
+		@Override
+		public VolumeImpl getImplementationType() {
+			return VolumeImpl.FUSE;
+		}
+
+		@Override
+		public void mount(Path root, String mountFlags, Consumer<Throwable> onExitAction) {
+		}
+
+		@Override
+		public void reveal(Revealer revealer) {
+		}
+
+		@Override
+		public void unmount() {
+		}
+
+		@Override
+		public MountPointRequirement getMountPointRequirement() {
+			return MountPointRequirement.EMPTY_MOUNT_POINT;
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+package org.cryptomator.common.vaults;
+
+import org.cryptomator.common.vaults.StatsTimeSeries.Counter;
+import org.cryptomator.common.vaults.StatsTimeSeries.Resolution;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class StatsTimeSeriesTest {
+
+	private static final long T0 = 1_700_000_000L - 1_700_000_000L % 3600; // start of an hour
+
+	private final StatsTimeSeries timeSeries = new StatsTimeSeries();
+
+	private static long[] sample(long bytesRead) {
+		var sample = new long[Counter.values().length];
+		sample[Counter.BYTES_READ.ordinal()] = bytesRead;
+		return sample;
+	}
+
+	@Test
+	@DisplayName("seconds are rolled up once their minute is over")
+	public void testRollup() {
+		for (int i = 0; i < 120; i++) {
+			timeSeries.record(T0 + i, sample(i));
+		}
+		var timestamps = new long[10];
+		var values = new long[10];
+
+		int n = timeSeries.read(Resolution.MINUTE, Counter.BYTES_READ, timestamps, values);
+		Assertions.assertEquals(1, n);
+		Assertions.assertEquals(T0, timestamps[0]);
+		Assertions.assertEquals(59 * 60 / 2, values[0]);
+
+		timeSeries.record(T0 + 120, sample(0));
+		n = timeSeries.read(Resolution.MINUTE, Counter.BYTES_READ, timestamps, values);
+		Assertions.assertEquals(2, n);
+		Assertions.assertEquals(T0 + 60, timestamps[1]);
+		Assertions.assertEquals((60 + 119) * 60 / 2, values[1]);
+		Assertions.assertEquals(0, timeSeries.read(Resolution.HOUR, Counter.BYTES_READ, timestamps, values));
+		Assertions.assertEquals(0, timeSeries.latest(Counter.BYTES_READ));
+		Assertions.assertEquals(0, timeSeries.latest(Counter.BYTES_WRITTEN));
+	}
+
+	@Test
+	@DisplayName("full rings keep the most recent values, oldest first")
+	public void testRingKeepsNewest() {
+		int capacity = Resolution.SECOND.getCapacity();
+		for (int i = 0; i < capacity + 5; i++) {
+			timeSeries.record(T0 + i, sample(i));
+		}
+		var timestamps = new long[capacity + 5];
+		var values = new long[capacity + 5];
+
+		int n = timeSeries.read(Resolution.SECOND, Counter.BYTES_READ, timestamps, values);
+
+		Assertions.assertEquals(capacity, n);
+		Assertions.assertEquals(5, values[0]);
+		Assertions.assertEquals(T0 + 5, timestamps[0]);
+		Assertions.assertEquals(capacity + 4, values[n - 1]);
+		Assertions.assertEquals(capacity + 4, timeSeries.latest(Counter.BYTES_READ));
+	}
+
+	@Test
+	@DisplayName("concurrent readers only see consistent slots")
+	public void testConcurrentReads() throws InterruptedException {
+		var failure = new AtomicReference<String>();
+		var writer = new Thread(() -> {
+			for (int i = 0; i < 200_000; i++) {
+				timeSeries.record(T0 + i, sample(T0 + i)); // value equals timestamp
+			}
+		});
+		writer.start();
+		var timestamps = new long[100];
+		var values = new long[100];
+		while (writer.isAlive()) {
+			int n = timeSeries.read(Resolution.SECOND, Counter.BYTES_READ, timestamps, values);
+			for (int i = 0; i < n; i++) {
+				if (timestamps[i] != values[i] || (i > 0 && timestamps[i] != timestamps[i - 1] + 1)) {
+					failure.set("inconsistent slot " + i + ": " + timestamps[i] + " / " + values[i]);
+				}
+			}
+		}
+		writer.join();
+		Assertions.assertNull(failure.get());
+	}
+
+}
@@ -0,0 +1,94 @@
+package org.cryptomator.common.vaults;
+
+import org.cryptomator.common.Constants;
+import org.cryptomator.common.Environment;
+import org.cryptomator.common.ShutdownHook;
+import org.cryptomator.common.settings.VaultSettings;
+import org.cryptomator.cryptofs.VaultConfig;
+import org.cryptomator.cryptolib.api.CryptorProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class VaultConfigCacheTest {
+
+	@TempDir
+	public Path vaultPath;
+
+	private ExecutorService executor;
+	private VaultSettings settings;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		executor = Executors.newCachedThreadPool();
+		settings = VaultSettings.withRandomId();
+		settings.path().set(vaultPath);
+		writeConfig("masterkeyfile:first");
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private void writeConfig(String keyId) throws IOException {
+		String token = VaultConfig.createNew().cipherCombo(CryptorProvider.Scheme.SIV_CTRMAC).shorteningThreshold(220).build().toToken(keyId, new byte[64]);
+		Files.writeString(vaultPath.resolve(Constants.VAULTCONFIG_FILENAME), token, StandardCharsets.US_ASCII);
+	}
+
+	private VaultConfigWatcher watcher(boolean enabled) {
+		var environment = Mockito.mock(Environment.class);
+		Mockito.when(environment.watchVaultConfigs()).thenReturn(enabled);
+		return new VaultConfigWatcher(environment, executor, Mockito.mock(ShutdownHook.class));
+	}
+
+	@Test
+	public void testWatchedConfigIsReloadedAfterChange() throws IOException, InterruptedException {
+		var cache = new VaultConfigCache(settings, watcher(true));
+		Assertions.assertEquals("masterkeyfile:first", cache.get().getKeyId().toString());
+
+		writeConfig("masterkeyfile:second");
+
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!"masterkeyfile:second".equals(cache.get().getKeyId().toString()) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		Assertions.assertEquals("masterkeyfile:second", cache.get().getKeyId().toString());
+	}
+
+	@Test
+	public void testUnwatchedConfigIsReloadedOnRefresh() throws IOException {
+		var cache = new VaultConfigCache(settings, watcher(false));
+		Assertions.assertEquals("masterkeyfile:first", cache.get().getKeyId().toString());
+
+		writeConfig("masterkeyfile:second");
+
+		Assertions.assertEquals("masterkeyfile:first", cache.get().getKeyId().toString());
+		cache.refreshConfig();
+		Assertions.assertEquals("masterkeyfile:second", cache.get().getKeyId().toString());
+	}
+
+	@Test
+	public void testInvalidatedConfigIsReloaded() throws IOException {
+		var watcher = watcher(true);
+		var cache = new VaultConfigCache(settings, watcher);
+		cache.get();
+		cache.stopWatching();
+		writeConfig("masterkeyfile:second");
+
+		cache.invalidate();
+
+		Assertions.assertEquals("masterkeyfile:second", cache.get().getKeyId().toString());
+	}
+
+}
@@ -0,0 +1,104 @@
+package org.cryptomator.common.vaults;
+
+import org.cryptomator.common.Environment;
+import org.cryptomator.common.ShutdownHook;
+import org.cryptomator.common.settings.VaultSettings;
+import org.cryptomator.cryptofs.CryptoFileSystem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.SimpleObjectProperty;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class VaultFootprintTest {
+
+	private ExecutorService executor;
+	private VaultConfigWatcher configWatcher;
+
+	@BeforeEach
+	public void setup() {
+		executor = Executors.newCachedThreadPool();
+		configWatcher = new VaultConfigWatcher(Mockito.mock(Environment.class), executor, Mockito.mock(ShutdownHook.class));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private Vault createVault(int i) {
+		var settings = VaultSettings.withRandomId();
+		settings.path().set(Path.of("/vaults/vault" + i));
+		settings.displayName().set("Vault " + i);
+		var state = new VaultState(VaultState.Value.LOCKED);
+		var fs = new AtomicReference<CryptoFileSystem>();
+		var mountFlags = Bindings.createStringBinding(() -> "");
+		return new Vault(settings, new VaultConfigCache(settings, configWatcher), () -> null, () -> mountFlags, fs, state, new SimpleObjectProperty<>(), new VaultStats(fs, state, Mockito.mock(StatsSampler.class)));
+	}
+
+	@Test
+	@DisplayName("observables are created on first access")
+	public void testObservablesAreCreatedLazily() {
+		var vault = createVault(0);
+
+		var locked = vault.lockedProperty();
+
+		Assertions.assertTrue(locked.get());
+		Assertions.assertSame(locked, vault.lockedProperty());
+		Assertions.assertEquals("Vault 0", vault.displayNameProperty().get());
+		Assertions.assertFalse(vault.accessPointPresentProperty().get());
+	}
+
+	/**
+	 * Checks that registered vaults take less heap than vaults observed by the UI, as observables are only created on demand.
+	 * Run with <code>-Dcryptomator.benchmark=true</code>.
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {1_000, 10_000})
+	@EnabledIfSystemProperty(named = "cryptomator.benchmark", matches = "true")
+	@DisplayName("benchmark heap usage of registered vaults")
+	public void benchmarkHeapUsage(int count) {
+		long baseline = usedHeap();
+		List<Vault> vaults = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			vaults.add(createVault(i));
+		}
+		long registered = usedHeap();
+		for (Vault vault : vaults) {
+			vault.displayNameProperty();
+			vault.displayablePathProperty();
+			vault.lockedProperty();
+			vault.processingProperty();
+			vault.unlockedProperty();
+			vault.missingProperty();
+			vault.needsMigrationProperty();
+			vault.unknownErrorProperty();
+			vault.accessPointPresentProperty();
+		}
+		long observed = usedHeap();
+		Assertions.assertTrue(registered - baseline < observed - baseline);
+		Assertions.assertEquals(count, vaults.size()); // keeps the vaults reachable until measured
+	}
+
+	private static long usedHeap() {
+		var runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
@@ -0,0 +1,90 @@
+package org.cryptomator.common.vaults;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class VaultLockCoordinatorTest {
+
+	private ExecutorService executor;
+	private VaultLockCoordinator coordinator;
+
+	@BeforeEach
+	public void setup() {
+		executor = Executors.newCachedThreadPool();
+		coordinator = new VaultLockCoordinator(executor, Duration.ofMillis(100), Duration.ofMillis(500));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private static Vault vault(CompletableFuture<VaultState.Value> locked, boolean supportsForcedUnmount) {
+		var vault = Mockito.mock(Vault.class);
+		var state = Mockito.mock(VaultState.class);
+		Mockito.when(state.stateReached(Vault.LOCKED_STATES)).thenReturn(locked);
+		Mockito.when(vault.stateProperty()).thenReturn(state);
+		Mockito.when(vault.supportsForcedUnmount()).thenReturn(supportsForcedUnmount);
+		Mockito.when(vault.getDisplayName()).thenReturn("vault");
+		return vault;
+	}
+
+	@Test
+	@DisplayName("vaults still unlocked after the soft timeout get unmounted forcibly")
+	public void testHangingVaultIsForced() throws Exception {
+		var quickLock = new CompletableFuture<VaultState.Value>();
+		var hangingLock = new CompletableFuture<VaultState.Value>();
+		var quick = vault(quickLock, true);
+		var hanging = vault(hangingLock, true);
+		Mockito.doAnswer(invocation -> quickLock.complete(VaultState.Value.LOCKED)).when(quick).lock(false);
+		Mockito.doAnswer(invocation -> hangingLock.complete(VaultState.Value.LOCKED)).when(hanging).unmountForced();
+
+		var locked = coordinator.lockAll(List.of(quick, hanging), false);
+
+		Assertions.assertEquals(List.of(quick, hanging), locked);
+		Mockito.verify(quick, Mockito.never()).unmountForced();
+		Mockito.verify(hanging).unmountForced();
+	}
+
+	@Test
+	@DisplayName("failed locks are escalated without waiting for the soft timeout")
+	public void testFailedLockIsForcedImmediately() throws Exception {
+		var lock = new CompletableFuture<VaultState.Value>();
+		var vault = vault(lock, true);
+		Mockito.doThrow(new Volume.VolumeException("busy")).when(vault).lock(false);
+		Mockito.doAnswer(invocation -> lock.complete(VaultState.Value.LOCKED)).when(vault).unmountForced();
+
+		var patientCoordinator = new VaultLockCoordinator(executor, Duration.ofSeconds(10), Duration.ofSeconds(20));
+		long start = System.nanoTime();
+		patientCoordinator.lockAll(List.of(vault), false);
+
+		Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 5000);
+	}
+
+	@Test
+	@DisplayName("waiting ends at the global deadline")
+	public void testGlobalDeadline() throws Exception {
+		var quickLock = new CompletableFuture<VaultState.Value>();
+		var hangingLock = new CompletableFuture<VaultState.Value>();
+		var quick = vault(quickLock, false);
+		var hanging = vault(hangingLock, false);
+		Mockito.doAnswer(invocation -> quickLock.complete(VaultState.Value.LOCKED)).when(quick).lock(false);
+
+		long start = System.nanoTime();
+		Assertions.assertThrows(LockNotCompletedException.class, () -> coordinator.lockAll(List.of(quick, hanging), false));
+
+		Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2000);
+		Assertions.assertTrue(hangingLock.isCancelled());
+	}
+
+}
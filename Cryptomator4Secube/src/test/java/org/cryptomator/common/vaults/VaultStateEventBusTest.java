@@ -0,0 +1,108 @@
+package org.cryptomator.common.vaults;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.cryptomator.common.vaults.VaultState.Value.LOCKED;
+import static org.cryptomator.common.vaults.VaultState.Value.PROCESSING;
+import static org.cryptomator.common.vaults.VaultState.Value.UNLOCKED;
+
+public class VaultStateEventBusTest {
+
+	private final VaultStateEventBus eventBus = new VaultStateEventBus();
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void setup() {
+		executor = Executors.newSingleThreadExecutor();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private static VaultStateEvent event(VaultState.Value from, VaultState.Value to) {
+		return new VaultStateEvent("vault", from, to, Instant.now());
+	}
+
+	@Test
+	@DisplayName("subscribers receive events in order")
+	public void testEventsAreDeliveredInOrder() throws InterruptedException {
+		var subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+		eventBus.subscribe(subscriber, executor);
+		var first = event(LOCKED, PROCESSING);
+		var second = event(PROCESSING, UNLOCKED);
+
+		eventBus.publish(first);
+		eventBus.publish(second);
+
+		Assertions.assertEquals(first, subscriber.received.poll(5, TimeUnit.SECONDS));
+		Assertions.assertEquals(second, subscriber.received.poll(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	@DisplayName("events exceeding the buffer of a slow subscriber are dropped without blocking")
+	public void testSlowSubscriberMissesEvents() throws InterruptedException {
+		var subscriber = new CollectingSubscriber(0);
+		eventBus.subscribe(subscriber, executor, 1);
+		var first = event(LOCKED, PROCESSING);
+
+		eventBus.publish(first);
+		for (int i = 0; i < 100; i++) {
+			eventBus.publish(event(PROCESSING, UNLOCKED));
+		}
+		subscriber.awaitSubscription().request(Long.MAX_VALUE);
+
+		Assertions.assertEquals(first, subscriber.received.poll(5, TimeUnit.SECONDS));
+		Assertions.assertNull(subscriber.received.poll(100, TimeUnit.MILLISECONDS));
+	}
+
+	private static class CollectingSubscriber implements Flow.Subscriber<VaultStateEvent> {
+
+		private final BlockingQueue<VaultStateEvent> received = new LinkedBlockingQueue<>();
+		private final BlockingQueue<Flow.Subscription> subscription = new LinkedBlockingQueue<>();
+		private final long initialRequest;
+
+		CollectingSubscriber(long initialRequest) {
+			this.initialRequest = initialRequest;
+		}
+
+		Flow.Subscription awaitSubscription() throws InterruptedException {
+			return subscription.poll(5, TimeUnit.SECONDS);
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			if (initialRequest > 0) {
+				subscription.request(initialRequest);
+			}
+			this.subscription.add(subscription);
+		}
+
+		@Override
+		public void onNext(VaultStateEvent item) {
+			received.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+		}
+
+		@Override
+		public void onComplete() {
+		}
+	}
+
+}
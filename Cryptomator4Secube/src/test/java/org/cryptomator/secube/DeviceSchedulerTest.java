@@ -0,0 +1,144 @@
+package org.cryptomator.secube;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DeviceSchedulerTest {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	private ExecutorService executor;
+	private ScheduledExecutorService scheduler;
+	private DeviceScheduler deviceScheduler;
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@BeforeEach
+	public void setup() {
+		executor = Executors.newCachedThreadPool();
+		scheduler = Executors.newSingleThreadScheduledExecutor();
+		deviceScheduler = new DeviceScheduler(executor, scheduler);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		release.countDown();
+		executor.shutdownNow();
+		scheduler.shutdownNow();
+	}
+
+	private CompletableFuture<Object> blockDevice(String serialNumber) {
+		return deviceScheduler.submit(serialNumber, null, TIMEOUT, () -> {
+			release.await();
+			return null;
+		});
+	}
+
+	@Test
+	@DisplayName("operations on the same device never overlap")
+	public void testSerializesPerDevice() throws Exception {
+		var active = new AtomicInteger();
+		var maxActive = new AtomicInteger();
+		List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			int n = i;
+			futures.add(deviceScheduler.submit("SERIAL", null, TIMEOUT, () -> {
+				maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+				Thread.sleep(5);
+				active.decrementAndGet();
+				return n;
+			}));
+		}
+
+		for (int i = 0; i < futures.size(); i++) {
+			Assertions.assertEquals(i, futures.get(i).get(5, TimeUnit.SECONDS));
+		}
+		Assertions.assertEquals(1, maxActive.get());
+	}
+
+	@Test
+	@DisplayName("operations on different devices run concurrently")
+	public void testDevicesAreIndependent() throws Exception {
+		blockDevice("SERIAL1");
+
+		var result = deviceScheduler.submit("SERIAL2", null, TIMEOUT, () -> "done");
+
+		Assertions.assertEquals("done", result.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	@DisplayName("requests with equal coalescing keys share one operation")
+	public void testCoalescing() throws Exception {
+		var blocker = blockDevice("SERIAL");
+		var calls = new AtomicInteger();
+		var first = deviceScheduler.submit("SERIAL", "vault", TIMEOUT, calls::incrementAndGet);
+		var second = deviceScheduler.submit("SERIAL", "vault", TIMEOUT, calls::incrementAndGet);
+		var other = deviceScheduler.submit("SERIAL", "other vault", TIMEOUT, calls::incrementAndGet);
+		release.countDown();
+
+		blocker.get(5, TimeUnit.SECONDS);
+		Assertions.assertEquals(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+		other.get(5, TimeUnit.SECONDS);
+		Assertions.assertEquals(2, calls.get());
+	}
+
+	@Test
+	@DisplayName("requests beyond the queue limit get rejected")
+	public void testBoundedQueue() {
+		blockDevice("SERIAL");
+		for (int i = 0; i < DeviceScheduler.MAX_QUEUED_PER_DEVICE; i++) {
+			deviceScheduler.submit("SERIAL", null, TIMEOUT, () -> null);
+		}
+
+		var rejected = deviceScheduler.submit("SERIAL", null, TIMEOUT, () -> null);
+
+		var e = Assertions.assertThrows(ExecutionException.class, rejected::get);
+		Assertions.assertInstanceOf(RejectedExecutionException.class, e.getCause());
+	}
+
+	@Test
+	@DisplayName("cancelled requests never run")
+	public void testCancellation() throws Exception {
+		var blocker = blockDevice("SERIAL");
+		var calls = new AtomicInteger();
+		var cancelled = deviceScheduler.submit("SERIAL", null, TIMEOUT, calls::incrementAndGet);
+		var next = deviceScheduler.submit("SERIAL", null, TIMEOUT, () -> "next");
+
+		cancelled.cancel(false);
+		release.countDown();
+
+		blocker.get(5, TimeUnit.SECONDS);
+		Assertions.assertEquals("next", next.get(5, TimeUnit.SECONDS));
+		Assertions.assertEquals(0, calls.get());
+	}
+
+	@Test
+	@DisplayName("requests time out while waiting for the device")
+	public void testDeadline() {
+		blockDevice("SERIAL");
+		var calls = new AtomicInteger();
+
+		var late = deviceScheduler.submit("SERIAL", null, Duration.ofMillis(50), calls::incrementAndGet);
+
+		var e = Assertions.assertThrows(ExecutionException.class, () -> late.get(5, TimeUnit.SECONDS));
+		Assertions.assertInstanceOf(TimeoutException.class, e.getCause());
+		Assertions.assertEquals(0, calls.get());
+	}
+
+}
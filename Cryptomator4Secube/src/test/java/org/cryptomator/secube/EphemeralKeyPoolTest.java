@@ -0,0 +1,62 @@
+package org.cryptomator.secube;
+
+import org.cryptomator.common.ShutdownHook;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+
+public class EphemeralKeyPoolTest {
+
+	private final ExecutorService executor = Mockito.mock(ExecutorService.class);
+	private EphemeralKeyPool pool;
+
+	@BeforeEach
+	public void setup() {
+		Mockito.doAnswer(invocation -> {
+			invocation.getArgument(0, Runnable.class).run();
+			return null;
+		}).when(executor).execute(Mockito.any());
+		pool = new EphemeralKeyPool(executor, Mockito.mock(ShutdownHook.class));
+	}
+
+	@Test
+	@DisplayName("every key agreement is handed out only once")
+	public void testTakeReturnsFreshKeys() {
+		pool.prefill();
+		var publicKeys = new HashSet<String>();
+		for (int i = 0; i < 2 * EphemeralKeyPool.CAPACITY_PER_MODE; i++) {
+			var keyAgreement = pool.take(HandshakeKeyAgreement.Mode.ECDH);
+			Assertions.assertEquals(HandshakeKeyAgreement.Mode.ECDH, keyAgreement.mode());
+			Assertions.assertFalse(keyAgreement.isDestroyed());
+			Assertions.assertTrue(publicKeys.add(keyAgreement.publicKeyHex()));
+		}
+	}
+
+	@Test
+	@DisplayName("only the mode of the last handshake is precomputed")
+	public void testPrefillsExpectedModeOnly() {
+		pool.prefill();
+		Assertions.assertEquals(EphemeralKeyPool.CAPACITY_PER_MODE, pool.available(HandshakeKeyAgreement.Mode.ECDH));
+		Assertions.assertEquals(0, pool.available(HandshakeKeyAgreement.Mode.DH));
+
+		pool.take(HandshakeKeyAgreement.Mode.DH).destroy();
+
+		Assertions.assertEquals(0, pool.available(HandshakeKeyAgreement.Mode.ECDH));
+		Assertions.assertEquals(EphemeralKeyPool.CAPACITY_PER_MODE, pool.available(HandshakeKeyAgreement.Mode.DH));
+	}
+
+	@Test
+	@DisplayName("take() generates a key pair on demand if nothing was prefilled")
+	public void testTakeWithoutPrefill() {
+		Mockito.reset(executor);
+		var keyAgreement = pool.take(HandshakeKeyAgreement.Mode.DH);
+		Assertions.assertEquals(HandshakeKeyAgreement.Mode.DH, keyAgreement.mode());
+		Assertions.assertFalse(keyAgreement.isDestroyed());
+	}
+
+}
@@ -0,0 +1,96 @@
+package org.cryptomator.secube;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+public class HandshakeKeyAgreementTest {
+
+	@Test
+	public void testDiffieHellmanAgreesWithMiddleware() {
+		var keyAgreement = new DiffieHellmanKeyAgreement();
+		BigInteger B = new BigInteger(2048, new SecureRandom());
+		BigInteger PK_MIDD = DiffieHellmanKeyAgreement.G.modPow(B, DiffieHellmanKeyAgreement.P);
+		BigInteger K_cryptomator = new BigInteger(keyAgreement.publicKeyHex(), 16);
+
+		byte[] shared = keyAgreement.agree(PK_MIDD.toString(16));
+
+		Assertions.assertArrayEquals(K_cryptomator.modPow(B, DiffieHellmanKeyAgreement.P).toByteArray(), shared);
+		Assertions.assertTrue(keyAgreement.hasLength(PK_MIDD.toString(16), PK_MIDD.toByteArray().length * 8));
+	}
+
+	@Test
+	public void testEcdhAgreesWithMiddleware() {
+		var keyAgreement = new EcdhKeyAgreement();
+		var middleware = new EcdhKeyAgreement();
+
+		byte[] shared = keyAgreement.agree(middleware.publicKeyHex());
+
+		Assertions.assertEquals(32, shared.length);
+		Assertions.assertArrayEquals(middleware.agree(keyAgreement.publicKeyHex()), shared);
+		Assertions.assertTrue(keyAgreement.hasLength(middleware.publicKeyHex(), 520));
+	}
+
+	@Test
+	public void testEcdhRejectsPointNotOnCurve() {
+		var keyAgreement = new EcdhKeyAgreement();
+		byte[] invalid = Hex.decode(new EcdhKeyAgreement().publicKeyHex());
+		invalid[64] ^= 0x01;
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> keyAgreement.agree(Hex.toHexString(invalid)));
+	}
+
+	@ParameterizedTest
+	@EnumSource(HandshakeKeyAgreement.Mode.class)
+	public void testDestroyedKeyAgreementCannotBeUsed(HandshakeKeyAgreement.Mode mode) {
+		var keyAgreement = mode.newKeyAgreement();
+		var peerPublicKey = mode.newKeyAgreement().publicKeyHex();
+
+		keyAgreement.destroy();
+
+		Assertions.assertTrue(keyAgreement.isDestroyed());
+		Assertions.assertThrows(IllegalStateException.class, () -> keyAgreement.agree(peerPublicKey));
+	}
+
+	@Test
+	public void testUnknownModeFallsBackToDiffieHellman() {
+		Assertions.assertEquals(HandshakeKeyAgreement.Mode.DH, HandshakeKeyAgreement.Mode.fromWireName("Error: unknown mode"));
+		Assertions.assertEquals(HandshakeKeyAgreement.Mode.ECDH, HandshakeKeyAgreement.Mode.fromWireName("ecdh-secp256k1"));
+	}
+
+	/**
+	 * Checks that an ECDH handshake costs less client-side CPU time (key generation plus agreement) than a DH handshake.
+	 * Run with <code>mvn test -Dtest=HandshakeKeyAgreementTest -Dcryptomator.benchmark=true</code>.
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "cryptomator.benchmark", matches = "true")
+	public void benchmarkHandshakeCpuTime() {
+		Assertions.assertTrue(cpuNanosPerHandshake(HandshakeKeyAgreement.Mode.ECDH) < cpuNanosPerHandshake(HandshakeKeyAgreement.Mode.DH));
+	}
+
+	private static long cpuNanosPerHandshake(HandshakeKeyAgreement.Mode mode) {
+		final int warmup = 50;
+		final int iterations = 200;
+		String peerPublicKey = switch (mode) {
+			case DH -> DiffieHellmanKeyAgreement.G.modPow(new BigInteger(2048, new SecureRandom()), DiffieHellmanKeyAgreement.P).toString(16);
+			case ECDH -> new EcdhKeyAgreement().publicKeyHex();
+		};
+		for (int i = 0; i < warmup; i++) {
+			mode.newKeyAgreement().agree(peerPublicKey);
+		}
+
+		// single-threaded and compute-bound, so elapsed time equals CPU time
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			mode.newKeyAgreement().agree(peerPublicKey);
+		}
+		return (System.nanoTime() - start) / iterations;
+	}
+
+}
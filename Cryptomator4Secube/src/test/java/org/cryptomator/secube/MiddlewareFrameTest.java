@@ -0,0 +1,85 @@
+package org.cryptomator.secube;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.List;
+
+public class MiddlewareFrameTest {
+
+	private static final int VERSION = 1;
+
+	@Test
+	@DisplayName("frames survive encoding and decoding")
+	public void testRoundTrip() throws IOException {
+		var out = new ByteArrayOutputStream();
+		var request = MiddlewareFrame.keyRequest(1, "retrieve-key", new byte[]{1, 2, 3}, "42");
+		var reply = new MiddlewareFrame(MiddlewareFrame.Type.KEY, 1, List.of(new byte[70], new byte[32], new byte[16], new byte[0], new byte[65]));
+		MiddlewareFrame.send(Channels.newChannel(out), VERSION, List.of(request, reply));
+
+		var in = Channels.newChannel(new ByteArrayInputStream(out.toByteArray()));
+		var decodedRequest = MiddlewareFrame.receive(in, VERSION);
+		var decodedReply = MiddlewareFrame.receive(in, VERSION);
+
+		Assertions.assertEquals(MiddlewareFrame.Type.RETRIEVE_KEY, decodedRequest.type());
+		Assertions.assertEquals(1, decodedRequest.requestId());
+		Assertions.assertArrayEquals(new byte[]{1, 2, 3}, decodedRequest.fields().get(0));
+		Assertions.assertArrayEquals("42".getBytes(), decodedRequest.fields().get(1));
+		Assertions.assertEquals(MiddlewareFrame.Type.KEY, decodedReply.type());
+		Assertions.assertEquals(List.of(70, 32, 16, 0, 65), decodedReply.requireFields(5).stream().map(f -> f.length).toList());
+		Assertions.assertThrows(EOFException.class, () -> MiddlewareFrame.receive(in, VERSION));
+	}
+
+	@Test
+	@DisplayName("receive() rejects frames of another version")
+	public void testVersionMismatch() throws IOException {
+		var out = new ByteArrayOutputStream();
+		MiddlewareFrame.send(Channels.newChannel(out), 2, List.of(new MiddlewareFrame(MiddlewareFrame.Type.ERROR, 1, List.of())));
+		var in = Channels.newChannel(new ByteArrayInputStream(out.toByteArray()));
+
+		Assertions.assertThrows(ProtocolException.class, () -> MiddlewareFrame.receive(in, VERSION));
+	}
+
+	@Test
+	@DisplayName("receive() rejects oversized payloads before allocating them")
+	public void testOversizedPayload() {
+		var header = ByteBuffer.allocate(MiddlewareFrame.HEADER_SIZE).put((byte) VERSION).put((byte) 0x81).putInt(1).putInt(Integer.MAX_VALUE);
+		var in = Channels.newChannel(new ByteArrayInputStream(header.array()));
+
+		Assertions.assertThrows(ProtocolException.class, () -> MiddlewareFrame.receive(in, VERSION));
+	}
+
+	@Test
+	@DisplayName("decodeFields() rejects a field exceeding the payload")
+	public void testTruncatedField() {
+		var payload = ByteBuffer.allocate(4).putShort((short) 3).put(new byte[]{1, 2}).flip();
+
+		Assertions.assertThrows(ProtocolException.class, () -> MiddlewareFrame.decodeFields(payload));
+	}
+
+	@Test
+	@DisplayName("requireFields() rejects unexpected field counts")
+	public void testRequireFields() {
+		var frame = new MiddlewareFrame(MiddlewareFrame.Type.KEY, 1, Arrays.asList(new byte[1], new byte[1]));
+
+		Assertions.assertThrows(ProtocolException.class, () -> frame.requireFields(5));
+	}
+
+	@ParameterizedTest(name = "negotiatedVersion(\"{0}\") == {1}")
+	@CsvSource(value = {"1,1", "'1\n',1", "99,0", "'Error: unknown command',0"})
+	public void testNegotiatedVersion(String reply, int expected) {
+		Assertions.assertEquals(expected, MiddlewareFrame.negotiatedVersion(reply));
+	}
+
+}
@@ -0,0 +1,27 @@
+package org.cryptomator.secube;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class ProcessTransportTest {
+
+	@Test
+	@DisplayName("parseListing() returns one serial number per non-blank line")
+	public void testParseSerialNumbers() {
+		var serialNumbers = ProcessTransport.parseListing(List.of("ABC123 ", "", "DEF456"));
+
+		Assertions.assertEquals(List.of("ABC123", "DEF456"), serialNumbers);
+	}
+
+	@Test
+	@DisplayName("parseListing() returns no devices if the listing reports an error")
+	public void testParseError() {
+		var serialNumbers = ProcessTransport.parseListing(List.of("Error : no SEcube connected"));
+
+		Assertions.assertTrue(serialNumbers.isEmpty());
+	}
+
+}
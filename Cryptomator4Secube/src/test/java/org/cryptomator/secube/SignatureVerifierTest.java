@@ -0,0 +1,63 @@
+package org.cryptomator.secube;
+
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.util.BigIntegers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+
+public class SignatureVerifierTest {
+
+	private final SecureRandom csprng = new SecureRandom();
+	private byte[] publicKey;
+	private byte[] message;
+	private byte[] signature;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		var params = CryptoUtils.DOMAIN_PARAMS;
+		BigInteger d = BigIntegers.createRandomInRange(BigInteger.ONE, params.getN().subtract(BigInteger.ONE), csprng);
+		publicKey = params.getG().multiply(d).normalize().getEncoded(false);
+		message = CryptoUtils.hash("hello SEcube".getBytes(StandardCharsets.US_ASCII));
+
+		ECDSASigner signer = new ECDSASigner();
+		signer.init(true, new ECPrivateKeyParameters(d, params));
+		BigInteger[] rs = signer.generateSignature(message);
+		// the middleware sends DER with fixed 32 byte integers: 30 44 02 20 <r> 02 20 <s>
+		signature = ByteBuffer.allocate(70) //
+				.put(new byte[]{0x30, 0x44, 0x02, 0x20}).put(BigIntegers.asUnsignedByteArray(32, rs[0])) //
+				.put(new byte[]{0x02, 0x20}).put(BigIntegers.asUnsignedByteArray(32, rs[1])) //
+				.array();
+	}
+
+	@Test
+	public void testValidSignature() throws Exception {
+		var verifier = new SignatureVerifier(publicKey);
+
+		Assertions.assertTrue(verifier.verify(message, signature));
+		Assertions.assertTrue(verifier.verify(message, signature));
+		Assertions.assertTrue(CryptoUtils.verify(message, signature, publicKey));
+	}
+
+	@Test
+	public void testTamperedMessage() {
+		var verifier = new SignatureVerifier(publicKey);
+		message[0] ^= 0x01;
+
+		Assertions.assertFalse(verifier.verify(message, signature));
+	}
+
+	@Test
+	public void testInvalidPublicKey() {
+		publicKey[64] ^= 0x01;
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new SignatureVerifier(publicKey));
+	}
+
+}
@@ -0,0 +1,531 @@
+package org.cryptomator.secube;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.macs.HMac;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.bouncycastle.util.BigIntegers;
+import org.bouncycastle.util.encoders.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * A software model of the middleware and its devices, running inside the JVM.
+ * <p>
+ * Each connection is served by its own thread, which implements the same text and binary protocol as the middleware, including
+ * key agreement negotiation, signatures and encrypted key replies. Vault keys live in memory only. Like a real device, each simulated device
+ * processes one operation at a time, each taking at least the configured latency. A configurable share of operations fails,
+ * which the middleware reports as an error reply.
+ * <p>
+ * The simulator signs with its own key, so replies only verify with its {@link #signatureVerifier() verifier}.
+ * Lets the SEcube code paths be tested and benchmarked on machines without a device.
+ */
+public class SimulatedMiddleware implements MiddlewareTransport {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SimulatedMiddleware.class);
+	private static final int VAULT_KEY_BYTES = 32;
+	private static final int IV_BYTES = 16;
+	private static final int SIGNATURE_COMPONENT_BYTES = 32;
+	private static final String RETRIEVE_KEY = "retrieve-key";
+	private static final String CREATE_KEY = "create-key";
+	private static final String NEGOTIATE = "negotiate";
+	private static final String FRAMING = "framing";
+	private static final String QUIT = "quit";
+
+	private final Duration latency;
+	private final double errorRate;
+	private final boolean binaryProtocol;
+	private final Map<String, Device> devices = new ConcurrentHashMap<>();
+	private final SecureRandom random = new SecureRandom();
+	private final ECPrivateKeyParameters signingKey;
+	private final SignatureVerifier verifier;
+	private final AtomicInteger connectionNumber = new AtomicInteger();
+
+	/**
+	 * @param latency Minimum duration of each device operation
+	 * @param errorRate Share of device operations failing, between <code>0.0</code> and <code>1.0</code>
+	 * @param binaryProtocol Whether to accept the {@link MiddlewareFrame binary protocol} during negotiation
+	 */
+	public SimulatedMiddleware(Duration latency, double errorRate, boolean binaryProtocol) {
+		this.latency = latency;
+		this.errorRate = errorRate;
+		this.binaryProtocol = binaryProtocol;
+		var d = BigIntegers.createRandomInRange(BigInteger.ONE, CryptoUtils.DOMAIN_PARAMS.getN().subtract(BigInteger.ONE), random);
+		this.signingKey = new ECPrivateKeyParameters(d, CryptoUtils.DOMAIN_PARAMS);
+		this.verifier = new SignatureVerifier(CryptoUtils.DOMAIN_PARAMS.getG().multiply(d).normalize().getEncoded(false));
+	}
+
+	/**
+	 * Connects a simulated device without any stored keys.
+	 *
+	 * @param serialNumber The serial number of the device
+	 * @param pin The PIN accepted by the device
+	 * @return This simulator
+	 */
+	public SimulatedMiddleware addDevice(String serialNumber, String pin) {
+		return addDevice(serialNumber, pin, latency);
+	}
+
+	/**
+	 * Connects a simulated device without any stored keys, which is slower or faster than the others.
+	 *
+	 * @param serialNumber The serial number of the device
+	 * @param pin The PIN accepted by the device
+	 * @param latency Minimum duration of each operation of this device
+	 * @return This simulator
+	 */
+	public SimulatedMiddleware addDevice(String serialNumber, String pin, Duration latency) {
+		devices.put(serialNumber, new Device(pin, latency));
+		return this;
+	}
+
+	@Override
+	public List<String> listDevices() {
+		return devices.keySet().stream().sorted().toList();
+	}
+
+	@Override
+	public SignatureVerifier signatureVerifier() {
+		return verifier;
+	}
+
+	@Override
+	public Connection open(String mode, String serialNumber, CharSequence pin) throws IOException {
+		var device = devices.get(serialNumber);
+		if (device == null) {
+			throw new IOException("No simulated SEcube with serial number " + serialNumber);
+		}
+		boolean loggedIn = device.pin.contentEquals(pin);
+		var toMiddleware = Pipe.open();
+		var fromMiddleware = Pipe.open();
+		var thread = new Thread(() -> serve(mode, device, loggedIn, toMiddleware.source(), fromMiddleware.sink()), "SEcube Simulator " + connectionNumber.incrementAndGet());
+		thread.setDaemon(true);
+		thread.start();
+		return new SimulatedConnection(thread, fromMiddleware.source(), toMiddleware.sink());
+	}
+
+	private void serve(String mode, Device device, boolean loggedIn, ReadableByteChannel in, WritableByteChannel out) {
+		try (in; out) {
+			var session = new Session(device, loggedIn, in, out);
+			if (SESSION_MODE.equals(mode)) {
+				session.serveText();
+			} else {
+				session.serveSingleRequest(mode);
+			}
+		} catch (IOException e) {
+			LOG.trace("Simulated middleware connection closed.", e);
+		}
+	}
+
+	private byte[] sign(byte[] hash) {
+		var signer = new ECDSASigner(new HMacDSAKCalculator(new SHA256Digest()));
+		signer.init(true, signingKey);
+		BigInteger[] rs = signer.generateSignature(hash);
+		// fixed-size DER encoding expected by CryptoUtils.verify: 30 44 02 20 r 02 20 s
+		byte[] signature = new byte[6 + 2 * SIGNATURE_COMPONENT_BYTES];
+		signature[0] = 0x30;
+		signature[1] = (byte) (signature.length - 2);
+		signature[2] = 0x02;
+		signature[3] = SIGNATURE_COMPONENT_BYTES;
+		BigIntegers.asUnsignedByteArray(rs[0], signature, 4, SIGNATURE_COMPONENT_BYTES);
+		signature[4 + SIGNATURE_COMPONENT_BYTES] = 0x02;
+		signature[5 + SIGNATURE_COMPONENT_BYTES] = SIGNATURE_COMPONENT_BYTES;
+		BigIntegers.asUnsignedByteArray(rs[1], signature, 6 + SIGNATURE_COMPONENT_BYTES, SIGNATURE_COMPONENT_BYTES);
+		return signature;
+	}
+
+	// AES in CBC mode with PKCS5 padding, as done by the middleware
+	private static byte[] encryptAES(byte[] data, byte[] key, byte[] iv) {
+		try {
+			Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding", CryptoUtils.PROVIDER);
+			cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, CryptoUtils.ENC_ALG), new IvParameterSpec(iv));
+			return cipher.doFinal(data);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] hmacSHA256(byte[] message, byte[] key) {
+		var hmac = new HMac(new SHA256Digest());
+		hmac.init(new KeyParameter(key));
+		hmac.update(message, 0, message.length);
+		byte[] mac = new byte[hmac.getMacSize()];
+		hmac.doFinal(mac, 0);
+		return mac;
+	}
+
+	private class Device {
+
+		private final String pin;
+		private final Duration latency;
+		private final Map<String, byte[]> keys = new ConcurrentHashMap<>();
+
+		Device(String pin, Duration latency) {
+			this.pin = pin;
+			this.latency = latency;
+		}
+
+		/**
+		 * Runs one operation exclusively, taking at least the configured latency.
+		 */
+		synchronized <T> T operate(DeviceOperation<T> operation) throws SimulatedFailure {
+			try {
+				Thread.sleep(latency.toMillis());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SimulatedFailure("Interrupted");
+			}
+			if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+				throw new SimulatedFailure("Simulated device failure");
+			}
+			return operation.run();
+		}
+
+		byte[] keyFor(String mode, String vaultId) {
+			if (CREATE_KEY.equals(mode)) {
+				byte[] key = new byte[VAULT_KEY_BYTES];
+				random.nextBytes(key);
+				keys.put(vaultId, key);
+				return key;
+			}
+			return keys.get(vaultId);
+		}
+	}
+
+	/**
+	 * The device side of one connection.
+	 */
+	private class Session {
+
+		private final Device device;
+		private final boolean loggedIn;
+		private final ReadableByteChannel in;
+		private final WritableByteChannel out;
+		private final InputStream textIn;
+		private final OutputStream textOut;
+		private HandshakeKeyAgreement.Mode keyAgreementMode = HandshakeKeyAgreement.Mode.DH;
+
+		Session(Device device, boolean loggedIn, ReadableByteChannel in, WritableByteChannel out) {
+			this.device = device;
+			this.loggedIn = loggedIn;
+			this.in = in;
+			this.out = out;
+			// unbuffered, so that no bytes of the binary protocol get consumed while reading lines
+			this.textIn = Channels.newInputStream(in);
+			this.textOut = Channels.newOutputStream(out);
+		}
+
+		void serveSingleRequest(String mode) throws IOException {
+			String publicKey = readArgument();
+			String vaultId = readArgument();
+			writeLines(textKeyReply(mode, publicKey, vaultId));
+		}
+
+		void serveText() throws IOException {
+			String line;
+			while ((line = readLine()) != null) {
+				switch (line) {
+					case QUIT -> {
+						return;
+					}
+					case NEGOTIATE -> {
+						keyAgreementMode = negotiateKeyAgreement(readArgument());
+						writeReply(List.of(keyAgreementMode.wireName()));
+					}
+					case FRAMING -> {
+						int version = negotiateFraming(readArgument());
+						writeReply(List.of(Integer.toString(version)));
+						if (version != 0) {
+							serveFrames(version);
+							return;
+						}
+					}
+					case RETRIEVE_KEY, CREATE_KEY -> writeReply(textKeyReply(line, readArgument(), readArgument()));
+					default -> writeReply(List.of("Error : Unknown mode " + line));
+				}
+			}
+		}
+
+		private <T> T operate(DeviceOperation<T> operation) throws SimulatedFailure {
+			if (!loggedIn) {
+				throw new SimulatedFailure("Login failed");
+			}
+			return device.operate(operation);
+		}
+
+		private HandshakeKeyAgreement.Mode negotiateKeyAgreement(String offer) {
+			for (String option : offer.split(" ")) {
+				for (var mode : HandshakeKeyAgreement.Mode.values()) {
+					if (mode.wireName().equals(option)) {
+						return mode;
+					}
+				}
+			}
+			return HandshakeKeyAgreement.Mode.DH;
+		}
+
+		private int negotiateFraming(String offer) {
+			if (binaryProtocol) {
+				for (String option : offer.split(" ")) {
+					int version = MiddlewareFrame.negotiatedVersion(option);
+					if (version != 0) {
+						return version;
+					}
+				}
+			}
+			return 0;
+		}
+
+		private List<String> textKeyReply(String mode, String peerPublicKeyHex, String vaultId) {
+			try {
+				return operate(() -> {
+					var handshake = handshake(keyAgreement -> keyAgreement.agree(peerPublicKeyHex));
+					byte[] key = device.keyFor(mode, vaultId);
+					if (key == null) {
+						throw new SimulatedFailure("No key stored for vault " + vaultId);
+					}
+					var sealed = handshake.seal(key);
+					String pkHex = handshake.keyAgreement.publicKeyHex();
+					int pkBits = switch (keyAgreementMode) {
+						case ECDH -> pkHex.length() * 4;
+						case DH -> new BigInteger(pkHex, 16).toByteArray().length * 8;
+					};
+					return List.of( //
+							Integer.toString(handshake.signature.length), Hex.toHexString(handshake.signature), //
+							Integer.toString(sealed.mac.length), Hex.toHexString(sealed.mac), //
+							Hex.toHexString(sealed.iv), //
+							Integer.toString(sealed.ciphertext.length), Hex.toHexString(sealed.ciphertext), //
+							Integer.toString(pkBits), pkHex);
+				});
+			} catch (SimulatedFailure e) {
+				return List.of("Error : " + e.getMessage());
+			}
+		}
+
+		private void serveFrames(int version) throws IOException {
+			while (true) {
+				MiddlewareFrame request;
+				try {
+					request = MiddlewareFrame.receive(in, version);
+				} catch (EOFException e) {
+					return;
+				}
+				MiddlewareFrame reply;
+				try {
+					reply = switch (request.type()) {
+						case RETRIEVE_KEY, CREATE_KEY -> operate(() -> keyFrame(request));
+						case RETRIEVE_KEYS -> operate(() -> keysFrame(request));
+						default -> throw new SimulatedFailure("Unexpected " + request.type() + " frame");
+					};
+				} catch (SimulatedFailure e) {
+					reply = new MiddlewareFrame(MiddlewareFrame.Type.ERROR, request.requestId(), List.of(e.getMessage().getBytes(StandardCharsets.UTF_8)));
+				}
+				MiddlewareFrame.send(out, version, List.of(reply));
+			}
+		}
+
+		private MiddlewareFrame keyFrame(MiddlewareFrame request) throws SimulatedFailure {
+			if (request.fields().size() != 2) {
+				throw new SimulatedFailure("Malformed request");
+			}
+			var mode = request.type() == MiddlewareFrame.Type.CREATE_KEY ? CREATE_KEY : RETRIEVE_KEY;
+			var vaultId = new String(request.fields().get(1), StandardCharsets.US_ASCII);
+			var handshake = handshake(keyAgreement -> keyAgreement.agree(request.fields().get(0)));
+			byte[] key = device.keyFor(mode, vaultId);
+			if (key == null) {
+				throw new SimulatedFailure("No key stored for vault " + vaultId);
+			}
+			var sealed = handshake.seal(key);
+			return new MiddlewareFrame(MiddlewareFrame.Type.KEY, request.requestId(), List.of(handshake.signature, sealed.mac, sealed.iv, sealed.ciphertext, handshake.keyAgreement.publicKey()));
+		}
+
+		private MiddlewareFrame keysFrame(MiddlewareFrame request) throws SimulatedFailure {
+			if (request.fields().isEmpty()) {
+				throw new SimulatedFailure("Malformed request");
+			}
+			var handshake = handshake(keyAgreement -> keyAgreement.agree(request.fields().get(0)));
+			List<byte[]> fields = new ArrayList<>();
+			fields.add(handshake.signature);
+			fields.add(handshake.keyAgreement.publicKey());
+			for (byte[] id : request.fields().subList(1, request.fields().size())) {
+				byte[] key = device.keyFor(RETRIEVE_KEY, new String(id, StandardCharsets.US_ASCII));
+				var sealed = key != null ? handshake.seal(key) : new Sealed(new byte[0], new byte[0], new byte[0]);
+				fields.add(sealed.mac);
+				fields.add(sealed.iv);
+				fields.add(sealed.ciphertext);
+			}
+			return new MiddlewareFrame(MiddlewareFrame.Type.KEYS, request.requestId(), fields);
+		}
+
+		private String readArgument() throws IOException {
+			String line = readLine();
+			if (line == null) {
+				throw new EOFException();
+			}
+			return line;
+		}
+
+		private String readLine() throws IOException {
+			var line = new ByteArrayOutputStream();
+			int b;
+			while ((b = textIn.read()) != '\n') {
+				if (b == -1) {
+					return line.size() == 0 ? null : line.toString(StandardCharsets.US_ASCII);
+				} else if (b != '\r') {
+					line.write(b);
+				}
+			}
+			return line.toString(StandardCharsets.US_ASCII);
+		}
+
+		private void writeReply(List<String> lines) throws IOException {
+			writeLines(lines.stream().map(line -> line + "\n").collect(Collectors.joining()) + "\n");
+		}
+
+		private void writeLines(List<String> lines) throws IOException {
+			writeLines(lines.stream().map(line -> line + "\n").collect(Collectors.joining()));
+		}
+
+		private void writeLines(String text) throws IOException {
+			textOut.write(text.getBytes(StandardCharsets.US_ASCII));
+			textOut.flush();
+		}
+
+		/**
+		 * Runs the device side of a handshake in the negotiated mode.
+		 */
+		private Handshake handshake(KeyAgreementStep agreement) throws SimulatedFailure {
+			var keyAgreement = keyAgreementMode.newKeyAgreement();
+			byte[] sharedSecret;
+			try {
+				sharedSecret = agreement.agree(keyAgreement);
+			} catch (IllegalArgumentException e) {
+				throw new SimulatedFailure("Invalid public key");
+			}
+			try {
+				return new Handshake(keyAgreement, CryptoUtils.hash(sharedSecret));
+			} catch (Exception e) {
+				throw new SimulatedFailure("Unable to hash the shared secret");
+			} finally {
+				Arrays.fill(sharedSecret, (byte) 0);
+			}
+		}
+
+		/**
+		 * The device side of a handshake: the agreed key and the signature of its hash.
+		 */
+		private class Handshake {
+
+			private final HandshakeKeyAgreement keyAgreement;
+			private final byte[] hash;
+			private final byte[] signature;
+
+			Handshake(HandshakeKeyAgreement keyAgreement, byte[] hash) {
+				this.keyAgreement = keyAgreement;
+				this.hash = hash;
+				this.signature = sign(hash);
+			}
+
+			Sealed seal(byte[] key) {
+				byte[] iv = new byte[IV_BYTES];
+				random.nextBytes(iv);
+				return new Sealed(hmacSHA256(key, hash), iv, encryptAES(key, hash, iv));
+			}
+		}
+	}
+
+	private record Sealed(byte[] mac, byte[] iv, byte[] ciphertext) {}
+
+	@FunctionalInterface
+	private interface KeyAgreementStep {
+
+		byte[] agree(HandshakeKeyAgreement keyAgreement);
+	}
+
+	@FunctionalInterface
+	private interface DeviceOperation<T> {
+
+		T run() throws SimulatedFailure;
+	}
+
+	/**
+	 * A device operation failing in a way the middleware reports as an error reply.
+	 */
+	private static class SimulatedFailure extends Exception {
+
+		SimulatedFailure(String message) {
+			super(message);
+		}
+	}
+
+	private static class SimulatedConnection implements Connection {
+
+		private final Thread middleware;
+		private final Pipe.SourceChannel in;
+		private final Pipe.SinkChannel out;
+		private final InputStream inputStream;
+		private final OutputStream outputStream;
+
+		SimulatedConnection(Thread middleware, Pipe.SourceChannel in, Pipe.SinkChannel out) {
+			this.middleware = middleware;
+			this.in = in;
+			this.out = out;
+			this.inputStream = Channels.newInputStream(in);
+			this.outputStream = Channels.newOutputStream(out);
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return inputStream;
+		}
+
+		@Override
+		public OutputStream getOutputStream() {
+			return outputStream;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return in.isOpen() && middleware.isAlive();
+		}
+
+		@Override
+		public void close() {
+			try {
+				out.close();
+				in.close();
+			} catch (IOException e) {
+				// nothing left to clean up
+			}
+		}
+	}
+
+}
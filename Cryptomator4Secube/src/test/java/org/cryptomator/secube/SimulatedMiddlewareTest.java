@@ -0,0 +1,217 @@
+package org.cryptomator.secube;
+
+import org.cryptomator.common.ShutdownHook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class SimulatedMiddlewareTest {
+
+	private static final String SERIAL = "SIM0001";
+	private static final String PIN = "1234";
+
+	private ExecutorService executor;
+	private ScheduledExecutorService scheduler;
+
+	@BeforeEach
+	public void setup() {
+		executor = Executors.newCachedThreadPool();
+		scheduler = Executors.newSingleThreadScheduledExecutor();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+		scheduler.shutdownNow();
+	}
+
+	private MiddlewareSessionManager sessionsFor(MiddlewareTransport transport) {
+		var shutdownHook = Mockito.mock(ShutdownHook.class);
+		return new MiddlewareSessionManager(scheduler, transport, new EphemeralKeyPool(executor, shutdownHook), new DeviceScheduler(executor, scheduler), shutdownHook);
+	}
+
+	@ParameterizedTest(name = "binary protocol: {0}")
+	@ValueSource(booleans = {true, false})
+	@DisplayName("retrieve-key returns the key created before")
+	public void testCreateAndRetrieve(boolean binaryProtocol) throws Exception {
+		var sessions = sessionsFor(new SimulatedMiddleware(Duration.ZERO, 0.0, binaryProtocol).addDevice(SERIAL, PIN));
+
+		String created = sessions.request("create-key", SERIAL, PIN, "42");
+		String retrieved = sessions.request("retrieve-key", SERIAL, PIN, "42");
+
+		Assertions.assertFalse(MiddlewareSessionManager.isError(created), created);
+		Assertions.assertEquals(created, retrieved);
+		sessions.closeAll();
+	}
+
+	@Test
+	@DisplayName("single-request connections answer like sessions")
+	public void testSingleRequest() throws Exception {
+		var transport = new SimulatedMiddleware(Duration.ZERO, 0.0, true).addDevice(SERIAL, PIN);
+
+		String created = Communication.main(transport, "create-key", SERIAL, PIN, "42", new DiffieHellmanKeyAgreement());
+		String retrieved = Communication.main(transport, "retrieve-key", SERIAL, PIN, "42", new DiffieHellmanKeyAgreement());
+
+		Assertions.assertFalse(MiddlewareSessionManager.isError(created), created);
+		Assertions.assertEquals(created, retrieved);
+	}
+
+	@Test
+	@DisplayName("batch retrieval returns every stored key and errors for missing ones")
+	public void testRetrieveKeys() throws Exception {
+		var sessions = sessionsFor(new SimulatedMiddleware(Duration.ZERO, 0.0, true).addDevice(SERIAL, PIN));
+		String first = sessions.request("create-key", SERIAL, PIN, "1");
+		String second = sessions.request("create-key", SERIAL, PIN, "2");
+
+		var keys = sessions.retrieveKeys(SERIAL, PIN, List.of("1", "2", "3"));
+
+		Assertions.assertEquals(first, keys.get("1"));
+		Assertions.assertEquals(second, keys.get("2"));
+		Assertions.assertTrue(MiddlewareSessionManager.isError(keys.get("3")));
+		sessions.closeAll();
+	}
+
+	@Test
+	@DisplayName("requests with a wrong PIN fail")
+	public void testWrongPin() throws Exception {
+		var sessions = sessionsFor(new SimulatedMiddleware(Duration.ZERO, 0.0, true).addDevice(SERIAL, PIN));
+		sessions.request("create-key", SERIAL, PIN, "42");
+
+		String result = sessions.request("retrieve-key", SERIAL, "0000", "42");
+
+		Assertions.assertTrue(MiddlewareSessionManager.isError(result), result);
+		sessions.closeAll();
+	}
+
+	@Test
+	@DisplayName("injected device failures are reported as errors")
+	public void testErrorInjection() throws Exception {
+		var sessions = sessionsFor(new SimulatedMiddleware(Duration.ZERO, 1.0, true).addDevice(SERIAL, PIN));
+
+		String result = sessions.request("create-key", SERIAL, PIN, "42");
+
+		Assertions.assertTrue(MiddlewareSessionManager.isError(result), result);
+		sessions.closeAll();
+	}
+
+	@Test
+	@DisplayName("replies signed with an unknown key are rejected")
+	public void testForeignSignature() {
+		var other = new SimulatedMiddleware(Duration.ZERO, 0.0, true);
+		var sessions = sessionsFor(new SimulatedMiddleware(Duration.ZERO, 0.0, true) {
+			@Override
+			public SignatureVerifier signatureVerifier() {
+				return other.signatureVerifier();
+			}
+		}.addDevice(SERIAL, PIN));
+
+		Assertions.assertThrows(SecurityException.class, () -> sessions.request("create-key", SERIAL, PIN, "42"));
+		sessions.closeAll();
+	}
+
+	@Test
+	@DisplayName("hedged retrieval takes the key from the device holding it")
+	public void testRetrieveKeyFromAny() throws Exception {
+		var sessions = sessionsFor(new SimulatedMiddleware(Duration.ZERO, 0.0, true) //
+				.addDevice("SIM-A", PIN) //
+				.addDevice("SIM-B", PIN) //
+				.addDevice("SIM-C", "other PIN"));
+		String key = sessions.request("create-key", "SIM-B", PIN, "42");
+
+		String retrieved = sessions.retrieveKeyFromAny(List.of("SIM-A", "SIM-B", "SIM-C"), PIN, "42");
+
+		Assertions.assertEquals(key, retrieved);
+		sessions.closeAll();
+	}
+
+	@Test
+	@DisplayName("hedged retrieval does not wait for slow devices")
+	public void testRetrieveKeyFromAnyIgnoresSlowDevice() throws Exception {
+		var sessions = sessionsFor(new SimulatedMiddleware(Duration.ZERO, 0.0, true) //
+				.addDevice("SLOW", PIN, Duration.ofSeconds(3)) //
+				.addDevice("FAST", PIN));
+		String key = sessions.request("create-key", "FAST", PIN, "42");
+
+		long start = System.nanoTime();
+		String retrieved = sessions.retrieveKeyFromAny(List.of("SLOW", "FAST"), PIN, "42");
+
+		Assertions.assertEquals(key, retrieved);
+		Assertions.assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+		sessions.closeAll();
+	}
+
+	@Test
+	@DisplayName("hedged retrieval reports an error if no device holds the key")
+	public void testRetrieveKeyFromAnyWithoutKey() throws Exception {
+		var sessions = sessionsFor(new SimulatedMiddleware(Duration.ZERO, 0.0, true).addDevice("SIM-A", PIN).addDevice("SIM-B", PIN));
+
+		String result = sessions.retrieveKeyFromAny(List.of("SIM-A", "SIM-B"), PIN, "42");
+
+		Assertions.assertTrue(MiddlewareSessionManager.isError(result), result);
+		sessions.closeAll();
+	}
+
+	/**
+	 * Checks that unlock and vault creation scale with the number of simulated devices, as each device serves its own requests.
+	 * Run with <code>-Dcryptomator.benchmark=true</code>.
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "cryptomator.benchmark", matches = "true")
+	@DisplayName("benchmark key requests against simulated devices")
+	public void benchmark() throws Exception {
+		int devices = Integer.getInteger("cryptomator.benchmark.devices", 4);
+		int vaultsPerDevice = Integer.getInteger("cryptomator.benchmark.vaults", 50);
+		var latency = Duration.ofMillis(Integer.getInteger("cryptomator.benchmark.latencyMillis", 20));
+		var simulator = new SimulatedMiddleware(latency, 0.0, true);
+		for (int d = 0; d < devices; d++) {
+			simulator.addDevice("SIM" + d, PIN);
+		}
+		var sessions = sessionsFor(simulator);
+
+		var sequential = latency.multipliedBy((long) devices * vaultsPerDevice);
+		Assertions.assertTrue(measure("create-key", sessions, devices, vaultsPerDevice).compareTo(sequential) < 0);
+		Assertions.assertTrue(measure("retrieve-key", sessions, devices, vaultsPerDevice).compareTo(sequential) < 0);
+		sessions.closeAll();
+	}
+
+	private Duration measure(String mode, MiddlewareSessionManager sessions, int devices, int vaultsPerDevice) throws Exception {
+		List<Callable<Void>> requests = new ArrayList<>();
+		for (int v = 1; v <= vaultsPerDevice; v++) { // interleaved, so that all devices are busy at the same time
+			for (int d = 0; d < devices; d++) {
+				String serial = "SIM" + d;
+				String vaultId = Integer.toString(v);
+				requests.add(() -> {
+					String result = sessions.request(mode, serial, PIN, vaultId);
+					Assertions.assertFalse(MiddlewareSessionManager.isError(result), result);
+					return null;
+				});
+			}
+		}
+		// stay within the per-device queue limit of the DeviceScheduler
+		var clients = Executors.newFixedThreadPool(DeviceScheduler.MAX_QUEUED_PER_DEVICE);
+		long start = System.nanoTime();
+		List<Future<Void>> futures = clients.invokeAll(requests);
+		var total = Duration.ofNanos(System.nanoTime() - start);
+		clients.shutdown();
+		for (var future : futures) {
+			future.get();
+		}
+		return total;
+	}
+
+}
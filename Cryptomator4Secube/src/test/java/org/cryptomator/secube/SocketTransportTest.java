@@ -0,0 +1,58 @@
+package org.cryptomator.secube;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+public class SocketTransportTest {
+
+	private ServerSocket daemon;
+	private SocketTransport transport;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		daemon = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		transport = new SocketTransport(daemon.getLocalPort());
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		daemon.close();
+	}
+
+	@Test
+	@DisplayName("a connection stays open while the daemon is idle")
+	public void testIdleConnectionIsOpen() throws IOException {
+		try (var connection = transport.open(MiddlewareTransport.SESSION_MODE, "SN", "1234"); Socket peer = daemon.accept()) {
+			Assertions.assertTrue(connection.isOpen());
+
+			peer.getOutputStream().write('x');
+			Assertions.assertTrue(connection.isOpen());
+			Assertions.assertEquals('x', connection.getInputStream().read()); // the probe must not swallow data
+		}
+	}
+
+	@Test
+	@DisplayName("a connection closed by the daemon is no longer open")
+	public void testPeerClose() throws IOException, InterruptedException {
+		try (var connection = transport.open(MiddlewareTransport.SESSION_MODE, "SN", "1234")) {
+			daemon.accept().close();
+
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (connection.isOpen() && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+
+			Assertions.assertFalse(connection.isOpen());
+		}
+	}
+
+}
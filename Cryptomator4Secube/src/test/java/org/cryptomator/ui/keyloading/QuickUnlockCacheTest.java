@@ -0,0 +1,143 @@
+package org.cryptomator.ui.keyloading;
+
+import org.cryptomator.common.settings.VaultSettings;
+import org.cryptomator.common.vaults.Vault;
+import org.cryptomator.common.vaults.VaultState;
+import org.cryptomator.common.vaults.VaultStateEvent;
+import org.cryptomator.common.vaults.VaultStateEventBus;
+import org.cryptomator.cryptolib.api.Masterkey;
+import org.cryptomator.cryptolib.api.MasterkeyLoadingFailedException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import java.net.URI;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class QuickUnlockCacheTest {
+
+	private static final URI KEY_ID = URI.create("masterkeyfile:masterkey.cryptomator");
+
+	private final SecureRandom csprng = new SecureRandom();
+	private final VaultSettings vaultSettings = VaultSettings.withRandomId();
+	private final Vault vault = Mockito.mock(Vault.class);
+	private final ScheduledExecutorService scheduler = Mockito.mock(ScheduledExecutorService.class);
+	private final ObservableList<Vault> vaultList = FXCollections.observableArrayList();
+	private Consumer<VaultStateEvent> stateChanges;
+	private QuickUnlockCache cache;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	public void setup() {
+		Mockito.when(vault.getId()).thenReturn(vaultSettings.getId());
+		Mockito.when(vault.getVaultSettings()).thenReturn(vaultSettings);
+		vaultSettings.quickUnlockSeconds().set(60);
+		vaultList.add(vault);
+		var eventBus = Mockito.mock(VaultStateEventBus.class);
+		cache = new QuickUnlockCache(vaultList, eventBus, scheduler, csprng);
+		ArgumentCaptor<Consumer<VaultStateEvent>> consumer = ArgumentCaptor.forClass(Consumer.class);
+		Mockito.verify(eventBus).consume(consumer.capture(), Mockito.eq(scheduler));
+		stateChanges = consumer.getValue();
+	}
+
+	@Test
+	@DisplayName("remembered keys can be taken once")
+	public void testTakeRememberedKey() {
+		var masterkey = Masterkey.generate(csprng);
+
+		cache.remember(vault, masterkey);
+
+		var taken = cache.take(vault);
+		Assertions.assertTrue(taken.isPresent());
+		Assertions.assertArrayEquals(masterkey.getEncoded(), taken.get().getEncoded());
+		Assertions.assertTrue(cache.take(vault).isEmpty());
+	}
+
+	@Test
+	@DisplayName("keys of vaults without quick re-unlock window aren't remembered")
+	public void testDisabled() {
+		vaultSettings.quickUnlockSeconds().set(0);
+
+		cache.remember(vault, Masterkey.generate(csprng));
+
+		Assertions.assertTrue(cache.take(vault).isEmpty());
+	}
+
+	@Test
+	@DisplayName("keys are wiped as soon as the window is disabled")
+	public void testWipedWhenDisabled() {
+		cache.remember(vault, Masterkey.generate(csprng));
+
+		vaultSettings.quickUnlockSeconds().set(0);
+		vaultSettings.quickUnlockSeconds().set(60);
+
+		Assertions.assertTrue(cache.take(vault).isEmpty());
+	}
+
+	@Test
+	@DisplayName("keys are wiped as soon as the vault is removed")
+	public void testWipedWhenRemoved() {
+		cache.remember(vault, Masterkey.generate(csprng));
+
+		vaultList.remove(vault);
+		vaultList.add(vault);
+
+		Assertions.assertTrue(cache.take(vault).isEmpty());
+	}
+
+	@Test
+	@DisplayName("keys are wiped when the window after locking expired")
+	public void testExpiresAfterLocking() {
+		cache.remember(vault, Masterkey.generate(csprng));
+
+		stateChanges.accept(new VaultStateEvent(vault.getId(), VaultState.Value.PROCESSING, VaultState.Value.LOCKED, Instant.now()));
+
+		var expiry = ArgumentCaptor.forClass(Runnable.class);
+		Mockito.verify(scheduler).schedule(expiry.capture(), Mockito.eq(60_000L), Mockito.eq(TimeUnit.MILLISECONDS));
+		expiry.getValue().run();
+		Assertions.assertTrue(cache.take(vault).isEmpty());
+	}
+
+	@Test
+	@DisplayName("quick re-unlock skips the delegate and remembers the key again")
+	public void testStrategyUsesRememberedKey() throws MasterkeyLoadingFailedException {
+		var masterkey = Masterkey.generate(csprng);
+		cache.remember(vault, masterkey);
+		var delegate = Mockito.mock(KeyLoadingStrategy.class);
+		var strategy = new QuickUnlockLoadingStrategy(vault, cache, delegate);
+
+		var loaded = strategy.loadKey(KEY_ID);
+		strategy.cleanup(true);
+
+		Assertions.assertArrayEquals(masterkey.getEncoded(), loaded.getEncoded());
+		Mockito.verify(delegate, Mockito.never()).loadKey(Mockito.any());
+		Assertions.assertArrayEquals(masterkey.getEncoded(), cache.take(vault).orElseThrow().getEncoded());
+	}
+
+	@Test
+	@DisplayName("a failing remembered key falls back to the delegate")
+	public void testStrategyFallsBackToDelegate() throws MasterkeyLoadingFailedException {
+		cache.remember(vault, Masterkey.generate(csprng));
+		var delegated = Masterkey.generate(csprng);
+		var delegate = Mockito.mock(KeyLoadingStrategy.class);
+		Mockito.when(delegate.loadKey(KEY_ID)).thenReturn(delegated);
+		var strategy = new QuickUnlockLoadingStrategy(vault, cache, delegate);
+
+		strategy.loadKey(KEY_ID);
+		boolean recovered = strategy.recoverFromException(new MasterkeyLoadingFailedException("wrong key"));
+		var loaded = strategy.loadKey(KEY_ID);
+
+		Assertions.assertTrue(recovered);
+		Assertions.assertSame(delegated, loaded);
+	}
+
+}
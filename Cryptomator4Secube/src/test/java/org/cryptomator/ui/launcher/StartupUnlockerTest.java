@@ -0,0 +1,93 @@
+package org.cryptomator.ui.launcher;
+
+import org.cryptomator.common.Environment;
+import org.cryptomator.common.keychain.KeychainManager;
+import org.cryptomator.common.vaults.Vault;
+import org.cryptomator.integrations.keychain.KeychainAccessException;
+import org.cryptomator.ui.fxapp.FxApplication;
+import org.cryptomator.ui.keyloading.masterkeyfile.SecubeUnlockBatch;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class StartupUnlockerTest {
+
+	private final Map<Vault, CompletableFuture<Boolean>> started = new LinkedHashMap<>();
+	private FxApplication app;
+	private KeychainManager keychain;
+	private StartupUnlocker unlocker;
+
+	@BeforeEach
+	public void setup() throws KeychainAccessException {
+		app = Mockito.mock(FxApplication.class);
+		Mockito.when(app.startUnlockWorkflow(Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+			var unlocked = new CompletableFuture<Boolean>();
+			started.put(invocation.getArgument(0), unlocked);
+			return unlocked;
+		});
+		keychain = Mockito.mock(KeychainManager.class);
+		Mockito.when(keychain.isSupported()).thenReturn(true);
+		Mockito.when(keychain.isPassphraseStored(Mockito.startsWith("stored"))).thenReturn(true);
+		var environment = Mockito.mock(Environment.class);
+		Mockito.when(environment.getAutoUnlockParallelism()).thenReturn(2);
+		unlocker = new StartupUnlocker(keychain, new SecubeUnlockBatch(Mockito.mock(ScheduledExecutorService.class)), environment);
+	}
+
+	private static List<Vault> vaults(String idPrefix, int count) {
+		List<Vault> vaults = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			var vault = Mockito.mock(Vault.class);
+			Mockito.when(vault.getId()).thenReturn(idPrefix + i);
+			vaults.add(vault);
+		}
+		return vaults;
+	}
+
+	@Test
+	@DisplayName("vaults with a stored passphrase are unlocked concurrently up to the limit")
+	public void testUnattendedUnlocksAreLimited() {
+		var vaults = vaults("stored", 5);
+
+		var done = unlocker.unlock(app, vaults).toCompletableFuture();
+
+		Assertions.assertEquals(vaults.subList(0, 2), List.copyOf(started.keySet()));
+		started.get(vaults.get(0)).complete(true);
+		Assertions.assertEquals(vaults.subList(0, 3), List.copyOf(started.keySet()));
+		started.get(vaults.get(1)).complete(false);
+		started.get(vaults.get(2)).complete(true);
+		Assertions.assertEquals(vaults, List.copyOf(started.keySet()));
+		Assertions.assertFalse(done.isDone());
+		started.get(vaults.get(3)).complete(true);
+		started.get(vaults.get(4)).complete(true);
+		Assertions.assertTrue(done.isDone());
+	}
+
+	@Test
+	@DisplayName("vaults asking for a password are unlocked one after another")
+	public void testPromptsAreQueued() {
+		var prompted = vaults("prompted", 2);
+		var stored = vaults("stored", 1);
+		List<Vault> vaults = new ArrayList<>(prompted);
+		vaults.addAll(stored);
+
+		var done = unlocker.unlock(app, vaults).toCompletableFuture();
+
+		Assertions.assertEquals(List.of(prompted.get(0), stored.get(0)), List.copyOf(started.keySet()));
+		started.get(prompted.get(0)).complete(false);
+		Mockito.verify(app).startUnlockWorkflow(prompted.get(1), Optional.empty());
+		started.get(stored.get(0)).complete(true);
+		started.get(prompted.get(1)).complete(true);
+		Assertions.assertTrue(done.isDone());
+	}
+
+}